@@ -0,0 +1,193 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.apex.handler.oauth2.OAuth2ProviderMimic;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.impl.oauth2.SimpleOAuth2Provider;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.CookieHandler;
+import io.vertx.ext.web.handler.OAuth2AuthHandler;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.handler.oauth2.OAuth2HandlerOptions;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end throughput and latency of the OAuth2 login round-trip over loopback HTTP, against an in-process
+ * OAuth2 provider (the OAuth2ProviderMimic verticle from the test sources).
+ *
+ * Each login invocation starts with no session cookie and follows every hop a browser would:
+ * <ol>
+ *   <li>GET the private url, which is redirected to the provider</li>
+ *   <li>GET the provider authentication url, which is redirected back to our auth result handler with a code</li>
+ *   <li>GET the auth result handler, which exchanges the code for a token and redirects to the private url</li>
+ *   <li>GET the private url again, which now succeeds</li>
+ * </ol>
+ *
+ * The authenticatedRequest benchmark reuses a logged-in session cookie, giving the steady-state cost of a protected
+ * request. Run with -t to add concurrent clients, and read the p99 from the sample time mode output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginRoundTripBenchmark {
+
+  private static final int APPLICATION_PORT = 8181;
+  private static final String APPLICATION_SERVER = "http://localhost:" + APPLICATION_PORT;
+  private static final String PRIVATE_URL = APPLICATION_SERVER + "/private/page.html";
+  private static final String PROVIDER_SERVER = "http://localhost:" + OAuth2ProviderMimic.OAUTH2PROVIDER_PORT;
+  private static final String SESSION_PARAM_TOKEN = "benchmarkOAuth2Token";
+  private static final long HOP_TIMEOUT_SECONDS = 10;
+
+  private Vertx vertx;
+
+  @Setup
+  public void startServers() throws Exception {
+    vertx = Vertx.vertx();
+    final CompletableFuture<String> deployed = new CompletableFuture<>();
+    vertx.deployVerticle(OAuth2ProviderMimic.class.getName(), res -> {
+      if (res.succeeded()) {
+        deployed.complete(res.result());
+      } else {
+        deployed.completeExceptionally(res.cause());
+      }
+    });
+    deployed.get(HOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+    final SessionStore sessionStore = LocalSessionStore.create(vertx);
+    final Router router = Router.router(vertx);
+    router.route().handler(CookieHandler.create());
+    router.route().handler(SessionHandler.create(sessionStore).setSessionCookieName("oAuth2Benchmark.session"));
+    final AuthProvider authProvider = SimpleOAuth2Provider.create(SESSION_PARAM_TOKEN, sessionStore);
+    router.route("/private/*").handler(OAuth2AuthHandler.create(authProvider,
+      new OAuth2HandlerOptions("testClient", "testClientSecret",
+        PROVIDER_SERVER + OAuth2ProviderMimic.OAUTH2_PROVIDER_SUCCESS_ENDPOINT, APPLICATION_SERVER + "/authResult",
+        PROVIDER_SERVER + OAuth2ProviderMimic.OAUTH2_PROVIDER_TOKEN_ENDPOINT), router, vertx));
+    router.route().handler(rc -> rc.response().end("ok"));
+
+    final CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+    vertx.createHttpServer().requestHandler(router::accept).listen(APPLICATION_PORT, res -> {
+      if (res.succeeded()) {
+        listening.complete(res.result());
+      } else {
+        listening.completeExceptionally(res.cause());
+      }
+    });
+    listening.get(HOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @TearDown
+  public void stopServers() {
+    vertx.close();
+  }
+
+  /**
+   * Per benchmark thread client, holding the cookie of a session which has already logged in
+   */
+  @State(Scope.Thread)
+  public static class Client {
+    HttpClient httpClient;
+    String loggedInCookie;
+
+    @Setup
+    public void setup(final LoginRoundTripBenchmark benchmark) throws Exception {
+      httpClient = benchmark.vertx.createHttpClient();
+      loggedInCookie = login(httpClient).get(HOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+      httpClient.close();
+    }
+  }
+
+  @Benchmark
+  public String login(final Client client) throws Exception {
+    return login(client.httpClient).get(HOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  public int authenticatedRequest(final Client client) throws Exception {
+    final CompletableFuture<Integer> status = new CompletableFuture<>();
+    get(client.httpClient, PRIVATE_URL, client.loggedInCookie, status, resp -> status.complete(resp.statusCode()));
+    return status.get(HOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Run a full login from a fresh session
+   * @param client - the client to issue requests from
+   * @return a future completed with the session cookie once the private url has been successfully reached
+   */
+  private static CompletableFuture<String> login(final HttpClient client) {
+    final CompletableFuture<String> result = new CompletableFuture<>();
+    get(client, PRIVATE_URL, null, result, initial -> {
+      final String cookie = sessionCookie(initial.getHeader("set-cookie"));
+      expectRedirect(initial, result, providerUrl ->
+        get(client, providerUrl, cookie, result, providerResp ->
+          expectRedirect(providerResp, result, callbackUrl ->
+            get(client, callbackUrl, cookie, result, callbackResp ->
+              expectRedirect(callbackResp, result, returnUrl ->
+                get(client, returnUrl, cookie, result, finalResp -> {
+                  if (finalResp.statusCode() == 200) {
+                    result.complete(cookie);
+                  } else {
+                    result.completeExceptionally(new IllegalStateException("Login ended with " + finalResp.statusCode()));
+                  }
+                }))))));
+    });
+    return result;
+  }
+
+  private static void expectRedirect(final HttpClientResponse resp, final CompletableFuture<?> result,
+                                     final Handler<String> next) {
+    if (resp.statusCode() == 302) {
+      next.handle(resp.getHeader("location"));
+    } else {
+      result.completeExceptionally(new IllegalStateException("Expected a redirect but got " + resp.statusCode()));
+    }
+  }
+
+  private static void get(final HttpClient client, final String url, final String cookie,
+                          final CompletableFuture<?> result, final Handler<HttpClientResponse> handler) {
+    final HttpClientRequest request = client.getAbs(url);
+    if (cookie != null) {
+      request.putHeader("cookie", cookie);
+    }
+    request.exceptionHandler(result::completeExceptionally);
+    request.handler(resp -> {
+      // Drain the body before moving on, so the connection is returned to the pool
+      resp.bodyHandler(body -> handler.handle(resp));
+    });
+    request.end();
+  }
+
+  private static String sessionCookie(final String setCookie) {
+    if (setCookie == null) {
+      return null;
+    }
+    final int attributes = setCookie.indexOf(';');
+    return attributes < 0 ? setCookie : setCookie.substring(0, attributes);
+  }
+}
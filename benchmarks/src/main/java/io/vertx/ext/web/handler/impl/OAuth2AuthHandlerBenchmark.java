@@ -0,0 +1,95 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.oauth2.BenchmarkStubs;
+import io.vertx.ext.web.handler.oauth2.OAuth2HandlerOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures OAuth2AuthHandlerImpl.handle in isolation, with a synchronous stub auth provider and stub request,
+ * response and session objects, for the three paths a protected request can take:
+ * <ul>
+ *   <li>the user is already on the routing context</li>
+ *   <li>there is no user, but the auth provider finds a token for the session</li>
+ *   <li>there is no token, so the handler redirects to the OAuth2 provider</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OAuth2AuthHandlerBenchmark {
+
+  private static final String REQUEST_URL = "https://app.example.com/private/page.html";
+  private static final String SESSION_ID = "0b5e6e4c-5f0a-4ea3-9b6c-3cde8f1c1f5e";
+
+  private Vertx vertx;
+  private OAuth2AuthHandlerImpl authenticatingHandler;
+  private OAuth2AuthHandlerImpl rejectingHandler;
+
+  private final BenchmarkStubs.Recorder loggedInRecorder = new BenchmarkStubs.Recorder();
+  private final BenchmarkStubs.Recorder tokenRecorder = new BenchmarkStubs.Recorder();
+  private final BenchmarkStubs.Recorder redirectRecorder = new BenchmarkStubs.Recorder();
+  private RoutingContext loggedInContext;
+  private RoutingContext tokenContext;
+  private RoutingContext redirectContext;
+
+  @Setup
+  public void setup() {
+    vertx = Vertx.vertx();
+    final BenchmarkStubs.StubOAuth2AuthProvider authenticating = new BenchmarkStubs.StubOAuth2AuthProvider(true);
+    authenticatingHandler = new OAuth2AuthHandlerImpl(authenticating, options(), Router.router(vertx), vertx);
+    rejectingHandler = new OAuth2AuthHandlerImpl(BenchmarkStubs.rejectingProvider(), options(), Router.router(vertx), vertx);
+
+    loggedInContext = BenchmarkStubs.routingContext(REQUEST_URL, SESSION_ID, loggedInRecorder);
+    loggedInRecorder.user = authenticating.user();
+    tokenContext = BenchmarkStubs.routingContext(REQUEST_URL, SESSION_ID, tokenRecorder);
+    redirectContext = BenchmarkStubs.routingContext(REQUEST_URL, SESSION_ID, redirectRecorder);
+  }
+
+  @TearDown
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Benchmark
+  public int handleWithUser() {
+    authenticatingHandler.handle(loggedInContext);
+    return loggedInRecorder.nextCalls;
+  }
+
+  @Benchmark
+  public int handleWithStoredToken() {
+    tokenRecorder.user = null;
+    authenticatingHandler.handle(tokenContext);
+    return tokenRecorder.nextCalls;
+  }
+
+  @Benchmark
+  public int handleUnauthenticated() {
+    redirectRecorder.headers.clear();
+    rejectingHandler.handle(redirectContext);
+    return redirectRecorder.ends;
+  }
+
+  private static OAuth2HandlerOptions options() {
+    return new OAuth2HandlerOptions("benchmark-client", "benchmark-secret", "https://idp.example.com/oauth2/authorize",
+      "https://app.example.com/authResult", "https://idp.example.com/oauth2/token");
+  }
+}
@@ -0,0 +1,75 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.impl.HeadersAdaptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of setting the headers of a redirect on the Netty backed header map behind a server response:
+ * <ul>
+ *   <li>literal - a string header name, with the content length left to the response to format when it ends, as
+ *   the handler used to redirect</li>
+ *   <li>optimized - preencoded header names and content length, as the handler now redirects</li>
+ *   <li>optimizedNoStore - as optimized, with the preencoded Cache-Control: no-store as well</li>
+ * </ul>
+ * Each finishes with the content length check the response makes when it ends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedirectResponseBenchmark {
+
+  private static final String LOCATION_URL = "https://idp.example.com/oauth2/authorize?client_id=benchmark-client" +
+    "&redirect_uri=https%3A%2F%2Fapp.example.com%2FauthResult&response_type=code" +
+    "&state=3a7bd3e2360a3d29eea436fcfb7e44c735d117c42d1c1835420b6b9942dd4f1b";
+  private static final CharSequence NO_STORE = HttpHeaders.createOptimized("no-store");
+  private static final CharSequence NO_CONTENT_LENGTH = HttpHeaders.createOptimized("0");
+
+  private final MultiMap headers = new HeadersAdaptor(new DefaultHttpHeaders());
+
+  @Benchmark
+  public int literal() {
+    headers.clear();
+    headers.set("location", LOCATION_URL);
+    return end();
+  }
+
+  @Benchmark
+  public int optimized() {
+    headers.clear();
+    headers.set(HttpHeaders.LOCATION, LOCATION_URL);
+    headers.set(HttpHeaders.CONTENT_LENGTH, NO_CONTENT_LENGTH);
+    return end();
+  }
+
+  @Benchmark
+  public int optimizedNoStore() {
+    headers.clear();
+    headers.set(HttpHeaders.LOCATION, LOCATION_URL);
+    headers.set(HttpHeaders.CONTENT_LENGTH, NO_CONTENT_LENGTH);
+    headers.set(HttpHeaders.CACHE_CONTROL, NO_STORE);
+    return end();
+  }
+
+  private int end() {
+    if (!headers.contains(HttpHeaders.CONTENT_LENGTH)) {
+      headers.set(HttpHeaders.CONTENT_LENGTH, String.valueOf(0));
+    }
+    return headers.size();
+  }
+}
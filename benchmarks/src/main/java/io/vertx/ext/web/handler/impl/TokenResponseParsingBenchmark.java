@@ -0,0 +1,68 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the token endpoint response body, as done by the handler's token result handler, for a
+ * minimal response and for one carrying a large id_token and extra claims as some providers return. The targeted
+ * OAuth2TokenResponse parser the handler uses is compared with building a full JsonObject from the body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenResponseParsingBenchmark {
+
+  @Param({"minimal", "large"})
+  public String response;
+
+  private Buffer body;
+
+  @Setup
+  public void setup() {
+    final JsonObject json = new JsonObject()
+      .put("access_token", UUID.randomUUID().toString())
+      .put("token_type", "Bearer")
+      .put("expires_in", 3600);
+    if ("large".equals(response)) {
+      final StringBuilder idToken = new StringBuilder();
+      while (idToken.length() < 4096) {
+        idToken.append(UUID.randomUUID().toString().replace("-", ""));
+      }
+      json.put("refresh_token", UUID.randomUUID().toString())
+        .put("id_token", idToken.toString())
+        .put("scope", "openid profile email offline_access")
+        .put("claims", new JsonObject().put("groups", "admins,users,reporting").put("locale", "en-GB"));
+    }
+    body = Buffer.buffer(json.encode());
+  }
+
+  @Benchmark
+  public OAuth2TokenResponse targetedParser() {
+    return OAuth2TokenResponse.parse(body);
+  }
+
+  @Benchmark
+  public Optional<String> jsonObject() {
+    return Optional.ofNullable(new JsonObject(body.toString()).getString("access_token"));
+  }
+}
@@ -0,0 +1,60 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.http.HttpClientRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Measures writing the body of the code-for-token exchange request. The body writer is created once, as
+ * AuthTokenRequestor does, and applied to a stub request which discards the bytes written.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthTokenRequestProviderBenchmark {
+
+  private final BenchmarkStubs.Recorder recorder = new BenchmarkStubs.Recorder();
+  private BiConsumer<HttpClientRequest, AuthTokenGrant> postBodyWriter;
+  private BiConsumer<HttpClientRequest, AuthTokenGrant> postBasicBodyWriter;
+  private HttpClientRequest request;
+  private AuthTokenGrant grant;
+
+  @Setup
+  public void setup() {
+    final AuthTokenRequestParameters params = new AuthTokenRequestParameters("https://idp.example.com/oauth2/token",
+      "benchmark-client", "benchmark-secret", "https://app.example.com/authResult");
+    postBodyWriter = AuthTokenRequestProvider.POST.bodyWriter(params);
+    postBasicBodyWriter = AuthTokenRequestProvider.POST_BASIC.bodyWriter(params);
+    request = BenchmarkStubs.clientRequest(recorder);
+    grant = AuthTokenGrant.authorizationCode(UUID.randomUUID().toString());
+  }
+
+  @Benchmark
+  public long postBodyWriter() {
+    recorder.headers.clear();
+    postBodyWriter.accept(request, grant);
+    return recorder.bytesWritten;
+  }
+
+  @Benchmark
+  public long postBasicBodyWriter() {
+    recorder.headers.clear();
+    postBasicBodyWriter.accept(request, grant);
+    return recorder.bytesWritten;
+  }
+}
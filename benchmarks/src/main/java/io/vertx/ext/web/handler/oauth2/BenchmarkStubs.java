@@ -0,0 +1,963 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerFileUpload;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.impl.oauth2.OAuth2AuthProvider;
+import io.vertx.ext.web.Cookie;
+import io.vertx.ext.web.FileUpload;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+
+import javax.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory stand-ins for the Vert.x request, response, session and routing context types used by the handler
+ * benchmarks. Each implements just the methods the code under measurement calls, so a call through the stub costs
+ * what a call through the real type would rather than a reflective dispatch; any other method throws, so a change to
+ * the handler which starts relying on one shows up as a failed benchmark rather than a silently wrong measurement.
+ *
+ * The stubs record just enough (bytes written, headers set, how the request completed) for the benchmarks to hand
+ * something to the JMH blackhole, so the JIT cannot eliminate the work being measured.
+ */
+public final class BenchmarkStubs {
+
+  private BenchmarkStubs() {
+  }
+
+  /**
+   * Outcome recorded by a stub routing context or client request
+   */
+  public static final class Recorder {
+    public int nextCalls;
+    public int failures;
+    public int ends;
+    public int statusCode;
+    public long bytesWritten;
+    public final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+    public User user;
+
+    public void reset() {
+      headers.clear();
+      user = null;
+    }
+  }
+
+  /**
+   * Create a client request which discards everything written to it, recording headers and byte counts
+   * @param recorder - the recorder to update
+   * @return the stub request
+   */
+  public static HttpClientRequest clientRequest(final Recorder recorder) {
+    return new StubClientRequest(recorder);
+  }
+
+  /**
+   * Create a routing context over an in-memory session, for a GET of the given absolute url
+   * @param absoluteUri - the url the stub request reports
+   * @param sessionId - the id of the in-memory session, or null for no session at all
+   * @param recorder - the recorder to update as the handler completes the request
+   * @return the stub routing context
+   */
+  public static RoutingContext routingContext(final String absoluteUri, final String sessionId, final Recorder recorder) {
+    final StubServerResponse response = new StubServerResponse(recorder);
+    return new StubRoutingContext(new StubServerRequest(absoluteUri, response),
+      sessionId == null ? null : session(sessionId), recorder);
+  }
+
+  /**
+   * Create an in-memory session
+   * @param id - the session id
+   * @return the session
+   */
+  public static Session session(final String id) {
+    return new StubSession(id);
+  }
+
+  /**
+   * An OAuth2 auth provider which answers synchronously, so that the handler benchmarks measure the handler rather
+   * than a session store
+   */
+  public static final class StubOAuth2AuthProvider implements OAuth2AuthProvider {
+
+    private final boolean authenticated;
+    private final User user = new StubUser();
+
+    public StubOAuth2AuthProvider(final boolean authenticated) {
+      this.authenticated = authenticated;
+    }
+
+    @Override
+    public void authenticate(JsonObject authInfo, Handler<AsyncResult<User>> resultHandler) {
+      if (authenticated) {
+        resultHandler.handle(Future.succeededFuture(user));
+      } else {
+        resultHandler.handle(Future.failedFuture("Token not present"));
+      }
+    }
+
+    @Override
+    public BiConsumer<RoutingContext, String> tokenHandler() {
+      return (routingContext, token) -> {};
+    }
+
+    public User user() {
+      return user;
+    }
+  }
+
+  /**
+   * @return an auth provider which always authenticates successfully
+   */
+  public static AuthProvider authenticatingProvider() {
+    return new StubOAuth2AuthProvider(true);
+  }
+
+  /**
+   * @return an auth provider which never authenticates
+   */
+  public static AuthProvider rejectingProvider() {
+    return new StubOAuth2AuthProvider(false);
+  }
+
+  private static UnsupportedOperationException unused() {
+    return new UnsupportedOperationException("Not used by the benchmarks");
+  }
+
+  /**
+   * Client request which records the headers put and the bytes written, and sends nothing
+   */
+  private static final class StubClientRequest implements HttpClientRequest {
+
+    private final Recorder recorder;
+
+    StubClientRequest(final Recorder recorder) {
+      this.recorder = recorder;
+    }
+
+    @Override
+    public MultiMap headers() {
+      return recorder.headers;
+    }
+
+    @Override
+    public HttpClientRequest putHeader(String name, String value) {
+      recorder.headers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest putHeader(CharSequence name, CharSequence value) {
+      recorder.headers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest putHeader(String name, Iterable<String> values) {
+      recorder.headers.set(name, values);
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest putHeader(CharSequence name, Iterable<CharSequence> values) {
+      recorder.headers.set(name, values);
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest write(Buffer chunk) {
+      recorder.bytesWritten += chunk.length();
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest write(String chunk) {
+      recorder.bytesWritten += chunk.length();
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest write(String chunk, String enc) {
+      recorder.bytesWritten += chunk.length();
+      return this;
+    }
+
+    @Override
+    public void end(String chunk) {
+      write(chunk);
+      end();
+    }
+
+    @Override
+    public void end(String chunk, String enc) {
+      write(chunk, enc);
+      end();
+    }
+
+    @Override
+    public void end(Buffer chunk) {
+      write(chunk);
+      end();
+    }
+
+    @Override
+    public void end() {
+      recorder.ends++;
+    }
+
+    @Override
+    public HttpClientRequest exceptionHandler(Handler<Throwable> handler) {
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest handler(Handler<HttpClientResponse> handler) {
+      return this;
+    }
+
+    @Override
+    public HttpClientRequest setWriteQueueMaxSize(int maxSize) {
+      throw unused();
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest drainHandler(Handler<Void> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest pause() {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest resume() {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest endHandler(Handler<Void> endHandler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest setChunked(boolean chunked) {
+      throw unused();
+    }
+
+    @Override
+    public boolean isChunked() {
+      throw unused();
+    }
+
+    @Override
+    public HttpMethod method() {
+      return HttpMethod.POST;
+    }
+
+    @Override
+    public String uri() {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest continueHandler(Handler<Void> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest sendHead() {
+      throw unused();
+    }
+
+    @Override
+    public HttpClientRequest setTimeout(long timeoutMs) {
+      return this;
+    }
+  }
+
+  /**
+   * Server request for a GET of a fixed url, with no headers or parameters
+   */
+  private static final class StubServerRequest implements HttpServerRequest {
+
+    private final String absoluteUri;
+    private final String uri;
+    private final HttpServerResponse response;
+    private final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+    private final MultiMap params = MultiMap.caseInsensitiveMultiMap();
+
+    StubServerRequest(final String absoluteUri, final HttpServerResponse response) {
+      this.absoluteUri = absoluteUri;
+      this.uri = absoluteUri.substring(absoluteUri.indexOf('/', absoluteUri.indexOf("//") + 2));
+      this.response = response;
+    }
+
+    @Override
+    public String absoluteURI() {
+      return absoluteUri;
+    }
+
+    @Override
+    public String uri() {
+      return uri;
+    }
+
+    @Override
+    public String path() {
+      return uri;
+    }
+
+    @Override
+    public String query() {
+      return null;
+    }
+
+    @Override
+    public HttpMethod method() {
+      return HttpMethod.GET;
+    }
+
+    @Override
+    public HttpVersion version() {
+      return HttpVersion.HTTP_1_1;
+    }
+
+    @Override
+    public HttpServerResponse response() {
+      return response;
+    }
+
+    @Override
+    public MultiMap headers() {
+      return headers;
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+      return headers.get(headerName);
+    }
+
+    @Override
+    public MultiMap params() {
+      return params;
+    }
+
+    @Override
+    public String getParam(String paramName) {
+      return params.get(paramName);
+    }
+
+    @Override
+    public MultiMap formAttributes() {
+      throw unused();
+    }
+
+    @Override
+    public String getFormAttribute(String attributeName) {
+      return null;
+    }
+
+    @Override
+    public boolean isEnded() {
+      return true;
+    }
+
+    @Override
+    public HttpServerRequest exceptionHandler(Handler<Throwable> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest handler(Handler<Buffer> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest pause() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest resume() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest endHandler(Handler<Void> endHandler) {
+      throw unused();
+    }
+
+    @Override
+    public SocketAddress remoteAddress() {
+      throw unused();
+    }
+
+    @Override
+    public SocketAddress localAddress() {
+      throw unused();
+    }
+
+    @Override
+    public X509Certificate[] peerCertificateChain() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest bodyHandler(Handler<Buffer> bodyHandler) {
+      throw unused();
+    }
+
+    @Override
+    public NetSocket netSocket() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest setExpectMultipart(boolean expect) {
+      throw unused();
+    }
+
+    @Override
+    public boolean isExpectMultipart() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerRequest uploadHandler(Handler<HttpServerFileUpload> uploadHandler) {
+      throw unused();
+    }
+
+    @Override
+    public ServerWebSocket upgrade() {
+      throw unused();
+    }
+  }
+
+  /**
+   * Server response which records the status code and headers set and how often it is ended, and sends nothing
+   */
+  private static final class StubServerResponse implements HttpServerResponse {
+
+    private final Recorder recorder;
+    private final MultiMap trailers = MultiMap.caseInsensitiveMultiMap();
+
+    StubServerResponse(final Recorder recorder) {
+      this.recorder = recorder;
+    }
+
+    @Override
+    public int getStatusCode() {
+      return recorder.statusCode;
+    }
+
+    @Override
+    public HttpServerResponse setStatusCode(int statusCode) {
+      recorder.statusCode = statusCode;
+      return this;
+    }
+
+    @Override
+    public MultiMap headers() {
+      return recorder.headers;
+    }
+
+    @Override
+    public HttpServerResponse putHeader(String name, String value) {
+      recorder.headers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse putHeader(CharSequence name, CharSequence value) {
+      recorder.headers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse putHeader(String name, Iterable<String> values) {
+      recorder.headers.set(name, values);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse putHeader(CharSequence name, Iterable<CharSequence> values) {
+      recorder.headers.set(name, values);
+      return this;
+    }
+
+    @Override
+    public MultiMap trailers() {
+      return trailers;
+    }
+
+    @Override
+    public HttpServerResponse putTrailer(String name, String value) {
+      trailers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse putTrailer(CharSequence name, CharSequence value) {
+      trailers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse putTrailer(String name, Iterable<String> values) {
+      trailers.set(name, values);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse putTrailer(CharSequence name, Iterable<CharSequence> value) {
+      trailers.set(name, value);
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse write(Buffer data) {
+      recorder.bytesWritten += data.length();
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse write(String chunk, String enc) {
+      recorder.bytesWritten += chunk.length();
+      return this;
+    }
+
+    @Override
+    public HttpServerResponse write(String chunk) {
+      recorder.bytesWritten += chunk.length();
+      return this;
+    }
+
+    @Override
+    public void end(String chunk) {
+      write(chunk);
+      end();
+    }
+
+    @Override
+    public void end(String chunk, String enc) {
+      write(chunk, enc);
+      end();
+    }
+
+    @Override
+    public void end(Buffer chunk) {
+      write(chunk);
+      end();
+    }
+
+    @Override
+    public void end() {
+      recorder.ends++;
+    }
+
+    @Override
+    public HttpServerResponse exceptionHandler(Handler<Throwable> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse setWriteQueueMaxSize(int maxSize) {
+      throw unused();
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse drainHandler(Handler<Void> handler) {
+      throw unused();
+    }
+
+    @Override
+    public String getStatusMessage() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse setStatusMessage(String statusMessage) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse setChunked(boolean chunked) {
+      throw unused();
+    }
+
+    @Override
+    public boolean isChunked() {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse closeHandler(Handler<Void> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse sendFile(String filename) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse sendFile(String filename, Handler<AsyncResult<Void>> resultHandler) {
+      throw unused();
+    }
+
+    @Override
+    public void close() {
+      throw unused();
+    }
+
+    @Override
+    public boolean ended() {
+      // Reused for every invocation, so never reports itself ended
+      return false;
+    }
+
+    @Override
+    public boolean headWritten() {
+      return false;
+    }
+
+    @Override
+    public HttpServerResponse headersEndHandler(Handler<Future> handler) {
+      throw unused();
+    }
+
+    @Override
+    public HttpServerResponse bodyEndHandler(Handler<Void> handler) {
+      throw unused();
+    }
+  }
+
+  /**
+   * Session held in a map, which never expires
+   */
+  private static final class StubSession implements Session {
+
+    private final String id;
+    private final Map<String, Object> data = new HashMap<>();
+
+    StubSession(final String id) {
+      this.id = id;
+    }
+
+    @Override
+    public String id() {
+      return id;
+    }
+
+    @Override
+    public Session put(String key, Object obj) {
+      data.put(key, obj);
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+      return (T) data.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T remove(String key) {
+      return (T) data.remove(key);
+    }
+
+    @Override
+    public Map<String, Object> data() {
+      return data;
+    }
+
+    @Override
+    public long lastAccessed() {
+      return 0;
+    }
+
+    @Override
+    public void destroy() {
+      data.clear();
+    }
+
+    @Override
+    public boolean isDestroyed() {
+      return false;
+    }
+
+    @Override
+    public long timeout() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void setAccessed() {
+    }
+  }
+
+  /**
+   * Routing context which records how the handler completed the request - passed it on, failed it or set its user
+   */
+  private static final class StubRoutingContext implements RoutingContext {
+
+    private final HttpServerRequest request;
+    private final Session session;
+    private final Recorder recorder;
+    private final Map<String, Object> data = new HashMap<>();
+
+    StubRoutingContext(final HttpServerRequest request, final Session session, final Recorder recorder) {
+      this.request = request;
+      this.session = session;
+      this.recorder = recorder;
+    }
+
+    @Override
+    public HttpServerRequest request() {
+      return request;
+    }
+
+    @Override
+    public HttpServerResponse response() {
+      return request.response();
+    }
+
+    @Override
+    public Session session() {
+      return session;
+    }
+
+    @Override
+    public User user() {
+      return recorder.user;
+    }
+
+    @Override
+    public void setUser(User user) {
+      recorder.user = user;
+    }
+
+    @Override
+    public void clearUser() {
+      recorder.user = null;
+    }
+
+    @Override
+    public void next() {
+      recorder.nextCalls++;
+    }
+
+    @Override
+    public void fail(int statusCode) {
+      recorder.failures++;
+    }
+
+    @Override
+    public void fail(Throwable throwable) {
+      recorder.failures++;
+    }
+
+    @Override
+    public RoutingContext put(String key, Object obj) {
+      data.put(key, obj);
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+      return (T) data.get(key);
+    }
+
+    @Override
+    public Map<String, Object> data() {
+      return data;
+    }
+
+    @Override
+    public Vertx vertx() {
+      throw unused();
+    }
+
+    @Override
+    public String mountPoint() {
+      return null;
+    }
+
+    @Override
+    public Route currentRoute() {
+      throw unused();
+    }
+
+    @Override
+    public String normalisedPath() {
+      return request.path();
+    }
+
+    @Override
+    public Cookie getCookie(String name) {
+      throw unused();
+    }
+
+    @Override
+    public RoutingContext addCookie(Cookie cookie) {
+      throw unused();
+    }
+
+    @Override
+    public Cookie removeCookie(String name) {
+      throw unused();
+    }
+
+    @Override
+    public int cookieCount() {
+      throw unused();
+    }
+
+    @Override
+    public Set<Cookie> cookies() {
+      throw unused();
+    }
+
+    @Override
+    public String getBodyAsString() {
+      throw unused();
+    }
+
+    @Override
+    public String getBodyAsString(String encoding) {
+      throw unused();
+    }
+
+    @Override
+    public JsonObject getBodyAsJson() {
+      throw unused();
+    }
+
+    @Override
+    public Buffer getBody() {
+      throw unused();
+    }
+
+    @Override
+    public Set<FileUpload> fileUploads() {
+      throw unused();
+    }
+
+    @Override
+    public Throwable failure() {
+      return null;
+    }
+
+    @Override
+    public int statusCode() {
+      return -1;
+    }
+
+    @Override
+    public String getAcceptableContentType() {
+      return null;
+    }
+
+    @Override
+    public int addHeadersEndHandler(Handler<Future> handler) {
+      throw unused();
+    }
+
+    @Override
+    public boolean removeHeadersEndHandler(int handlerID) {
+      throw unused();
+    }
+
+    @Override
+    public int addBodyEndHandler(Handler<Void> handler) {
+      throw unused();
+    }
+
+    @Override
+    public boolean removeBodyEndHandler(int handlerID) {
+      throw unused();
+    }
+
+    @Override
+    public boolean failed() {
+      return false;
+    }
+
+    @Override
+    public void setBody(Buffer body) {
+      throw unused();
+    }
+
+    @Override
+    public void setSession(Session session) {
+      throw unused();
+    }
+
+    @Override
+    public void setAcceptableContentType(String contentType) {
+      throw unused();
+    }
+  }
+
+  /**
+   * User with an empty principal, which holds no authorities
+   */
+  private static final class StubUser implements User {
+
+    private final JsonObject principal = new JsonObject();
+
+    @Override
+    public User isAuthorised(String authority, Handler<AsyncResult<Boolean>> resultHandler) {
+      resultHandler.handle(Future.succeededFuture(false));
+      return this;
+    }
+
+    @Override
+    public User clearCache() {
+      return this;
+    }
+
+    @Override
+    public JsonObject principal() {
+      return principal;
+    }
+
+    @Override
+    public void setAuthProvider(AuthProvider authProvider) {
+    }
+  }
+}
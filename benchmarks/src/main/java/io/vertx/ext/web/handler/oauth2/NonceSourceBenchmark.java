@@ -0,0 +1,48 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating the nonce for a redirect to the OAuth2 provider when several event loops do so at once. Each
+ * benchmark thread stands for an event loop. Four run by default; run at each event loop count of interest with -t,
+ * for example -t 1, -t 2, -t 4 and -t 8. A source which scales keeps the same time per nonce as threads are added;
+ * one which contends slows down with every thread. Only thread counts up to the number of cores show this - beyond
+ * it the threads take turns on the cores, and every source slows down in proportion.
+ * <ul>
+ *   <li>uuid - UUID.randomUUID, through the SecureRandom shared by the whole JVM</li>
+ *   <li>striped - the default source, each thread drawing on its own buffered generator</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class NonceSourceBenchmark {
+
+  private final NonceSource uuid = NonceSource.uuid();
+  private final NonceSource striped = NonceSource.striped();
+
+  @Benchmark
+  public String uuid() {
+    return uuid.nextNonce();
+  }
+
+  @Benchmark
+  public String striped() {
+    return striped.nextNonce();
+  }
+}
@@ -0,0 +1,56 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the authorization redirect url for an unauthenticated request, including generation of the state
+ * parameter - with a fresh builder per redirect, and with the precompiled template OAuth2AuthHandlerImpl uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OAuth2AuthUrlBuilderBenchmark {
+
+  private static final String AUTH_URL = "https://idp.example.com/oauth2/authorize";
+  private static final String CLIENT_ID = "benchmark-client";
+  private static final String REDIRECT_URI = "https://app.example.com/authResult";
+  private static final String RETURN_URL = "https://app.example.com/private/page.html";
+
+  private OAuth2State state;
+  private final OAuth2AuthUrlTemplate template = new OAuth2AuthUrlTemplate(AUTH_URL, CLIENT_ID, REDIRECT_URI);
+
+  @Setup
+  public void setup() {
+    state = new OAuth2State(RETURN_URL, UUID.randomUUID().toString(), UUID.randomUUID().toString());
+  }
+
+  @Benchmark
+  public String build() {
+    return new OAuth2AuthUrlBuilder()
+      .setAuthenticationUrl(AUTH_URL)
+      .setClientId(CLIENT_ID)
+      .setState(state)
+      .setRedirectUri(REDIRECT_URI)
+      .build();
+  }
+
+  @Benchmark
+  public String template() {
+    return template.build(state.encode(OAuth2StateCodec.md5()));
+  }
+}
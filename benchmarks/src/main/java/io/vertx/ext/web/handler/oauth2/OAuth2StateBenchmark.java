@@ -0,0 +1,57 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generation of the OAuth2 state parameter, which happens once on the redirect to the provider and again
+ * when validating the callback. Run with -prof gc to see the allocation per state value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OAuth2StateBenchmark {
+
+  @Param({"http://localhost:8080/private/page.html",
+    "https://app.example.com/private/reports/quarterly?region=emea&year=2015&format=pdf&include=charts,tables"})
+  public String returnUrl;
+
+  @Param({"md5", "hmacSha256"})
+  public String codecName;
+
+  private OAuth2State state;
+  private OAuth2StateCodec codec;
+
+  @Setup
+  public void setup() {
+    state = new OAuth2State(returnUrl, UUID.randomUUID().toString(), UUID.randomUUID().toString());
+    codec = "md5".equals(codecName) ? OAuth2StateCodec.md5()
+      : OAuth2StateCodec.hmacSha256(UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Benchmark
+  public String stateToString() {
+    return state.toString();
+  }
+
+  @Benchmark
+  public String encode() {
+    return state.encode(codec);
+  }
+}
@@ -0,0 +1,37 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.auth.impl.oauth2.impl.IntrospectionOAuth2AuthProviderImpl;
+
+/**
+ * OAuth2 auth provider for opaque access tokens, which asks the provider's token introspection endpoint (RFC 7662)
+ * whether a token is active. Concurrent authentications of the same token share one introspection call, results are
+ * cached, and the number of calls outstanding at once is capped, so a busy token costs the provider one call per
+ * cache lifetime rather than one per request.
+ *
+ * The authInfo may carry the token itself in an access_token field; when used with the OAuth2 handler the token
+ * handler keeps the token in the session and the handler passes it from there.
+ */
+public interface IntrospectionOAuth2Provider extends OAuth2AuthProvider {
+
+  /**
+   * Create a provider
+   * @param vertx - the vertx instance
+   * @param options - the provider options
+   * @return the provider
+   */
+  static IntrospectionOAuth2Provider create(final Vertx vertx, final IntrospectionOAuth2ProviderOptions options) {
+    return new IntrospectionOAuth2AuthProviderImpl(vertx, options);
+  }
+
+  /**
+   * @return the number of introspection calls made to the provider
+   */
+  long introspectionRequests();
+
+  /**
+   * @return the number of authentications answered from the result cache
+   */
+  long cacheHits();
+
+}
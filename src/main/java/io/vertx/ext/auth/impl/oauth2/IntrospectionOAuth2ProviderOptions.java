@@ -0,0 +1,281 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.http.HttpClientOptions;
+
+import java.util.Objects;
+
+/**
+ * Options class to hold the configuration for an IntrospectionOAuth2Provider - the provider's token introspection
+ * endpoint (RFC 7662) and the credentials to call it with, how long introspection results are cached, and how many
+ * introspection calls may be outstanding at once.
+ */
+public class IntrospectionOAuth2ProviderOptions {
+
+  /**
+   * Default name of the session parameter the token handler stores the access token in
+   */
+  static final String DEFAULT_TOKEN_PARAM = "oauth2_access_token";
+
+  /**
+   * Default maximum number of introspection results cached
+   */
+  static final int DEFAULT_MAX_CACHED_TOKENS = 10000;
+
+  /**
+   * Default time an active token's introspection result is trusted for, unless the token expires sooner - one minute
+   */
+  static final long DEFAULT_ACTIVE_TTL_MILLIS = 60 * 1000;
+
+  /**
+   * Default time an inactive token's introspection result is trusted for - ten seconds
+   */
+  static final long DEFAULT_INACTIVE_TTL_MILLIS = 10 * 1000;
+
+  /**
+   * Default maximum number of introspection calls outstanding at once
+   */
+  static final int DEFAULT_MAX_OUTSTANDING_REQUESTS = 32;
+
+  /**
+   * Default maximum number of tokens waiting for an introspection call to become available
+   */
+  static final int DEFAULT_MAX_QUEUED_REQUESTS = 1000;
+
+  /**
+   * Default time an introspection call may take, from sending it to reading the whole response - five seconds
+   */
+  static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 5 * 1000;
+
+  /**
+   * Default maximum size of an introspection response - 64KiB
+   */
+  static final int DEFAULT_MAX_RESPONSE_BYTES = 64 * 1024;
+
+  private String introspectionUrl;
+  private String clientId;
+  private String clientSecret;
+  private int maxCachedTokens = DEFAULT_MAX_CACHED_TOKENS;
+  private long activeTtlMillis = DEFAULT_ACTIVE_TTL_MILLIS;
+  private long inactiveTtlMillis = DEFAULT_INACTIVE_TTL_MILLIS;
+  private int maxOutstandingRequests = DEFAULT_MAX_OUTSTANDING_REQUESTS;
+  private int maxQueuedRequests = DEFAULT_MAX_QUEUED_REQUESTS;
+  private long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+  private int maxResponseBytes = DEFAULT_MAX_RESPONSE_BYTES;
+  private String tokenParamName = DEFAULT_TOKEN_PARAM;
+  private HttpClientOptions httpClientOptions = new HttpClientOptions();
+
+  /**
+   * Set the url of the provider's token introspection endpoint
+   * @param introspectionUrl - the introspection url
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setIntrospectionUrl(final String introspectionUrl) {
+    this.introspectionUrl = introspectionUrl;
+    return this;
+  }
+
+  /**
+   * Set the client id we authenticate to the introspection endpoint with
+   * @param clientId - the client id
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setClientId(final String clientId) {
+    this.clientId = clientId;
+    return this;
+  }
+
+  /**
+   * Set the client secret we authenticate to the introspection endpoint with
+   * @param clientSecret - the client secret
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setClientSecret(final String clientSecret) {
+    this.clientSecret = clientSecret;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of introspection results cached
+   * @param maxCachedTokens - the maximum number of tokens
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setMaxCachedTokens(final int maxCachedTokens) {
+    this.maxCachedTokens = maxCachedTokens;
+    return this;
+  }
+
+  /**
+   * Set how long an active token's introspection result is trusted for. The result is never trusted beyond the
+   * token's own expiry, so this bounds how long a token revoked before its expiry can still be used
+   * @param activeTtlMillis - the time to live in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setActiveTtlMillis(final long activeTtlMillis) {
+    this.activeTtlMillis = activeTtlMillis;
+    return this;
+  }
+
+  /**
+   * Set how long an inactive token's introspection result is trusted for, so repeated requests with an unknown or
+   * revoked token are rejected without calling the provider every time
+   * @param inactiveTtlMillis - the time to live in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setInactiveTtlMillis(final long inactiveTtlMillis) {
+    this.inactiveTtlMillis = inactiveTtlMillis;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of introspection calls outstanding at once - further tokens wait for a call to complete
+   * @param maxOutstandingRequests - the maximum number of calls
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setMaxOutstandingRequests(final int maxOutstandingRequests) {
+    this.maxOutstandingRequests = maxOutstandingRequests;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of tokens which may wait for an introspection call - authentication of further tokens
+   * fails immediately
+   * @param maxQueuedRequests - the maximum number of waiting tokens
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setMaxQueuedRequests(final int maxQueuedRequests) {
+    this.maxQueuedRequests = maxQueuedRequests;
+    return this;
+  }
+
+  /**
+   * Set how long an introspection call may take, from sending it to reading the whole response, before every
+   * authentication waiting for it fails and its place is given to the next queued token
+   * @param requestTimeoutMillis - the timeout in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setRequestTimeoutMillis(final long requestTimeoutMillis) {
+    if (requestTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Request timeout must be positive");
+    }
+    this.requestTimeoutMillis = requestTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * Set the largest introspection response accepted - a bigger response fails the authentications waiting for it
+   * rather than being buffered
+   * @param maxResponseBytes - the maximum response size in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setMaxResponseBytes(final int maxResponseBytes) {
+    if (maxResponseBytes <= 0) {
+      throw new IllegalArgumentException("Maximum introspection response size must be positive");
+    }
+    this.maxResponseBytes = maxResponseBytes;
+    return this;
+  }
+
+  /**
+   * Set the name of the session parameter the token handler stores the access token in
+   * @param tokenParamName - the session parameter name
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setTokenParamName(final String tokenParamName) {
+    this.tokenParamName = Objects.requireNonNull(tokenParamName, "Token parameter name must not be null");
+    return this;
+  }
+
+  /**
+   * Set the options for the http client used to call the introspection endpoint
+   * @param httpClientOptions - the client options
+   * @return a reference to this, so the API can be used fluently
+   */
+  public IntrospectionOAuth2ProviderOptions setHttpClientOptions(final HttpClientOptions httpClientOptions) {
+    this.httpClientOptions = Objects.requireNonNull(httpClientOptions, "Http client options must not be null");
+    return this;
+  }
+
+  /**
+   * @return the url of the introspection endpoint
+   */
+  public String introspectionUrl() {
+    return introspectionUrl;
+  }
+
+  /**
+   * @return the client id used to call the introspection endpoint
+   */
+  public String clientId() {
+    return clientId;
+  }
+
+  /**
+   * @return the client secret used to call the introspection endpoint
+   */
+  public String clientSecret() {
+    return clientSecret;
+  }
+
+  /**
+   * @return the maximum number of introspection results cached
+   */
+  public int maxCachedTokens() {
+    return maxCachedTokens;
+  }
+
+  /**
+   * @return how long an active token's introspection result is trusted for, in milliseconds
+   */
+  public long activeTtlMillis() {
+    return activeTtlMillis;
+  }
+
+  /**
+   * @return how long an inactive token's introspection result is trusted for, in milliseconds
+   */
+  public long inactiveTtlMillis() {
+    return inactiveTtlMillis;
+  }
+
+  /**
+   * @return the maximum number of introspection calls outstanding at once
+   */
+  public int maxOutstandingRequests() {
+    return maxOutstandingRequests;
+  }
+
+  /**
+   * @return the maximum number of tokens which may wait for an introspection call
+   */
+  public int maxQueuedRequests() {
+    return maxQueuedRequests;
+  }
+
+  /**
+   * @return how long an introspection call may take, in milliseconds
+   */
+  public long requestTimeoutMillis() {
+    return requestTimeoutMillis;
+  }
+
+  /**
+   * @return the largest introspection response accepted, in bytes
+   */
+  public int maxResponseBytes() {
+    return maxResponseBytes;
+  }
+
+  /**
+   * @return the name of the session parameter the token handler stores the access token in
+   */
+  public String tokenParamName() {
+    return tokenParamName;
+  }
+
+  /**
+   * @return the options for the http client used to call the introspection endpoint
+   */
+  public HttpClientOptions httpClientOptions() {
+    return httpClientOptions;
+  }
+}
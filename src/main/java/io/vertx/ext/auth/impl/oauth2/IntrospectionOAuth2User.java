@@ -0,0 +1,58 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.impl.oauth2.impl.IntrospectionOAuth2AuthProviderImpl;
+
+/**
+ * User authenticated by token introspection. The principal holds the token and the introspection response. As with
+ * SimpleOAuth2User, all role requests for now return true
+ */
+public class IntrospectionOAuth2User implements User {
+
+  public static final String FIELD_TOKEN = "token";
+  public static final String FIELD_CLAIMS = "claims";
+  private IntrospectionOAuth2AuthProviderImpl authProvider;
+  private String token;
+  private JsonObject claims;
+
+  public IntrospectionOAuth2User() {
+  }
+
+  public IntrospectionOAuth2User(final String token, final JsonObject claims,
+                                 final IntrospectionOAuth2AuthProviderImpl authProvider) {
+    this.authProvider = authProvider;
+    this.token = token;
+    this.claims = claims;
+  }
+
+  @Override
+  public User isAuthorised(String s, Handler<AsyncResult<Boolean>> handler) {
+    // Introspection OAuth2 authentication doesn't currently concern itself with permissions for a user
+    handler.handle(Future.succeededFuture(true));
+    return this;
+  }
+
+  @Override
+  public User clearCache() {
+    return this;
+  }
+
+  @Override
+  public JsonObject principal() {
+    return new JsonObject().put(FIELD_TOKEN, token).put(FIELD_CLAIMS, claims);
+  }
+
+  @Override
+  public void setAuthProvider(AuthProvider authProvider) {
+    if (authProvider instanceof IntrospectionOAuth2AuthProviderImpl) {
+      this.authProvider = (IntrospectionOAuth2AuthProviderImpl) authProvider;
+    } else {
+      throw new IllegalArgumentException("Not an IntrospectionOAuth2AuthProviderImpl");
+    }
+  }
+}
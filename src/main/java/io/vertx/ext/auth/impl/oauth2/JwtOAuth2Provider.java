@@ -0,0 +1,36 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.auth.impl.oauth2.impl.JwtOAuth2AuthProviderImpl;
+
+/**
+ * OAuth2 auth provider for providers which issue JWT access tokens. Tokens are verified locally against the
+ * provider's JSON web key set, which is loaded once and refreshed in the background, so authenticating a request
+ * needs no call to the provider or the session store.
+ *
+ * The authInfo may carry the token itself in an access_token field; when used with the OAuth2 handler the token
+ * handler keeps the token in the session and the handler passes it from there.
+ */
+public interface JwtOAuth2Provider extends OAuth2AuthProvider {
+
+  /**
+   * Create a provider, and start loading its key set
+   * @param vertx - the vertx instance to load and refresh the key set with
+   * @param options - the provider options
+   * @return the provider
+   */
+  static JwtOAuth2Provider create(final Vertx vertx, final JwtOAuth2ProviderOptions options) {
+    return new JwtOAuth2AuthProviderImpl(vertx, options);
+  }
+
+  /**
+   * @return when the key set in use was loaded, in epoch milliseconds, or 0 if it has not been loaded yet
+   */
+  long keySetLoadedAt();
+
+  /**
+   * Stop refreshing the key set in the background
+   */
+  void close();
+
+}
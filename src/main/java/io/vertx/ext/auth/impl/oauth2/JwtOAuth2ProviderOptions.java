@@ -0,0 +1,283 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.ext.web.handler.oauth2.OpenIdDiscovery;
+
+import java.util.Objects;
+
+/**
+ * Options class to hold the configuration for a JwtOAuth2Provider - where to load the provider's JSON web key set
+ * from, how often to refresh it, and which issuer and audience access tokens must carry.
+ */
+public class JwtOAuth2ProviderOptions {
+
+  /**
+   * Default name of the session parameter the token handler stores the access token in
+   */
+  static final String DEFAULT_TOKEN_PARAM = "oauth2_access_token";
+
+  /**
+   * Default interval between background refreshes of the key set - one hour
+   */
+  static final long DEFAULT_KEY_SET_REFRESH_MILLIS = 60 * 60 * 1000;
+
+  /**
+   * Default minimum interval between refreshes triggered by tokens signed with an unknown key - one minute
+   */
+  static final long DEFAULT_MIN_KEY_SET_REFRESH_MILLIS = 60 * 1000;
+
+  /**
+   * Default time a key set load may take, from sending the request to reading the whole response - ten seconds
+   */
+  static final long DEFAULT_KEY_SET_TIMEOUT_MILLIS = 10 * 1000;
+
+  /**
+   * Default allowance for clock differences between us and the OAuth2 provider when checking exp and nbf
+   */
+  static final long DEFAULT_CLOCK_SKEW_MILLIS = 30 * 1000;
+
+  /**
+   * The url of the provider's JSON web key set (JWKS) document - exactly one of this, the key set path
+   * and discovery must be set
+   */
+  private String keySetUrl;
+
+  /**
+   * The path of a local file holding the JSON web key set - exactly one of this, the key set url and
+   * discovery must be set
+   */
+  private String keySetPath;
+
+  /**
+   * OpenID Connect discovery giving the key set url - an alternative to setting the key set url or path
+   */
+  private OpenIdDiscovery discovery;
+
+  /**
+   * The issuer (iss claim) access tokens must carry, or null to accept any issuer
+   */
+  private String issuer;
+
+  /**
+   * The audience (aud claim) access tokens must be issued for, or null to accept any audience
+   */
+  private String audience;
+
+  private long keySetRefreshMillis = DEFAULT_KEY_SET_REFRESH_MILLIS;
+  private long minKeySetRefreshMillis = DEFAULT_MIN_KEY_SET_REFRESH_MILLIS;
+  private long keySetTimeoutMillis = DEFAULT_KEY_SET_TIMEOUT_MILLIS;
+  private long clockSkewMillis = DEFAULT_CLOCK_SKEW_MILLIS;
+  private String tokenParamName = DEFAULT_TOKEN_PARAM;
+  private ScopeAuthorisation scopeAuthorisation;
+  private HttpClientOptions httpClientOptions = new HttpClientOptions();
+
+  /**
+   * Set the url from which to load the JSON web key set
+   * @param keySetUrl - the JWKS url
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setKeySetUrl(final String keySetUrl) {
+    this.keySetUrl = keySetUrl;
+    return this;
+  }
+
+  /**
+   * Set the path of a local file from which to load the JSON web key set
+   * @param keySetPath - the JWKS file path
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setKeySetPath(final String keySetPath) {
+    this.keySetPath = keySetPath;
+    return this;
+  }
+
+  /**
+   * Load the JSON web key set from the url given by an OpenID Connect provider's discovery document, so the provider
+   * can move its key set without us being redeployed. Unless an issuer is set, tokens must carry the discovered issuer
+   * @param discovery - the discovery, which may be shared with the OAuth2 handler
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setDiscovery(final OpenIdDiscovery discovery) {
+    this.discovery = discovery;
+    return this;
+  }
+
+  /**
+   * Set the issuer access tokens must carry in their iss claim
+   * @param issuer - the issuer
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setIssuer(final String issuer) {
+    this.issuer = issuer;
+    return this;
+  }
+
+  /**
+   * Set the audience access tokens must carry in their aud claim - usually our client id or api identifier
+   * @param audience - the audience
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setAudience(final String audience) {
+    this.audience = audience;
+    return this;
+  }
+
+  /**
+   * Set how often the key set is reloaded in the background
+   * @param keySetRefreshMillis - the refresh interval in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setKeySetRefreshMillis(final long keySetRefreshMillis) {
+    this.keySetRefreshMillis = keySetRefreshMillis;
+    return this;
+  }
+
+  /**
+   * Set the minimum interval between key set reloads triggered by a token signed with a key we do not know, which
+   * stops a stream of tokens with made up key ids from hammering the key set url
+   * @param minKeySetRefreshMillis - the minimum interval in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setMinKeySetRefreshMillis(final long minKeySetRefreshMillis) {
+    this.minKeySetRefreshMillis = minKeySetRefreshMillis;
+    return this;
+  }
+
+  /**
+   * Set how long loading the key set from its url may take, response body included. A load which times out fails
+   * like any other, leaving the last good key set in use
+   * @param keySetTimeoutMillis - the timeout in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setKeySetTimeoutMillis(final long keySetTimeoutMillis) {
+    if (keySetTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Key set timeout must be positive");
+    }
+    this.keySetTimeoutMillis = keySetTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * Set the allowance for clock differences when checking the exp and nbf claims
+   * @param clockSkewMillis - the allowance in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setClockSkewMillis(final long clockSkewMillis) {
+    this.clockSkewMillis = clockSkewMillis;
+    return this;
+  }
+
+  /**
+   * Authorise users from the scopes in their access tokens, rather than granting every role request
+   * @param scopeAuthorisation - the authorisation rules, or null to grant every role request
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setScopeAuthorisation(final ScopeAuthorisation scopeAuthorisation) {
+    this.scopeAuthorisation = scopeAuthorisation;
+    return this;
+  }
+
+  /**
+   * Set the name of the session parameter the token handler stores the access token in
+   * @param tokenParamName - the session parameter name
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setTokenParamName(final String tokenParamName) {
+    this.tokenParamName = Objects.requireNonNull(tokenParamName, "Token parameter name must not be null");
+    return this;
+  }
+
+  /**
+   * Set the options for the http client used to load the key set from its url
+   * @param httpClientOptions - the client options
+   * @return a reference to this, so the API can be used fluently
+   */
+  public JwtOAuth2ProviderOptions setHttpClientOptions(final HttpClientOptions httpClientOptions) {
+    this.httpClientOptions = Objects.requireNonNull(httpClientOptions, "Http client options must not be null");
+    return this;
+  }
+
+  /**
+   * @return the url from which the key set is loaded, or null if it is loaded from a file
+   */
+  public String keySetUrl() {
+    return keySetUrl;
+  }
+
+  /**
+   * @return the path of the file from which the key set is loaded, or null if it is loaded from a url
+   */
+  public String keySetPath() {
+    return keySetPath;
+  }
+
+  /**
+   * @return the discovery giving the key set url, or null if the key set url or path is set directly
+   */
+  public OpenIdDiscovery discovery() {
+    return discovery;
+  }
+
+  /**
+   * @return the issuer access tokens must carry, or null if any issuer is accepted
+   */
+  public String issuer() {
+    return issuer;
+  }
+
+  /**
+   * @return the audience access tokens must be issued for, or null if any audience is accepted
+   */
+  public String audience() {
+    return audience;
+  }
+
+  /**
+   * @return the interval between background reloads of the key set, in milliseconds
+   */
+  public long keySetRefreshMillis() {
+    return keySetRefreshMillis;
+  }
+
+  /**
+   * @return the minimum interval between reloads triggered by unknown keys, in milliseconds
+   */
+  public long minKeySetRefreshMillis() {
+    return minKeySetRefreshMillis;
+  }
+
+  /**
+   * @return how long loading the key set from its url may take, in milliseconds
+   */
+  public long keySetTimeoutMillis() {
+    return keySetTimeoutMillis;
+  }
+
+  /**
+   * @return the allowance for clock differences when checking exp and nbf, in milliseconds
+   */
+  public long clockSkewMillis() {
+    return clockSkewMillis;
+  }
+
+  /**
+   * @return the rules users are authorised by, or null if every role request is granted
+   */
+  public ScopeAuthorisation scopeAuthorisation() {
+    return scopeAuthorisation;
+  }
+
+  /**
+   * @return the name of the session parameter the token handler stores the access token in
+   */
+  public String tokenParamName() {
+    return tokenParamName;
+  }
+
+  /**
+   * @return the options for the http client used to load the key set
+   */
+  public HttpClientOptions httpClientOptions() {
+    return httpClientOptions;
+  }
+}
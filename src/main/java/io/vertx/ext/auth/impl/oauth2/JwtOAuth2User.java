@@ -0,0 +1,77 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.impl.oauth2.impl.JwtOAuth2AuthProviderImpl;
+
+/**
+ * User authenticated from a locally verified JWT access token. The principal holds the token and its verified claims.
+ * As with SimpleOAuth2User, all role requests return true unless the provider has a ScopeAuthorisation, in which case
+ * they are checked against the scopes in the scope claim - or, from providers which use it, the scp claim
+ */
+public class JwtOAuth2User implements User {
+
+  public static final String FIELD_TOKEN = "token";
+  public static final String FIELD_CLAIMS = "claims";
+  private JwtOAuth2AuthProviderImpl authProvider;
+  private String token;
+  private JsonObject claims;
+  private ScopeAuthorisation authorisation;
+  private long[] scopes;
+
+  public JwtOAuth2User() {
+  }
+
+  public JwtOAuth2User(final String token, final JsonObject claims, final JwtOAuth2AuthProviderImpl authProvider) {
+    this.authProvider = authProvider;
+    this.token = token;
+    this.claims = claims;
+  }
+
+  public JwtOAuth2User(final String token, final JsonObject claims, final ScopeAuthorisation authorisation,
+                       final JwtOAuth2AuthProviderImpl authProvider) {
+    this(token, claims, authProvider);
+    this.authorisation = authorisation;
+    if (authorisation != null) {
+      final Object scope = claims.getValue("scope");
+      final Object scp = scope == null ? claims.getValue("scp") : scope;
+      this.scopes = scp instanceof JsonArray ? authorisation.scopes((JsonArray) scp) :
+        authorisation.scopes(scp instanceof String ? (String) scp : null);
+    }
+  }
+
+  @Override
+  public User isAuthorised(String s, Handler<AsyncResult<Boolean>> handler) {
+    if (authorisation != null) {
+      handler.handle(authorisation.authorise(scopes, s));
+      return this;
+    }
+    // JWT OAuth2 authentication doesn't currently concern itself with permissions for a user
+    handler.handle(Future.succeededFuture(true));
+    return this;
+  }
+
+  @Override
+  public User clearCache() {
+    return this;
+  }
+
+  @Override
+  public JsonObject principal() {
+    return new JsonObject().put(FIELD_TOKEN, token).put(FIELD_CLAIMS, claims);
+  }
+
+  @Override
+  public void setAuthProvider(AuthProvider authProvider) {
+    if (authProvider instanceof JwtOAuth2AuthProviderImpl) {
+      this.authProvider = (JwtOAuth2AuthProviderImpl) authProvider;
+    } else {
+      throw new IllegalArgumentException("Not a JwtOAuth2AuthProviderImpl");
+    }
+  }
+}
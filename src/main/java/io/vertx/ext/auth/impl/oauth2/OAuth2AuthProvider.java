@@ -1,7 +1,13 @@
 package io.vertx.ext.auth.impl.oauth2;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.AuthProvider;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
 
 import java.util.function.BiConsumer;
 
@@ -9,6 +15,17 @@ import java.util.function.BiConsumer;
  * User: jez
  */
 public interface OAuth2AuthProvider extends AuthProvider {
+
+  /**
+   * The authInfo field holding the id of the session to authenticate
+   */
+  String SESSION_ID = "sessionId";
+
+  /**
+   * The authInfo field holding an access token to authenticate
+   */
+  String ACCESS_TOKEN = "access_token";
+
   /**
    * Extension function to determine how to consume an OAuth2 token once successfully obtained - for example do we store it
    * somehow, or unwrap it for authorizations or any other way we'd like to use the token. Note that because one
@@ -18,4 +35,56 @@ public interface OAuth2AuthProvider extends AuthProvider {
    */
   BiConsumer<RoutingContext, String> tokenHandler();
 
+  /**
+   * Build the authInfo the OAuth2 handler passes to authenticate for a request in a session. By default this is just
+   * the session id, leaving the provider to find the token for the session itself; providers which can work from the
+   * token alone may instead pick the token the token handler stored out of the session the request already holds
+   * @param routingContext - the routing context of a request with a session
+   * @return the authInfo to authenticate the request with
+   */
+  default JsonObject authInfo(final RoutingContext routingContext) {
+    return new JsonObject().put(SESSION_ID, routingContext.session().id());
+  }
+
+  /**
+   * Whether this provider can authenticate an access token passed as ACCESS_TOKEN in the authInfo, without any session.
+   * A bearer-only handler has no session, so it needs a provider which can. By default providers authenticate the
+   * session the token was stored in
+   * @return true if the provider authenticates access tokens on their own
+   */
+  default boolean authenticatesAccessTokens() {
+    return false;
+  }
+
+  /**
+   * Store the full token set obtained for a request - access token, and where the OAuth2 provider issued them, the
+   * refresh token and expiry. By default only the access token is kept, by passing it to the token handler
+   * @param routingContext - the routing context of the request the tokens were obtained for
+   * @param tokens - the token set
+   */
+  default void storeTokens(final RoutingContext routingContext, final OAuth2TokenResponse tokens) {
+    tokenHandler().accept(routingContext, tokens.accessToken());
+  }
+
+  /**
+   * Replace the token set stored for a session with one obtained by refreshing it in the background, outside any
+   * request. Providers which cannot reach a session other than through a request do not support this, and their
+   * tokens are not refreshed
+   * @param sessionId - the id of the session the tokens belong to
+   * @param tokens - the refreshed token set
+   * @param resultHandler - called once the tokens are stored, failed if the session no longer exists
+   */
+  default void updateTokens(final String sessionId, final OAuth2TokenResponse tokens,
+                            final Handler<AsyncResult<Void>> resultHandler) {
+    resultHandler.handle(Future.failedFuture("Token refresh is not supported by this auth provider"));
+  }
+
+  /**
+   * Record the provider's own metrics - such as session store lookup latency - into the given metrics. The OAuth2
+   * handler passes its metrics to its auth provider when it is created; by default the provider records nothing
+   * @param metrics - the metrics to record into
+   */
+  default void useMetrics(final OAuth2Metrics metrics) {
+  }
+
 }
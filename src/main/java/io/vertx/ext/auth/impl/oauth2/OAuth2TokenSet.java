@@ -0,0 +1,204 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The tokens held for a session - access token, refresh token, when the access token expires, the scopes granted and
+ * the subject - stored in the session as a single value in a compact binary form rather than as JSON.
+ *
+ * The encoded form is a version byte, the length of what follows, the expiry, then each of the four strings as a
+ * length (-1 when absent) and its UTF-8 bytes. A set read from a session keeps its encoded bytes and decodes each
+ * string only when first asked for it - authenticating needs only the access token - and is written back to the
+ * session by copying those bytes, without encoding anything.
+ *
+ * Sets are not changed once built, but the strings decoded lazily are not published safely, so a set read from a
+ * session should stay with the thread which read it, as the session does.
+ */
+public class OAuth2TokenSet implements ClusterSerializable {
+
+  /**
+   * Value of expiresAt when the token response did not say when the access token expires
+   */
+  public static final long UNKNOWN_EXPIRY = -1;
+
+  /**
+   * The version of the encoded form written
+   */
+  static final byte VERSION = 1;
+
+  private static final int HEADER_LENGTH = 5;
+  private static final int ACCESS_TOKEN = 0;
+  private static final int REFRESH_TOKEN = 1;
+  private static final int SCOPE = 2;
+  private static final int SUBJECT = 3;
+  private static final int FIELDS = 4;
+
+  /**
+   * The strings, each null until decoded when the set was read from its encoded form
+   */
+  private final String[] fields = new String[FIELDS];
+  private long expiresAt;
+
+  /**
+   * The encoded form, and where in it each string's length is - null for a set built from values until written
+   */
+  private byte[] encoded;
+  private int[] offsets;
+
+  /**
+   * Constructor for reading a set from a session - readFromBuffer must be called before any other method
+   */
+  public OAuth2TokenSet() {
+  }
+
+  /**
+   * Constructor
+   * @param accessToken - the access token
+   * @param refreshToken - the refresh token, or null
+   * @param expiresAt - when the access token expires, in epoch milliseconds, or UNKNOWN_EXPIRY
+   * @param scope - the space separated scopes granted, or null
+   * @param subject - the subject the tokens were issued for, or null
+   */
+  public OAuth2TokenSet(final String accessToken, final String refreshToken, final long expiresAt, final String scope,
+                        final String subject) {
+    fields[ACCESS_TOKEN] = accessToken;
+    fields[REFRESH_TOKEN] = refreshToken;
+    fields[SCOPE] = scope;
+    fields[SUBJECT] = subject;
+    this.expiresAt = expiresAt;
+  }
+
+  /**
+   * Build the set held for a token endpoint response
+   * @param tokens - the token response
+   * @param nowMillis - the current time, from which the expiry is reckoned
+   * @param subject - the subject the tokens were issued for, or null if not known
+   * @return the set
+   */
+  public static OAuth2TokenSet of(final OAuth2TokenResponse tokens, final long nowMillis, final String subject) {
+    return new OAuth2TokenSet(tokens.accessToken(), tokens.refreshToken(),
+      tokens.expiresIn() == OAuth2TokenResponse.UNKNOWN_EXPIRY ? UNKNOWN_EXPIRY : nowMillis + tokens.expiresIn() * 1000,
+      tokens.scope(), subject);
+  }
+
+  /**
+   * @return the access token
+   */
+  public String accessToken() {
+    return field(ACCESS_TOKEN);
+  }
+
+  /**
+   * @return the refresh token, or null if none was issued
+   */
+  public String refreshToken() {
+    return field(REFRESH_TOKEN);
+  }
+
+  /**
+   * @return when the access token expires, in epoch milliseconds, or UNKNOWN_EXPIRY
+   */
+  public long expiresAt() {
+    return expiresAt;
+  }
+
+  /**
+   * @return the space separated scopes granted, or null if not known
+   */
+  public String scope() {
+    return field(SCOPE);
+  }
+
+  /**
+   * @return the subject the tokens were issued for, or null if not known
+   */
+  public String subject() {
+    return field(SUBJECT);
+  }
+
+  @Override
+  public void writeToBuffer(final Buffer buffer) {
+    if (encoded == null) {
+      encode();
+    }
+    buffer.appendBytes(encoded);
+  }
+
+  @Override
+  public int readFromBuffer(final int pos, final Buffer buffer) {
+    final byte version = buffer.getByte(pos);
+    if (version != VERSION) {
+      throw new IllegalStateException("Unsupported token set version " + version);
+    }
+    final int end = pos + HEADER_LENGTH + buffer.getInt(pos + 1);
+    encoded = buffer.getBytes(pos, end);
+    expiresAt = readLong(encoded, HEADER_LENGTH);
+    offsets = new int[FIELDS];
+    int offset = HEADER_LENGTH + 8;
+    for (int i = 0; i < FIELDS; i++) {
+      offsets[i] = offset;
+      offset += 4 + Math.max(0, readInt(encoded, offset));
+    }
+    return end;
+  }
+
+  private String field(final int field) {
+    String value = fields[field];
+    if (value == null && offsets != null) {
+      final int length = readInt(encoded, offsets[field]);
+      if (length >= 0) {
+        value = new String(encoded, offsets[field] + 4, length, StandardCharsets.UTF_8);
+        fields[field] = value;
+      }
+    }
+    return value;
+  }
+
+  private void encode() {
+    final byte[][] strings = new byte[FIELDS][];
+    int length = 8;
+    for (int i = 0; i < FIELDS; i++) {
+      strings[i] = fields[i] == null ? null : fields[i].getBytes(StandardCharsets.UTF_8);
+      length += 4 + (strings[i] == null ? 0 : strings[i].length);
+    }
+    final byte[] bytes = new byte[HEADER_LENGTH + length];
+    bytes[0] = VERSION;
+    writeInt(bytes, 1, length);
+    writeLong(bytes, HEADER_LENGTH, expiresAt);
+    int offset = HEADER_LENGTH + 8;
+    for (byte[] string : strings) {
+      writeInt(bytes, offset, string == null ? -1 : string.length);
+      offset += 4;
+      if (string != null) {
+        System.arraycopy(string, 0, bytes, offset, string.length);
+        offset += string.length;
+      }
+    }
+    encoded = bytes;
+  }
+
+  private static int readInt(final byte[] bytes, final int offset) {
+    return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16 | (bytes[offset + 2] & 0xff) << 8 |
+      bytes[offset + 3] & 0xff;
+  }
+
+  private static long readLong(final byte[] bytes, final int offset) {
+    return (long) readInt(bytes, offset) << 32 | readInt(bytes, offset + 4) & 0xffffffffL;
+  }
+
+  private static void writeInt(final byte[] bytes, final int offset, final int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
+  }
+
+  private static void writeLong(final byte[] bytes, final int offset, final long value) {
+    writeInt(bytes, offset, (int) (value >>> 32));
+    writeInt(bytes, offset + 4, (int) value);
+  }
+}
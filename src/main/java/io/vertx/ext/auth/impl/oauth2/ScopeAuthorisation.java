@@ -0,0 +1,229 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorisation of OAuth2 users from the scopes their access tokens were granted. A permission is granted by the
+ * scope of the same name, and by any scope a rule maps it to - either exactly, or, for a rule whose permission ends
+ * in *, every permission starting with what comes before the *. So with
+ * <pre>
+ *   new ScopeAuthorisation().grant("role:admin", "admin", "superuser").grant("orders:*", "orders")
+ * </pre>
+ * a user granted the admin scope holds role:admin, and one granted the orders scope holds orders:read, orders:write
+ * and any other orders: permission.
+ *
+ * Each scope seen is interned into a dictionary which numbers it, so a user's scopes are parsed once, at
+ * authentication, into a bitset. Each permission is compiled, the first time it is checked, into the bitset of
+ * scopes which grant it, so checking a permission is a map lookup and a few word ANDs, with nothing allocated.
+ *
+ * Rules must all be added before the provider using the authorisation authenticates anyone.
+ */
+public class ScopeAuthorisation {
+
+  /**
+   * Default limit on the number of distinct scopes numbered - scopes seen beyond it grant nothing but their rules
+   */
+  static final int DEFAULT_MAX_SCOPES = 4096;
+
+  private static final long[] NO_SCOPES = new long[0];
+  private static final AsyncResult<Boolean> AUTHORISED = Future.succeededFuture(true);
+  private static final AsyncResult<Boolean> NOT_AUTHORISED = Future.succeededFuture(false);
+
+  private final int maxScopes;
+  private final Map<String, Integer> dictionary = new ConcurrentHashMap<>();
+
+  /**
+   * Rules, as the scopes granting each exact permission, and the prefixes and scopes of wildcard permissions
+   */
+  private final Map<String, List<String>> exactRules = new ConcurrentHashMap<>();
+  private final List<String> wildcardPrefixes = new ArrayList<>();
+  private final List<List<String>> wildcardScopes = new ArrayList<>();
+
+  /**
+   * The scopes granting each permission checked so far, as bitsets
+   */
+  private final Map<String, long[]> permissions = new ConcurrentHashMap<>();
+
+  public ScopeAuthorisation() {
+    this(DEFAULT_MAX_SCOPES);
+  }
+
+  /**
+   * Constructor
+   * @param maxScopes - the maximum number of distinct scopes numbered, which bounds the size of each user's bitset
+   */
+  public ScopeAuthorisation(final int maxScopes) {
+    if (maxScopes <= 0) {
+      throw new IllegalArgumentException("Maximum number of scopes must be positive");
+    }
+    this.maxScopes = maxScopes;
+  }
+
+  /**
+   * Grant a permission to users holding any of the given scopes, as well as to those holding the scope of the same
+   * name
+   * @param permission - the permission, or a prefix followed by * for every permission starting with it
+   * @param scopes - the scopes which grant it
+   * @return a reference to this, so the API can be used fluently
+   */
+  public ScopeAuthorisation grant(final String permission, final String... scopes) {
+    Objects.requireNonNull(permission, "Permission must not be null");
+    final List<String> granting = new ArrayList<>();
+    for (String scope : scopes) {
+      granting.add(Objects.requireNonNull(scope, "Scope must not be null"));
+      intern(scope);
+    }
+    if (permission.endsWith("*")) {
+      wildcardPrefixes.add(permission.substring(0, permission.length() - 1));
+      wildcardScopes.add(granting);
+    } else {
+      exactRules.computeIfAbsent(permission, p -> new ArrayList<>()).addAll(granting);
+    }
+    permissions.clear();
+    return this;
+  }
+
+  /**
+   * Parse a space separated scope list, as carried by token responses and the scope claim of JWTs
+   * @param scope - the scopes, or null
+   * @return the scopes as a bitset
+   */
+  public long[] scopes(final String scope) {
+    if (scope == null || scope.isEmpty()) {
+      return NO_SCOPES;
+    }
+    long[] bits = NO_SCOPES;
+    int start = 0;
+    while (start < scope.length()) {
+      int end = scope.indexOf(' ', start);
+      if (end < 0) {
+        end = scope.length();
+      }
+      if (end > start) {
+        bits = set(bits, intern(scope.substring(start, end)));
+      }
+      start = end + 1;
+    }
+    return bits;
+  }
+
+  /**
+   * Parse a scope list held as a JSON array, as in the scp claim some providers put in JWTs
+   * @param scopes - the scopes, or null
+   * @return the scopes as a bitset
+   */
+  public long[] scopes(final JsonArray scopes) {
+    long[] bits = NO_SCOPES;
+    if (scopes != null) {
+      for (int i = 0; i < scopes.size(); i++) {
+        final Object scope = scopes.getValue(i);
+        if (scope instanceof String) {
+          bits = set(bits, intern((String) scope));
+        }
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * Check whether a user's scopes grant a permission
+   * @param scopes - the user's scopes, as returned by scopes
+   * @param permission - the permission
+   * @return true if the permission is granted
+   */
+  public boolean isAuthorised(final long[] scopes, final String permission) {
+    long[] granting = permissions.get(permission);
+    if (granting == null) {
+      granting = compile(permission);
+      permissions.put(permission, granting);
+    }
+    final int words = Math.min(scopes.length, granting.length);
+    for (int i = 0; i < words; i++) {
+      if ((scopes[i] & granting[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * As isAuthorised, but as the preallocated result a user hands to its authorisation handler
+   * @param scopes - the user's scopes, as returned by scopes
+   * @param permission - the permission
+   * @return the succeeded result, true if the permission is granted
+   */
+  AsyncResult<Boolean> authorise(final long[] scopes, final String permission) {
+    return isAuthorised(scopes, permission) ? AUTHORISED : NOT_AUTHORISED;
+  }
+
+  /**
+   * @return the number of distinct scopes numbered so far
+   */
+  public int scopeCount() {
+    return dictionary.size();
+  }
+
+  private long[] compile(final String permission) {
+    long[] bits = set(NO_SCOPES, intern(permission));
+    final List<String> exact = exactRules.get(permission);
+    if (exact != null) {
+      for (String scope : exact) {
+        bits = set(bits, intern(scope));
+      }
+    }
+    for (int i = 0; i < wildcardPrefixes.size(); i++) {
+      if (permission.startsWith(wildcardPrefixes.get(i))) {
+        for (String scope : wildcardScopes.get(i)) {
+          bits = set(bits, intern(scope));
+        }
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * Number a scope
+   * @param scope - the scope
+   * @return its number, or -1 if the dictionary is full
+   */
+  private int intern(final String scope) {
+    final Integer existing = dictionary.get(scope);
+    if (existing != null) {
+      return existing;
+    }
+    synchronized (dictionary) {
+      final Integer raced = dictionary.get(scope);
+      if (raced != null) {
+        return raced;
+      }
+      if (dictionary.size() >= maxScopes) {
+        return -1;
+      }
+      final int number = dictionary.size();
+      dictionary.put(scope, number);
+      return number;
+    }
+  }
+
+  private static long[] set(long[] bits, final int bit) {
+    if (bit < 0) {
+      return bits;
+    }
+    final int word = bit >>> 6;
+    if (word >= bits.length) {
+      final long[] grown = new long[word + 1];
+      System.arraycopy(bits, 0, grown, 0, bits.length);
+      bits = grown;
+    }
+    bits[word] |= 1L << bit;
+    return bits;
+  }
+}
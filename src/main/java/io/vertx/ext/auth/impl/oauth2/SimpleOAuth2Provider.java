@@ -1,11 +1,10 @@
 package io.vertx.ext.auth.impl.oauth2;
 
+import io.vertx.core.Vertx;
 import io.vertx.ext.auth.impl.oauth2.impl.SimpleOAuth2AuthProviderImpl;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.sstore.SessionStore;
 
-import java.util.function.BiConsumer;
-
 /**
  * User: jez
  */
@@ -15,4 +14,68 @@ public interface SimpleOAuth2Provider extends OAuth2AuthProvider {
     return new SimpleOAuth2AuthProviderImpl(tokenParamName, sessionStore);
   }
 
+  /**
+   * Create a provider which keeps users it has resolved from the session store in a bounded local cache, so that a
+   * session's token is not looked up in the session store on every request
+   * @param tokenParamName - name of the session parameter holding the token
+   * @param sessionStore - the session store to look tokens up in
+   * @param maxCachedUsers - the maximum number of sessions to cache users for
+   * @param cacheTtlMillis - how long a cached user is trusted without going back to the session store
+   * @return the provider
+   */
+  static SimpleOAuth2Provider create(final String tokenParamName, final SessionStore sessionStore,
+                                     final int maxCachedUsers, final long cacheTtlMillis) {
+    return new SimpleOAuth2AuthProviderImpl(tokenParamName, sessionStore, maxCachedUsers, cacheTtlMillis);
+  }
+
+  /**
+   * Create a provider for a cluster sharing a clustered session store. Each node keeps users it has resolved in a
+   * bounded local cache, and changes to a session's tokens on any node are published on the event bus, so no node
+   * goes on authenticating from tokens which have been replaced or removed
+   * @param vertx - the vertx instance, whose event bus reaches the other nodes
+   * @param tokenParamName - name of the session parameter holding the token
+   * @param sessionStore - the clustered session store to look tokens up in
+   * @param maxCachedUsers - the maximum number of sessions to cache users for
+   * @param cacheTtlMillis - how long a cached user is trusted without going back to the session store, which also
+   *                       bounds the effect of a lost event bus message
+   * @param invalidationAddress - the event bus address token changes are published on, the same on every node
+   * @return the provider
+   */
+  static SimpleOAuth2Provider create(final Vertx vertx, final String tokenParamName, final SessionStore sessionStore,
+                                     final int maxCachedUsers, final long cacheTtlMillis,
+                                     final String invalidationAddress) {
+    return new SimpleOAuth2AuthProviderImpl(vertx, tokenParamName, sessionStore, maxCachedUsers, cacheTtlMillis,
+      invalidationAddress);
+  }
+
+  /**
+   * Remove the tokens stored for a request's session, as at logout, and stop every node authenticating the session
+   * from its cached user
+   * @param routingContext - the routing context of a request with a session
+   */
+  void removeTokens(RoutingContext routingContext);
+
+  /**
+   * Authorise users from the scopes their tokens were granted, rather than granting every role request. Set before
+   * the provider authenticates anyone
+   * @param scopeAuthorisation - the authorisation rules, or null to grant every role request
+   * @return a reference to this, so the API can be used fluently
+   */
+  SimpleOAuth2Provider useScopeAuthorisation(ScopeAuthorisation scopeAuthorisation);
+
+  /**
+   * Stop listening for token changes published by other nodes
+   */
+  void close();
+
+  /**
+   * @return the number of authentications answered from the user cache
+   */
+  long userCacheHits();
+
+  /**
+   * @return the number of authentications which had to go to the session store
+   */
+  long userCacheMisses();
+
 }
@@ -9,27 +9,51 @@ import io.vertx.ext.auth.User;
 import io.vertx.ext.auth.impl.oauth2.impl.SimpleOAuth2AuthProviderImpl;
 
 /**
- * Trivial User implementation for OAuth2 authentication only. All role requests for now return true - we may need
- * to look at building in more complex authorization/permission processing later, but this is a simple implementation
- * just to get an external authentication working
+ * Trivial User implementation for OAuth2 authentication. Without a ScopeAuthorisation all role requests return true;
+ * with one, the scopes the token set was granted are parsed into a bitset when the user is created, and each role
+ * request is checked against it
  */
 public class SimpleOAuth2User implements User {
 
   public static final String FIELD_TOKEN = "token";
   private SimpleOAuth2AuthProviderImpl authProvider;
-  private String token;
+  private OAuth2TokenSet tokens;
+  private ScopeAuthorisation authorisation;
+  private long[] scopes;
 
   public SimpleOAuth2User() {
   }
 
   public SimpleOAuth2User(final String token, final SimpleOAuth2AuthProviderImpl authProvider) {
+    this(new OAuth2TokenSet(token, null, OAuth2TokenSet.UNKNOWN_EXPIRY, null, null), authProvider);
+  }
+
+  public SimpleOAuth2User(final OAuth2TokenSet tokens, final SimpleOAuth2AuthProviderImpl authProvider) {
+    this(tokens, null, authProvider);
+  }
+
+  public SimpleOAuth2User(final OAuth2TokenSet tokens, final ScopeAuthorisation authorisation,
+                          final SimpleOAuth2AuthProviderImpl authProvider) {
     this.authProvider = authProvider;
-    this.token = token;
+    this.tokens = tokens;
+    this.authorisation = authorisation;
+    this.scopes = authorisation != null ? authorisation.scopes(tokens.scope()) : null;
+  }
+
+  /**
+   * @return the tokens the user was authenticated with
+   */
+  public OAuth2TokenSet tokens() {
+    return tokens;
   }
 
   @Override
   public User isAuthorised(String s, Handler<AsyncResult<Boolean>> handler) {
-    // Simple OAuth2 authentication doesn't currently concern itself with permissions for a user
+    if (authorisation != null) {
+      handler.handle(authorisation.authorise(scopes, s));
+      return this;
+    }
+    // Without scope authorisation, simple OAuth2 authentication doesn't concern itself with permissions for a user
     handler.handle(Future.succeededFuture());
     return this;
   }
@@ -41,7 +65,7 @@ public class SimpleOAuth2User implements User {
 
   @Override
   public JsonObject principal() {
-    return new JsonObject().put(FIELD_TOKEN, token);
+    return new JsonObject().put(FIELD_TOKEN, tokens.accessToken());
   }
 
   @Override
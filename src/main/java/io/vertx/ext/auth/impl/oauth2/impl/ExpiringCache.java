@@ -0,0 +1,174 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small, bounded, thread safe cache whose entries expire after a time to live. When full, the least recently used
+ * entry is evicted. Expired entries are dropped lazily, when they are next looked up or reach the eviction end of
+ * the cache.
+ *
+ * Auth providers are shared by every event loop, so access is synchronized - the critical sections are a single
+ * hash lookup and are far cheaper than the session store or network round trip the cache replaces.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ExpiringCache<K, V> {
+
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final LinkedHashMap<K, Entry<V>> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Constructor
+   * @param maxEntries - the maximum number of entries held
+   * @param ttlMillis - the default time to live of an entry, in milliseconds
+   */
+  public ExpiringCache(final int maxEntries, final long ttlMillis) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+    if (ttlMillis <= 0) {
+      throw new IllegalArgumentException("Cache time to live must be positive");
+    }
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Look up an entry, counting a hit or a miss
+   * @param key - the key
+   * @param nowMillis - the current time
+   * @return the value, or null if there is no live entry for the key
+   */
+  public V get(final K key, final long nowMillis) {
+    final V value;
+    synchronized (entries) {
+      final Entry<V> entry = entries.get(key);
+      if (entry == null) {
+        value = null;
+      } else if (entry.expiresAt <= nowMillis) {
+        entries.remove(key);
+        value = null;
+      } else {
+        value = entry.value;
+      }
+    }
+    if (value == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Add or replace an entry with the default time to live
+   * @param key - the key
+   * @param value - the value
+   * @param nowMillis - the current time
+   */
+  public void put(final K key, final V value, final long nowMillis) {
+    putUntil(key, value, nowMillis + ttlMillis, nowMillis);
+  }
+
+  /**
+   * Add or replace an entry which expires at the earlier of the given time and the default time to live
+   * @param key - the key
+   * @param value - the value
+   * @param expiresAtMillis - the time after which the entry must no longer be returned
+   * @param nowMillis - the current time
+   */
+  public void putUntil(final K key, final V value, final long expiresAtMillis, final long nowMillis) {
+    final long expiresAt = Math.min(expiresAtMillis, nowMillis + ttlMillis);
+    if (expiresAt <= nowMillis) {
+      remove(key);
+      return;
+    }
+    synchronized (entries) {
+      entries.put(key, new Entry<>(value, expiresAt));
+      if (entries.size() > maxEntries) {
+        evict(nowMillis);
+      }
+    }
+  }
+
+  /**
+   * Remove an entry
+   * @param key - the key
+   * @return the value removed, or null if there was none
+   */
+  public V remove(final K key) {
+    final Entry<V> entry;
+    synchronized (entries) {
+      entry = entries.remove(key);
+    }
+    return entry == null ? null : entry.value;
+  }
+
+  /**
+   * Remove all entries
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * @return the number of entries currently held, including any which have expired but not yet been dropped
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * @return the number of lookups which found a live entry
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the number of lookups which found no live entry
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Drop the least recently used entries until back within the size bound, then carry on dropping any expired
+   * entries at the least recently used end. Must be called holding the lock.
+   */
+  private void evict(final long nowMillis) {
+    final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+    while (it.hasNext() && entries.size() > maxEntries) {
+      it.next();
+      it.remove();
+    }
+    while (it.hasNext()) {
+      if (it.next().getValue().expiresAt > nowMillis) {
+        break;
+      }
+      it.remove();
+    }
+  }
+
+  private static final class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+
+    private Entry(final V value, final long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
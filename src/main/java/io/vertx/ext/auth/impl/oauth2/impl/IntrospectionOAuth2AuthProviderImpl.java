@@ -0,0 +1,255 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.impl.oauth2.IntrospectionOAuth2Provider;
+import io.vertx.ext.auth.impl.oauth2.IntrospectionOAuth2ProviderOptions;
+import io.vertx.ext.auth.impl.oauth2.IntrospectionOAuth2User;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.impl.ClientConnections;
+import io.vertx.ext.web.handler.impl.SharedHttpClients;
+import io.vertx.ext.web.handler.impl.TokenResponses;
+import io.vertx.ext.web.handler.oauth2.TokenRequestForm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static io.vertx.core.http.HttpHeaders.*;
+
+/**
+ * IntrospectionOAuth2Provider implementation.
+ *
+ * Each token has at most one introspection call in flight: authentications arriving while a call is outstanding
+ * wait for its result rather than making calls of their own. Results are cached by token - active results until the
+ * earlier of the token's exp and the active time to live, inactive results for the (shorter) inactive time to live.
+ * Failed calls are not cached. At most maxOutstandingRequests calls are in flight at once; further tokens queue in
+ * arrival order, and once the queue is full authentication fails immediately rather than piling more work onto a
+ * provider which is already not keeping up. Each call is bounded by the request timeout, response body included, so
+ * a stalled provider fails the authentications waiting on it rather than holding its place for ever. Responses are
+ * read up to the maximum response size, and those with any status but 200 are drained so their connection can be
+ * reused.
+ */
+public class IntrospectionOAuth2AuthProviderImpl implements IntrospectionOAuth2Provider {
+
+  private final Vertx vertx;
+  private final IntrospectionOAuth2ProviderOptions options;
+  private final String bodyPrefix;
+  private final ExpiringCache<String, JsonObject> results;
+  private final LongAdder introspectionRequests = new LongAdder();
+
+  /**
+   * Introspections in flight or queued, by token. Guarded by this, as are outstanding and queue
+   */
+  private final Map<String, Introspection> introspections = new HashMap<>();
+  private final ArrayDeque<Introspection> queue = new ArrayDeque<>();
+  private int outstanding;
+
+  /**
+   * Create the provider
+   * @param vertx - the vertx instance
+   * @param options - the provider options, which must specify the introspection url
+   */
+  public IntrospectionOAuth2AuthProviderImpl(final Vertx vertx, final IntrospectionOAuth2ProviderOptions options) {
+    Objects.requireNonNull(vertx, "Vertx must not be null");
+    Objects.requireNonNull(options, "Options must not be null");
+    Objects.requireNonNull(options.introspectionUrl(), "Introspection url must not be null");
+    if (options.maxOutstandingRequests() <= 0) {
+      throw new IllegalArgumentException("Maximum outstanding introspection requests must be positive");
+    }
+    this.vertx = vertx;
+    this.options = options;
+    this.bodyPrefix = TokenRequestForm.introspectionPrefix(options.clientId(), options.clientSecret());
+    this.results = new ExpiringCache<>(options.maxCachedTokens(),
+      Math.max(options.activeTtlMillis(), options.inactiveTtlMillis()));
+  }
+
+  @Override
+  public void authenticate(JsonObject authInfo, Handler<AsyncResult<User>> resultHandler) {
+    final String token = authInfo.getString(ACCESS_TOKEN);
+    if (token == null) {
+      resultHandler.handle(Future.failedFuture("No access token supplied"));
+      return;
+    }
+    final JsonObject cached = results.get(token, System.currentTimeMillis());
+    if (cached != null) {
+      resultHandler.handle(toUser(token, cached));
+      return;
+    }
+
+    final Context context = vertx.getOrCreateContext();
+    final Handler<AsyncResult<JsonObject>> waiter = result -> context.runOnContext(v ->
+      resultHandler.handle(result.succeeded() ? toUser(token, result.result()) : Future.failedFuture(result.cause())));
+    final Introspection introspection;
+    synchronized (this) {
+      final Introspection inFlight = introspections.get(token);
+      if (inFlight != null) {
+        inFlight.waiters.add(waiter);
+        return;
+      }
+      if (outstanding >= options.maxOutstandingRequests() && queue.size() >= options.maxQueuedRequests()) {
+        introspection = null;
+      } else {
+        introspection = new Introspection(token);
+        introspection.waiters.add(waiter);
+        introspections.put(token, introspection);
+        if (outstanding >= options.maxOutstandingRequests()) {
+          queue.add(introspection);
+          return;
+        }
+        outstanding++;
+      }
+    }
+    if (introspection == null) {
+      resultHandler.handle(Future.failedFuture("Too many token introspections outstanding"));
+    } else {
+      send(introspection);
+    }
+  }
+
+  @Override
+  public BiConsumer<RoutingContext, String> tokenHandler() {
+    return (routingContext, token) -> routingContext.session().put(options.tokenParamName(), token);
+  }
+
+  @Override
+  public JsonObject authInfo(final RoutingContext routingContext) {
+    return new JsonObject().put(ACCESS_TOKEN, routingContext.session().<String>get(options.tokenParamName()));
+  }
+
+  @Override
+  public boolean authenticatesAccessTokens() {
+    return true;
+  }
+
+  @Override
+  public long introspectionRequests() {
+    return introspectionRequests.sum();
+  }
+
+  @Override
+  public long cacheHits() {
+    return results.hits();
+  }
+
+  private Future<User> toUser(final String token, final JsonObject result) {
+    if (!result.getBoolean("active", false)) {
+      return Future.failedFuture("Token is not active");
+    }
+    return Future.succeededFuture(new IntrospectionOAuth2User(token, result, this));
+  }
+
+  private void send(final Introspection introspection) {
+    introspectionRequests.increment();
+    final HttpClientRequest request = SharedHttpClients.get(vertx, options.httpClientOptions())
+      .postAbs(options.introspectionUrl());
+    final HttpClientResponse[] stalled = {null};
+    final long timeoutMillis = options.requestTimeoutMillis();
+    introspection.timerId = vertx.setTimer(timeoutMillis, id -> {
+      if (complete(introspection, Future.failedFuture(new TimeoutException("Token introspection timed out after " +
+        timeoutMillis + " ms"))) && stalled[0] != null) {
+        // The body has stalled - drop the connection rather than return it to the pool
+        ClientConnections.close(request);
+      }
+    });
+    request.setTimeout(timeoutMillis);
+    request.handler(response -> {
+      stalled[0] = response;
+      if (response.statusCode() == 200) {
+        TokenResponses.readBody(response, options.maxResponseBytes(), body -> complete(introspection,
+          body.succeeded() ? parse(introspection.token, body.result()) : Future.failedFuture(body.cause())));
+      } else {
+        // Drain the response so its connection goes back to the pool, still bounded by the timer
+        response.handler(chunk -> {
+        });
+        response.exceptionHandler(e -> complete(introspection, Future.failedFuture(e)));
+        response.endHandler(v -> complete(introspection,
+          Future.failedFuture("Token introspection failed with status " + response.statusCode())));
+      }
+    });
+    request.exceptionHandler(e -> complete(introspection, Future.failedFuture(e)));
+
+    final Buffer body = Buffer.buffer(TokenRequestForm.introspectionBody(bodyPrefix, introspection.token));
+    request.putHeader(CONTENT_TYPE, "application/x-www-form-urlencoded; charset=utf-8");
+    request.putHeader(ACCEPT, "application/json");
+    request.putHeader(CONTENT_LENGTH, String.valueOf(body.length()));
+    request.end(body);
+  }
+
+  /**
+   * Parse and cache an introspection response
+   */
+  private AsyncResult<JsonObject> parse(final String token, final Buffer body) {
+    final JsonObject result;
+    try {
+      result = new JsonObject(body.toString());
+    } catch (DecodeException | ClassCastException e) {
+      return Future.failedFuture("Token introspection response is not valid JSON");
+    }
+    final long now = System.currentTimeMillis();
+    if (result.getBoolean("active", false)) {
+      final Object exp = result.getValue("exp");
+      final long expiresAt = exp instanceof Number ? ((Number) exp).longValue() * 1000 : Long.MAX_VALUE;
+      results.putUntil(token, result, Math.min(expiresAt, now + options.activeTtlMillis()), now);
+    } else {
+      results.putUntil(token, result, now + options.inactiveTtlMillis(), now);
+    }
+    return Future.succeededFuture(result);
+  }
+
+  /**
+   * Hand an introspection result to everything waiting for it, then start the next queued introspection. Ignores
+   * all but the first result for an introspection, as a failed request may report both a response and an exception,
+   * and the timeout may fire as the response completes
+   * @return true if this was the first result, so was handed out
+   */
+  private boolean complete(final Introspection introspection, final AsyncResult<JsonObject> result) {
+    final Introspection next;
+    synchronized (this) {
+      if (introspection.completed) {
+        return false;
+      }
+      introspection.completed = true;
+      introspections.remove(introspection.token);
+      next = queue.poll();
+      if (next == null) {
+        outstanding--;
+      }
+    }
+    vertx.cancelTimer(introspection.timerId);
+    introspection.waiters.forEach(waiter -> waiter.handle(result));
+    if (next != null) {
+      send(next);
+    }
+    return true;
+  }
+
+  /**
+   * An introspection call for one token, and the authentications waiting for its result
+   */
+  private static final class Introspection {
+    private final String token;
+    private final List<Handler<AsyncResult<JsonObject>>> waiters = new ArrayList<>();
+    private boolean completed;
+    private long timerId;
+
+    private Introspection(final String token) {
+      this.token = token;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, pre-parsed JSON web key set (RFC 7517). Each signing key in the set is converted to a PublicKey once,
+ * when the set is loaded, and indexed by its key id, so verifying a token costs a single hash lookup to find its key.
+ *
+ * RSA and EC (P-256, P-384, P-521) keys are supported. Keys marked for any use other than signing, keys of other
+ * types, and keys which cannot be parsed - such as an EC key on another curve - are skipped, so one key the verifier
+ * cannot use does not stop it using the rest.
+ */
+public class JsonWebKeySet {
+
+  /**
+   * An empty key set, used until the real key set has been loaded
+   */
+  static final JsonWebKeySet EMPTY = new JsonWebKeySet(Collections.emptyMap(), null, 0);
+
+  private final Map<String, Key> keysById;
+
+  /**
+   * The only key in the set, when there is exactly one - used for tokens which carry no key id
+   */
+  private final Key onlyKey;
+
+  /**
+   * When this key set was loaded, in epoch milliseconds
+   */
+  private final long loadedAt;
+
+  private JsonWebKeySet(final Map<String, Key> keysById, final Key onlyKey, final long loadedAt) {
+    this.keysById = keysById;
+    this.onlyKey = onlyKey;
+    this.loadedAt = loadedAt;
+  }
+
+  /**
+   * Parse a key set document
+   * @param jwks - the JWKS document, an object with a keys array
+   * @param loadedAt - the time the document was loaded
+   * @return the parsed key set
+   * @throws IllegalArgumentException if the document is not a key set, or has no signing key which can be parsed
+   */
+  public static JsonWebKeySet parse(final JsonObject jwks, final long loadedAt) {
+    final JsonArray keys = jwks.getJsonArray("keys");
+    if (keys == null) {
+      throw new IllegalArgumentException("JSON web key set has no keys array");
+    }
+    final Map<String, Key> keysById = new HashMap<>();
+    Key lastKey = null;
+    int count = 0;
+    RuntimeException skipped = null;
+    for (int i = 0; i < keys.size(); i++) {
+      try {
+        final JsonObject jwk = keys.getJsonObject(i);
+        final Key key = key(jwk);
+        if (key != null) {
+          keysById.put(jwk.getString("kid"), key);
+          lastKey = key;
+          count++;
+        }
+      } catch (IllegalArgumentException | ClassCastException e) {
+        // One key the verifier cannot use - a curve it does not know, say - leaves the rest usable
+        skipped = e;
+      }
+    }
+    if (count == 0) {
+      throw new IllegalArgumentException("JSON web key set has no usable signing key", skipped);
+    }
+    return new JsonWebKeySet(keysById, count == 1 ? lastKey : null, loadedAt);
+  }
+
+  /**
+   * Parse a single key
+   * @return the key, or null if it is not a signing key of a supported type
+   * @throws IllegalArgumentException if the key cannot be parsed
+   * @throws ClassCastException if a field of the key has the wrong type
+   */
+  private static Key key(final JsonObject jwk) {
+    final String use = jwk.getString("use");
+    if (use != null && !"sig".equals(use)) {
+      return null;
+    }
+    final String kty = jwk.getString("kty");
+    final PublicKey publicKey;
+    if ("RSA".equals(kty)) {
+      publicKey = rsaKey(jwk);
+    } else if ("EC".equals(kty)) {
+      publicKey = ecKey(jwk);
+    } else {
+      return null;
+    }
+    return new Key(publicKey, jwk.getString("alg"));
+  }
+
+  /**
+   * Find the key for a token
+   * @param kid - the key id from the token header, may be null
+   * @return the key, or null if there is no such key in the set
+   */
+  Key key(final String kid) {
+    if (kid == null) {
+      return onlyKey;
+    }
+    return keysById.get(kid);
+  }
+
+  /**
+   * @return the number of signing keys in the set
+   */
+  public int size() {
+    return keysById.size();
+  }
+
+  /**
+   * @return when the key set was loaded, in epoch milliseconds
+   */
+  public long loadedAt() {
+    return loadedAt;
+  }
+
+  private static PublicKey rsaKey(final JsonObject jwk) {
+    try {
+      return KeyFactory.getInstance("RSA").generatePublic(
+        new RSAPublicKeySpec(unsigned(jwk, "n"), unsigned(jwk, "e")));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException("Invalid RSA key " + jwk.getString("kid") + " in JSON web key set", e);
+    }
+  }
+
+  private static PublicKey ecKey(final JsonObject jwk) {
+    final String curve;
+    final String crv = jwk.getString("crv");
+    if ("P-256".equals(crv)) {
+      curve = "secp256r1";
+    } else if ("P-384".equals(crv)) {
+      curve = "secp384r1";
+    } else if ("P-521".equals(crv)) {
+      curve = "secp521r1";
+    } else {
+      throw new IllegalArgumentException("Unsupported curve " + crv + " for key " + jwk.getString("kid"));
+    }
+    try {
+      final AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+      parameters.init(new ECGenParameterSpec(curve));
+      final ECParameterSpec spec = parameters.getParameterSpec(ECParameterSpec.class);
+      final ECPoint point = new ECPoint(unsigned(jwk, "x"), unsigned(jwk, "y"));
+      return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, spec));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException("Invalid EC key " + jwk.getString("kid") + " in JSON web key set", e);
+    }
+  }
+
+  private static BigInteger unsigned(final JsonObject jwk, final String field) {
+    final String value = jwk.getString(field);
+    if (value == null) {
+      throw new IllegalArgumentException("Key " + jwk.getString("kid") + " has no " + field + " value");
+    }
+    return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+  }
+
+  /**
+   * A parsed key, and the algorithm it is restricted to if the key set specified one
+   */
+  static final class Key {
+    final PublicKey publicKey;
+    final String algorithm;
+
+    Key(final PublicKey publicKey, final String algorithm) {
+      this.publicKey = publicKey;
+      this.algorithm = algorithm;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.impl.oauth2.JwtOAuth2Provider;
+import io.vertx.ext.auth.impl.oauth2.JwtOAuth2ProviderOptions;
+import io.vertx.ext.auth.impl.oauth2.JwtOAuth2User;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.impl.HttpDocuments;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * JwtOAuth2Provider implementation. The key set is held in a volatile field and replaced wholesale whenever it is
+ * reloaded, so authentication never blocks and never waits on a reload - except for a token signed with a key we do
+ * not know, which triggers a reload (at most once per minimum refresh interval) and is verified again against the
+ * result. A failed reload - including one which times out - leaves the last good key set in place.
+ */
+public class JwtOAuth2AuthProviderImpl implements JwtOAuth2Provider {
+
+  private final Vertx vertx;
+  private final JwtOAuth2ProviderOptions options;
+  private final JwtVerifier verifier;
+  private final long refreshTimerId;
+
+  private volatile JsonWebKeySet keySet = JsonWebKeySet.EMPTY;
+
+  /**
+   * When the last reload was started, used to rate limit reloads triggered by unknown keys
+   */
+  private volatile long lastLoadStarted;
+
+  /**
+   * Handlers waiting for the reload in progress - null when no reload is in progress. Guarded by this
+   */
+  private List<Handler<JsonWebKeySet>> loadWaiters;
+
+  /**
+   * Create the provider, start loading the key set, and schedule its background refresh
+   * @param vertx - the vertx instance
+   * @param options - the provider options, which must specify exactly one of a key set url, a key set path and
+   *                discovery
+   */
+  public JwtOAuth2AuthProviderImpl(final Vertx vertx, final JwtOAuth2ProviderOptions options) {
+    Objects.requireNonNull(vertx, "Vertx must not be null");
+    Objects.requireNonNull(options, "Options must not be null");
+    if ((options.keySetUrl() != null ? 1 : 0) + (options.keySetPath() != null ? 1 : 0) +
+      (options.discovery() != null ? 1 : 0) != 1) {
+      throw new IllegalArgumentException("Exactly one of key set url, key set path and discovery must be set");
+    }
+    if (options.keySetRefreshMillis() <= 0) {
+      throw new IllegalArgumentException("Key set refresh interval must be positive");
+    }
+    this.vertx = vertx;
+    this.options = options;
+    final String issuer = options.issuer() == null && options.discovery() != null ?
+      options.discovery().issuer() : options.issuer();
+    this.verifier = new JwtVerifier(issuer, options.audience(), options.clockSkewMillis());
+    loadKeySet(null);
+    this.refreshTimerId = vertx.setPeriodic(options.keySetRefreshMillis(), id -> loadKeySet(null));
+  }
+
+  @Override
+  public void authenticate(JsonObject authInfo, Handler<AsyncResult<User>> resultHandler) {
+    final String token = authInfo.getString(ACCESS_TOKEN);
+    if (token == null) {
+      resultHandler.handle(Future.failedFuture("No access token supplied"));
+      return;
+    }
+    try {
+      resultHandler.handle(Future.succeededFuture(verify(token, keySet)));
+    } catch (JwtVerifier.JwtVerificationException e) {
+      if (e.unknownKey() && System.currentTimeMillis() - lastLoadStarted >= options.minKeySetRefreshMillis()) {
+        loadKeySet(reloaded -> {
+          try {
+            resultHandler.handle(Future.succeededFuture(verify(token, reloaded)));
+          } catch (JwtVerifier.JwtVerificationException retryFailure) {
+            resultHandler.handle(Future.failedFuture(retryFailure.getMessage()));
+          }
+        });
+      } else {
+        resultHandler.handle(Future.failedFuture(e.getMessage()));
+      }
+    }
+  }
+
+  @Override
+  public BiConsumer<RoutingContext, String> tokenHandler() {
+    return (routingContext, token) -> routingContext.session().put(options.tokenParamName(), token);
+  }
+
+  @Override
+  public JsonObject authInfo(final RoutingContext routingContext) {
+    return new JsonObject().put(ACCESS_TOKEN, routingContext.session().<String>get(options.tokenParamName()));
+  }
+
+  @Override
+  public boolean authenticatesAccessTokens() {
+    return true;
+  }
+
+  @Override
+  public long keySetLoadedAt() {
+    return keySet.loadedAt();
+  }
+
+  @Override
+  public void close() {
+    vertx.cancelTimer(refreshTimerId);
+  }
+
+  private User verify(final String token, final JsonWebKeySet keySet) {
+    return new JwtOAuth2User(token, verifier.verify(token, keySet, System.currentTimeMillis()),
+      options.scopeAuthorisation(), this);
+  }
+
+  /**
+   * Reload the key set, joining the reload in progress if there is one
+   * @param waiter - handler to call, on the caller's context, with the key set in use once the reload completes;
+   *               may be null
+   */
+  private void loadKeySet(final Handler<JsonWebKeySet> waiter) {
+    final boolean start;
+    synchronized (this) {
+      start = loadWaiters == null;
+      if (start) {
+        loadWaiters = new ArrayList<>();
+        lastLoadStarted = System.currentTimeMillis();
+      }
+      if (waiter != null) {
+        final Context context = vertx.getOrCreateContext();
+        loadWaiters.add(keys -> context.runOnContext(v -> waiter.handle(keys)));
+      }
+    }
+    if (start) {
+      readKeySet(this::keySetLoaded);
+    }
+  }
+
+  private void keySetLoaded(final AsyncResult<Buffer> result) {
+    if (result.succeeded()) {
+      try {
+        keySet = JsonWebKeySet.parse(new JsonObject(result.result().toString()), System.currentTimeMillis());
+      } catch (DecodeException | IllegalArgumentException | ClassCastException e) {
+        // Keep the last good key set
+      }
+    }
+    final List<Handler<JsonWebKeySet>> waiters;
+    synchronized (this) {
+      waiters = loadWaiters;
+      loadWaiters = null;
+    }
+    final JsonWebKeySet current = keySet;
+    waiters.forEach(waiter -> waiter.handle(current));
+  }
+
+  private void readKeySet(final Handler<AsyncResult<Buffer>> handler) {
+    if (options.keySetPath() != null) {
+      vertx.fileSystem().readFile(options.keySetPath(), handler);
+      return;
+    }
+    if (options.discovery() == null) {
+      readKeySet(options.keySetUrl(), handler);
+      return;
+    }
+    // The url is looked up on every load, so a key set moved by the provider is followed on the next refresh
+    options.discovery().metadata(metadata -> {
+      if (metadata.failed()) {
+        handler.handle(Future.failedFuture(metadata.cause()));
+      } else if (metadata.result().jwksUri() == null) {
+        handler.handle(Future.failedFuture("Discovery document for " + metadata.result().issuer() +
+          " gives no key set url"));
+      } else {
+        readKeySet(metadata.result().jwksUri(), handler);
+      }
+    });
+  }
+
+  private void readKeySet(final String keySetUrl, final Handler<AsyncResult<Buffer>> handler) {
+    HttpDocuments.get(vertx, options.httpClientOptions(), keySetUrl, options.keySetTimeoutMillis(), "Key set", handler);
+  }
+}
@@ -0,0 +1,298 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Verifies JWT access tokens (RFC 7519) locally: the signature against a pre-parsed JsonWebKeySet, then the exp, nbf,
+ * iss and aud claims. Verification is pure CPU work, so is safe to run on the event loop - Signature instances and
+ * the buffer holding the signed bytes are reused per thread.
+ *
+ * Only the asymmetric algorithms an OAuth2 provider can sign with without sharing a secret with us are accepted:
+ * RS256, RS384, RS512, ES256, ES384 and ES512. Tokens with any other alg, including none, are rejected.
+ */
+public class JwtVerifier {
+
+  private static final int INITIAL_BUFFER_SIZE = 2048;
+  private static final ThreadLocal<byte[][]> SIGNED_BYTES = ThreadLocal.withInitial(() -> new byte[][]{
+    new byte[INITIAL_BUFFER_SIZE]});
+
+  private final String issuer;
+  private final String audience;
+  private final long clockSkewMillis;
+
+  /**
+   * Constructor
+   * @param issuer - the iss value tokens must carry, or null to accept any issuer
+   * @param audience - the audience tokens must be issued for, or null to accept any audience
+   * @param clockSkewMillis - the allowance for clock differences when checking exp and nbf
+   */
+  public JwtVerifier(final String issuer, final String audience, final long clockSkewMillis) {
+    this.issuer = issuer;
+    this.audience = audience;
+    this.clockSkewMillis = clockSkewMillis;
+  }
+
+  /**
+   * Verify a token
+   * @param token - the encoded JWT
+   * @param keySet - the key set holding the key the token should be signed with
+   * @param nowMillis - the current time, in epoch milliseconds
+   * @return the token's claims
+   * @throws JwtVerificationException if the token is malformed, its signature is invalid, or its claims do not
+   * satisfy our requirements
+   */
+  public JsonObject verify(final String token, final JsonWebKeySet keySet, final long nowMillis) {
+    if (token == null) {
+      throw new JwtVerificationException("No token supplied", false);
+    }
+    final int headerEnd = token.indexOf('.');
+    final int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+    if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+      throw new JwtVerificationException("Token is not a signed JWT", false);
+    }
+
+    final JsonObject header = decodeJson(token, 0, headerEnd);
+    if (header.containsKey("crit")) {
+      throw new JwtVerificationException("Token uses unsupported critical header parameters", false);
+    }
+    final Algorithm algorithm = Algorithm.forName(stringHeader(header, "alg"));
+    final String kid = stringHeader(header, "kid");
+    final JsonWebKeySet.Key key = keySet.key(kid);
+    if (key == null) {
+      throw new JwtVerificationException("Token is signed with an unknown key " + kid, true);
+    }
+    if (key.algorithm != null && !key.algorithm.equals(algorithm.name())) {
+      throw new JwtVerificationException("Token algorithm does not match its key", false);
+    }
+
+    final byte[] signature = decode(token, payloadEnd + 1, token.length());
+    if (!algorithm.verify(key.publicKey, signedBytes(token, payloadEnd), payloadEnd, signature)) {
+      throw new JwtVerificationException("Token signature is invalid", false);
+    }
+
+    final JsonObject claims = decodeJson(token, headerEnd + 1, payloadEnd);
+    checkClaims(claims, nowMillis);
+    return claims;
+  }
+
+  private void checkClaims(final JsonObject claims, final long nowMillis) {
+    final Long exp = longClaim(claims, "exp");
+    if (exp == null) {
+      throw new JwtVerificationException("Token has no expiry", false);
+    }
+    if (nowMillis - clockSkewMillis >= exp * 1000) {
+      throw new JwtVerificationException("Token has expired", false);
+    }
+    final Long nbf = longClaim(claims, "nbf");
+    if (nbf != null && nowMillis + clockSkewMillis < nbf * 1000) {
+      throw new JwtVerificationException("Token is not yet valid", false);
+    }
+    // Not otherwise checked, but a token whose iat is not a number is malformed
+    longClaim(claims, "iat");
+    if (issuer != null && !issuer.equals(claims.getValue("iss"))) {
+      throw new JwtVerificationException("Token was issued by an unexpected issuer", false);
+    }
+    if (audience != null && !hasAudience(claims.getValue("aud"))) {
+      throw new JwtVerificationException("Token was not issued for this audience", false);
+    }
+  }
+
+  private boolean hasAudience(final Object aud) {
+    if (aud instanceof String) {
+      return audience.equals(aud);
+    }
+    if (aud instanceof JsonArray) {
+      return ((JsonArray) aud).contains(audience);
+    }
+    return aud instanceof List && ((List<?>) aud).contains(audience);
+  }
+
+  /**
+   * The header is attacker controlled, so a value of the wrong type is a verification failure rather than a
+   * ClassCastException
+   */
+  private static String stringHeader(final JsonObject header, final String name) {
+    final Object value = header.getValue(name);
+    if (value != null && !(value instanceof String)) {
+      throw new JwtVerificationException("Token header " + name + " is not a string", false);
+    }
+    return (String) value;
+  }
+
+  private static Long longClaim(final JsonObject claims, final String name) {
+    final Object value = claims.getValue(name);
+    if (value == null) {
+      return null;
+    }
+    if (!(value instanceof Number)) {
+      throw new JwtVerificationException("Token claim " + name + " is not numeric", false);
+    }
+    return ((Number) value).longValue();
+  }
+
+  private static JsonObject decodeJson(final String token, final int start, final int end) {
+    try {
+      return new JsonObject(new String(decode(token, start, end), StandardCharsets.UTF_8));
+    } catch (DecodeException | ClassCastException e) {
+      throw new JwtVerificationException("Token is not valid JSON", false);
+    }
+  }
+
+  private static byte[] decode(final String token, final int start, final int end) {
+    try {
+      return Base64.getUrlDecoder().decode(token.substring(start, end));
+    } catch (IllegalArgumentException e) {
+      throw new JwtVerificationException("Token is not valid base64url", false);
+    }
+  }
+
+  /**
+   * Copy the signed part of the token (the header and payload, which are always ASCII) into the per thread buffer
+   */
+  private static byte[] signedBytes(final String token, final int length) {
+    final byte[][] holder = SIGNED_BYTES.get();
+    if (holder[0].length < length) {
+      holder[0] = new byte[Math.max(length, holder[0].length * 2)];
+    }
+    final byte[] bytes = holder[0];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) token.charAt(i);
+    }
+    return bytes;
+  }
+
+  /**
+   * The signature algorithms we accept, each keeping a Signature instance per thread
+   */
+  enum Algorithm {
+    RS256("SHA256withRSA", 0),
+    RS384("SHA384withRSA", 0),
+    RS512("SHA512withRSA", 0),
+    ES256("SHA256withECDSA", 32),
+    ES384("SHA384withECDSA", 48),
+    ES512("SHA512withECDSA", 66);
+
+    /**
+     * For EC algorithms, the length of each of the r and s values in the JWS signature, otherwise 0
+     */
+    private final int ecValueLength;
+    private final ThreadLocal<Signature> signatures;
+
+    Algorithm(final String jcaName, final int ecValueLength) {
+      this.ecValueLength = ecValueLength;
+      this.signatures = ThreadLocal.withInitial(() -> {
+        try {
+          return Signature.getInstance(jcaName);
+        } catch (GeneralSecurityException e) {
+          throw new IllegalStateException("Signature algorithm " + jcaName + " is not available", e);
+        }
+      });
+    }
+
+    static Algorithm forName(final String alg) {
+      if (alg != null) {
+        for (Algorithm algorithm : values()) {
+          if (algorithm.name().equals(alg)) {
+            return algorithm;
+          }
+        }
+      }
+      throw new JwtVerificationException("Token algorithm " + alg + " is not supported", false);
+    }
+
+    boolean verify(final PublicKey key, final byte[] signed, final int signedLength, final byte[] signature) {
+      final boolean ec = ecValueLength > 0;
+      if (ec ? !(key instanceof ECPublicKey) : !(key instanceof RSAPublicKey)) {
+        throw new JwtVerificationException("Token algorithm " + name() + " does not match its key type", false);
+      }
+      if (ec && signature.length != 2 * ecValueLength) {
+        return false;
+      }
+      final Signature verifier = signatures.get();
+      try {
+        verifier.initVerify(key);
+        verifier.update(signed, 0, signedLength);
+        return verifier.verify(ec ? toDer(signature, ecValueLength) : signature);
+      } catch (GeneralSecurityException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Convert a JWS EC signature (r and s as fixed length unsigned big-endian values) to the DER encoded sequence
+     * the JCA expects
+     */
+    private static byte[] toDer(final byte[] jws, final int valueLength) {
+      final int rStart = firstSignificant(jws, 0, valueLength);
+      final int sStart = firstSignificant(jws, valueLength, valueLength);
+      final int rLength = valueLength - rStart + ((jws[rStart] & 0x80) != 0 ? 1 : 0);
+      final int sLength = 2 * valueLength - sStart + ((jws[sStart] & 0x80) != 0 ? 1 : 0);
+      final int sequenceLength = 2 + rLength + 2 + sLength;
+      final int lengthBytes = sequenceLength > 127 ? 2 : 1;
+
+      final byte[] der = new byte[1 + lengthBytes + sequenceLength];
+      int pos = 0;
+      der[pos++] = 0x30;
+      if (lengthBytes == 2) {
+        der[pos++] = (byte) 0x81;
+      }
+      der[pos++] = (byte) sequenceLength;
+      pos = writeInteger(der, pos, jws, rStart, valueLength, rLength);
+      writeInteger(der, pos, jws, sStart, 2 * valueLength, sLength);
+      return der;
+    }
+
+    private static int firstSignificant(final byte[] bytes, final int start, final int length) {
+      int i = start;
+      while (i < start + length - 1 && bytes[i] == 0) {
+        i++;
+      }
+      return i;
+    }
+
+    private static int writeInteger(final byte[] der, int pos, final byte[] src, final int start, final int end,
+                                    final int length) {
+      der[pos++] = 0x02;
+      der[pos++] = (byte) length;
+      if (length > end - start) {
+        der[pos++] = 0;
+      }
+      System.arraycopy(src, start, der, pos, end - start);
+      return pos + end - start;
+    }
+  }
+
+  /**
+   * Thrown when a token fails verification
+   */
+  public static class JwtVerificationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean unknownKey;
+
+    JwtVerificationException(final String message, final boolean unknownKey) {
+      super(message, null, false, false);
+      this.unknownKey = unknownKey;
+    }
+
+    /**
+     * @return true if the token failed only because it is signed with a key which is not in the key set - in which
+     * case reloading the key set may help
+     */
+    public boolean unknownKey() {
+      return unknownKey;
+    }
+  }
+}
@@ -3,11 +3,18 @@ package io.vertx.ext.auth.impl.oauth2.impl;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.impl.oauth2.OAuth2TokenSet;
+import io.vertx.ext.auth.impl.oauth2.ScopeAuthorisation;
 import io.vertx.ext.auth.impl.oauth2.SimpleOAuth2Provider;
 import io.vertx.ext.auth.impl.oauth2.SimpleOAuth2User;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
 import io.vertx.ext.web.sstore.SessionStore;
 
 import java.util.Objects;
@@ -18,9 +25,32 @@ import java.util.function.BiConsumer;
  * A very simple AuthProvider implementation for OAuth2. It expects a session id in the authInfo and will
  * interrogate the specified session to determine whether or not it contains an OAuth2 token - if so it will
  * assume that authentication has been successful, otherwise it will return a failed result.
+ *
+ * Optionally, users resolved from the session store are held in a bounded local cache keyed by session id, so that
+ * subsequent requests in the same session are authenticated without a session store lookup. Entries are dropped
+ * when the token handler stores a new token for the session, and otherwise live for the cache's time to live - so
+ * the time to live bounds how long a session removed from the store by other means can still authenticate.
+ *
+ * In a cluster, the cache on each node sits in front of a clustered session store, and every change to a session's
+ * tokens - written, refreshed or removed - is published on the event bus so every node drops its cached user. The
+ * change also bumps a token version kept in the session, under the token parameter name with _version appended, and
+ * the published version stops a node caching, or after a removal serving, a session read from a store which has not
+ * caught up yet (see TokenInvalidations). Event bus publication is best effort, so a lost message is still bounded
+ * by the cache's time to live.
+ *
+ * The access token is kept in the session under the token parameter name as an OAuth2TokenSet, together with the
+ * refresh token, the time the access token expires and the scopes granted - one value in a compact binary form, so
+ * tokens can be refreshed in the background without the session growing a JSON document. Sessions written before
+ * token sets were used hold the access token as a string, which is still accepted.
  */
 public class SimpleOAuth2AuthProviderImpl implements SimpleOAuth2Provider {
 
+  static final String VERSION_SUFFIX = "_version";
+
+  private static final String INVALIDATION_SESSION_ID = "sessionId";
+  private static final String INVALIDATION_VERSION = "version";
+  private static final String INVALIDATION_REMOVED = "removed";
+
   /**
    * The name of the session parameter/field to interrogate for an OAuth2 token
    */
@@ -31,6 +61,33 @@ public class SimpleOAuth2AuthProviderImpl implements SimpleOAuth2Provider {
    */
   private final SessionStore sessionStore;
 
+  /**
+   * Users already resolved from the session store, by session id - null when caching is disabled
+   */
+  private final ExpiringCache<String, SimpleOAuth2User> userCache;
+
+  /**
+   * The latest token version of recently changed sessions - null when caching is disabled
+   */
+  private final TokenInvalidations invalidations;
+
+  /**
+   * Where token changes are published to the other nodes, and the consumer of theirs - null when not clustered
+   */
+  private final Vertx vertx;
+  private final String invalidationAddress;
+  private final MessageConsumer<JsonObject> invalidationConsumer;
+
+  /**
+   * Where session store lookup latency is recorded
+   */
+  private volatile OAuth2Metrics metrics = OAuth2Metrics.NOOP;
+
+  /**
+   * The rules users are authorised by, or null to grant every role request
+   */
+  private volatile ScopeAuthorisation scopeAuthorisation;
+
   /**
    * Create an instance of this authprovider - required parameters are the name of the session parameter to interrogate
    * for the token and the session store to interrogate
@@ -38,20 +95,73 @@ public class SimpleOAuth2AuthProviderImpl implements SimpleOAuth2Provider {
    * @param sessionStore - session store to interrogate
    */
   public SimpleOAuth2AuthProviderImpl(final String tokenParamName, final SessionStore sessionStore) {
+    this(tokenParamName, sessionStore, 0, 0);
+  }
+
+  /**
+   * Create an instance of this authprovider which caches users resolved from the session store
+   * @param tokenParamName - name of the session parameter to interrogate for the token
+   * @param sessionStore - session store to interrogate
+   * @param maxCachedUsers - the maximum number of sessions to cache users for, or 0 to disable caching
+   * @param cacheTtlMillis - how long a cached user is trusted without going back to the session store
+   */
+  public SimpleOAuth2AuthProviderImpl(final String tokenParamName, final SessionStore sessionStore,
+                                      final int maxCachedUsers, final long cacheTtlMillis) {
+    this(null, tokenParamName, sessionStore, maxCachedUsers, cacheTtlMillis, null);
+  }
+
+  /**
+   * Create an instance of this authprovider which caches users resolved from a clustered session store, and keeps
+   * the caches of every node in the cluster in step through the event bus
+   * @param vertx - the vertx instance, whose event bus reaches the other nodes
+   * @param tokenParamName - name of the session parameter to interrogate for the token
+   * @param sessionStore - session store to interrogate
+   * @param maxCachedUsers - the maximum number of sessions to cache users for
+   * @param cacheTtlMillis - how long a cached user is trusted without going back to the session store
+   * @param invalidationAddress - the event bus address token changes are published on, the same on every node
+   */
+  public SimpleOAuth2AuthProviderImpl(final Vertx vertx, final String tokenParamName, final SessionStore sessionStore,
+                                      final int maxCachedUsers, final long cacheTtlMillis,
+                                      final String invalidationAddress) {
     Objects.requireNonNull(tokenParamName, "Token parameter name must not be null");
     Objects.requireNonNull(sessionStore, "Session store must not be null");
+    if (invalidationAddress != null && maxCachedUsers <= 0) {
+      throw new IllegalArgumentException("Invalidation across the cluster needs a user cache to invalidate");
+    }
     this.tokenParamName = tokenParamName;
     this.sessionStore = sessionStore;
+    this.userCache = maxCachedUsers > 0 ? new ExpiringCache<>(maxCachedUsers, cacheTtlMillis) : null;
+    this.invalidations = maxCachedUsers > 0 ? new TokenInvalidations(maxCachedUsers, cacheTtlMillis) : null;
+    this.vertx = invalidationAddress != null ? Objects.requireNonNull(vertx, "Vertx must not be null") : null;
+    this.invalidationAddress = invalidationAddress;
+    this.invalidationConsumer = invalidationAddress == null ? null : vertx.eventBus().<JsonObject>consumer(
+      invalidationAddress, message -> invalidateLocally(message.body().getString(INVALIDATION_SESSION_ID),
+        message.body().getLong(INVALIDATION_VERSION), message.body().getBoolean(INVALIDATION_REMOVED)));
   }
 
   @Override
   public void authenticate(JsonObject authInfo, Handler<AsyncResult<User>> resultHandler) {
-    sessionStore.get(authInfo.getString("sessionId"), sessionResult -> {
+    final String sessionId = authInfo.getString(SESSION_ID);
+    if (userCache != null && sessionId != null) {
+      final SimpleOAuth2User cached = userCache.get(sessionId, System.currentTimeMillis());
+      if (cached != null) {
+        resultHandler.handle(Future.succeededFuture(cached));
+        return;
+      }
+    }
+    final long lookupStart = System.nanoTime();
+    sessionStore.get(sessionId, sessionResult -> {
+      metrics.sessionLookup(System.nanoTime() - lookupStart);
       if (sessionResult.succeeded()) {
-        Optional<String> tokenOption = Optional.ofNullable(sessionResult.result())
-          .flatMap(session -> Optional.ofNullable(session.get(tokenParamName)));
-        if (tokenOption.isPresent()) {
-          resultHandler.handle(Future.succeededFuture(new SimpleOAuth2User(tokenOption.get(), this)));
+        final Optional<OAuth2TokenSet> tokensOption = Optional.ofNullable(sessionResult.result())
+          .flatMap(session -> Optional.ofNullable(tokens(session)));
+        if (tokensOption.isPresent()) {
+          final SimpleOAuth2User user = new SimpleOAuth2User(tokensOption.get(), scopeAuthorisation, this);
+          if (userCache != null && !cache(sessionId, version(sessionResult.result()), user)) {
+            resultHandler.handle(Future.failedFuture("Token has been removed"));
+            return;
+          }
+          resultHandler.handle(Future.succeededFuture(user));
         } else {
           resultHandler.handle(Future.failedFuture("Token not present"));
         }
@@ -63,6 +173,154 @@ public class SimpleOAuth2AuthProviderImpl implements SimpleOAuth2Provider {
 
   @Override
   public BiConsumer<RoutingContext, String> tokenHandler() {
-    return ((routingContext, token) -> routingContext.session().put(tokenParamName, token));
+    return ((routingContext, token) -> {
+      routingContext.session().put(tokenParamName, new OAuth2TokenSet(token, null, OAuth2TokenSet.UNKNOWN_EXPIRY, null,
+        null));
+      invalidate(routingContext.session().id(), nextVersion(routingContext.session()), false);
+    });
+  }
+
+  @Override
+  public void storeTokens(final RoutingContext routingContext, final OAuth2TokenResponse tokens) {
+    putTokens(routingContext.session(), tokens);
+    invalidate(routingContext.session().id(), nextVersion(routingContext.session()), false);
+  }
+
+  @Override
+  public void removeTokens(final RoutingContext routingContext) {
+    final Session session = routingContext.session();
+    session.remove(tokenParamName);
+    invalidate(session.id(), nextVersion(session), true);
+  }
+
+  @Override
+  public void updateTokens(final String sessionId, final OAuth2TokenResponse tokens,
+                           final Handler<AsyncResult<Void>> resultHandler) {
+    sessionStore.get(sessionId, sessionResult -> {
+      final Session session = sessionResult.succeeded() ? sessionResult.result() : null;
+      if (session == null) {
+        resultHandler.handle(Future.failedFuture("Session could not be found"));
+        return;
+      }
+      putTokens(session, tokens);
+      final long version = nextVersion(session);
+      sessionStore.put(session, putResult -> {
+        invalidate(sessionId, version, false);
+        resultHandler.handle(putResult.succeeded() ? Future.succeededFuture() : Future.failedFuture(putResult.cause()));
+      });
+    });
+  }
+
+  private void putTokens(final Session session, final OAuth2TokenResponse tokens) {
+    session.put(tokenParamName, OAuth2TokenSet.of(tokens, System.currentTimeMillis(), null));
+  }
+
+  /**
+   * Find the tokens stored in a session
+   * @param session - the session
+   * @return the tokens, or null if there are none
+   */
+  private OAuth2TokenSet tokens(final Session session) {
+    final Object stored = session.get(tokenParamName);
+    if (stored instanceof String) {
+      return new OAuth2TokenSet((String) stored, null, OAuth2TokenSet.UNKNOWN_EXPIRY, null, null);
+    }
+    return (OAuth2TokenSet) stored;
+  }
+
+  /**
+   * Cache a user resolved from the session store, unless the session read predates a change to its tokens
+   * @param sessionId - the session id
+   * @param sessionVersion - the token version of the session read
+   * @param user - the user
+   * @return false if the session read predates the removal of its tokens, so the user must not be authenticated
+   */
+  private boolean cache(final String sessionId, final long sessionVersion, final SimpleOAuth2User user) {
+    final long now = System.currentTimeMillis();
+    final TokenInvalidations.Invalidation before = invalidations.latest(sessionId, now);
+    if (before != null && before.supersedes(sessionVersion)) {
+      // The store has not caught up with a change made on some node - serve what it has only if still logged in
+      return !before.removed;
+    }
+    userCache.put(sessionId, user, now);
+    if (invalidations.latest(sessionId, now) != before) {
+      // A change arrived while caching, and its removal of the cached user may have come before the put
+      userCache.remove(sessionId);
+    }
+    return true;
+  }
+
+  /**
+   * Drop a session's cached user, here and, when clustered, on every other node
+   * @param sessionId - the session id
+   * @param version - the token version the change brought the session to
+   * @param removed - true if the change removed the session's tokens
+   */
+  private void invalidate(final String sessionId, final long version, final boolean removed) {
+    invalidateLocally(sessionId, version, removed);
+    if (invalidationAddress != null) {
+      vertx.eventBus().publish(invalidationAddress, new JsonObject().put(INVALIDATION_SESSION_ID, sessionId)
+        .put(INVALIDATION_VERSION, version).put(INVALIDATION_REMOVED, removed));
+    }
+  }
+
+  private void invalidateLocally(final String sessionId, final long version, final boolean removed) {
+    if (userCache == null || sessionId == null) {
+      return;
+    }
+    // Recorded before the cached user is dropped, so a lookup caching at the same time sees one or the other
+    invalidations.invalidate(sessionId, version, removed, System.currentTimeMillis());
+    userCache.remove(sessionId);
+  }
+
+  /**
+   * Bump the token version kept in a session, when there is a cache for it to protect
+   * @param session - the session
+   * @return the new version
+   */
+  private long nextVersion(final Session session) {
+    if (userCache == null) {
+      return 0;
+    }
+    final long version = version(session) + 1;
+    session.put(tokenParamName + VERSION_SUFFIX, version);
+    return version;
+  }
+
+  private long version(final Session session) {
+    final Long version = session.get(tokenParamName + VERSION_SUFFIX);
+    return version == null ? 0 : version;
+  }
+
+  @Override
+  public void close() {
+    if (invalidationConsumer != null) {
+      invalidationConsumer.unregister();
+    }
+  }
+
+  @Override
+  public SimpleOAuth2Provider useScopeAuthorisation(final ScopeAuthorisation scopeAuthorisation) {
+    this.scopeAuthorisation = scopeAuthorisation;
+    if (userCache != null) {
+      // Cached users were authorised by the rules they were created with
+      userCache.clear();
+    }
+    return this;
+  }
+
+  @Override
+  public void useMetrics(final OAuth2Metrics metrics) {
+    this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+  }
+
+  @Override
+  public long userCacheHits() {
+    return userCache == null ? 0 : userCache.hits();
+  }
+
+  @Override
+  public long userCacheMisses() {
+    return userCache == null ? 0 : userCache.misses();
   }
 }
@@ -0,0 +1,71 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+/**
+ * The latest token version each recently changed session is known to have reached, so a node's user cache can tell
+ * a session read from a clustered session store which has not caught up with a change from a current one.
+ *
+ * Each change to a session's tokens - written by the token handler, refreshed, or removed at logout - bumps a version
+ * kept in the session, and is announced, with the new version, to every node. Until the session store returns at
+ * least that version, what it returns is stale: it is never cached, and if the change removed the token, never
+ * served either. Versions are only remembered for the user cache's time to live, as the store is expected to catch
+ * up long before then.
+ */
+class TokenInvalidations {
+
+  private final ExpiringCache<String, Invalidation> invalidations;
+
+  /**
+   * Constructor
+   * @param maxSessions - the maximum number of sessions to remember versions for
+   * @param ttlMillis - how long to remember a session's version
+   */
+  TokenInvalidations(final int maxSessions, final long ttlMillis) {
+    this.invalidations = new ExpiringCache<>(maxSessions, ttlMillis);
+  }
+
+  /**
+   * Record a change to a session's tokens. An older change arriving late leaves the newer one in place
+   * @param sessionId - the session id
+   * @param version - the token version the change brought the session to
+   * @param removed - true if the change removed the session's tokens
+   * @param nowMillis - the current time
+   */
+  void invalidate(final String sessionId, final long version, final boolean removed, final long nowMillis) {
+    synchronized (this) {
+      final Invalidation current = invalidations.get(sessionId, nowMillis);
+      if (current == null || current.version < version) {
+        invalidations.put(sessionId, new Invalidation(version, removed), nowMillis);
+      }
+    }
+  }
+
+  /**
+   * Find the latest change recorded for a session. Each change is a new object, so comparing what this returns
+   * before and after caching a user shows whether a change arrived in between
+   * @param sessionId - the session id
+   * @param nowMillis - the current time
+   * @return the latest change, or null if none is remembered
+   */
+  Invalidation latest(final String sessionId, final long nowMillis) {
+    return invalidations.get(sessionId, nowMillis);
+  }
+
+  static final class Invalidation {
+
+    final long version;
+    final boolean removed;
+
+    Invalidation(final long version, final boolean removed) {
+      this.version = version;
+      this.removed = removed;
+    }
+
+    /**
+     * @param sessionVersion - the token version of a session read from the session store
+     * @return true if the session read predates this change
+     */
+    boolean supersedes(final long sessionVersion) {
+      return sessionVersion < version;
+    }
+  }
+}
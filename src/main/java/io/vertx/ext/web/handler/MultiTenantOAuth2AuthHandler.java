@@ -0,0 +1,26 @@
+package io.vertx.ext.web.handler;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.impl.MultiTenantOAuth2AuthHandlerImpl;
+import io.vertx.ext.web.handler.oauth2.MultiTenantOAuth2HandlerOptions;
+
+/**
+ * An OAuth2 handler serving many tenants, each with its own OAuth2 provider, client id and secret, from a single
+ * handler and a single authentication result route - rather than a handler and a route per tenant.
+ */
+public interface MultiTenantOAuth2AuthHandler extends AuthHandler {
+
+    /**
+     * Create a handler
+     *
+     * @param options the tenants, and how requests are mapped to them
+     * @param router the apex router to which we will add the shared post-authentication handler
+     * @param vertx the vertx instance
+     * @return the handler
+     */
+    static AuthHandler create(MultiTenantOAuth2HandlerOptions options, Router router, Vertx vertx) {
+        return new MultiTenantOAuth2AuthHandlerImpl(options, router, vertx);
+    }
+
+}
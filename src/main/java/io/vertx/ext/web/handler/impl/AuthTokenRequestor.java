@@ -1,32 +1,197 @@
 package io.vertx.ext.web.handler.impl;
 
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpClientResponse;
+import io.vertx.ext.web.handler.oauth2.AuthTokenGrant;
 import io.vertx.ext.web.handler.oauth2.AuthTokenRequestParameters;
 import io.vertx.ext.web.handler.oauth2.AuthTokenRequestStrategy;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
 
+import java.net.ConnectException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
 /**
- * User: jez
+ * Sends code exchange requests to the token endpoint, guarding the handler against an OAuth2 provider which is slow
+ * or down.
+ *
+ * Every attempt has a timeout, which runs from sending the request to reading the last of the response body.
+ * Failures which mean the provider cannot have seen the code - a connection which could not be made, or a 503
+ * response - are retried up to maxRetries times, after an exponentially growing, jittered backoff. Other failures
+ * are not, as the provider may already have used the code. Attempts go through a circuit breaker, so once the token
+ * endpoint is failing, callbacks fail straight away with a CircuitOpenException.
  */
 class AuthTokenRequestor {
 
-  private final BiFunction<HttpClient, String, HttpClientRequest> requestFactory;
-  private final BiConsumer<HttpClientRequest, String> bodyWriter;
+  private static final int SERVICE_UNAVAILABLE = 503;
 
-  public AuthTokenRequestor(final AuthTokenRequestStrategy strategy, final AuthTokenRequestParameters params) {
-    requestFactory = strategy.factory(params);
-    bodyWriter = strategy.bodyWriter(params);
+  private final Vertx vertx;
+  private final BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> requestFactory;
+  private final BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter;
+  private final long timeoutMillis;
+  private final int maxTokenResponseBytes;
+  private final int maxRetries;
+  private final long retryBackoffMillis;
+  private final CircuitBreaker circuitBreaker;
+  private final OAuth2Metrics metrics;
+
+  /**
+   * Constructor
+   * @param vertx - the vertx instance, used to time retries
+   * @param strategy - how to build token requests
+   * @param params - the token url and client credentials
+   * @param timeoutMillis - how long each attempt, response body included, may take before it fails
+   * @param maxTokenResponseBytes - the largest token response body accepted
+   * @param maxRetries - the most times a request is retried
+   * @param retryBackoffMillis - the backoff before the first retry, doubled for each retry after it
+   * @param circuitBreaker - the circuit breaker for the token endpoint, or null for none
+   * @param metrics - the metrics retries are recorded in
+   */
+  AuthTokenRequestor(final Vertx vertx, final AuthTokenRequestStrategy strategy, final AuthTokenRequestParameters params,
+                     final long timeoutMillis, final int maxTokenResponseBytes, final int maxRetries,
+                     final long retryBackoffMillis, final CircuitBreaker circuitBreaker, final OAuth2Metrics metrics) {
+    this.vertx = vertx;
+    this.requestFactory = strategy.factory(params);
+    this.bodyWriter = strategy.bodyWriter(params);
+    this.timeoutMillis = timeoutMillis;
+    this.maxTokenResponseBytes = maxTokenResponseBytes;
+    this.maxRetries = maxRetries;
+    this.retryBackoffMillis = retryBackoffMillis;
+    this.circuitBreaker = circuitBreaker;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Exchange a code for a token. Exactly one of the handlers is called, once
+   * @param client - the client to send the request with
+   * @param grant - the authorization code, and its code verifier with PKCE
+   * @param resultHandler - completed with the token endpoint's response, once read in full - or the reason it holds
+   *                      no access token
+   * @param exceptionHandler - called if no complete response could be obtained, including when the connection fails
+   *                         or the attempt times out part way through the body
+   */
+  public void invoke(final HttpClient client, final AuthTokenGrant grant,
+                     final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler,
+                     final Handler<Throwable> exceptionHandler) {
+    attempt(client, grant, 0, resultHandler, exceptionHandler);
   }
 
-  public void invoke(final HttpClient client, final String authCode, final Handler<HttpClientResponse> responseHandler) {
-    final HttpClientRequest request = requestFactory.apply(client, authCode);
-    request.handler(responseHandler);
-    bodyWriter.accept(request, authCode);
+  private void attempt(final HttpClient client, final AuthTokenGrant grant, final int attempt,
+                       final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler,
+                       final Handler<Throwable> exceptionHandler) {
+    if (circuitBreaker != null && !circuitBreaker.allowRequest(System.currentTimeMillis())) {
+      exceptionHandler.handle(new CircuitBreaker.CircuitOpenException());
+      return;
+    }
+    // A connection failure can be reported after the response, and the timer can fire at any point, so only the
+    // first outcome of an attempt counts
+    final boolean[] done = {false};
+    final HttpClientResponse[] response = {null};
+    final HttpClientRequest request = requestFactory.apply(client, grant);
+    // The timer bounds the whole attempt, body included. The request timeout only covers waiting for the response
+    // head, but closes a connection which never sends one
+    final long timerId = vertx.setTimer(timeoutMillis, id -> {
+      if (done[0]) {
+        return;
+      }
+      done[0] = true;
+      failed();
+      if (response[0] != null) {
+        // The body has stalled - drop the connection rather than return it to the pool
+        ClientConnections.close(request);
+      }
+      exceptionHandler.handle(new TimeoutException("Token request timed out after " + timeoutMillis + " ms"));
+    });
+    final Handler<Throwable> failure = e -> {
+      if (complete(done, timerId)) {
+        failed();
+        exceptionHandler.handle(e);
+      }
+    };
+    request.setTimeout(timeoutMillis);
+    request.handler(resp -> {
+      if (done[0]) {
+        return;
+      }
+      response[0] = resp;
+      if (resp.statusCode() >= 500) {
+        failed();
+        if (resp.statusCode() == SERVICE_UNAVAILABLE && attempt < maxRetries) {
+          // Drain the response so its connection goes back to the pool, then try again
+          resp.handler(chunk -> {
+          });
+          resp.exceptionHandler(failure);
+          resp.endHandler(v -> {
+            if (complete(done, timerId)) {
+              retry(client, grant, attempt, resultHandler, exceptionHandler);
+            }
+          });
+          return;
+        }
+      } else if (circuitBreaker != null) {
+        circuitBreaker.success();
+      }
+      TokenResponses.read(resp, maxTokenResponseBytes, result -> {
+        if (complete(done, timerId)) {
+          resultHandler.handle(result);
+        }
+      }, failure);
+    });
+    request.exceptionHandler(e -> {
+      if (response[0] != null) {
+        // Failures once the response has arrived are reported through it
+        return;
+      }
+      if (e instanceof ConnectException && attempt < maxRetries) {
+        if (complete(done, timerId)) {
+          failed();
+          retry(client, grant, attempt, resultHandler, exceptionHandler);
+        }
+      } else {
+        failure.handle(e);
+      }
+    });
+    bodyWriter.accept(request, grant);
     request.end();
   }
+
+  /**
+   * Mark an attempt done and cancel its timer
+   * @return true if the attempt was not already done, so its outcome should be reported
+   */
+  private boolean complete(final boolean[] done, final long timerId) {
+    if (done[0]) {
+      return false;
+    }
+    done[0] = true;
+    vertx.cancelTimer(timerId);
+    return true;
+  }
+
+  private void failed() {
+    if (circuitBreaker != null) {
+      circuitBreaker.failure(System.currentTimeMillis());
+    }
+  }
+
+  private void retry(final HttpClient client, final AuthTokenGrant grant, final int attempt,
+                     final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler,
+                     final Handler<Throwable> exceptionHandler) {
+    metrics.tokenRequestRetried();
+    final long backoff = retryBackoffMillis << attempt;
+    // Half the backoff is random, so callbacks which failed together do not all retry together
+    final long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    if (delay <= 0) {
+      attempt(client, grant, attempt + 1, resultHandler, exceptionHandler);
+    } else {
+      vertx.setTimer(delay, id -> attempt(client, grant, attempt + 1, resultHandler, exceptionHandler));
+    }
+  }
 }
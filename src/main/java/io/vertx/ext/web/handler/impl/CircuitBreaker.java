@@ -0,0 +1,107 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics.CircuitState;
+
+/**
+ * Circuit breaker for the token endpoint. After failureThreshold consecutive failures - connection failures,
+ * timeouts and 5xx responses - the breaker opens, and requests fail straight away rather than holding a callback,
+ * its routing context and a pooled connection while the OAuth2 provider is down. Once resetMillis has passed a single
+ * trial request is let through; if it succeeds the breaker closes, otherwise it opens again for another resetMillis.
+ *
+ * State changes are reported to the metrics outside the lock.
+ */
+class CircuitBreaker {
+
+  /**
+   * The failure given to requests refused while the breaker is open
+   */
+  static final class CircuitOpenException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    CircuitOpenException() {
+      super("Token endpoint is unavailable - circuit breaker is open", null, false, false);
+    }
+  }
+
+  private final int failureThreshold;
+  private final long resetMillis;
+  private final OAuth2Metrics metrics;
+
+  /**
+   * Guarded by this, as are the other mutable fields
+   */
+  private CircuitState state = CircuitState.CLOSED;
+  private int failures;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  /**
+   * Constructor
+   * @param failureThreshold - the number of consecutive failures which opens the breaker
+   * @param resetMillis - how long the breaker stays open before a trial request is let through
+   * @param metrics - the metrics state changes are reported to
+   */
+  CircuitBreaker(final int failureThreshold, final long resetMillis, final OAuth2Metrics metrics) {
+    this.failureThreshold = failureThreshold;
+    this.resetMillis = resetMillis;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Ask whether a request may be sent. A request which is allowed must be followed by a call to success or failure
+   * @param now - the current time in milliseconds
+   * @return true if the request may be sent
+   */
+  boolean allowRequest(final long now) {
+    synchronized (this) {
+      if (state == CircuitState.CLOSED) {
+        return true;
+      }
+      if (state == CircuitState.HALF_OPEN || now - openedAt < resetMillis) {
+        return false;
+      }
+      state = CircuitState.HALF_OPEN;
+      trialInFlight = true;
+    }
+    metrics.circuitStateChanged(CircuitState.HALF_OPEN);
+    return true;
+  }
+
+  /**
+   * Report a request which the token endpoint answered
+   */
+  void success() {
+    synchronized (this) {
+      failures = 0;
+      trialInFlight = false;
+      if (state == CircuitState.CLOSED) {
+        return;
+      }
+      state = CircuitState.CLOSED;
+    }
+    metrics.circuitStateChanged(CircuitState.CLOSED);
+  }
+
+  /**
+   * Report a request which failed
+   * @param now - the current time in milliseconds
+   */
+  void failure(final long now) {
+    synchronized (this) {
+      failures++;
+      if (state == CircuitState.HALF_OPEN && trialInFlight) {
+        trialInFlight = false;
+      } else if (state != CircuitState.CLOSED || failures < failureThreshold) {
+        return;
+      }
+      state = CircuitState.OPEN;
+      openedAt = now;
+    }
+    metrics.circuitStateChanged(CircuitState.OPEN);
+  }
+
+  synchronized CircuitState state() {
+    return state;
+  }
+}
@@ -0,0 +1,54 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.net.impl.ConnectionBase;
+
+import java.lang.reflect.Field;
+
+/**
+ * Closes the connection a client request was sent on. A response whose body stalls holds its pooled connection until
+ * the body completes, which may be never, so once a request has timed out its connection is closed rather than left
+ * to go back to the pool.
+ *
+ * Vert.x 3.0 has no HttpClientRequest.connection() or reset(). HttpClientResponse.netSocket() is no substitute part
+ * way through a body, as it takes the connection over as a raw socket, swapping out the HTTP codec and handler the
+ * response is still being read through. The connection is instead read from the request implementation and closed
+ * directly, which fails the response in flight and drops the connection from the pool.
+ */
+public final class ClientConnections {
+
+  private static final Field CONNECTION = connectionField();
+
+  private ClientConnections() {
+  }
+
+  /**
+   * Close the connection a request was sent on, if it has one. Does nothing for a request which has not been
+   * connected yet, or which is not a Vert.x HttpClientRequestImpl
+   * @param request - the request
+   */
+  public static void close(final HttpClientRequest request) {
+    if (CONNECTION == null || !CONNECTION.getDeclaringClass().isInstance(request)) {
+      return;
+    }
+    final Object connection;
+    try {
+      connection = CONNECTION.get(request);
+    } catch (IllegalAccessException e) {
+      return;
+    }
+    if (connection instanceof ConnectionBase) {
+      ((ConnectionBase) connection).close();
+    }
+  }
+
+  private static Field connectionField() {
+    try {
+      final Field field = Class.forName("io.vertx.core.http.impl.HttpClientRequestImpl").getDeclaredField("conn");
+      field.setAccessible(true);
+      return field;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.auth.impl.oauth2.impl.ExpiringCache;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Single-flight deduplication of authorization code exchanges. Browsers replay the authentication result callback -
+ * double clicks, prefetching, retries - and every replay would otherwise exchange the same code with the OAuth2
+ * provider again, which can only fail there.
+ *
+ * Exchanges are keyed by session id and code, so only callbacks in the session the code was issued to can share an
+ * exchange. Callbacks arriving while the exchange is in flight wait for, and share, its result. Once complete, the
+ * code is remembered for a short while and further callbacks with it are rejected without contacting the provider -
+ * unless the exchange was refused before reaching the provider, by the exchange bulkhead or the circuit breaker, in
+ * which case the code is still good and the user may retry.
+ */
+class CodeExchanges {
+
+  /**
+   * The maximum number of completed codes remembered
+   */
+  static final int MAX_COMPLETED_CODES = 10000;
+
+  /**
+   * How long a completed code is remembered - long enough to cover a burst of replays; after this the OAuth2
+   * provider will reject the code by itself
+   */
+  static final long COMPLETED_CODE_TTL_MILLIS = 60 * 1000;
+
+  private final Vertx vertx;
+
+  /**
+   * Exchanges in flight, and the callbacks waiting for them, by session id and code. Guarded by itself
+   */
+  private final Map<String, List<Handler<AsyncResult<OAuth2TokenResponse>>>> inFlight = new HashMap<>();
+
+  private final ExpiringCache<String, Boolean> completed;
+
+  CodeExchanges(final Vertx vertx) {
+    this(vertx, COMPLETED_CODE_TTL_MILLIS);
+  }
+
+  /**
+   * Constructor
+   * @param vertx - the vertx instance
+   * @param completedCodeTtlMillis - how long a completed code is remembered
+   */
+  CodeExchanges(final Vertx vertx, final long completedCodeTtlMillis) {
+    this(vertx, new ExpiringCache<>(MAX_COMPLETED_CODES, completedCodeTtlMillis));
+  }
+
+  /**
+   * Constructor
+   * @param vertx - the vertx instance
+   * @param completed - remembers the completed codes
+   */
+  CodeExchanges(final Vertx vertx, final ExpiringCache<String, Boolean> completed) {
+    this.vertx = vertx;
+    this.completed = completed;
+  }
+
+  /**
+   * Exchange a code, or join the exchange of it already in flight
+   * @param sessionId - the id of the session the callback was received in
+   * @param code - the authorization code
+   * @param exchange - performs the exchange, completing the handler it is given with the token response
+   * @param resultHandler - called, on the caller's context, with the token response or the failure
+   */
+  void exchange(final String sessionId, final String code, final Consumer<Handler<AsyncResult<OAuth2TokenResponse>>> exchange,
+                final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler) {
+    final String key = sessionId + '|' + code;
+    final Context context = vertx.getOrCreateContext();
+    final Handler<AsyncResult<OAuth2TokenResponse>> waiter = result -> context.runOnContext(v -> resultHandler.handle(result));
+    final boolean used;
+    synchronized (inFlight) {
+      // Checked under the lock complete holds, so a callback racing the exchange's completion either joins it or
+      // finds the code used, and never starts a second exchange
+      used = completed.get(key, System.currentTimeMillis()) != null;
+      if (!used) {
+        final List<Handler<AsyncResult<OAuth2TokenResponse>>> waiters = inFlight.get(key);
+        if (waiters != null) {
+          waiters.add(waiter);
+          return;
+        }
+        final List<Handler<AsyncResult<OAuth2TokenResponse>>> newWaiters = new ArrayList<>(1);
+        newWaiters.add(waiter);
+        inFlight.put(key, newWaiters);
+      }
+    }
+    if (used) {
+      resultHandler.handle(Future.failedFuture("Authorization code has already been used"));
+      return;
+    }
+    exchange.accept(result -> complete(key, result));
+  }
+
+  private void complete(final String key, final AsyncResult<OAuth2TokenResponse> result) {
+    final List<Handler<AsyncResult<OAuth2TokenResponse>>> waiters;
+    synchronized (inFlight) {
+      // Remember the code before letting anyone else in, so a replay cannot start a second exchange
+      if (!notSent(result)) {
+        completed.put(key, Boolean.TRUE, System.currentTimeMillis());
+      }
+      waiters = inFlight.remove(key);
+    }
+    if (waiters != null) {
+      waiters.forEach(waiter -> waiter.handle(result));
+    }
+  }
+
+  private static boolean notSent(final AsyncResult<OAuth2TokenResponse> result) {
+    return result.failed() && (result.cause() instanceof ExchangeBulkhead.ExchangeRejectedException ||
+      result.cause() instanceof CircuitBreaker.CircuitOpenException);
+  }
+}
@@ -0,0 +1,138 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.handler.oauth2.CollectingOAuth2Metrics;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CollectingOAuth2Metrics implementation - counters are LongAdders, so handlers on every event loop can record into
+ * the same instance without contending.
+ */
+public class CollectingOAuth2MetricsImpl implements CollectingOAuth2Metrics {
+
+  private final LongAdder redirects = new LongAdder();
+  private final LongAdder callbacks = new LongAdder();
+  private final LongAdder stateMismatches = new LongAdder();
+  private final LongAdder authenticateHits = new LongAdder();
+  private final LongAdder authenticateMisses = new LongAdder();
+  private final LongAdder[] exchanges = new LongAdder[ExchangeOutcome.values().length];
+  private final AtomicLong exchangesInFlight = new AtomicLong();
+  private final LongAdder exchangeRejections = new LongAdder();
+  private volatile int exchangeQueueDepth;
+  private final LongAdder tokenRequestRetries = new LongAdder();
+  private final LongAdder circuitOpenings = new LongAdder();
+  private volatile CircuitState circuitState = CircuitState.CLOSED;
+  private final LatencyHistogram exchangeLatency = new LatencyHistogram();
+  private final LatencyHistogram sessionLookupLatency = new LatencyHistogram();
+  private final LatencyHistogram exchangeQueueWait = new LatencyHistogram();
+
+  public CollectingOAuth2MetricsImpl() {
+    for (int i = 0; i < exchanges.length; i++) {
+      exchanges[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void redirectIssued() {
+    redirects.increment();
+  }
+
+  @Override
+  public void callbackReceived() {
+    callbacks.increment();
+  }
+
+  @Override
+  public void stateMismatch() {
+    stateMismatches.increment();
+  }
+
+  @Override
+  public void exchangeStarted() {
+    exchangesInFlight.incrementAndGet();
+  }
+
+  @Override
+  public void exchangeCompleted(final ExchangeOutcome outcome, final long latencyNanos) {
+    exchangesInFlight.decrementAndGet();
+    exchanges[outcome.ordinal()].increment();
+    exchangeLatency.record(latencyNanos);
+  }
+
+  @Override
+  public void exchangeAdmitted(final long waitNanos) {
+    exchangeQueueWait.record(waitNanos);
+  }
+
+  @Override
+  public void exchangeRejected() {
+    exchangeRejections.increment();
+  }
+
+  @Override
+  public void exchangeQueueDepth(final int depth) {
+    exchangeQueueDepth = depth;
+  }
+
+  @Override
+  public void tokenRequestRetried() {
+    tokenRequestRetries.increment();
+  }
+
+  @Override
+  public void circuitStateChanged(final CircuitState state) {
+    circuitState = state;
+    if (state == CircuitState.OPEN) {
+      circuitOpenings.increment();
+    }
+  }
+
+  @Override
+  public void authenticateHit() {
+    authenticateHits.increment();
+  }
+
+  @Override
+  public void authenticateMiss() {
+    authenticateMisses.increment();
+  }
+
+  @Override
+  public void sessionLookup(final long latencyNanos) {
+    sessionLookupLatency.record(latencyNanos);
+  }
+
+  @Override
+  public JsonObject snapshot() {
+    final JsonObject exchangeCounts = new JsonObject();
+    for (ExchangeOutcome outcome : ExchangeOutcome.values()) {
+      exchangeCounts.put(outcome.name().toLowerCase(), exchanges[outcome.ordinal()].sum());
+    }
+    return new JsonObject()
+      .put("redirects", redirects.sum())
+      .put("callbacks", callbacks.sum())
+      .put("stateMismatches", stateMismatches.sum())
+      .put("authenticateHits", authenticateHits.sum())
+      .put("authenticateMisses", authenticateMisses.sum())
+      .put("exchanges", exchangeCounts)
+      .put("exchangesInFlight", exchangesInFlight.get())
+      .put("exchangeRejections", exchangeRejections.sum())
+      .put("exchangeQueueDepth", exchangeQueueDepth)
+      .put("tokenRequestRetries", tokenRequestRetries.sum())
+      .put("circuitState", circuitState.name())
+      .put("circuitOpenings", circuitOpenings.sum())
+      .put("exchangeLatency", exchangeLatency.toJson())
+      .put("exchangeQueueWait", exchangeQueueWait.toJson())
+      .put("sessionLookupLatency", sessionLookupLatency.toJson());
+  }
+
+  @Override
+  public long publish(final Vertx vertx, final String address, final long intervalMillis) {
+    Objects.requireNonNull(address, "Event bus address must not be null");
+    return vertx.setPeriodic(intervalMillis, id -> vertx.eventBus().publish(address, snapshot()));
+  }
+}
@@ -0,0 +1,151 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Admission control for code exchanges. At most maxConcurrent exchanges run at once; exchanges beyond that wait in
+ * arrival order in a queue of at most maxQueued, each for at most maxWaitMillis. An exchange which finds the queue
+ * full, or whose wait runs out, is rejected without contacting the OAuth2 provider, so a burst of logins costs a
+ * bounded number of outbound requests and a bounded amount of memory however large it is.
+ *
+ * Queued exchanges are started on the context they were submitted from.
+ */
+class ExchangeBulkhead {
+
+  /**
+   * The failure given to exchanges which were not admitted
+   */
+  static final class ExchangeRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ExchangeRejectedException(final String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  private static final long NO_TIMER = -1;
+
+  private final Vertx vertx;
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final long maxWaitMillis;
+  private final OAuth2Metrics metrics;
+
+  /**
+   * Guarded by this, as is running
+   */
+  private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+  private int running;
+
+  /**
+   * Constructor
+   * @param vertx - the vertx instance, used to time out waiting exchanges
+   * @param maxConcurrent - the maximum number of exchanges running at once
+   * @param maxQueued - the maximum number of exchanges waiting to start
+   * @param maxWaitMillis - how long an exchange may wait to start
+   * @param metrics - the metrics queue depth, wait times and rejections are recorded in
+   */
+  ExchangeBulkhead(final Vertx vertx, final int maxConcurrent, final int maxQueued, final long maxWaitMillis,
+                   final OAuth2Metrics metrics) {
+    this.vertx = vertx;
+    this.maxConcurrent = maxConcurrent;
+    this.maxQueued = maxQueued;
+    this.maxWaitMillis = maxWaitMillis;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Start an exchange now, or once a running exchange completes. Exactly one of the two is run, once; if the
+   * exchange is started, release must be called when it completes
+   * @param exchange - starts the exchange
+   * @param rejected - called with the reason the exchange was not admitted
+   */
+  void submit(final Runnable exchange, final Consumer<ExchangeRejectedException> rejected) {
+    final Waiter waiter;
+    final int depth;
+    synchronized (this) {
+      if (running < maxConcurrent) {
+        running++;
+        waiter = null;
+        depth = 0;
+      } else if (queue.size() < maxQueued) {
+        waiter = new Waiter(vertx.getOrCreateContext(), exchange, rejected);
+        queue.add(waiter);
+        depth = queue.size();
+      } else {
+        waiter = null;
+        depth = -1;
+      }
+    }
+    if (waiter != null) {
+      metrics.exchangeQueueDepth(depth);
+      waiter.timerId = vertx.setTimer(maxWaitMillis, id -> expire(waiter));
+    } else if (depth == 0) {
+      metrics.exchangeAdmitted(0);
+      exchange.run();
+    } else {
+      metrics.exchangeRejected();
+      rejected.accept(new ExchangeRejectedException("Too many token exchanges waiting"));
+    }
+  }
+
+  /**
+   * Report that a started exchange has completed, starting the next waiting exchange if there is one
+   */
+  void release() {
+    final Waiter next;
+    final int depth;
+    synchronized (this) {
+      next = queue.poll();
+      if (next == null) {
+        running--;
+        return;
+      }
+      depth = queue.size();
+    }
+    if (next.timerId != NO_TIMER) {
+      vertx.cancelTimer(next.timerId);
+    }
+    metrics.exchangeQueueDepth(depth);
+    metrics.exchangeAdmitted(System.nanoTime() - next.queuedAt);
+    next.context.runOnContext(v -> next.exchange.run());
+  }
+
+  private void expire(final Waiter waiter) {
+    final int depth;
+    synchronized (this) {
+      if (!queue.remove(waiter)) {
+        return;
+      }
+      depth = queue.size();
+    }
+    metrics.exchangeQueueDepth(depth);
+    metrics.exchangeRejected();
+    waiter.context.runOnContext(v -> waiter.rejected.accept(
+      new ExchangeRejectedException("Timed out waiting to start a token exchange")));
+  }
+
+  private static final class Waiter {
+    private final Context context;
+    private final Runnable exchange;
+    private final Consumer<ExchangeRejectedException> rejected;
+    private final long queuedAt = System.nanoTime();
+    /**
+     * Set just after the waiter is queued, so may not be set yet when it leaves the queue - in which case the timer
+     * fires harmlessly, finding the waiter gone
+     */
+    private volatile long timerId = NO_TIMER;
+
+    private Waiter(final Context context, final Runnable exchange,
+                   final Consumer<ExchangeRejectedException> rejected) {
+      this.context = context;
+      this.exchange = exchange;
+      this.rejected = rejected;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads the documents the handler and providers keep refreshed in the background - discovery documents and key
+ * sets. A load which hangs would stop its refresh chain and leave waiting callers hanging with it, so every load is
+ * bounded from sending the request to reading the last of the body.
+ */
+public final class HttpDocuments {
+
+  private HttpDocuments() {
+  }
+
+  /**
+   * Load a document through the shared client for the current context. The handler is called exactly once - with
+   * the body of a 200 response, or the reason there is none, including the connection failing or the timeout
+   * running out part way through the body - and always on that context
+   * @param vertx - the vertx instance
+   * @param options - the options of the shared client to use
+   * @param url - the document url
+   * @param timeoutMillis - how long the load may take, body included
+   * @param description - what the document is, for failure messages
+   * @param handler - completed with the document body
+   */
+  public static void get(final Vertx vertx, final HttpClientOptions options, final String url,
+                         final long timeoutMillis, final String description,
+                         final Handler<AsyncResult<Buffer>> handler) {
+    // Loads may be started from outside any context, e.g. by a provider created in main. Run the whole load on one
+    // context, so the timer, the client and the connection share an event loop and the done flag needs no locking
+    vertx.getOrCreateContext().runOnContext(v -> {
+      // The timer can fire at any point, and a connection failure can follow the response, so only the first
+      // outcome counts
+      final boolean[] done = {false};
+      final HttpClientResponse[] response = {null};
+      final HttpClientRequest request = SharedHttpClients.get(vertx, options).getAbs(url);
+      final long timerId = vertx.setTimer(timeoutMillis, id -> {
+        if (!done[0]) {
+          done[0] = true;
+          if (response[0] != null) {
+            // The body has stalled - drop the connection rather than return it to the pool
+            ClientConnections.close(request);
+          }
+          handler.handle(Future.failedFuture(new TimeoutException(description + " request timed out after " +
+            timeoutMillis + " ms")));
+        }
+      });
+      final Handler<AsyncResult<Buffer>> complete = result -> {
+        if (!done[0]) {
+          done[0] = true;
+          vertx.cancelTimer(timerId);
+          handler.handle(result);
+        }
+      };
+      request.handler(resp -> {
+        if (done[0]) {
+          // Timed out before the head arrived, and the rest may never come - drop the connection rather than leave
+          // the next load queued behind it
+          ClientConnections.close(request);
+        } else if (resp.statusCode() == 200) {
+          response[0] = resp;
+          resp.exceptionHandler(e -> complete.handle(Future.failedFuture(e)));
+          resp.bodyHandler(body -> complete.handle(Future.succeededFuture(body)));
+        } else {
+          complete.handle(Future.failedFuture(description + " request failed with status " + resp.statusCode()));
+        }
+      });
+      request.exceptionHandler(e -> complete.handle(Future.failedFuture(e)));
+      request.end();
+    });
+  }
+}
@@ -0,0 +1,75 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with power of two buckets in microseconds - bucket n counts latencies below 2^n
+ * microseconds, and the last bucket everything from about half a minute up. Recording is a few atomic increments,
+ * and the histogram never grows, at the cost of percentiles only accurate to within a factor of two.
+ */
+final class LatencyHistogram {
+
+  static final int BUCKETS = 27;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    final long micros = TimeUnit.NANOSECONDS.toMicros(value);
+    buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    count.increment();
+    totalNanos.add(value);
+    long max = maxNanos.get();
+    while (value > max && !maxNanos.compareAndSet(max, value)) {
+      max = maxNanos.get();
+    }
+  }
+
+  long count() {
+    return count.sum();
+  }
+
+  /**
+   * @param percentile - the percentile, between 0 and 100
+   * @return the upper bound, in milliseconds, of the bucket holding the percentile, or 0 if nothing was recorded
+   */
+  double percentileMillis(final double percentile) {
+    final long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(total * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return (1L << i) / 1000.0;
+      }
+    }
+    return maxNanos.get() / 1000000.0;
+  }
+
+  JsonObject toJson() {
+    final long count = this.count.sum();
+    return new JsonObject()
+      .put("count", count)
+      .put("meanMillis", count == 0 ? 0.0 : totalNanos.sum() / 1000000.0 / count)
+      .put("maxMillis", maxNanos.get() / 1000000.0)
+      .put("p50Millis", percentileMillis(50))
+      .put("p90Millis", percentileMillis(90))
+      .put("p99Millis", percentileMillis(99));
+  }
+}
@@ -0,0 +1,136 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.AuthHandler;
+import io.vertx.ext.web.handler.MultiTenantOAuth2AuthHandler;
+import io.vertx.ext.web.handler.oauth2.MultiTenantOAuth2HandlerOptions;
+import io.vertx.ext.web.handler.oauth2.OAuth2HandlerOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Multi-tenant OAuth2 handler. Each tenant is served by an OAuth2AuthHandlerImpl of its own, built once from the
+ * tenant's options - so each has its own precompiled redirect url template, token request factory and, through
+ * SharedHttpClients, pooled client - but none of them registers a route. Requests are dispatched to their tenant's
+ * handler through a TenantIndex, and a single route serves every tenant's authentication results.
+ *
+ * The OAuth2 provider's redirect back to the shared route carries neither the tenant header nor the tenant's path
+ * prefix, so the tenant a request was sent to log in for is remembered in its session and read back on its return.
+ * Only when the session has no tenant is the authentication result dispatched by the index - which works for
+ * tenants mapped by host.
+ *
+ * The tenant a session logged in through is remembered too. A user, or tokens, in the session were issued by that
+ * tenant's provider alone, so a request for any other tenant is treated as unauthenticated: the user is cleared, and
+ * the request is sent to log in with its own tenant's provider, or, for a bearer-only tenant, must carry a bearer
+ * token of its own.
+ */
+public class MultiTenantOAuth2AuthHandlerImpl implements MultiTenantOAuth2AuthHandler {
+
+  private static final String OAUTH2_TENANT = "OAUTH2_TENANT";
+  private static final String OAUTH2_LOGGED_IN_TENANT = "OAUTH2_LOGGED_IN_TENANT";
+
+  private final Map<String, OAuth2AuthHandlerImpl> handlers = new HashMap<>();
+  private final Map<String, Handler<RoutingContext>> resultHandlers = new HashMap<>();
+  private final TenantIndex index;
+  private final String tenantHeader;
+
+  public MultiTenantOAuth2AuthHandlerImpl(final MultiTenantOAuth2HandlerOptions options, final Router router,
+                                          final Vertx vertx) {
+    if (options.tenantOptions().isEmpty()) {
+      throw new IllegalArgumentException("A multi-tenant OAuth2 handler needs at least one tenant");
+    }
+    String resultPath = null;
+    for (Map.Entry<String, OAuth2HandlerOptions> tenant : options.tenantOptions().entrySet()) {
+      final OAuth2HandlerOptions tenantOptions = tenant.getValue();
+      final OAuth2AuthHandlerImpl handler = new OAuth2AuthHandlerImpl(
+        options.tenantAuthProviders().get(tenant.getKey()), tenantOptions, null, vertx);
+      handlers.put(tenant.getKey(), handler);
+      if (tenantOptions.bearerOnly()) {
+        continue;
+      }
+      final String path = tenantOptions.authResultHandlerPath();
+      if (resultPath != null && !resultPath.equals(path)) {
+        throw new IllegalArgumentException("Every tenant must use the same authentication result handler path, but " +
+          "tenant " + tenant.getKey() + " uses " + path + " rather than " + resultPath);
+      }
+      resultPath = path;
+      final String tenantId = tenant.getKey();
+      resultHandlers.put(tenantId,
+        handler.authResultHandler(rc -> rc.session().put(OAUTH2_LOGGED_IN_TENANT, tenantId)));
+    }
+    this.index = new TenantIndex(options.tenantOptions().keySet(), options.hosts(), options.pathPrefixes());
+    this.tenantHeader = options.tenantHeader();
+    if (resultPath != null) {
+      router.route(HttpMethod.GET, resultPath).handler(this::handleAuthResult);
+    }
+  }
+
+  @Override
+  public void handle(final RoutingContext routingContext) {
+    final String tenantId = tenant(routingContext.request());
+    final OAuth2AuthHandlerImpl handler = tenantId != null ? handlers.get(tenantId) : null;
+    if (handler == null) {
+      routingContext.fail(404);
+      return;
+    }
+    final Session session = routingContext.session();
+    if (handler.bearerOnly()) {
+      // Bearer requests are authenticated by their own token alone, never by a user a session logged in
+      routingContext.clearUser();
+      handler.handle(routingContext);
+      return;
+    }
+    if (session != null && !tenantId.equals(session.get(OAUTH2_LOGGED_IN_TENANT))) {
+      // Not logged in through this tenant - whatever the session holds came from another tenant's provider, if any
+      routingContext.clearUser();
+      session.put(OAUTH2_TENANT, tenantId);
+      handler.login(routingContext);
+      return;
+    }
+    if (session != null && routingContext.user() == null && !tenantId.equals(session.get(OAUTH2_TENANT))) {
+      // The request may be sent to log in, so remember which tenant's provider it will come back from
+      session.put(OAUTH2_TENANT, tenantId);
+    }
+    handler.handle(routingContext);
+  }
+
+  private void handleAuthResult(final RoutingContext routingContext) {
+    // The session says which tenant sent the user to log in; the callback path itself may map to some other tenant
+    String tenantId = routingContext.session() != null ? routingContext.session().get(OAUTH2_TENANT) : null;
+    if (tenantId == null) {
+      tenantId = tenant(routingContext.request());
+    }
+    final Handler<RoutingContext> resultHandler = tenantId != null ? resultHandlers.get(tenantId) : null;
+    if (resultHandler == null) {
+      routingContext.fail(401);
+      return;
+    }
+    resultHandler.handle(routingContext);
+  }
+
+  private String tenant(final HttpServerRequest request) {
+    return index.resolve(tenantHeader != null ? request.headers().get(tenantHeader) : null,
+      request.headers().get(HttpHeaders.HOST), request.path());
+  }
+
+  @Override
+  public AuthHandler addAuthority(final String authority) {
+    handlers.values().forEach(handler -> handler.addAuthority(authority));
+    return this;
+  }
+
+  @Override
+  public AuthHandler addAuthorities(final Set<String> authorities) {
+    handlers.values().forEach(handler -> handler.addAuthorities(authorities));
+    return this;
+  }
+}
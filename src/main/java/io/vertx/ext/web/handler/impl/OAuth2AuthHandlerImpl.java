@@ -1,10 +1,14 @@
 package io.vertx.ext.web.handler.impl;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClient;
-import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.AuthProvider;
 import io.vertx.ext.auth.User;
@@ -13,17 +17,26 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.Session;
 import io.vertx.ext.web.handler.OAuth2AuthHandler;
+import io.vertx.ext.web.handler.oauth2.AuthTokenGrant;
 import io.vertx.ext.web.handler.oauth2.AuthTokenRequestParameters;
-import io.vertx.ext.web.handler.oauth2.OAuth2AuthUrlBuilder;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestProvider;
+import io.vertx.ext.web.handler.oauth2.NonceSource;
+import io.vertx.ext.web.handler.oauth2.OAuth2AuthUrlTemplate;
 import io.vertx.ext.web.handler.oauth2.OAuth2HandlerOptions;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
 import io.vertx.ext.web.handler.oauth2.OAuth2Param;
 import io.vertx.ext.web.handler.oauth2.OAuth2State;
+import io.vertx.ext.web.handler.oauth2.OAuth2StateCodec;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+import io.vertx.ext.web.handler.oauth2.OpenIdDiscovery;
+import io.vertx.ext.web.handler.oauth2.OpenIdProviderMetadata;
+import io.vertx.ext.web.handler.oauth2.PkceCodes;
+import io.vertx.ext.web.handler.oauth2.SignedOAuth2State;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * User: jez
@@ -31,36 +44,124 @@ import java.util.function.BiConsumer;
 public class OAuth2AuthHandlerImpl extends AuthHandlerImpl implements OAuth2AuthHandler {
 
   private static final String OAUTH2_STATE_SALT = "OAUTH2_STATE_SALT";
+  private static final String OAUTH2_CODE_VERIFIER = "OAUTH2_CODE_VERIFIER";
+  private static final String BEARER_PREFIX = "Bearer ";
+  private static final String BEARER_CHALLENGE = "Bearer";
+  private static final String INVALID_TOKEN_CHALLENGE = "Bearer error=\"invalid_token\"";
+  private static final CharSequence RETRY_AFTER = HttpHeaders.createOptimized("Retry-After");
+  private static final CharSequence WWW_AUTHENTICATE = HttpHeaders.createOptimized("WWW-Authenticate");
+  private static final CharSequence NO_STORE = HttpHeaders.createOptimized("no-store");
+  private static final CharSequence NO_CONTENT_LENGTH = HttpHeaders.createOptimized("0");
 
-  private final String loginRedirectURL;
   private final String returnURLParam;
   private final String authResultHandlerUrl;
-  private final String clientId;
-  private final AuthTokenRequestor authTokenRequestor;
-  private final HttpClient httpClient;
-  private final BiConsumer<RoutingContext, String> tokenHandler;
+  private final Vertx vertx;
+  private final HttpClientOptions httpClientOptions;
+  private final OAuth2AuthProvider oAuth2AuthProvider;
+  private final OAuth2StateCodec stateCodec;
+  private final SignedOAuth2State signedState;
+  private final NonceSource nonceSource;
+  private final boolean bearerOnly;
+  private final CodeExchanges codeExchanges;
+  private final int maxTokenResponseBytes;
+  private final TokenRefreshScheduler refreshScheduler;
+  private final String bearerTokenParam;
+  private final OAuth2Metrics metrics;
+  private final ExchangeBulkhead exchangeBulkhead;
+  private final String retryAfterSeconds;
+  private final boolean noStoreRedirects;
+  private final boolean pkce;
+  private final OpenIdDiscovery discovery;
+  private final Function<OpenIdProviderMetadata, Endpoints> endpointsFactory;
 
+  /**
+   * The OAuth2 provider's urls in use - fixed, or rebuilt whenever discovery reloads the provider's metadata, and
+   * null until it is first loaded
+   */
+  private volatile Endpoints endpoints;
+
+  /**
+   * Constructor
+   * @param authProvider - the auth provider, which must implement OAuth2AuthProvider
+   * @param handlerOptions - the handler options
+   * @param router - the router to add the authentication result handler to, or null to leave routing callbacks to
+   *               the caller, as the multi-tenant handler does
+   * @param vertx - the vertx instance
+   */
   public OAuth2AuthHandlerImpl(AuthProvider authProvider, OAuth2HandlerOptions handlerOptions, Router router, Vertx vertx) {
     super(authProvider);
     if (!(authProvider instanceof OAuth2AuthProvider)) {
       throw new RuntimeException("Auth provider for an OAuth2 handler must implement OAuth2AuthProvider");
     }
-    OAuth2AuthProvider oAuth2AuthProvider = (OAuth2AuthProvider) authProvider;
-    this.tokenHandler = oAuth2AuthProvider.tokenHandler();
-    this.loginRedirectURL = handlerOptions.authProviderRedirectUrl();
+    this.oAuth2AuthProvider = (OAuth2AuthProvider) authProvider;
+    if (handlerOptions.bearerOnly() && !oAuth2AuthProvider.authenticatesAccessTokens()) {
+      throw new IllegalArgumentException("Bearer-only mode needs an auth provider which authenticates access tokens " +
+        "without a session, such as JwtOAuth2Provider or IntrospectionOAuth2Provider");
+    }
     this.returnURLParam = handlerOptions.returnUrlParam();
-    this.clientId = handlerOptions.clientId();
     this.authResultHandlerUrl = handlerOptions.authResultHandlerUrl();
+    this.stateCodec = handlerOptions.stateCodec();
+    this.signedState = handlerOptions.signedState();
+    this.nonceSource = handlerOptions.nonceSource();
+    this.bearerOnly = handlerOptions.bearerOnly();
+    this.bearerTokenParam = handlerOptions.bearerTokenParam();
+    this.maxTokenResponseBytes = handlerOptions.maxTokenResponseBytes();
+    this.metrics = handlerOptions.metrics();
+    this.noStoreRedirects = handlerOptions.noStoreRedirects();
+    this.pkce = handlerOptions.pkce();
+    oAuth2AuthProvider.useMetrics(metrics);
 
-    httpClient = vertx.createHttpClient();
+    this.vertx = vertx;
+    this.codeExchanges = new CodeExchanges(vertx);
+    // Copied, as the options identify the shared client and so must not change once the handler is created
+    this.httpClientOptions = new HttpClientOptions(handlerOptions.httpClientOptions());
 
     final AuthTokenRequestParameters authTokenRequestParams = new AuthTokenRequestParameters(handlerOptions.authTokenUrl(),
       handlerOptions.clientId(), handlerOptions.clientSecret(), handlerOptions.authResultHandlerUrl());
-    authTokenRequestor = new AuthTokenRequestor(handlerOptions.authTokenRequestFactoryProvider(), authTokenRequestParams);
+    this.discovery = handlerOptions.discovery();
+    final CircuitBreaker circuitBreaker = handlerOptions.circuitBreakerFailureThreshold() > 0 ?
+      new CircuitBreaker(handlerOptions.circuitBreakerFailureThreshold(), handlerOptions.circuitBreakerResetMillis(),
+        metrics) : null;
+    exchangeBulkhead = handlerOptions.maxConcurrentExchanges() > 0 ? new ExchangeBulkhead(vertx,
+      handlerOptions.maxConcurrentExchanges(), handlerOptions.maxQueuedExchanges(),
+      handlerOptions.maxExchangeWaitMillis(), metrics) : null;
+    // Users told to come back are told to do so once a full queue has had time to drain
+    retryAfterSeconds = String.valueOf(Math.max(1, (handlerOptions.maxExchangeWaitMillis() + 999) / 1000));
+    final AuthTokenRequestProvider requestProvider = handlerOptions.authTokenRequestFactoryProvider();
+    final String fixedRedirectUrl = handlerOptions.authProviderRedirectUrl();
+    final long tokenRequestTimeoutMillis = handlerOptions.tokenRequestTimeoutMillis();
+    final int tokenRequestMaxRetries = handlerOptions.tokenRequestMaxRetries();
+    final long tokenRequestRetryBackoffMillis = handlerOptions.tokenRequestRetryBackoffMillis();
+    // Everything but the urls is fixed, so the circuit breaker carries over when discovered urls change
+    this.endpointsFactory = metadata -> {
+      final AuthTokenRequestParameters params = metadata == null ? authTokenRequestParams :
+        new AuthTokenRequestParameters(metadata.tokenEndpoint(), authTokenRequestParams.clientId(),
+          authTokenRequestParams.clientSecret(), authTokenRequestParams.redirectUri());
+      return new Endpoints(metadata, params.authTokenUrl(),
+        bearerOnly ? null : new OAuth2AuthUrlTemplate(metadata == null ? fixedRedirectUrl :
+          metadata.authorizationEndpoint(), params.clientId(), params.redirectUri()),
+        new AuthTokenRequestor(vertx, requestProvider, params, tokenRequestTimeoutMillis, maxTokenResponseBytes,
+          tokenRequestMaxRetries, tokenRequestRetryBackoffMillis, circuitBreaker, metrics));
+    };
+    this.endpoints = discovery == null ? endpointsFactory.apply(null) : null;
+    refreshScheduler = handlerOptions.tokenRefresh() && !bearerOnly ? new TokenRefreshScheduler(vertx,
+      oAuth2AuthProvider, httpClientOptions, authTokenRequestParams, () -> {
+        final Endpoints current = endpoints();
+        return current != null ? current.authTokenUrl : null;
+      }, requestProvider == AuthTokenRequestProvider.POST_BASIC,
+      handlerOptions.tokenRefreshLeadMillis(), handlerOptions.tokenRefreshJitterMillis(),
+      handlerOptions.maxConcurrentTokenRefreshes(), maxTokenResponseBytes,
+      handlerOptions.tokenRequestTimeoutMillis()) : null;
 
+    if (bearerOnly) {
+      // No redirects to the OAuth2 provider, so no authentication results to handle
+      return;
+    }
     try {
       final String authResultPath = authResultPath(this.authResultHandlerUrl);
-      router.route(HttpMethod.GET, authResultPath).handler(authResultHandler());
+      if (router != null) {
+        router.route(HttpMethod.GET, authResultPath).handler(authResultHandler());
+      }
     } catch (MalformedURLException e) {
       throw new RuntimeException("Authentication result handler url " + this.authResultHandlerUrl +
         " is not correctly formatted");
@@ -70,6 +171,11 @@ public class OAuth2AuthHandlerImpl extends AuthHandlerImpl implements OAuth2Auth
   @Override
   public void handle(RoutingContext routingContext) {
 
+    if (bearerOnly) {
+      handleBearer(routingContext);
+      return;
+    }
+
     Session session = routingContext.session();
     if (session != null) {
       User user = routingContext.user();
@@ -78,22 +184,14 @@ public class OAuth2AuthHandlerImpl extends AuthHandlerImpl implements OAuth2Auth
         authorise(user, routingContext);
       } else {
         // Now check our authprovider to see if we already have a token
-        authProvider.authenticate(new JsonObject().put("sessionId", session.id()), res -> {
+        authProvider.authenticate(oAuth2AuthProvider.authInfo(routingContext), res -> {
           if (res.succeeded()) {
-            authorise(user, routingContext);
+            metrics.authenticateHit();
+            routingContext.setUser(res.result());
+            authorise(res.result(), routingContext);
           } else {
-            // Now redirect to the login url - we'll get redirected back here after successful login
-            session.put(returnURLParam, routingContext.request().absoluteURI());
-            String salt = UUID.randomUUID().toString();
-            session.put(OAUTH2_STATE_SALT, salt);
-
-            OAuth2AuthUrlBuilder urlBuilder = new OAuth2AuthUrlBuilder()
-              .setAuthenticationUrl(loginRedirectURL)
-              .setClientId(clientId)
-              .setState(new OAuth2State(routingContext.session().get(returnURLParam), salt, routingContext.session().id()))
-              .setRedirectUri(authResultHandlerUrl);
-            String actualRedirect = urlBuilder.build();
-            routingContext.response().putHeader("location", actualRedirect).setStatusCode(302).end();
+            metrics.authenticateMiss();
+            withEndpoints(routingContext, current -> redirect(routingContext, session, current));
           }
         });
       }
@@ -103,74 +201,349 @@ public class OAuth2AuthHandlerImpl extends AuthHandlerImpl implements OAuth2Auth
 
   }
 
+  /**
+   * Send the user to log in at the OAuth2 provider, whatever the session holds - for a multi-tenant handler, whose
+   * session may hold a user or tokens from another tenant's provider
+   * @param routingContext - the routing context
+   */
+  void login(final RoutingContext routingContext) {
+    final Session session = routingContext.session();
+    if (session == null) {
+      routingContext.fail(new NullPointerException("No session - did you forget to include a SessionHandler?"));
+      return;
+    }
+    withEndpoints(routingContext, current -> redirect(routingContext, session, current));
+  }
+
+  /**
+   * @return true if the handler only authenticates bearer tokens, so never sends anyone to log in
+   */
+  boolean bearerOnly() {
+    return bearerOnly;
+  }
+
+  /**
+   * Redirect to the login url - we'll get redirected back here after successful login
+   * @param routingContext - the routing context
+   * @param session - the session
+   * @param current - the OAuth2 provider's urls
+   */
+  private void redirect(final RoutingContext routingContext, final Session session, final Endpoints current) {
+    final String returnUrl = routingContext.request().absoluteURI();
+    final String salt = nonceSource.nextNonce();
+
+    final String stateValue;
+    String codeVerifier = null;
+    if (signedState != null) {
+      // Stateless - everything needed to validate the result travels in the signed state parameter
+      stateValue = signedState.sign(returnUrl, salt, session.id(), System.currentTimeMillis());
+      if (pkce) {
+        codeVerifier = signedState.codeVerifier(stateValue);
+      }
+    } else {
+      session.put(returnURLParam, returnUrl);
+      session.put(OAUTH2_STATE_SALT, salt);
+      stateValue = new OAuth2State(returnUrl, salt, session.id()).encode(stateCodec);
+      if (pkce) {
+        codeVerifier = PkceCodes.newVerifier();
+        session.put(OAUTH2_CODE_VERIFIER, codeVerifier);
+      }
+    }
+    String actualRedirect = current.authUrlTemplate.build(stateValue, null,
+      codeVerifier != null ? PkceCodes.challenge(codeVerifier) : null);
+    metrics.redirectIssued();
+    sendRedirect(routingContext, actualRedirect);
+  }
+
+  /**
+   * Send a redirect with an empty body. Header names and fixed values are preencoded, and the content length is set
+   * here, so the response is written without encoding any header but the location, or formatting its length
+   * @param routingContext - the routing context
+   * @param location - the url to redirect to
+   */
+  private void sendRedirect(final RoutingContext routingContext, final String location) {
+    final HttpServerResponse response = routingContext.response();
+    response.putHeader(HttpHeaders.LOCATION, location).putHeader(HttpHeaders.CONTENT_LENGTH, NO_CONTENT_LENGTH);
+    if (noStoreRedirects) {
+      response.putHeader(HttpHeaders.CACHE_CONTROL, NO_STORE);
+    }
+    response.setStatusCode(302).end();
+  }
+
+  /**
+   * Retrieve the OAuth2 provider's urls in use, rebuilding them if discovery has reloaded the provider's metadata.
+   * Two threads may both rebuild after a reload, which is harmless as they build the same thing
+   * @return the urls, or null if they are discovered and have not been loaded yet
+   */
+  private Endpoints endpoints() {
+    final Endpoints current = endpoints;
+    if (discovery == null) {
+      return current;
+    }
+    final OpenIdProviderMetadata metadata = discovery.metadata();
+    if (metadata == null) {
+      return null;
+    }
+    if (current != null && current.metadata == metadata) {
+      return current;
+    }
+    final Endpoints rebuilt = endpointsFactory.apply(metadata);
+    endpoints = rebuilt;
+    return rebuilt;
+  }
+
+  /**
+   * Call a handler with the OAuth2 provider's urls, waiting for discovery's first load if it has not completed. If
+   * it fails the request fails with 503, as the provider may be reachable again shortly
+   * @param routingContext - the routing context
+   * @param handler - the handler
+   */
+  private void withEndpoints(final RoutingContext routingContext, final Handler<Endpoints> handler) {
+    final Endpoints current = endpoints();
+    if (current != null) {
+      handler.handle(current);
+      return;
+    }
+    discovery.metadata(loaded -> {
+      if (loaded.succeeded()) {
+        handler.handle(endpoints());
+      } else {
+        routingContext.fail(503);
+      }
+    });
+  }
+
+  /**
+   * Authenticate a request from the bearer token it carries, without touching the session
+   * @param routingContext - the routing context
+   */
+  private void handleBearer(final RoutingContext routingContext) {
+    final User user = routingContext.user();
+    if (user != null) {
+      authorise(user, routingContext);
+      return;
+    }
+    final String token = bearerToken(routingContext);
+    if (token == null) {
+      unauthorized(routingContext, BEARER_CHALLENGE);
+      return;
+    }
+    authProvider.authenticate(new JsonObject().put(OAuth2AuthProvider.ACCESS_TOKEN, token), res -> {
+      if (res.succeeded()) {
+        metrics.authenticateHit();
+        routingContext.setUser(res.result());
+        authorise(res.result(), routingContext);
+      } else {
+        metrics.authenticateMiss();
+        unauthorized(routingContext, INVALID_TOKEN_CHALLENGE);
+      }
+    });
+  }
+
+  /**
+   * Find the bearer token in the Authorization header or, if configured, the bearer token parameter
+   * @param routingContext - the routing context
+   * @return the token, or null if the request carries none
+   */
+  private String bearerToken(final RoutingContext routingContext) {
+    final String authorization = routingContext.request().headers().get(HttpHeaders.AUTHORIZATION);
+    if (authorization != null) {
+      return authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length()) &&
+        authorization.length() > BEARER_PREFIX.length() ? authorization.substring(BEARER_PREFIX.length()).trim() : null;
+    }
+    if (bearerTokenParam == null) {
+      return null;
+    }
+    final String param = routingContext.request().getParam(bearerTokenParam);
+    return param != null ? param : routingContext.request().getFormAttribute(bearerTokenParam);
+  }
+
+  private void unauthorized(final RoutingContext routingContext, final String challenge) {
+    routingContext.response().putHeader(WWW_AUTHENTICATE, challenge)
+      .putHeader(HttpHeaders.CONTENT_LENGTH, NO_CONTENT_LENGTH).setStatusCode(401).end();
+  }
+
+  /**
+   * The client used to talk to the OAuth2 provider is shared by all handlers in the current verticle instance with
+   * the same client options
+   * @return the client for the current context
+   */
+  private HttpClient httpClient() {
+    return SharedHttpClients.get(vertx, httpClientOptions);
+  }
+
   private String authResultPath(final String resultHandlerUrl) throws MalformedURLException {
     URL url = new URL(resultHandlerUrl);
     return url.getPath();
   }
 
-  private Handler<RoutingContext> authResultHandler() {
+  Handler<RoutingContext> authResultHandler() {
+    return authResultHandler(rc -> {
+    });
+  }
+
+  /**
+   * Create the authentication result handler
+   * @param loggedIn - called with the routing context once the user has logged in, before they are redirected back to
+   *                 the url they first requested
+   * @return the handler
+   */
+  Handler<RoutingContext> authResultHandler(final Handler<RoutingContext> loggedIn) {
     return rc -> {
       // validate state was the one we stored first, otherwise someone's playing silly sods
       // then attempt to get the auth token for the code
       // if successful we authorize and redirect to the original url as the user is now allowed to see it
       // if not we return a 401
-      final String state = rc.request().getParam("state");
-      final String stateSalt = rc.session().get(OAUTH2_STATE_SALT);
-      final String originalUrl = rc.session().get(returnURLParam);
-      final String sessionId = rc.session().id();
-
-      if (state == null ||
-        stateSalt == null ||
-        originalUrl == null ||
-        sessionId == null) {
-        rc.fail(401);
-      } else {
-        OAuth2State expectedState = new OAuth2State(originalUrl, stateSalt, sessionId);
-        if (expectedState.toString().equals(state)) {
-          final Optional<String> code = Optional.ofNullable(rc.request().getParam(OAuth2Param.CODE.paramName()));
-          if (code.isPresent()) {
-            authTokenRequestor.invoke(httpClient, code.get(), authTokenResultHandler(tokenHandler, rc));
-          } else {
-            // TODO: LOG FAILURE CONDITIONS
-            rc.fail(401);
-          }
+      metrics.callbackReceived();
+      final String state = rc.request().getParam(OAuth2Param.STATE.paramName());
+      final Optional<String> originalUrl = signedState != null ?
+        signedState.verify(state, rc.session().id(), System.currentTimeMillis()) :
+        validateSessionState(rc.session(), state);
+
+      if (originalUrl.isPresent()) {
+        final Optional<String> code = Optional.ofNullable(rc.request().getParam(OAuth2Param.CODE.paramName()));
+        final String codeVerifier = !pkce ? null : signedState != null ? signedState.codeVerifier(state) :
+          rc.session().get(OAUTH2_CODE_VERIFIER);
+        if (code.isPresent() && (!pkce || codeVerifier != null)) {
+          final AuthTokenGrant grant = AuthTokenGrant.authorizationCode(code.get(), codeVerifier);
+          withEndpoints(rc, current -> codeExchanges.exchange(rc.session().id(), code.get(),
+            result -> exchangeCode(current, grant, result),
+            authTokenResultHandler(rc, originalUrl.get(), loggedIn)));
         } else {
+          // TODO: LOG FAILURE CONDITIONS
           rc.fail(401);
         }
+      } else {
+        metrics.stateMismatch();
+        rc.fail(401);
       }
     };
 
   }
 
-  private Handler<HttpClientResponse> authTokenResultHandler(final BiConsumer<RoutingContext, String> tokenHandler, RoutingContext routingContext) {
-    return resp -> {
-      resp.bodyHandler(body -> {
-        JsonObject json = new JsonObject(body.toString());
-        Optional<String> token = Optional.ofNullable(json.getString("access_token"));
-        if (token.isPresent()) {
-          tokenHandler.accept(routingContext, token.get());
-          Session session = routingContext.session();
-          authProvider.authenticate(new JsonObject().put("sessionId", session.id()), res -> {
-            if(res.succeeded()) {
-              User user = res.result();
-              routingContext.setUser(user);
-              String returnURL = session.remove(this.returnURLParam);
-              if(returnURL == null) {
-                routingContext.fail(new IllegalStateException("Logged in OK, but no return URL"));
-              } else {
-                routingContext.response().putHeader("location", returnURL).setStatusCode(302).end();
+  /**
+   * Validate the state echoed back by the OAuth2 provider against the values we stored in the session before
+   * redirecting to it
+   * @param session - the current session
+   * @param state - the state parameter value received
+   * @return the url originally requested if the state is valid, otherwise empty
+   */
+  private Optional<String> validateSessionState(final Session session, final String state) {
+    final String stateSalt = session.get(OAUTH2_STATE_SALT);
+    final String originalUrl = session.get(returnURLParam);
+    final String sessionId = session.id();
+
+    if (state == null ||
+      stateSalt == null ||
+      originalUrl == null ||
+      sessionId == null) {
+      return Optional.empty();
+    }
+    OAuth2State expectedState = new OAuth2State(originalUrl, stateSalt, sessionId);
+    return stateCodec.matches(expectedState.encode(stateCodec), state) ? Optional.of(originalUrl) : Optional.empty();
+  }
+
+  /**
+   * Exchange an authorization code for an access token, once admitted by the exchange bulkhead if there is one
+   * @param current - the OAuth2 provider's urls
+   * @param grant - the authorization code, and its code verifier with PKCE
+   * @param resultHandler - completed with the token response, or the reason there is no access token
+   */
+  private void exchangeCode(final Endpoints current, final AuthTokenGrant grant,
+                            final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler) {
+    if (exchangeBulkhead == null) {
+      sendExchange(current, grant, resultHandler);
+      return;
+    }
+    exchangeBulkhead.submit(() -> sendExchange(current, grant, result -> {
+      exchangeBulkhead.release();
+      resultHandler.handle(result);
+    }), rejected -> resultHandler.handle(Future.failedFuture(rejected)));
+  }
+
+  /**
+   * Send a code exchange to the OAuth2 provider. The response body is collected up
+   * to the maximum token response size, then parsed without building a JSON tree. The time from sending the request
+   * to reading the whole response is recorded, with the outcome, in the metrics
+   * @param current - the OAuth2 provider's urls
+   * @param grant - the authorization code, and its code verifier with PKCE
+   * @param resultHandler - completed with the token response, or the reason there is no access token
+   */
+  private void sendExchange(final Endpoints current, final AuthTokenGrant grant,
+                            final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler) {
+    final long start = System.nanoTime();
+    metrics.exchangeStarted();
+    current.authTokenRequestor.invoke(httpClient(), grant,
+      result -> {
+        metrics.exchangeCompleted(result.succeeded() ? OAuth2Metrics.ExchangeOutcome.SUCCESS :
+          OAuth2Metrics.ExchangeOutcome.REJECTED, System.nanoTime() - start);
+        resultHandler.handle(result);
+      },
+      e -> {
+        metrics.exchangeCompleted(e instanceof CircuitBreaker.CircuitOpenException ?
+          OAuth2Metrics.ExchangeOutcome.CIRCUIT_OPEN : OAuth2Metrics.ExchangeOutcome.ERROR, System.nanoTime() - start);
+        resultHandler.handle(Future.failedFuture(e));
+      });
+  }
+
+  private Handler<AsyncResult<OAuth2TokenResponse>> authTokenResultHandler(final RoutingContext routingContext,
+                                                                          final String returnURL,
+                                                                          final Handler<RoutingContext> loggedIn) {
+    return tokenResult -> {
+      if (tokenResult.succeeded()) {
+        oAuth2AuthProvider.storeTokens(routingContext, tokenResult.result());
+        Session session = routingContext.session();
+        authProvider.authenticate(oAuth2AuthProvider.authInfo(routingContext), res -> {
+          if(res.succeeded()) {
+            User user = res.result();
+            routingContext.setUser(user);
+            loggedIn.handle(routingContext);
+            if (refreshScheduler != null) {
+              refreshScheduler.schedule(session.id(), tokenResult.result());
+            }
+            if (signedState == null) {
+              session.remove(this.returnURLParam);
+              if (pkce) {
+                session.remove(OAUTH2_CODE_VERIFIER);
               }
-            } else {
-              routingContext.fail(403);
             }
-          });
-        } else {
-          // let's do some detailed failure handling here
-          System.out.println("Handle failure better");
-        }
-      });
+            sendRedirect(routingContext, returnURL);
+          } else {
+            routingContext.fail(403);
+          }
+        });
+      } else if (tokenResult.cause() instanceof ExchangeBulkhead.ExchangeRejectedException) {
+        // Too many logins at once - the code was not used, so the user can try again shortly
+        routingContext.response().putHeader(RETRY_AFTER, retryAfterSeconds)
+          .putHeader(HttpHeaders.CONTENT_LENGTH, NO_CONTENT_LENGTH).setStatusCode(503).end();
+      } else {
+        // The code was rejected, had already been used, or the OAuth2 provider could not be reached
+        routingContext.fail(401);
+      }
     };
   }
 
+  /**
+   * The OAuth2 provider's urls, and the redirect url template and token requestor precompiled from them
+   */
+  private static final class Endpoints {
+
+    /**
+     * The discovered metadata the urls came from, or null if they are fixed
+     */
+    final OpenIdProviderMetadata metadata;
+    final String authTokenUrl;
+    final OAuth2AuthUrlTemplate authUrlTemplate;
+    final AuthTokenRequestor authTokenRequestor;
+
+    Endpoints(final OpenIdProviderMetadata metadata, final String authTokenUrl,
+              final OAuth2AuthUrlTemplate authUrlTemplate, final AuthTokenRequestor authTokenRequestor) {
+      this.metadata = metadata;
+      this.authTokenUrl = authTokenUrl;
+      this.authUrlTemplate = authUrlTemplate;
+      this.authTokenRequestor = authTokenRequestor;
+    }
+  }
+
 //  private Handler<String>
 }
@@ -0,0 +1,147 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.handler.oauth2.OpenIdDiscovery;
+import io.vertx.ext.web.handler.oauth2.OpenIdDiscoveryOptions;
+import io.vertx.ext.web.handler.oauth2.OpenIdProviderMetadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * OpenIdDiscovery implementation. In the same way as the JWT provider's key set, the metadata is held in a volatile
+ * field and replaced wholesale on each successful load, so readers never lock or wait. Loads are chained one timer at
+ * a time - the refresh interval after a success, the shorter retry interval after a failure - and callers waiting
+ * for the first load share it.
+ */
+public class OpenIdDiscoveryImpl implements OpenIdDiscovery {
+
+  private final Vertx vertx;
+  private final OpenIdDiscoveryOptions options;
+  private final HttpClientOptions httpClientOptions;
+
+  private volatile OpenIdProviderMetadata metadata;
+  private volatile boolean closed;
+
+  /**
+   * Handlers waiting for the load in progress - null when no load is in progress. Guarded by this, as is timerId
+   */
+  private List<Handler<AsyncResult<OpenIdProviderMetadata>>> loadWaiters;
+  private long timerId = -1;
+
+  public OpenIdDiscoveryImpl(final Vertx vertx, final OpenIdDiscoveryOptions options) {
+    this.vertx = Objects.requireNonNull(vertx, "Vertx must not be null");
+    this.options = Objects.requireNonNull(options, "Options must not be null");
+    // Copied, as the options identify the shared client and so must not change once discovery starts
+    this.httpClientOptions = new HttpClientOptions(options.httpClientOptions());
+    load(null);
+  }
+
+  @Override
+  public String issuer() {
+    return options.issuer();
+  }
+
+  @Override
+  public OpenIdProviderMetadata metadata() {
+    return metadata;
+  }
+
+  @Override
+  public void metadata(final Handler<AsyncResult<OpenIdProviderMetadata>> resultHandler) {
+    final OpenIdProviderMetadata current = metadata;
+    if (current != null) {
+      resultHandler.handle(Future.succeededFuture(current));
+    } else {
+      load(resultHandler);
+    }
+  }
+
+  @Override
+  public void close() {
+    final long id;
+    synchronized (this) {
+      closed = true;
+      id = timerId;
+    }
+    if (id >= 0) {
+      vertx.cancelTimer(id);
+    }
+  }
+
+  /**
+   * Load the discovery document, joining the load in progress if there is one
+   * @param waiter - handler to call, on the caller's context, with the result; may be null
+   */
+  private void load(final Handler<AsyncResult<OpenIdProviderMetadata>> waiter) {
+    final boolean start;
+    synchronized (this) {
+      start = loadWaiters == null;
+      if (start) {
+        loadWaiters = new ArrayList<>();
+      }
+      if (waiter != null) {
+        final Context context = vertx.getOrCreateContext();
+        loadWaiters.add(result -> context.runOnContext(v -> waiter.handle(result)));
+      }
+    }
+    if (start) {
+      read(this::loaded);
+    }
+  }
+
+  private void loaded(final AsyncResult<Buffer> result) {
+    AsyncResult<OpenIdProviderMetadata> outcome;
+    if (result.succeeded()) {
+      try {
+        metadata = OpenIdProviderMetadata.parse(new JsonObject(result.result().toString()), options.issuer(),
+          System.currentTimeMillis());
+        outcome = Future.succeededFuture(metadata);
+      } catch (DecodeException | IllegalArgumentException e) {
+        outcome = Future.failedFuture(e);
+      }
+    } else {
+      outcome = Future.failedFuture(result.cause());
+    }
+    // Keep the last good metadata after a failure - waiters only see the failure if there is none
+    final AsyncResult<OpenIdProviderMetadata> forWaiters = outcome.failed() && metadata != null ?
+      Future.succeededFuture(metadata) : outcome;
+    final List<Handler<AsyncResult<OpenIdProviderMetadata>>> waiters;
+    synchronized (this) {
+      waiters = loadWaiters;
+      if (waiters == null) {
+        // A late failure of a load which has already completed
+        return;
+      }
+      loadWaiters = null;
+      if (timerId >= 0) {
+        // A waiter may have started this load early, while the next one was already scheduled
+        vertx.cancelTimer(timerId);
+      }
+      if (!closed) {
+        timerId = vertx.setTimer(outcome.succeeded() ? options.refreshMillis() : options.retryMillis(),
+          id -> load(null));
+      }
+    }
+    waiters.forEach(waiter -> waiter.handle(forWaiters));
+  }
+
+  private void read(final Handler<AsyncResult<Buffer>> handler) {
+    if (options.discoveryPath() != null) {
+      vertx.fileSystem().readFile(options.discoveryPath(), handler);
+      return;
+    }
+    // A hung load would stop the reload chain, so it may take no longer than the wait before a retry
+    HttpDocuments.get(vertx, httpClientOptions, options.discoveryUrl(), options.retryMillis(), "Discovery document",
+      handler);
+  }
+}
@@ -0,0 +1,202 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.handler.oauth2.AuthTokenGrant;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestParameters;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestProvider;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+import io.vertx.ext.web.handler.oauth2.ServiceTokenCache;
+import io.vertx.ext.web.handler.oauth2.ServiceTokenCacheOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * ServiceTokenCache implementation. Each key - token url, client id and scope - has an entry holding the current
+ * token, when it expires and when to start renewing it, and the callers waiting for the fetch in progress if there is
+ * one. Entries are only ever locked individually, and only for a few field reads and writes.
+ *
+ * A token due for renewal is still handed out while the renewal runs, so callers only wait when there is no live
+ * token at all. A failed renewal leaves the current token in place, and the next caller tries again. Each fetch is
+ * bounded by the request timeout, response body included, so a stalled token endpoint fails its waiters rather than
+ * leaving them, and every later caller for the key, waiting for ever.
+ */
+public class ServiceTokenCacheImpl implements ServiceTokenCache, Shareable {
+
+  private static final String SHARED_MAP_NAME = ServiceTokenCacheImpl.class.getName();
+
+  private final Vertx vertx;
+  private final ServiceTokenCacheOptions options;
+  private final HttpClientOptions httpClientOptions;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public ServiceTokenCacheImpl(final Vertx vertx, final ServiceTokenCacheOptions options) {
+    this.vertx = Objects.requireNonNull(vertx, "Vertx must not be null");
+    this.options = Objects.requireNonNull(options, "Options must not be null");
+    // Copied, as the options identify the shared client and so must not change once the cache is created
+    this.httpClientOptions = new HttpClientOptions(options.httpClientOptions());
+  }
+
+  /**
+   * Retrieve a named cache shared through a local map, creating it if this is the first request for it
+   * @param vertx - the vertx instance
+   * @param options - the options to create the cache with
+   * @param name - the name of the cache
+   * @return the shared cache
+   */
+  public static ServiceTokenCache shared(final Vertx vertx, final ServiceTokenCacheOptions options, final String name) {
+    Objects.requireNonNull(name, "Cache name must not be null");
+    synchronized (vertx) {
+      final LocalMap<String, ServiceTokenCacheImpl> caches = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+      ServiceTokenCacheImpl cache = caches.get(name);
+      if (cache == null) {
+        cache = new ServiceTokenCacheImpl(vertx, options);
+        caches.put(name, cache);
+      }
+      return cache;
+    }
+  }
+
+  @Override
+  public void getToken(final AuthTokenRequestParameters params, final String scope,
+                       final Handler<AsyncResult<String>> resultHandler) {
+    final Entry entry = entries.computeIfAbsent(key(params, scope), k -> new Entry(params, scope));
+    final long now = System.currentTimeMillis();
+    final String token;
+    final boolean fetch;
+    synchronized (entry) {
+      if (entry.token != null && now < entry.expiresAt) {
+        token = entry.token;
+        fetch = now >= entry.renewAt && entry.waiters == null;
+        if (fetch) {
+          entry.waiters = new ArrayList<>();
+        }
+      } else {
+        token = null;
+        fetch = entry.waiters == null;
+        if (fetch) {
+          entry.waiters = new ArrayList<>();
+        }
+        final Context context = vertx.getOrCreateContext();
+        entry.waiters.add(result -> context.runOnContext(v -> resultHandler.handle(result)));
+      }
+    }
+    if (token != null) {
+      resultHandler.handle(Future.succeededFuture(token));
+    }
+    if (fetch) {
+      fetch(entry);
+    }
+  }
+
+  @Override
+  public void invalidate(final AuthTokenRequestParameters params, final String scope) {
+    final Entry entry = entries.get(key(params, scope));
+    if (entry != null) {
+      synchronized (entry) {
+        entry.token = null;
+      }
+    }
+  }
+
+  private void fetch(final Entry entry) {
+    // The timer can fire at any point, and a connection failure can follow the response, so only the first outcome
+    // counts
+    final boolean[] done = {false};
+    final HttpClientResponse[] response = {null};
+    final HttpClientRequest request = entry.requestFactory.apply(SharedHttpClients.get(vertx, httpClientOptions),
+      entry.grant);
+    final long timeoutMillis = options.requestTimeoutMillis();
+    final long timerId = vertx.setTimer(timeoutMillis, id -> {
+      if (!done[0]) {
+        done[0] = true;
+        if (response[0] != null) {
+          // The body has stalled - drop the connection rather than return it to the pool
+          ClientConnections.close(request);
+        }
+        complete(entry, Future.failedFuture(new TimeoutException("Token request timed out after " + timeoutMillis +
+          " ms")));
+      }
+    });
+    final Handler<AsyncResult<OAuth2TokenResponse>> complete = result -> {
+      if (!done[0]) {
+        done[0] = true;
+        vertx.cancelTimer(timerId);
+        complete(entry, result);
+      }
+    };
+    request.setTimeout(timeoutMillis);
+    request.handler(resp -> {
+      response[0] = resp;
+      TokenResponses.read(resp, options.maxTokenResponseBytes(), complete);
+    });
+    request.exceptionHandler(e -> complete.handle(Future.failedFuture(e)));
+    entry.bodyWriter.accept(request, entry.grant);
+    request.end();
+  }
+
+  private void complete(final Entry entry, final AsyncResult<OAuth2TokenResponse> result) {
+    final List<Handler<AsyncResult<String>>> waiters;
+    final AsyncResult<String> tokenResult;
+    synchronized (entry) {
+      waiters = entry.waiters;
+      entry.waiters = null;
+      if (result.succeeded()) {
+        final long now = System.currentTimeMillis();
+        final long lifetime = result.result().expiresIn() != OAuth2TokenResponse.UNKNOWN_EXPIRY ?
+          result.result().expiresIn() * 1000 : options.unknownExpiryLifetimeMillis();
+        entry.token = result.result().accessToken();
+        entry.expiresAt = now + lifetime;
+        entry.renewAt = entry.expiresAt - Math.min(options.renewBeforeExpiryMillis(), lifetime / 2);
+        tokenResult = Future.succeededFuture(entry.token);
+      } else {
+        tokenResult = Future.failedFuture(result.cause());
+      }
+    }
+    waiters.forEach(waiter -> waiter.handle(tokenResult));
+  }
+
+  private static String key(final AuthTokenRequestParameters params, final String scope) {
+    return params.authTokenUrl() + '|' + params.clientId() + '|' + (scope == null ? "" : scope);
+  }
+
+  /**
+   * The cached token for a key, and the means of fetching a new one
+   */
+  private static final class Entry {
+    private final AuthTokenGrant grant;
+    private final BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> requestFactory;
+    private final BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter;
+
+    private String token;
+    private long expiresAt;
+    private long renewAt;
+
+    /**
+     * Callers waiting for the fetch in progress, or null when no fetch is in progress
+     */
+    private List<Handler<AsyncResult<String>>> waiters;
+
+    private Entry(final AuthTokenRequestParameters params, final String scope) {
+      this.grant = AuthTokenGrant.clientCredentials(scope);
+      this.requestFactory = AuthTokenRequestProvider.CLIENT_CREDENTIALS.factory(params);
+      this.bodyWriter = AuthTokenRequestProvider.CLIENT_CREDENTIALS.bodyWriter(params);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds one HttpClient per distinct set of client options for each Vert.x context, i.e. for each verticle instance.
+ * Every OAuth2 handler (and provider) running in a verticle with the same options therefore shares a single
+ * connection pool to the OAuth2 provider, and keeps its connections warm between token requests, rather than each
+ * handler owning a client of its own.
+ *
+ * The clients are stored in the context itself, so are only ever touched from that context and need no locking.
+ * They are created within the verticle's context, so are closed by Vert.x when the verticle is undeployed.
+ */
+public final class SharedHttpClients {
+
+  private static final String CONTEXT_KEY = SharedHttpClients.class.getName();
+
+  private SharedHttpClients() {
+  }
+
+  /**
+   * Retrieve the client for the current context with the given options, creating it if this is the first request
+   * for those options on this context
+   * @param vertx - the vertx instance
+   * @param options - the client options, which must not be changed once passed here
+   * @return the shared client
+   */
+  public static HttpClient get(final Vertx vertx, final HttpClientOptions options) {
+    final Context context = vertx.getOrCreateContext();
+    Map<HttpClientOptions, HttpClient> clients = context.get(CONTEXT_KEY);
+    if (clients == null) {
+      clients = new HashMap<>();
+      context.put(CONTEXT_KEY, clients);
+    }
+    HttpClient client = clients.get(options);
+    if (client == null) {
+      client = vertx.createHttpClient(options);
+      clients.put(options, client);
+    }
+    return client;
+  }
+}
@@ -0,0 +1,113 @@
+package io.vertx.ext.web.handler.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lookup index from a request's tenant header, host and path to its tenant id, compiled once from the configured
+ * mappings so that resolving a request costs a few hash lookups however many tenants there are.
+ *
+ * Hosts are held lower case. Path prefixes are grouped by their first path segment, longest first, so a request only
+ * compares its path against the prefixes sharing its first segment; the prefix "/" is held apart as the fallback.
+ *
+ * Instances are immutable and thread safe.
+ */
+class TenantIndex {
+
+  private final Set<String> tenantIds;
+  private final Map<String, String> hosts = new HashMap<>();
+  private final Map<String, String[][]> prefixesBySegment = new HashMap<>();
+  private final String rootTenant;
+
+  /**
+   * Constructor
+   * @param tenantIds - the ids of the configured tenants
+   * @param hosts - the tenant ids by host
+   * @param pathPrefixes - the tenant ids by path prefix
+   * @throws IllegalArgumentException if a mapping names an unknown tenant
+   */
+  TenantIndex(final Set<String> tenantIds, final Map<String, String> hosts, final Map<String, String> pathPrefixes) {
+    this.tenantIds = tenantIds;
+    hosts.forEach((host, tenantId) -> this.hosts.put(host.toLowerCase(Locale.ROOT), known(tenantId)));
+
+    final Map<String, List<String[]>> grouped = new HashMap<>();
+    String root = null;
+    for (Map.Entry<String, String> mapping : pathPrefixes.entrySet()) {
+      String prefix = mapping.getKey();
+      while (prefix.length() > 1 && prefix.endsWith("/")) {
+        prefix = prefix.substring(0, prefix.length() - 1);
+      }
+      if (prefix.equals("/")) {
+        root = known(mapping.getValue());
+      } else {
+        grouped.computeIfAbsent(firstSegment(prefix), k -> new ArrayList<>())
+          .add(new String[]{prefix, known(mapping.getValue())});
+      }
+    }
+    grouped.forEach((segment, prefixes) -> {
+      prefixes.sort(Comparator.comparingInt((String[] p) -> p[0].length()).reversed());
+      prefixesBySegment.put(segment, prefixes.toArray(new String[prefixes.size()][]));
+    });
+    this.rootTenant = root;
+  }
+
+  /**
+   * Resolve a request's tenant
+   * @param headerValue - the value of the tenant header, or null
+   * @param host - the value of the Host header, which may include a port, or null
+   * @param path - the request path, or null
+   * @return the tenant id, or null if the request maps to no tenant
+   */
+  String resolve(final String headerValue, final String host, final String path) {
+    if (headerValue != null) {
+      return tenantIds.contains(headerValue) ? headerValue : null;
+    }
+    if (host != null && !hosts.isEmpty()) {
+      final String tenantId = hosts.get(hostName(host));
+      if (tenantId != null) {
+        return tenantId;
+      }
+    }
+    if (path != null && path.startsWith("/")) {
+      final String[][] prefixes = prefixesBySegment.get(firstSegment(path));
+      if (prefixes != null) {
+        for (String[] prefix : prefixes) {
+          if (path.startsWith(prefix[0]) &&
+            (path.length() == prefix[0].length() || path.charAt(prefix[0].length()) == '/')) {
+            return prefix[1];
+          }
+        }
+      }
+    }
+    return rootTenant;
+  }
+
+  private String known(final String tenantId) {
+    if (!tenantIds.contains(tenantId)) {
+      throw new IllegalArgumentException("Tenant " + tenantId + " is mapped but not configured");
+    }
+    return tenantId;
+  }
+
+  /**
+   * @return the path up to, but not including, its second slash
+   */
+  private static String firstSegment(final String path) {
+    final int end = path.indexOf('/', 1);
+    return end < 0 ? path : path.substring(0, end);
+  }
+
+  /**
+   * @return the host without any port, lower case
+   */
+  private static String hostName(final String host) {
+    final int end = host.startsWith("[") ? host.indexOf(']') + 1 : host.indexOf(':');
+    final String name = end > 0 ? host.substring(0, end) : host;
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,200 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.auth.impl.oauth2.OAuth2AuthProvider;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestParameters;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+import io.vertx.ext.web.handler.oauth2.TokenRequestForm;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static io.vertx.core.http.HttpHeaders.*;
+
+/**
+ * Renews sessions' access tokens with their refresh tokens shortly before they expire, so users are not sent back
+ * through the OAuth2 provider's login when their token runs out.
+ *
+ * Each session with a refresh token has a Vert.x timer, set to fire the refresh lead time before the access token
+ * expires, brought forward by a random jitter so that tokens issued together - for example after a restart - are not
+ * all renewed in the same instant. At most maxConcurrent refreshes run at once; timers firing beyond that wait in
+ * arrival order. A refreshed token set is handed to the auth provider to store and is itself scheduled for refresh.
+ * A refresh which fails is not retried - the session's token simply expires and its user logs in again, as without
+ * refresh.
+ */
+class TokenRefreshScheduler {
+
+  private static final CharSequence FORM_CONTENT_TYPE =
+    HttpHeaders.createOptimized("application/x-www-form-urlencoded; charset=utf-8");
+
+  private final Vertx vertx;
+  private final OAuth2AuthProvider authProvider;
+  private final HttpClientOptions httpClientOptions;
+  private final AuthTokenRequestParameters params;
+  private final Supplier<String> authTokenUrl;
+  private final CharSequence authorization;
+  private final long leadMillis;
+  private final long jitterMillis;
+  private final int maxConcurrent;
+  private final int maxTokenResponseBytes;
+  private final long timeoutMillis;
+
+  /**
+   * Refresh timer ids, by session id. Guarded by this, as are queue and running
+   */
+  private final Map<String, Long> timers = new HashMap<>();
+  private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+  private int running;
+
+  /**
+   * Constructor
+   * @param vertx - the vertx instance
+   * @param authProvider - the auth provider which stores refreshed tokens
+   * @param httpClientOptions - the options identifying the shared client used to talk to the OAuth2 provider
+   * @param params - the client credentials
+   * @param authTokenUrl - supplies the token url in use, which may change when it is discovered
+   * @param basicAuthentication - true if the client authenticates with HTTP Basic rather than in the request body
+   * @param leadMillis - how long before expiry a token is refreshed
+   * @param jitterMillis - the most by which a refresh is randomly brought forward
+   * @param maxConcurrent - the maximum number of refreshes running at once
+   * @param maxTokenResponseBytes - the largest token response accepted
+   * @param timeoutMillis - how long a refresh request may take, so a hung one cannot hold its place for ever
+   */
+  TokenRefreshScheduler(final Vertx vertx, final OAuth2AuthProvider authProvider,
+                        final HttpClientOptions httpClientOptions, final AuthTokenRequestParameters params,
+                        final Supplier<String> authTokenUrl, final boolean basicAuthentication,
+                        final long leadMillis, final long jitterMillis, final int maxConcurrent,
+                        final int maxTokenResponseBytes, final long timeoutMillis) {
+    this.vertx = vertx;
+    this.authProvider = authProvider;
+    this.httpClientOptions = httpClientOptions;
+    this.params = params;
+    this.authTokenUrl = authTokenUrl;
+    this.authorization = basicAuthentication ?
+      HttpHeaders.createOptimized(TokenRequestForm.basicAuthorization(params)) : null;
+    this.leadMillis = leadMillis;
+    this.jitterMillis = jitterMillis;
+    this.maxConcurrent = maxConcurrent;
+    this.maxTokenResponseBytes = maxTokenResponseBytes;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Schedule the refresh of a session's tokens, replacing any refresh already scheduled for the session. Tokens
+   * without a refresh token or an expiry cannot be refreshed, so just cancel any scheduled refresh
+   * @param sessionId - the session id
+   * @param tokens - the session's current tokens
+   */
+  void schedule(final String sessionId, final OAuth2TokenResponse tokens) {
+    if (tokens.refreshToken() == null || tokens.expiresIn() <= 0) {
+      cancel(sessionId);
+      return;
+    }
+    final long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis) : 0;
+    final long delay = Math.max(1, tokens.expiresIn() * 1000 - leadMillis - jitter);
+    final long[] timerId = new long[1];
+    timerId[0] = vertx.setTimer(delay, id -> {
+      synchronized (this) {
+        if (!timers.remove(sessionId, timerId[0])) {
+          return;
+        }
+      }
+      submit(() -> refresh(sessionId, tokens));
+    });
+    final Long previous;
+    synchronized (this) {
+      previous = timers.put(sessionId, timerId[0]);
+    }
+    if (previous != null) {
+      vertx.cancelTimer(previous);
+    }
+  }
+
+  /**
+   * Cancel the refresh scheduled for a session, if there is one
+   * @param sessionId - the session id
+   */
+  void cancel(final String sessionId) {
+    final Long timerId;
+    synchronized (this) {
+      timerId = timers.remove(sessionId);
+    }
+    if (timerId != null) {
+      vertx.cancelTimer(timerId);
+    }
+  }
+
+  private void submit(final Runnable refresh) {
+    synchronized (this) {
+      if (running >= maxConcurrent) {
+        queue.add(refresh);
+        return;
+      }
+      running++;
+    }
+    refresh.run();
+  }
+
+  private void refreshed() {
+    final Runnable next;
+    synchronized (this) {
+      next = queue.poll();
+      if (next == null) {
+        running--;
+      }
+    }
+    if (next != null) {
+      next.run();
+    }
+  }
+
+  private void refresh(final String sessionId, final OAuth2TokenResponse tokens) {
+    final boolean[] done = {false};
+    final Runnable complete = () -> {
+      if (!done[0]) {
+        done[0] = true;
+        refreshed();
+      }
+    };
+    final String url = authTokenUrl.get();
+    if (url == null) {
+      // Not discovered yet, so there are no tokens from this provider to refresh - let these expire
+      complete.run();
+      return;
+    }
+    final HttpClientRequest request = SharedHttpClients.get(vertx, httpClientOptions).postAbs(url);
+    request.setTimeout(timeoutMillis);
+    request.handler(resp -> TokenResponses.read(resp, maxTokenResponseBytes, result -> {
+      complete.run();
+      if (result.succeeded()) {
+        final OAuth2TokenResponse fresh = result.result();
+        // Providers which do not rotate refresh tokens, or whose scopes are unchanged, leave them out of the response
+        final OAuth2TokenResponse merged = fresh.refreshToken() != null && fresh.scope() != null ? fresh :
+          new OAuth2TokenResponse(fresh.accessToken(), fresh.tokenType(), fresh.expiresIn(),
+            fresh.refreshToken() != null ? fresh.refreshToken() : tokens.refreshToken(), fresh.idToken(),
+            fresh.scope() != null ? fresh.scope() : tokens.scope());
+        authProvider.updateTokens(sessionId, merged, stored -> {
+          if (stored.succeeded()) {
+            schedule(sessionId, merged);
+          }
+        });
+      }
+    }));
+    request.exceptionHandler(e -> complete.run());
+
+    final Buffer body = Buffer.buffer(TokenRequestForm.refreshBody(params, authorization == null, tokens.refreshToken()));
+    request.putHeader(CONTENT_TYPE, FORM_CONTENT_TYPE);
+    request.putHeader(CONTENT_LENGTH, String.valueOf(body.length()));
+    if (authorization != null) {
+      request.putHeader(AUTHORIZATION, authorization);
+    }
+    request.end(body);
+  }
+}
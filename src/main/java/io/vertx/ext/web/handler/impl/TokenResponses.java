@@ -0,0 +1,104 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+
+/**
+ * Reads token endpoint responses - for code exchanges and refreshes alike - and the other small JSON responses of the
+ * provider's endpoints, such as token introspection
+ */
+public final class TokenResponses {
+
+  private TokenResponses() {
+  }
+
+  /**
+   * Collect a token endpoint response body, up to a maximum size, and parse it without building a JSON tree. The
+   * result handler is called exactly once - including when the connection fails part way through the body
+   * @param resp - the token endpoint response
+   * @param maxBytes - the largest body accepted; larger bodies fail rather than being buffered
+   * @param resultHandler - completed with the token response, or the reason there is no access token
+   */
+  static void read(final HttpClientResponse resp, final int maxBytes,
+                   final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler) {
+    read(resp, maxBytes, resultHandler, e -> resultHandler.handle(Future.failedFuture(e)));
+  }
+
+  /**
+   * As read, but a connection which fails part way through the body is reported to the exception handler, apart from
+   * responses which were read in full. Exactly one of the handlers is called, once
+   * @param resp - the token endpoint response
+   * @param maxBytes - the largest body accepted; larger bodies fail rather than being buffered
+   * @param resultHandler - completed with the token response, or the reason there is no access token
+   * @param exceptionHandler - called if the connection fails before the whole body is read
+   */
+  static void read(final HttpClientResponse resp, final int maxBytes,
+                   final Handler<AsyncResult<OAuth2TokenResponse>> resultHandler,
+                   final Handler<Throwable> exceptionHandler) {
+    readBody(resp, maxBytes, result -> {
+      if (result.failed()) {
+        resultHandler.handle(Future.failedFuture(result.cause()));
+        return;
+      }
+      final OAuth2TokenResponse tokenResponse;
+      try {
+        tokenResponse = OAuth2TokenResponse.parse(result.result());
+      } catch (IllegalArgumentException e) {
+        resultHandler.handle(Future.failedFuture(e.getMessage() + ", status " + resp.statusCode()));
+        return;
+      }
+      resultHandler.handle(tokenResponse.accessToken() != null ?
+        Future.succeededFuture(tokenResponse) :
+        Future.failedFuture("No access token in token response, status " + resp.statusCode()));
+    }, exceptionHandler);
+  }
+
+  /**
+   * Collect a response body, up to a maximum size. The result handler is called exactly once - including when the
+   * connection fails part way through the body
+   * @param resp - the response
+   * @param maxBytes - the largest body accepted; larger bodies fail rather than being buffered
+   * @param resultHandler - completed with the body, or the reason there is none
+   */
+  public static void readBody(final HttpClientResponse resp, final int maxBytes,
+                              final Handler<AsyncResult<Buffer>> resultHandler) {
+    readBody(resp, maxBytes, resultHandler, e -> resultHandler.handle(Future.failedFuture(e)));
+  }
+
+  private static void readBody(final HttpClientResponse resp, final int maxBytes,
+                               final Handler<AsyncResult<Buffer>> resultHandler,
+                               final Handler<Throwable> exceptionHandler) {
+    final Buffer body = Buffer.buffer();
+    // Set once the result is known, after which the rest of the response is ignored
+    final boolean[] done = {false};
+    resp.handler(chunk -> {
+      if (done[0]) {
+        return;
+      }
+      if (body.length() + chunk.length() > maxBytes) {
+        done[0] = true;
+        resultHandler.handle(Future.failedFuture("Response exceeds " + maxBytes + " bytes"));
+      } else {
+        body.appendBuffer(chunk);
+      }
+    });
+    resp.exceptionHandler(e -> {
+      if (done[0]) {
+        return;
+      }
+      done[0] = true;
+      exceptionHandler.handle(e);
+    });
+    resp.endHandler(v -> {
+      if (done[0]) {
+        return;
+      }
+      done[0] = true;
+      resultHandler.handle(Future.succeededFuture(body));
+    });
+  }
+}
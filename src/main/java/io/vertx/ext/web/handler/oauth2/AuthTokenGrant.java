@@ -0,0 +1,74 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.util.Objects;
+
+/**
+ * Immutable class holding the values which vary from one token request to the next - the grant exchanged for a
+ * token. For the authorization code grant that is the code, and with PKCE (RFC 7636) the code verifier sent with it;
+ * for the client credentials grant it is the scope requested.
+ *
+ * The values which do not vary are held by AuthTokenRequestParameters, and compiled into a strategy's factory and
+ * body writer once; each grant is then passed to them in turn.
+ */
+public final class AuthTokenGrant {
+
+  private final String code;
+  private final String codeVerifier;
+  private final String scope;
+
+  private AuthTokenGrant(final String code, final String codeVerifier, final String scope) {
+    this.code = code;
+    this.codeVerifier = codeVerifier;
+    this.scope = scope;
+  }
+
+  /**
+   * Create an authorization code grant, exchanged without PKCE
+   * @param code - the authorization code
+   * @return the grant
+   */
+  public static AuthTokenGrant authorizationCode(final String code) {
+    return authorizationCode(code, null);
+  }
+
+  /**
+   * Create an authorization code grant
+   * @param code - the authorization code
+   * @param codeVerifier - the PKCE code verifier sent with the authorization request's challenge, or null if the
+   *                     authorization request had no challenge
+   * @return the grant
+   */
+  public static AuthTokenGrant authorizationCode(final String code, final String codeVerifier) {
+    return new AuthTokenGrant(Objects.requireNonNull(code, "Code must not be null"), codeVerifier, null);
+  }
+
+  /**
+   * Create a client credentials grant (RFC 6749 section 4.4)
+   * @param scope - the space separated scope to request, or null for the client's default scope
+   * @return the grant
+   */
+  public static AuthTokenGrant clientCredentials(final String scope) {
+    return new AuthTokenGrant(null, null, scope);
+  }
+
+  /**
+   * @return the authorization code, or null for a client credentials grant
+   */
+  public String code() {
+    return code;
+  }
+
+  /**
+   * @return the PKCE code verifier, or null if the code is exchanged without one
+   */
+  public String codeVerifier() {
+    return codeVerifier;
+  }
+
+  /**
+   * @return the scope requested with a client credentials grant, or null for the client's default scope
+   */
+  public String scope() {
+    return scope;
+  }
+}
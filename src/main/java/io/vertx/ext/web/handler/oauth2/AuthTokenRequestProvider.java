@@ -1,15 +1,14 @@
 package io.vertx.ext.web.handler.oauth2;
 
-import io.netty.handler.codec.http.QueryStringEncoder;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpHeaders;
 
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
 import static io.vertx.core.http.HttpHeaders.*;
-import static io.vertx.ext.web.handler.oauth2.OAuth2Param.*;
 
 /**
  * Enum class to represent possible HTTP methods for converting an authorization code to an OAuth2 auth token.
@@ -18,45 +17,101 @@ import static io.vertx.ext.web.handler.oauth2.OAuth2Param.*;
  * is to add a handler and submit the request. Each member of this enumeration provides a factory function for an auth
  * token retrieval request, given a set of parameters provided as an AuthTokenRequestParameters object.
  *
+ * When the grant passed to the factory and body writer carries a PKCE code verifier, it is sent as the code_verifier
+ * parameter.
  */
 public enum AuthTokenRequestProvider implements AuthTokenRequestStrategy {
 
   GET {
     @Override
-    public BiFunction<HttpClient, String, HttpClientRequest> factory(AuthTokenRequestParameters params) {
+    public BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> factory(AuthTokenRequestParameters params) {
       final OAuth2TokenGetUrlBuilder builder = new OAuth2TokenGetUrlBuilder(params.authTokenUrl(), params.clientId(),
         params.clientSecret(), params.redirectUri());
-      return (httpClient, authCode) -> httpClient.getAbs(builder.build(authCode));
+      return (httpClient, grant) -> httpClient.getAbs(grant.codeVerifier() == null ? builder.build(grant.code()) :
+        builder.build(grant.code(), grant.codeVerifier()));
     }
 
     @Override
-    public BiConsumer<HttpClientRequest, String> bodyWriter(AuthTokenRequestParameters params) {
-      return (request, authCode) -> {};
+    public BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter(AuthTokenRequestParameters params) {
+      return (request, grant) -> {};
     }
   },
   POST {
     @Override
-    public BiFunction<HttpClient, String, HttpClientRequest> factory(AuthTokenRequestParameters params) {
-      return (httpClient, authCode) -> httpClient.postAbs(params.authTokenUrl());
+    public BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> factory(AuthTokenRequestParameters params) {
+      return (httpClient, grant) -> httpClient.postAbs(params.authTokenUrl());
     }
 
     @Override
-    public BiConsumer<HttpClientRequest, String> bodyWriter(AuthTokenRequestParameters params) {
-      return (request, authCode) -> {
-        request.headers().add(CONTENT_TYPE,"application/x-www-form-urlencoded; charset=utf-8");
-        request.setChunked(true);
-        QueryStringEncoder enc = new QueryStringEncoder("");
-        enc.addParam(CLIENT_ID.paramName(), params.clientId());
-        enc.addParam(CLIENT_SECRET.paramName(), params.clientSecret());
-        enc.addParam(GRANT_TYPE.paramName(), Constants.GRANT_TYPE_AUTHORIZATION_CODE);
-        enc.addParam(REDIRECT_URI.paramName(), params.redirectUri());
-        enc.addParam(CODE.paramName(), authCode);
-        request.write(Buffer.buffer(enc.toString().substring(1)));
-    };
+    public BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter(AuthTokenRequestParameters params) {
+      return formBodyWriter(TokenRequestForm.bodyPrefix(params, true), null);
+    }
+  },
+  /**
+   * As POST, but the client authenticates with HTTP Basic authentication (client_secret_basic) rather than by
+   * sending its id and secret in the request body
+   */
+  POST_BASIC {
+    @Override
+    public BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> factory(AuthTokenRequestParameters params) {
+      return (httpClient, grant) -> httpClient.postAbs(params.authTokenUrl());
+    }
+
+    @Override
+    public BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter(AuthTokenRequestParameters params) {
+      return formBodyWriter(TokenRequestForm.bodyPrefix(params, false),
+        HttpHeaders.createOptimized(TokenRequestForm.basicAuthorization(params)));
+    }
+  },
+  /**
+   * Client credentials grant (RFC 6749 section 4.4), for a service obtaining a token as itself rather than for a
+   * user. There is no code; the scope of the grant passed to the factory and body writer is requested, or the
+   * client's default scope if it has none. The client id and secret are sent in the request body
+   */
+  CLIENT_CREDENTIALS {
+    @Override
+    public BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> factory(AuthTokenRequestParameters params) {
+      return (httpClient, grant) -> httpClient.postAbs(params.authTokenUrl());
+    }
+
+    @Override
+    public BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter(AuthTokenRequestParameters params) {
+      final Buffer prefix = Buffer.buffer(TokenRequestForm.clientCredentialsPrefix(params));
+      return (request, grant) -> {
+        final String scopeParam = TokenRequestForm.scopeParam(grant.scope());
+        final Buffer body = Buffer.buffer(prefix.length() + scopeParam.length()).appendBuffer(prefix)
+          .appendString(scopeParam);
+        request.putHeader(CONTENT_TYPE, FORM_CONTENT_TYPE);
+        request.putHeader(CONTENT_LENGTH, String.valueOf(body.length()));
+        request.write(body);
+      };
     }
   };
 
-  private static class Constants {
-    public static final String GRANT_TYPE_AUTHORIZATION_CODE = "authorization_code";
+  private static final CharSequence FORM_CONTENT_TYPE =
+    HttpHeaders.createOptimized("application/x-www-form-urlencoded; charset=utf-8");
+
+  /**
+   * Create a body writer which sends the pre-encoded body prefix followed by the encoded code, and code verifier
+   * with PKCE, as a single buffer with an exact content length
+   * @param bodyPrefix - the encoded body up to the code value
+   * @param authorization - the precomputed Authorization header value, or null to send none
+   * @return the body writer
+   */
+  private static BiConsumer<HttpClientRequest, AuthTokenGrant> formBodyWriter(final String bodyPrefix,
+                                                                              final CharSequence authorization) {
+    final Buffer prefix = Buffer.buffer(bodyPrefix);
+    return (request, grant) -> {
+      final String code = TokenRequestForm.encodeCode(grant.code());
+      final String codeVerifierParam = TokenRequestForm.codeVerifierParam(grant.codeVerifier());
+      final Buffer body = Buffer.buffer(prefix.length() + code.length() + codeVerifierParam.length())
+        .appendBuffer(prefix).appendString(code).appendString(codeVerifierParam);
+      request.putHeader(CONTENT_TYPE, FORM_CONTENT_TYPE);
+      request.putHeader(CONTENT_LENGTH, String.valueOf(body.length()));
+      if (authorization != null) {
+        request.putHeader(AUTHORIZATION, authorization);
+      }
+      request.write(body);
+    };
   }
 }
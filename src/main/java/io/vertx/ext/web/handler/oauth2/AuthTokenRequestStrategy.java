@@ -16,7 +16,9 @@ import java.util.function.BiFunction;
  * and are used in the creation of the factory function (which will be reused for each token retrieval call to that
  * provider)
  *
- * Those static parameters will be provided as an AuthTokenRequestParameters instance
+ * Those static parameters will be provided as an AuthTokenRequestParameters instance. The values which do vary - the
+ * code, its PKCE code verifier, or the scope of a client credentials request - are passed to the factory function and
+ * body writer as an AuthTokenGrant
  */
 public interface AuthTokenRequestStrategy {
 
@@ -27,7 +29,7 @@ public interface AuthTokenRequestStrategy {
    *                 OAuth2 provider
    * @return - the factory function
    */
-  BiFunction<HttpClient, String, HttpClientRequest> factory(AuthTokenRequestParameters params);
-  BiConsumer<HttpClientRequest, String> bodyWriter(AuthTokenRequestParameters params);
+  BiFunction<HttpClient, AuthTokenGrant, HttpClientRequest> factory(AuthTokenRequestParameters params);
+  BiConsumer<HttpClientRequest, AuthTokenGrant> bodyWriter(AuthTokenRequestParameters params);
 
 }
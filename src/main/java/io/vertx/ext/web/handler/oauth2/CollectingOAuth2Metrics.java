@@ -0,0 +1,30 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * OAuth2 metrics kept in memory - counters, the number of exchanges in flight, and latency histograms for token
+ * exchanges and session lookups. Recording is lock free, so the same instance can be given to every handler and
+ * provider in the Vert.x instance.
+ */
+public interface CollectingOAuth2Metrics extends OAuth2Metrics {
+
+  /**
+   * Take a snapshot of the metrics. Counters are cumulative; each histogram is summarised by its count, mean, maximum
+   * and percentiles, in milliseconds. The percentiles are the upper bounds of the histogram's power of two buckets,
+   * so are accurate to within a factor of two
+   * @return the snapshot
+   */
+  JsonObject snapshot();
+
+  /**
+   * Publish a snapshot on the event bus at a fixed interval, for collection by a monitoring verticle anywhere in the
+   * cluster
+   * @param vertx - the vertx instance
+   * @param address - the event bus address to publish to
+   * @param intervalMillis - the interval between snapshots
+   * @return the id of the periodic timer, to cancel publishing with
+   */
+  long publish(Vertx vertx, String address, long intervalMillis);
+}
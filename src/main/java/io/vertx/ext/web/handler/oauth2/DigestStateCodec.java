@@ -0,0 +1,45 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * State codec which hashes the state values with an unkeyed message digest and hex encodes the result. Digest
+ * instances are created once per thread and reused.
+ */
+final class DigestStateCodec implements OAuth2StateCodec {
+
+  static final DigestStateCodec MD5 = new DigestStateCodec("MD5");
+
+  private final String algorithm;
+  private final ThreadLocal<MessageDigest> digests;
+
+  private DigestStateCodec(final String algorithm) {
+    this.algorithm = algorithm;
+    this.digests = ThreadLocal.withInitial(this::newDigest);
+  }
+
+  @Override
+  public String encode(final String salt, final String sessionId, final String requestedUrl) {
+    final StateCodecBuffers buffers = StateCodecBuffers.get();
+    final int length = buffers.writeStateInput(salt, sessionId, requestedUrl);
+    final MessageDigest digest = digests.get();
+    try {
+      digest.update(buffers.input, 0, length);
+      final int hashLength = digest.digest(buffers.hash, 0, buffers.hash.length);
+      return buffers.hashToHex(hashLength);
+    } catch (DigestException e) {
+      digest.reset();
+      throw new RuntimeException("Could not generate State hash for oAuth2 authentication", e);
+    }
+  }
+
+  private MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("Could not generate State hash for oAuth2 authentication", e);
+    }
+  }
+}
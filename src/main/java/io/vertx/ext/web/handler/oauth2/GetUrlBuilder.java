@@ -1,13 +1,15 @@
 package io.vertx.ext.web.handler.oauth2;
 
 /**
- * Builder superclass to help with building of URL query portions for HttpClient requests
+ * Builder superclass to help with building of URL query portions for HttpClient requests. Parameter values are
+ * percent-encoded as they are appended.
  */
 public class GetUrlBuilder {
 
   private static final String PARAM_KEY_VAL_SEPARATOR = "=";
   private static final String FIRST_PARAM_DELIMITER = "?";
   private static final String SUBSEQUENT_PARAM_DELIMITER = "&";
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
 
   protected void appendFirstParam(final StringBuilder builder, final OAuth2Param param, final String paramValue) {
     appendParam(builder, FIRST_PARAM_DELIMITER, param, paramValue);
@@ -18,7 +20,63 @@ public class GetUrlBuilder {
   }
 
   private void appendParam(final StringBuilder builder, final String delimiter, final OAuth2Param param, final String paramValue) {
-    builder.append(delimiter).append(param.paramName()).append(PARAM_KEY_VAL_SEPARATOR).append(paramValue);
+    builder.append(delimiter).append(param.paramName()).append(PARAM_KEY_VAL_SEPARATOR);
+    appendEncoded(builder, paramValue);
+  }
+
+  /**
+   * Append a query parameter value, percent-encoding everything but the RFC 3986 unreserved characters. Non-ASCII
+   * characters are encoded as UTF-8
+   * @param builder - the builder to append to
+   * @param value - the value to encode, appended as "null" if null
+   */
+  static void appendEncoded(final StringBuilder builder, final String value) {
+    if (value == null) {
+      builder.append((String) null);
+      return;
+    }
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (isUnreserved(c)) {
+        builder.append(c);
+      } else if (c < 0x80) {
+        appendEscaped(builder, c);
+      } else {
+        final int codePoint = value.codePointAt(i);
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+          i++;
+        }
+        appendUtf8(builder, Character.isSurrogate(c) && !Character.isSupplementaryCodePoint(codePoint) ? '?' : codePoint);
+      }
+    }
+  }
+
+  private static boolean isUnreserved(final char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+      c == '-' || c == '.' || c == '_' || c == '~';
+  }
+
+  private static void appendUtf8(final StringBuilder builder, final int codePoint) {
+    if (codePoint < 0x80) {
+      appendEscaped(builder, codePoint);
+    } else if (codePoint < 0x800) {
+      appendEscaped(builder, 0xC0 | (codePoint >> 6));
+      appendEscaped(builder, 0x80 | (codePoint & 0x3F));
+    } else if (codePoint < 0x10000) {
+      appendEscaped(builder, 0xE0 | (codePoint >> 12));
+      appendEscaped(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+      appendEscaped(builder, 0x80 | (codePoint & 0x3F));
+    } else {
+      appendEscaped(builder, 0xF0 | (codePoint >> 18));
+      appendEscaped(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+      appendEscaped(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+      appendEscaped(builder, 0x80 | (codePoint & 0x3F));
+    }
+  }
+
+  private static void appendEscaped(final StringBuilder builder, final int b) {
+    builder.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
   }
 
   protected void validateParamNotNullOrEmpty(final String requiredValue, final String failureMsg) {
@@ -0,0 +1,59 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+
+/**
+ * State codec which signs the state values with HMAC-SHA256 and base64url encodes the result. Each codec keeps one
+ * initialised Mac per thread, so the key schedule is only computed once per thread.
+ */
+final class HmacStateCodec implements OAuth2StateCodec {
+
+  static final String ALGORITHM = "HmacSHA256";
+
+  private final ThreadLocal<Mac> macs;
+
+  HmacStateCodec(final byte[] key) {
+    Objects.requireNonNull(key, "HMAC key must not be null");
+    if (key.length == 0) {
+      throw new IllegalArgumentException("HMAC key must not be empty");
+    }
+    final SecretKeySpec keySpec = new SecretKeySpec(key, ALGORITHM);
+    this.macs = ThreadLocal.withInitial(() -> newMac(keySpec));
+    // Fail at construction rather than on the first request if the key or algorithm is unusable
+    macs.get();
+  }
+
+  @Override
+  public String encode(final String salt, final String sessionId, final String requestedUrl) {
+    final StateCodecBuffers buffers = StateCodecBuffers.get();
+    final int length = buffers.writeStateInput(salt, sessionId, requestedUrl);
+    final Mac mac = macs.get();
+    try {
+      mac.update(buffers.input, 0, length);
+      mac.doFinal(buffers.hash, 0);
+      return buffers.hashToBase64Url();
+    } catch (ShortBufferException e) {
+      mac.reset();
+      throw new RuntimeException("Could not generate State hash for oAuth2 authentication", e);
+    }
+  }
+
+  /**
+   * Create a Mac initialised with the given key
+   * @param keySpec - the key
+   * @return the initialised Mac
+   */
+  static Mac newMac(final SecretKeySpec keySpec) {
+    try {
+      final Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(keySpec);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException("Could not initialise " + ALGORITHM + " for oAuth2 state", e);
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.ext.auth.AuthProvider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Options class to hold the configuration for a multi-tenant OAuth2 handler - the OAuth2 handler options and auth
+ * provider of each tenant, and how a request is mapped to its tenant: by host, by path prefix, or by a header
+ * carrying the tenant id. A request is mapped by header first, then host, then the longest matching path prefix.
+ *
+ * Every tenant which redirects to its OAuth2 provider must use the same authentication result handler path, as the
+ * multi-tenant handler registers a single route for all of them.
+ */
+public class MultiTenantOAuth2HandlerOptions {
+
+  private final Map<String, OAuth2HandlerOptions> tenantOptions = new LinkedHashMap<>();
+  private final Map<String, AuthProvider> tenantAuthProviders = new LinkedHashMap<>();
+  private final Map<String, String> hosts = new LinkedHashMap<>();
+  private final Map<String, String> pathPrefixes = new LinkedHashMap<>();
+  private String tenantHeader = null;
+
+  /**
+   * Add a tenant
+   * @param tenantId - the tenant id
+   * @param authProvider - the tenant's auth provider, which must implement OAuth2AuthProvider
+   * @param options - the tenant's OAuth2 handler options - OAuth2 provider, client id and secret and so on
+   * @return a reference to this, so the API can be used fluently
+   */
+  public MultiTenantOAuth2HandlerOptions addTenant(final String tenantId, final AuthProvider authProvider,
+                                                   final OAuth2HandlerOptions options) {
+    Objects.requireNonNull(tenantId, "Tenant id must not be null");
+    tenantAuthProviders.put(tenantId, Objects.requireNonNull(authProvider, "Auth provider must not be null"));
+    tenantOptions.put(tenantId, Objects.requireNonNull(options, "Handler options must not be null"));
+    return this;
+  }
+
+  /**
+   * Map requests for a host to a tenant. Hosts are matched case insensitively, ignoring any port
+   * @param host - the host name
+   * @param tenantId - the tenant id
+   * @return a reference to this, so the API can be used fluently
+   */
+  public MultiTenantOAuth2HandlerOptions mapHost(final String host, final String tenantId) {
+    hosts.put(Objects.requireNonNull(host, "Host must not be null"),
+      Objects.requireNonNull(tenantId, "Tenant id must not be null"));
+    return this;
+  }
+
+  /**
+   * Map requests under a path prefix to a tenant. A prefix matches whole path segments only, so /acme matches
+   * /acme and /acme/home but not /acmeish
+   * @param pathPrefix - the path prefix, starting with a slash
+   * @param tenantId - the tenant id
+   * @return a reference to this, so the API can be used fluently
+   */
+  public MultiTenantOAuth2HandlerOptions mapPathPrefix(final String pathPrefix, final String tenantId) {
+    Objects.requireNonNull(pathPrefix, "Path prefix must not be null");
+    if (!pathPrefix.startsWith("/")) {
+      throw new IllegalArgumentException("Path prefix must start with /");
+    }
+    pathPrefixes.put(pathPrefix, Objects.requireNonNull(tenantId, "Tenant id must not be null"));
+    return this;
+  }
+
+  /**
+   * Map requests carrying the given header to the tenant whose id is its value - for requests arriving through a
+   * gateway which has already identified the tenant
+   * @param tenantHeader - the header name
+   * @return a reference to this, so the API can be used fluently
+   */
+  public MultiTenantOAuth2HandlerOptions setTenantHeader(final String tenantHeader) {
+    this.tenantHeader = tenantHeader;
+    return this;
+  }
+
+  /**
+   * Retrieve the tenants' OAuth2 handler options
+   * @return the handler options by tenant id
+   */
+  public Map<String, OAuth2HandlerOptions> tenantOptions() {
+    return Collections.unmodifiableMap(tenantOptions);
+  }
+
+  /**
+   * Retrieve the tenants' auth providers
+   * @return the auth providers by tenant id
+   */
+  public Map<String, AuthProvider> tenantAuthProviders() {
+    return Collections.unmodifiableMap(tenantAuthProviders);
+  }
+
+  /**
+   * Retrieve the hosts mapped to tenants
+   * @return the tenant ids by host
+   */
+  public Map<String, String> hosts() {
+    return Collections.unmodifiableMap(hosts);
+  }
+
+  /**
+   * Retrieve the path prefixes mapped to tenants
+   * @return the tenant ids by path prefix
+   */
+  public Map<String, String> pathPrefixes() {
+    return Collections.unmodifiableMap(pathPrefixes);
+  }
+
+  /**
+   * Retrieve the name of the header carrying the tenant id
+   * @return the header name, or null if tenants are not mapped by header
+   */
+  public String tenantHeader() {
+    return tenantHeader;
+  }
+}
@@ -0,0 +1,37 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.util.UUID;
+
+/**
+ * Source of the salt or nonce generated for each redirect to the OAuth2 provider - the salt of an OAuth2State, or the
+ * nonce carried by a SignedOAuth2State.
+ *
+ * A nonce is generated for every unauthenticated request, on the event loop, so implementations must neither block
+ * nor contend with other event loops. Instances are thread safe and are intended to be shared by all handlers.
+ */
+public interface NonceSource {
+
+  /**
+   * The default source - 16 random bytes, as 22 unpadded base64url chars. Each thread draws on its own generator,
+   * seeded once from the platform SecureRandom and read in bulk, so event loops never share a lock or wait on the
+   * entropy pool
+   * @return the striped source
+   */
+  static NonceSource striped() {
+    return StripedNonceSource.INSTANCE;
+  }
+
+  /**
+   * A random UUID, as 36 chars, as earlier versions of the handler generated. Every call goes through the one
+   * SecureRandom shared by the whole JVM
+   * @return the UUID source
+   */
+  static NonceSource uuid() {
+    return () -> UUID.randomUUID().toString();
+  }
+
+  /**
+   * @return a new nonce, unique to one authentication attempt
+   */
+  String nextNonce();
+}
@@ -42,6 +42,17 @@ public class OAuth2AuthUrlBuilder extends GetUrlBuilder {
    */
   private OAuth2State state = null;
 
+  /**
+   * A ready made state parameter value, used in place of the state object when set - for example a SignedOAuth2State
+   * value
+   */
+  private String stateValue = null;
+
+  /**
+   * The codec used to turn the state object into the state parameter value
+   */
+  private OAuth2StateCodec stateCodec = OAuth2StateCodec.md5();
+
   /**
    * Set the client id with which we are registered with the OAuth2 provider
    * @param newClientId - the client id to use
@@ -85,6 +96,26 @@ public class OAuth2AuthUrlBuilder extends GetUrlBuilder {
     return this;
   }
 
+  /**
+   * Set a ready made state parameter value, which will be used as is in place of the state object
+   * @param stateValue - the state parameter value
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2AuthUrlBuilder setStateValue(final String stateValue) {
+    this.stateValue = stateValue;
+    return this;
+  }
+
+  /**
+   * Set the codec used to convert the state object into the state parameter value. Defaults to the MD5 codec
+   * @param stateCodec - the state codec
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2AuthUrlBuilder setStateCodec(final OAuth2StateCodec stateCodec) {
+    this.stateCodec = stateCodec;
+    return this;
+  }
+
   /**
    * Generate the full redirect url for authentication, validating that required parameters are present
    * @return String - the redirect url for authentication, including our set of parameters
@@ -93,12 +124,15 @@ public class OAuth2AuthUrlBuilder extends GetUrlBuilder {
     validateParamNotNullOrEmpty(authenticationUrl, "Base authorization url must not be null or empty in OAuth2AuthUrlBuilder");
     validateParamNotNullOrEmpty(clientId, "Client id must not be null or empty in OAuth2AuthUrlBuilder");
     validateParamNotNullOrEmpty(redirectUri, "Redirect URI must not be null or empty in OAuth2AuthUrlBuilder");
-    validateParamNotNull(state, "State must not be null in OAuth2AuthUrlBuilder");
+    if (stateValue == null) {
+      validateParamNotNull(state, "State must not be null in OAuth2AuthUrlBuilder");
+      validateParamNotNull(stateCodec, "State codec must not be null in OAuth2AuthUrlBuilder");
+    }
 
     final StringBuilder builder = new StringBuilder(authenticationUrl);
     appendFirstParam(builder, CLIENT_ID, clientId);
     appendSubsequentParam(builder, REDIRECT_URI, redirectUri);
-    appendSubsequentParam(builder, STATE, state.toString());
+    appendSubsequentParam(builder, STATE, stateValue != null ? stateValue : state.encode(stateCodec));
     appendSubsequentParam(builder, RESPONSE_TYPE, RESPONSE_TYPE_CODE);
     return builder.toString();
   }
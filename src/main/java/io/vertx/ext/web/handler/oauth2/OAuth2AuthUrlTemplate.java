@@ -0,0 +1,80 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import static io.vertx.ext.web.handler.oauth2.OAuth2Param.*;
+
+/**
+ * Precompiled authentication redirect url, for handlers which redirect many users to the same OAuth2 provider. In the
+ * same way as OAuth2TokenGetUrlBuilder's core url, the parameters which are the same for every redirect - client id,
+ * redirect uri and response type - are validated and percent-encoded once, when the template is created. Building a
+ * redirect url then only encodes the per request values - the state, and optionally an OpenID Connect nonce and a
+ * PKCE code challenge - into a single, suitably sized builder.
+ *
+ * Instances are immutable and thread safe.
+ */
+public class OAuth2AuthUrlTemplate extends GetUrlBuilder {
+
+  private static final String RESPONSE_TYPE_CODE = "code";
+  private static final String CODE_CHALLENGE_METHOD_S256 = "S256";
+
+  /**
+   * The static part of the url, ending just before the state parameter's delimiter
+   */
+  private final String prefix;
+
+  /**
+   * Constructor
+   * @param authenticationUrl - the authentication url exposed by the OAuth2 provider
+   * @param clientId - the client id with which we are registered with the OAuth2 provider
+   * @param redirectUri - the url of our authentication result handler
+   */
+  public OAuth2AuthUrlTemplate(final String authenticationUrl, final String clientId, final String redirectUri) {
+    validateParamNotNullOrEmpty(authenticationUrl, "Base authorization url must not be null or empty in OAuth2AuthUrlTemplate");
+    validateParamNotNullOrEmpty(clientId, "Client id must not be null or empty in OAuth2AuthUrlTemplate");
+    validateParamNotNullOrEmpty(redirectUri, "Redirect URI must not be null or empty in OAuth2AuthUrlTemplate");
+
+    final StringBuilder builder = new StringBuilder(authenticationUrl);
+    appendFirstParam(builder, CLIENT_ID, clientId);
+    appendSubsequentParam(builder, REDIRECT_URI, redirectUri);
+    appendSubsequentParam(builder, RESPONSE_TYPE, RESPONSE_TYPE_CODE);
+    prefix = builder.toString();
+  }
+
+  /**
+   * Build a redirect url
+   * @param state - the state parameter value
+   * @return the redirect url
+   */
+  public String build(final String state) {
+    return build(state, null, null);
+  }
+
+  /**
+   * Build a redirect url
+   * @param state - the state parameter value
+   * @param nonce - the OpenID Connect nonce, or null to send none
+   * @param codeChallenge - the PKCE S256 code challenge, or null to send none
+   * @return the redirect url
+   */
+  public String build(final String state, final String nonce, final String codeChallenge) {
+    validateParamNotNullOrEmpty(state, "State must not be null or empty in OAuth2AuthUrlTemplate");
+    // Dynamic values are normally url safe already, so their encoded length is their length
+    int capacity = prefix.length() + 7 + state.length();
+    if (nonce != null) {
+      capacity += 7 + nonce.length();
+    }
+    if (codeChallenge != null) {
+      capacity += 16 + codeChallenge.length() + 23 + CODE_CHALLENGE_METHOD_S256.length();
+    }
+
+    final StringBuilder builder = new StringBuilder(capacity).append(prefix);
+    appendSubsequentParam(builder, STATE, state);
+    if (nonce != null) {
+      appendSubsequentParam(builder, NONCE, nonce);
+    }
+    if (codeChallenge != null) {
+      appendSubsequentParam(builder, CODE_CHALLENGE, codeChallenge);
+      appendSubsequentParam(builder, CODE_CHALLENGE_METHOD, CODE_CHALLENGE_METHOD_S256);
+    }
+    return builder.toString();
+  }
+}
@@ -1,7 +1,10 @@
 package io.vertx.ext.web.handler.oauth2;
 
+import io.vertx.core.http.HttpClientOptions;
+
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Objects;
 
 /**
  * Options class to hold the various configuration settings for an OAuth2 handler for the vertx/apex implementation
@@ -15,6 +18,61 @@ public class OAuth2HandlerOptions {
    */
   static final String DEFAULT_RETURN_URL_PARAM = "return_url";
 
+  /**
+   * Default maximum size of a token endpoint response - 64KiB
+   */
+  static final int DEFAULT_MAX_TOKEN_RESPONSE_BYTES = 64 * 1024;
+
+  /**
+   * Default time before expiry at which access tokens are refreshed - one minute
+   */
+  static final long DEFAULT_TOKEN_REFRESH_LEAD_MILLIS = 60 * 1000;
+
+  /**
+   * Default maximum random amount by which a token refresh is brought forward - thirty seconds
+   */
+  static final long DEFAULT_TOKEN_REFRESH_JITTER_MILLIS = 30 * 1000;
+
+  /**
+   * Default maximum number of token refreshes running at once
+   */
+  static final int DEFAULT_MAX_CONCURRENT_TOKEN_REFRESHES = 16;
+
+  /**
+   * Default time a token endpoint request may take - ten seconds
+   */
+  static final long DEFAULT_TOKEN_REQUEST_TIMEOUT_MILLIS = 10 * 1000;
+
+  /**
+   * Default maximum number of times a code exchange is retried
+   */
+  static final int DEFAULT_TOKEN_REQUEST_MAX_RETRIES = 2;
+
+  /**
+   * Default backoff before the first retry of a code exchange
+   */
+  static final long DEFAULT_TOKEN_REQUEST_RETRY_BACKOFF_MILLIS = 100;
+
+  /**
+   * Default number of consecutive token endpoint failures which opens the circuit breaker
+   */
+  static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+  /**
+   * Default time the circuit breaker stays open before letting a trial request through - thirty seconds
+   */
+  static final long DEFAULT_CIRCUIT_BREAKER_RESET_MILLIS = 30 * 1000;
+
+  /**
+   * Default maximum number of code exchanges waiting to start, when the number running at once is limited
+   */
+  static final int DEFAULT_MAX_QUEUED_EXCHANGES = 100;
+
+  /**
+   * Default time a code exchange may wait to start - five seconds
+   */
+  static final long DEFAULT_MAX_EXCHANGE_WAIT_MILLIS = 5 * 1000;
+
   /**
    * The url to which a user will be redirected for authentication - i.e. the OAuth2 provider's authentication
    * URL (which may also involve a login)
@@ -44,6 +102,11 @@ public class OAuth2HandlerOptions {
    */
   private final String authTokenUrl;
 
+  /**
+   * OpenID Connect discovery of the authentication and token urls, used in place of fixed urls when set
+   */
+  private final OpenIdDiscovery discovery;
+
   /**
    * The name of the session parameter to be used to hold the url originally requested by the client which triggered
    * the auth check. If the client was not already authenticated and the authentication is successful, they will be
@@ -57,6 +120,88 @@ public class OAuth2HandlerOptions {
    */
   private AuthTokenRequestProvider authTokenRequestFactoryProvider = AuthTokenRequestProvider.POST;
 
+  /**
+   * The codec used to generate the state parameter sent to, and echoed back by, the OAuth2 provider
+   */
+  private OAuth2StateCodec stateCodec = OAuth2StateCodec.md5();
+
+  /**
+   * The source of the salt or nonce generated for each redirect to the OAuth2 provider
+   */
+  private NonceSource nonceSource = NonceSource.striped();
+
+  /**
+   * The options for the http client used to exchange codes for tokens with the OAuth2 provider - pool size,
+   * keep alive, pipelining, connect and idle timeouts, SSL and so on
+   */
+  private HttpClientOptions httpClientOptions = new HttpClientOptions();
+
+  /**
+   * When set, the handler uses stateless signed state values rather than storing the state salt and return url in
+   * the session
+   */
+  private SignedOAuth2State signedState = null;
+
+  /**
+   * When true, the handler authenticates each request from the bearer token it carries, without sessions or
+   * redirects to the OAuth2 provider
+   */
+  private boolean bearerOnly = false;
+
+  /**
+   * The name of a query or form parameter which may carry the bearer token when there is no Authorization header,
+   * or null to accept the token from the header only
+   */
+  private String bearerTokenParam = null;
+
+  /**
+   * The largest token endpoint response accepted, in bytes - larger responses fail the authentication
+   */
+  private int maxTokenResponseBytes = DEFAULT_MAX_TOKEN_RESPONSE_BYTES;
+
+  /**
+   * When true, access tokens issued with a refresh token are renewed in the background before they expire
+   */
+  private boolean tokenRefresh = false;
+  private long tokenRefreshLeadMillis = DEFAULT_TOKEN_REFRESH_LEAD_MILLIS;
+  private long tokenRefreshJitterMillis = DEFAULT_TOKEN_REFRESH_JITTER_MILLIS;
+  private int maxConcurrentTokenRefreshes = DEFAULT_MAX_CONCURRENT_TOKEN_REFRESHES;
+
+  /**
+   * Where the handler, and its auth provider, record redirects, callbacks, code exchanges and their latency
+   */
+  private OAuth2Metrics metrics = OAuth2Metrics.NOOP;
+
+  /**
+   * Protection against a slow or failing token endpoint - per request timeout, retries of failures the OAuth2
+   * provider cannot have acted on, and a circuit breaker
+   */
+  private long tokenRequestTimeoutMillis = DEFAULT_TOKEN_REQUEST_TIMEOUT_MILLIS;
+  private int tokenRequestMaxRetries = DEFAULT_TOKEN_REQUEST_MAX_RETRIES;
+  private long tokenRequestRetryBackoffMillis = DEFAULT_TOKEN_REQUEST_RETRY_BACKOFF_MILLIS;
+  private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+  private long circuitBreakerResetMillis = DEFAULT_CIRCUIT_BREAKER_RESET_MILLIS;
+
+  /**
+   * Admission control for code exchanges - the maximum number running at once, 0 for no limit, and the queue in
+   * which further exchanges wait
+   */
+  private int maxConcurrentExchanges = 0;
+  private int maxQueuedExchanges = DEFAULT_MAX_QUEUED_EXCHANGES;
+  private long maxExchangeWaitMillis = DEFAULT_MAX_EXCHANGE_WAIT_MILLIS;
+
+  /**
+   * When true, redirects to the OAuth2 provider and back to the page originally requested carry
+   * Cache-Control: no-store, so no cache keeps a response which carries a state or authorization code
+   */
+  private boolean noStoreRedirects = false;
+
+  /**
+   * When true, authorization requests carry a PKCE (RFC 7636) S256 code challenge, and code exchanges the matching
+   * code verifier
+   */
+  private boolean pkce = false;
+
   /**
    * Constructor to create options from required fields
    * @param clientId the client id obtained for this application from the OAuth2 provider
@@ -71,6 +216,26 @@ public class OAuth2HandlerOptions {
     this.clientSecret = clientSecret;
     this.authResultHandlerUrl = authResultHandlerUrl;
     this.authTokenUrl = oAuth2TokenUrl;
+    this.discovery = null;
+  }
+
+  /**
+   * Constructor to create options which take the OAuth2 provider's authentication and token urls from its OpenID
+   * Connect discovery document, following them as the document is reloaded. Until the document is first loaded,
+   * users who need to log in are asked to come back shortly
+   * @param clientId the client id obtained for this application from the OAuth2 provider
+   * @param clientSecret the client secret obtained for this application from the OAuth2 provider
+   * @param authResultHandlerUrl the URL (typically exposed by our application) for handling the authentication result
+   * @param discovery the discovery of the OAuth2 provider's urls, which may be shared with the auth provider
+   */
+  public OAuth2HandlerOptions(final String clientId, final String clientSecret, final String authResultHandlerUrl,
+                              final OpenIdDiscovery discovery) {
+    this.authProviderRedirectUrl = null;
+    this.clientId = clientId;
+    this.clientSecret = clientSecret;
+    this.authResultHandlerUrl = authResultHandlerUrl;
+    this.authTokenUrl = null;
+    this.discovery = Objects.requireNonNull(discovery, "Discovery must not be null");
   }
 
   /**
@@ -88,9 +253,267 @@ public class OAuth2HandlerOptions {
     return this;
   }
 
+  /**
+   * Set the codec used to generate the state parameter. The default is an MD5 hash of the state values; use
+   * OAuth2StateCodec.hmacSha256 for a keyed state value
+   * @param stateCodec - the state codec
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setStateCodec(final OAuth2StateCodec stateCodec) {
+    this.stateCodec = Objects.requireNonNull(stateCodec, "State codec must not be null");
+    return this;
+  }
+
+  /**
+   * Set the source of the salt or nonce generated for each redirect to the OAuth2 provider. The default is
+   * NonceSource.striped; NonceSource.uuid generates the same form of salt as earlier versions
+   * @param nonceSource - the nonce source
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setNonceSource(final NonceSource nonceSource) {
+    this.nonceSource = Objects.requireNonNull(nonceSource, "Nonce source must not be null");
+    return this;
+  }
+
+  /**
+   * Set the options for the http client used to talk to the OAuth2 provider. Handlers in the same verticle instance
+   * with equal client options share a single client, and so a single connection pool. Note that the client's SSL
+   * setting must match the scheme of the auth token url
+   * @param httpClientOptions - the client options, which should not be changed after the handler is created
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setHttpClientOptions(final HttpClientOptions httpClientOptions) {
+    this.httpClientOptions = Objects.requireNonNull(httpClientOptions, "Http client options must not be null");
+    return this;
+  }
+
+  /**
+   * Use stateless signed state values, so that neither the redirect to the OAuth2 provider nor the validation of the
+   * authentication result touches the session. The state codec is not used in this mode
+   * @param signingKey - the HMAC-SHA256 key used to sign state values, shared by every server in the deployment
+   * @param ttlMillis - how long the user has to complete authentication with the OAuth2 provider
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setStatelessState(final byte[] signingKey, final long ttlMillis) {
+    this.signedState = new SignedOAuth2State(signingKey, ttlMillis);
+    return this;
+  }
+
+  /**
+   * Authenticate requests from the bearer token in their Authorization header, passing it straight to the auth
+   * provider - no session is needed, no cookie is set, and an unauthenticated request gets a 401 rather than a
+   * redirect to the OAuth2 provider. Intended for API clients; the auth provider must be able to verify a token
+   * on its own, as the JWT and introspection providers can, or creating the handler fails
+   * @param bearerOnly - true to authenticate from bearer tokens only
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setBearerOnly(final boolean bearerOnly) {
+    this.bearerOnly = bearerOnly;
+    return this;
+  }
+
+  /**
+   * Also accept the bearer token from a query or form parameter (RFC 6750 section 2.2 and 2.3), for clients which
+   * cannot set an Authorization header. Only used in bearer only mode
+   * @param bearerTokenParam - the parameter name, typically access_token
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setBearerTokenParam(final String bearerTokenParam) {
+    this.bearerTokenParam = bearerTokenParam;
+    return this;
+  }
+
+  /**
+   * Set the largest token endpoint response accepted. Responses carrying an id token and extra claims can be large,
+   * but a response bigger than this fails the authentication rather than being buffered
+   * @param maxTokenResponseBytes - the maximum response size in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setMaxTokenResponseBytes(final int maxTokenResponseBytes) {
+    if (maxTokenResponseBytes <= 0) {
+      throw new IllegalArgumentException("Maximum token response size must be positive");
+    }
+    this.maxTokenResponseBytes = maxTokenResponseBytes;
+    return this;
+  }
+
+  /**
+   * Renew access tokens issued with a refresh token in the background, shortly before they expire, so users are not
+   * sent back to the OAuth2 provider to log in again. The auth provider must support updating a session's tokens
+   * outside a request, as SimpleOAuth2Provider does
+   * @param tokenRefresh - true to refresh tokens in the background
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setTokenRefresh(final boolean tokenRefresh) {
+    this.tokenRefresh = tokenRefresh;
+    return this;
+  }
+
+  /**
+   * Set how long before an access token expires it is refreshed
+   * @param tokenRefreshLeadMillis - the lead time in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setTokenRefreshLeadMillis(final long tokenRefreshLeadMillis) {
+    this.tokenRefreshLeadMillis = tokenRefreshLeadMillis;
+    return this;
+  }
+
+  /**
+   * Set the most by which a refresh is randomly brought forward, spreading out the refreshes of tokens which were
+   * issued at the same time
+   * @param tokenRefreshJitterMillis - the jitter in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setTokenRefreshJitterMillis(final long tokenRefreshJitterMillis) {
+    this.tokenRefreshJitterMillis = tokenRefreshJitterMillis;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of token refreshes running at once - further refreshes wait their turn
+   * @param maxConcurrentTokenRefreshes - the maximum number of refreshes
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setMaxConcurrentTokenRefreshes(final int maxConcurrentTokenRefreshes) {
+    if (maxConcurrentTokenRefreshes <= 0) {
+      throw new IllegalArgumentException("Maximum concurrent token refreshes must be positive");
+    }
+    this.maxConcurrentTokenRefreshes = maxConcurrentTokenRefreshes;
+    return this;
+  }
+
+  /**
+   * Set the metrics the handler records into. The handler also passes them to its auth provider, for the provider's
+   * own metrics such as session lookup latency. Use OAuth2Metrics.create for in memory metrics which can be published
+   * on the event bus, or implement OAuth2Metrics to bridge to a metrics library
+   * @param metrics - the metrics
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setMetrics(final OAuth2Metrics metrics) {
+    this.metrics = Objects.requireNonNull(metrics, "Metrics must not be null");
+    return this;
+  }
+
+  /**
+   * Set how long a request to the token endpoint - a code exchange or a token refresh - may take before it fails,
+   * so that a hung OAuth2 provider does not hold callbacks and connections indefinitely
+   * @param tokenRequestTimeoutMillis - the timeout in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setTokenRequestTimeoutMillis(final long tokenRequestTimeoutMillis) {
+    if (tokenRequestTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Token request timeout must be positive");
+    }
+    this.tokenRequestTimeoutMillis = tokenRequestTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * Set the most times a code exchange is retried. Only failures which mean the OAuth2 provider cannot have seen the
+   * code - a connection which could not be made, or a 503 response - are retried, as a code can only be used once
+   * @param tokenRequestMaxRetries - the maximum number of retries, or 0 for none
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setTokenRequestMaxRetries(final int tokenRequestMaxRetries) {
+    if (tokenRequestMaxRetries < 0) {
+      throw new IllegalArgumentException("Token request retries must not be negative");
+    }
+    this.tokenRequestMaxRetries = tokenRequestMaxRetries;
+    return this;
+  }
+
+  /**
+   * Set the backoff before the first retry of a code exchange. It doubles for each further retry, and half of it is
+   * random so that callbacks which failed together do not retry together
+   * @param tokenRequestRetryBackoffMillis - the backoff in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setTokenRequestRetryBackoffMillis(final long tokenRequestRetryBackoffMillis) {
+    if (tokenRequestRetryBackoffMillis < 0) {
+      throw new IllegalArgumentException("Token request retry backoff must not be negative");
+    }
+    this.tokenRequestRetryBackoffMillis = tokenRequestRetryBackoffMillis;
+    return this;
+  }
+
+  /**
+   * Configure the token endpoint circuit breaker. After the given number of consecutive failures - connection
+   * failures, timeouts and 5xx responses - code exchanges fail straight away for the reset time, after which a single
+   * trial exchange decides whether the breaker closes again
+   * @param failureThreshold - the number of consecutive failures which opens the breaker, or 0 to disable it
+   * @param resetMillis - how long the breaker stays open before a trial exchange
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setCircuitBreaker(final int failureThreshold, final long resetMillis) {
+    if (failureThreshold < 0) {
+      throw new IllegalArgumentException("Circuit breaker failure threshold must not be negative");
+    }
+    if (resetMillis <= 0) {
+      throw new IllegalArgumentException("Circuit breaker reset time must be positive");
+    }
+    this.circuitBreakerFailureThreshold = failureThreshold;
+    this.circuitBreakerResetMillis = resetMillis;
+    return this;
+  }
+
+  /**
+   * Limit the number of code exchanges the handler runs at once. Exchanges beyond the limit wait in a bounded queue;
+   * a callback whose exchange finds the queue full, or waits too long, gets a 503 with a Retry-After header, and its
+   * code can still be used when the user retries
+   * @param maxConcurrentExchanges - the maximum number of exchanges running at once, or 0 for no limit
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setMaxConcurrentExchanges(final int maxConcurrentExchanges) {
+    if (maxConcurrentExchanges < 0) {
+      throw new IllegalArgumentException("Maximum concurrent exchanges must not be negative");
+    }
+    this.maxConcurrentExchanges = maxConcurrentExchanges;
+    return this;
+  }
+
+  /**
+   * Set the queue in which code exchanges wait when the maximum number are already running
+   * @param maxQueuedExchanges - the maximum number of exchanges waiting, or 0 to reject straight away
+   * @param maxExchangeWaitMillis - how long an exchange may wait before it is rejected
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setExchangeQueue(final int maxQueuedExchanges, final long maxExchangeWaitMillis) {
+    if (maxQueuedExchanges < 0) {
+      throw new IllegalArgumentException("Maximum queued exchanges must not be negative");
+    }
+    if (maxExchangeWaitMillis <= 0) {
+      throw new IllegalArgumentException("Maximum exchange wait must be positive");
+    }
+    this.maxQueuedExchanges = maxQueuedExchanges;
+    this.maxExchangeWaitMillis = maxExchangeWaitMillis;
+    return this;
+  }
+
+  /**
+   * Set whether the handler's redirects carry Cache-Control: no-store
+   * @param noStoreRedirects - true to forbid caches from storing redirects
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setNoStoreRedirects(final boolean noStoreRedirects) {
+    this.noStoreRedirects = noStoreRedirects;
+    return this;
+  }
+
+  /**
+   * Set whether the handler uses PKCE (RFC 7636) with the S256 challenge method. The code verifier is kept in the
+   * session or, with a signed state, derived from the state value with its key, so it needs no session at all
+   * @param pkce - true to send a code challenge with each authorization request
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OAuth2HandlerOptions setPkce(final boolean pkce) {
+    this.pkce = pkce;
+    return this;
+  }
+
   /**
    * Retrieve the authentication url for the OAuth2 provider
-   * @return the authentication url
+   * @return the authentication url, or null if it is discovered
    */
   public String authProviderRedirectUrl() {
     return authProviderRedirectUrl;
@@ -98,12 +521,21 @@ public class OAuth2HandlerOptions {
 
   /**
    * Retrieve the auth token url for the OAuth2 provider
-   * @return the url to hit to get an auth token from a code supplied during authentication
+   * @return the url to hit to get an auth token from a code supplied during authentication, or null if it is
+   * discovered
    */
   public String authTokenUrl() {
     return authTokenUrl;
   }
 
+  /**
+   * Retrieve the discovery of the OAuth2 provider's urls
+   * @return the discovery, or null if the options were created with fixed urls
+   */
+  public OpenIdDiscovery discovery() {
+    return discovery;
+  }
+
   /**
    * Retrieve the name of the session parameter into which the url the user attempted to access is stored
    * @return the name of the session parameter
@@ -147,6 +579,182 @@ public class OAuth2HandlerOptions {
     return authTokenRequestFactoryProvider;
   }
 
+  /**
+   * Retrieve the codec used to generate the state parameter
+   * @return the state codec
+   */
+  public OAuth2StateCodec stateCodec() {
+    return stateCodec;
+  }
+
+  /**
+   * Retrieve the source of the salt or nonce generated for each redirect to the OAuth2 provider
+   * @return the nonce source
+   */
+  public NonceSource nonceSource() {
+    return nonceSource;
+  }
+
+  /**
+   * Retrieve the options for the http client used to talk to the OAuth2 provider
+   * @return the http client options
+   */
+  public HttpClientOptions httpClientOptions() {
+    return httpClientOptions;
+  }
+
+  /**
+   * Retrieve the signer for stateless state values
+   * @return the signer, or null if state is held in the session
+   */
+  public SignedOAuth2State signedState() {
+    return signedState;
+  }
+
+  /**
+   * Retrieve whether requests are authenticated from bearer tokens only
+   * @return true if in bearer only mode
+   */
+  public boolean bearerOnly() {
+    return bearerOnly;
+  }
+
+  /**
+   * Retrieve the name of the parameter which may carry the bearer token
+   * @return the parameter name, or null if the token is only accepted from the Authorization header
+   */
+  public String bearerTokenParam() {
+    return bearerTokenParam;
+  }
+
+  /**
+   * Retrieve the largest token endpoint response accepted
+   * @return the maximum response size in bytes
+   */
+  public int maxTokenResponseBytes() {
+    return maxTokenResponseBytes;
+  }
+
+  /**
+   * Retrieve whether access tokens are refreshed in the background
+   * @return true if tokens are refreshed
+   */
+  public boolean tokenRefresh() {
+    return tokenRefresh;
+  }
+
+  /**
+   * Retrieve how long before expiry access tokens are refreshed
+   * @return the lead time in milliseconds
+   */
+  public long tokenRefreshLeadMillis() {
+    return tokenRefreshLeadMillis;
+  }
+
+  /**
+   * Retrieve the most by which a refresh is randomly brought forward
+   * @return the jitter in milliseconds
+   */
+  public long tokenRefreshJitterMillis() {
+    return tokenRefreshJitterMillis;
+  }
+
+  /**
+   * Retrieve the maximum number of token refreshes running at once
+   * @return the maximum number of refreshes
+   */
+  public int maxConcurrentTokenRefreshes() {
+    return maxConcurrentTokenRefreshes;
+  }
+
+  /**
+   * Retrieve the metrics the handler records into
+   * @return the metrics, OAuth2Metrics.NOOP unless set
+   */
+  public OAuth2Metrics metrics() {
+    return metrics;
+  }
+
+  /**
+   * Retrieve how long a request to the token endpoint may take
+   * @return the timeout in milliseconds
+   */
+  public long tokenRequestTimeoutMillis() {
+    return tokenRequestTimeoutMillis;
+  }
+
+  /**
+   * Retrieve the most times a code exchange is retried
+   * @return the maximum number of retries
+   */
+  public int tokenRequestMaxRetries() {
+    return tokenRequestMaxRetries;
+  }
+
+  /**
+   * Retrieve the backoff before the first retry of a code exchange
+   * @return the backoff in milliseconds
+   */
+  public long tokenRequestRetryBackoffMillis() {
+    return tokenRequestRetryBackoffMillis;
+  }
+
+  /**
+   * Retrieve the number of consecutive token endpoint failures which opens the circuit breaker
+   * @return the failure threshold, 0 if the breaker is disabled
+   */
+  public int circuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  /**
+   * Retrieve how long the circuit breaker stays open before a trial exchange
+   * @return the reset time in milliseconds
+   */
+  public long circuitBreakerResetMillis() {
+    return circuitBreakerResetMillis;
+  }
+
+  /**
+   * Retrieve the maximum number of code exchanges running at once
+   * @return the maximum number of exchanges, 0 if there is no limit
+   */
+  public int maxConcurrentExchanges() {
+    return maxConcurrentExchanges;
+  }
+
+  /**
+   * Retrieve the maximum number of code exchanges waiting to start
+   * @return the maximum number of exchanges waiting
+   */
+  public int maxQueuedExchanges() {
+    return maxQueuedExchanges;
+  }
+
+  /**
+   * Retrieve how long a code exchange may wait to start
+   * @return the maximum wait in milliseconds
+   */
+  public long maxExchangeWaitMillis() {
+    return maxExchangeWaitMillis;
+  }
+
+  /**
+   * Retrieve whether the handler's redirects carry Cache-Control: no-store
+   * @return true if caches are forbidden from storing redirects
+   */
+  public boolean noStoreRedirects() {
+    return noStoreRedirects;
+  }
+
+  /**
+   * Retrieve whether the handler uses PKCE
+   * @return true if authorization requests carry a code challenge
+   */
+  public boolean pkce() {
+    return pkce;
+  }
+
   /**
    * Retrieve the path part url for handling the auth result. This is given to a local handler configuration within
    * the Apex routing subsystem for our application, so that we can handle the result of the authentication attempt
@@ -0,0 +1,151 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.ext.web.handler.impl.CollectingOAuth2MetricsImpl;
+
+/**
+ * Metrics SPI for the OAuth2 handler and auth providers. Every method has an empty default, so an implementation
+ * bridging to a metrics library - Dropwizard, Micrometer or anything else - only overrides the events it records.
+ *
+ * Methods are called on event loop threads, in the middle of handling a request, so implementations must be thread
+ * safe and must not block. Latencies are given in nanoseconds.
+ */
+public interface OAuth2Metrics {
+
+  /**
+   * Metrics which record nothing - the default
+   */
+  OAuth2Metrics NOOP = new OAuth2Metrics() {
+  };
+
+  /**
+   * Create metrics which keep counters and latency histograms in memory, and can publish them on the event bus
+   * @return the metrics
+   */
+  static CollectingOAuth2Metrics create() {
+    return new CollectingOAuth2MetricsImpl();
+  }
+
+  /**
+   * The outcome of exchanging an authorization code for a token
+   */
+  enum ExchangeOutcome {
+    /**
+     * The OAuth2 provider issued an access token
+     */
+    SUCCESS,
+    /**
+     * The OAuth2 provider answered without an access token - typically rejecting the code
+     */
+    REJECTED,
+    /**
+     * The OAuth2 provider could not be reached, did not answer in time, or the connection failed before it answered
+     */
+    ERROR,
+    /**
+     * The token endpoint circuit breaker was open, so the OAuth2 provider was not contacted
+     */
+    CIRCUIT_OPEN
+  }
+
+  /**
+   * The state of the token endpoint circuit breaker
+   */
+  enum CircuitState {
+    /**
+     * Requests are sent to the token endpoint
+     */
+    CLOSED,
+    /**
+     * The token endpoint is failing, and requests fail without being sent
+     */
+    OPEN,
+    /**
+     * A single trial request is being let through to find out whether the token endpoint has recovered
+     */
+    HALF_OPEN
+  }
+
+  /**
+   * A user was redirected to the OAuth2 provider to authenticate
+   */
+  default void redirectIssued() {
+  }
+
+  /**
+   * The OAuth2 provider redirected a user back to the authentication result handler
+   */
+  default void callbackReceived() {
+  }
+
+  /**
+   * A callback carried a state value which did not match the one issued, and was rejected
+   */
+  default void stateMismatch() {
+  }
+
+  /**
+   * An exchange of an authorization code for a token was sent to the OAuth2 provider
+   */
+  default void exchangeStarted() {
+  }
+
+  /**
+   * An exchange of an authorization code for a token completed
+   * @param outcome - how it completed
+   * @param latencyNanos - the time from sending the request to reading the whole response
+   */
+  default void exchangeCompleted(final ExchangeOutcome outcome, final long latencyNanos) {
+  }
+
+  /**
+   * A code exchange was admitted by the exchange bulkhead and started
+   * @param waitNanos - how long it waited in the queue, 0 if it started straight away
+   */
+  default void exchangeAdmitted(final long waitNanos) {
+  }
+
+  /**
+   * A code exchange was rejected by the exchange bulkhead, because the queue was full or its wait ran out
+   */
+  default void exchangeRejected() {
+  }
+
+  /**
+   * The number of code exchanges waiting in the exchange bulkhead's queue changed
+   * @param depth - the number now waiting
+   */
+  default void exchangeQueueDepth(final int depth) {
+  }
+
+  /**
+   * A token endpoint request failed in a way which is safe to repeat, and is being retried
+   */
+  default void tokenRequestRetried() {
+  }
+
+  /**
+   * The token endpoint circuit breaker changed state
+   * @param state - the new state
+   */
+  default void circuitStateChanged(final CircuitState state) {
+  }
+
+  /**
+   * The auth provider authenticated a request
+   */
+  default void authenticateHit() {
+  }
+
+  /**
+   * The auth provider could not authenticate a request
+   */
+  default void authenticateMiss() {
+  }
+
+  /**
+   * An auth provider looked a session up in the session store
+   * @param latencyNanos - the time the lookup took
+   */
+  default void sessionLookup(final long latencyNanos) {
+  }
+}
@@ -11,7 +11,11 @@ public enum OAuth2Param {
   REDIRECT_URI("redirect_uri"),
   CODE("code"),
   STATE("state"),
-  RESPONSE_TYPE("response_type");
+  RESPONSE_TYPE("response_type"),
+  NONCE("nonce"),
+  CODE_CHALLENGE("code_challenge"),
+  CODE_CHALLENGE_METHOD("code_challenge_method"),
+  CODE_VERIFIER("code_verifier");
 
   private final String paramName;
 
@@ -1,9 +1,5 @@
 package io.vertx.ext.web.handler.oauth2;
 
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
 /**
  * Class to generate the state parameter for an OAuth2 authentication request, knowing a specific set of parameters.
  * For our apex OAuth2 implementation, these parameters will be held within the user session, so that we can
@@ -12,11 +8,6 @@ import java.security.NoSuchAlgorithmException;
  */
 public class OAuth2State {
 
-  /**
-   * The delimiter we'll use when hashing our parameters to a single state parameter
-   */
-  private static final String DELIMITER = "|";
-
   /**
    * The url requested by the user which triggered the authentication check. This would normally be a private URL within
    * our application. It's not always possible to predict which URL a given user will try to hit, so this is a good
@@ -53,34 +44,18 @@ public class OAuth2State {
    * we can use to decorate our redirect to the OAuth2 server, and also validate using the session contents as part
    * of our validation of the OAuth2 authentication result (since the state parameter is echoed back to us by the
    * OAuth2 authenticator)
-   * @return the state hash to be used to decorate the redirect
+   * @return the state hash to be used to decorate the redirect, using the default MD5 codec
    */
   public String toString() {
-
-    // Hash the state object
-    StringBuilder buffer = new StringBuilder()
-      .append(salt)
-      .append(DELIMITER)
-      .append(sessionId)
-      .append(DELIMITER)
-      .append(requestedUrl);
-    try {
-      MessageDigest digest = MessageDigest.getInstance("MD5");
-      byte[] hashedBytes = digest.digest(buffer.toString().getBytes("UTF-8"));
-      return convertByteArrayToHexString(hashedBytes);
-    } catch (NoSuchAlgorithmException | UnsupportedEncodingException ex) {
-      throw new RuntimeException("Could not generate State hash for oAuth2 authentication");
-    }
-
-
+    return encode(OAuth2StateCodec.md5());
   }
 
-  private static String convertByteArrayToHexString(byte[] arrayBytes) {
-    StringBuilder buffer = new StringBuilder();
-    for (byte arrayByte : arrayBytes) {
-      buffer.append(Integer.toString((arrayByte & 0xff) + 0x100, 16)
-        .substring(1));
-    }
-    return buffer.toString();
+  /**
+   * Hash the three parameters together using the given codec
+   * @param codec - the codec with which to generate the state value
+   * @return the state hash to be used to decorate the redirect
+   */
+  public String encode(final OAuth2StateCodec codec) {
+    return codec.encode(salt, sessionId, requestedUrl);
   }
 }
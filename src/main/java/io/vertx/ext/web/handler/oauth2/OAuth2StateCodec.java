@@ -0,0 +1,58 @@
+package io.vertx.ext.web.handler.oauth2;
+
+/**
+ * Strategy for turning the values which make up the OAuth2 state (the salt, session id and requested url - see
+ * OAuth2State) into the state parameter value which is sent to the OAuth2 provider and echoed back to us.
+ *
+ * Codecs are called on the event loop for every redirect to the provider and every authentication result, so
+ * implementations reuse their digest or MAC instances and working buffers per thread rather than allocating them
+ * per call. Instances are thread safe and are intended to be shared by all handlers.
+ */
+public interface OAuth2StateCodec {
+
+  /**
+   * The default codec - an MD5 hash of the state values, as a lower case hex string. This produces exactly the same
+   * state values as earlier versions of OAuth2State.
+   * @return the MD5 codec
+   */
+  static OAuth2StateCodec md5() {
+    return DigestStateCodec.MD5;
+  }
+
+  /**
+   * A keyed codec - an HMAC-SHA256 of the state values using a server side key, as an unpadded base64url string.
+   * Unlike the plain digest, the state value cannot be recomputed by anyone who learns the salt and session id.
+   * @param key - the HMAC key, which should be at least 32 random bytes and kept secret
+   * @return the HMAC codec
+   */
+  static OAuth2StateCodec hmacSha256(final byte[] key) {
+    return new HmacStateCodec(key);
+  }
+
+  /**
+   * Encode the state values into a state parameter value
+   * @param salt - the salt generated for this authentication attempt
+   * @param sessionId - the current session id
+   * @param requestedUrl - the url which triggered the authentication attempt
+   * @return the state parameter value
+   */
+  String encode(String salt, String sessionId, String requestedUrl);
+
+  /**
+   * Compare an expected state value with one received from the OAuth2 provider, in time which does not depend on
+   * where the two values differ
+   * @param expected - the state value we computed
+   * @param received - the state value echoed back to us, may be null
+   * @return true if the two values are identical
+   */
+  default boolean matches(final String expected, final String received) {
+    if (expected == null || received == null || expected.length() != received.length()) {
+      return false;
+    }
+    int diff = 0;
+    for (int i = 0; i < expected.length(); i++) {
+      diff |= expected.charAt(i) ^ received.charAt(i);
+    }
+    return diff == 0;
+  }
+}
@@ -43,4 +43,17 @@ class OAuth2TokenGetUrlBuilder extends GetUrlBuilder {
     return builder.toString();
   }
 
+  /**
+   * Build the url for exchanging a code with PKCE
+   * @param code - the authorization code
+   * @param codeVerifier - the code verifier sent with the authorization request's challenge
+   * @return the url
+   */
+  public String build(final String code, final String codeVerifier) {
+    validateParamNotNullOrEmpty(codeVerifier, "Code verifier must not be null or empty in OAuth2TokenGetUrlBuilder");
+    final StringBuilder builder = new StringBuilder(build(code));
+    appendSubsequentParam(builder, CODE_VERIFIER, codeVerifier);
+    return builder.toString();
+  }
+
 }
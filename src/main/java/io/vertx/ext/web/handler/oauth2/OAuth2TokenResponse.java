@@ -0,0 +1,404 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fields of an OAuth2 token endpoint response (RFC 6749 section 5.1) which we use: access_token, token_type,
+ * expires_in, refresh_token, scope and id_token.
+ *
+ * Responses are read by a targeted parser working directly on the response bytes. It walks the top level object
+ * once, decoding only the values of the fields above and skipping everything else - so a large id_token we do not
+ * need, or extra claims, cost a scan rather than a String and a JSON tree each.
+ */
+public class OAuth2TokenResponse {
+
+  private static final byte[] ACCESS_TOKEN = bytes("access_token");
+  private static final byte[] TOKEN_TYPE = bytes("token_type");
+  private static final byte[] EXPIRES_IN = bytes("expires_in");
+  private static final byte[] REFRESH_TOKEN = bytes("refresh_token");
+  private static final byte[] ID_TOKEN = bytes("id_token");
+  private static final byte[] SCOPE = bytes("scope");
+
+  /**
+   * Value of expiresIn when the response did not say when the token expires
+   */
+  public static final long UNKNOWN_EXPIRY = -1;
+
+  /**
+   * Largest lifetime reported by expiresIn, in seconds - about 68 years. Longer lifetimes are clamped to it, so the
+   * lifetime can always be converted to milliseconds and added to the current time without overflowing
+   */
+  public static final long MAX_EXPIRES_IN = Integer.MAX_VALUE;
+
+  private final String accessToken;
+  private final String tokenType;
+  private final long expiresIn;
+  private final String refreshToken;
+  private final String idToken;
+  private final String scope;
+
+  public OAuth2TokenResponse(final String accessToken, final String tokenType, final long expiresIn,
+                             final String refreshToken, final String idToken) {
+    this(accessToken, tokenType, expiresIn, refreshToken, idToken, null);
+  }
+
+  public OAuth2TokenResponse(final String accessToken, final String tokenType, final long expiresIn,
+                             final String refreshToken, final String idToken, final String scope) {
+    this.accessToken = accessToken;
+    this.tokenType = tokenType;
+    this.expiresIn = expiresIn;
+    this.refreshToken = refreshToken;
+    this.idToken = idToken;
+    this.scope = scope;
+  }
+
+  /**
+   * Parse a token endpoint response body
+   * @param body - the response body
+   * @return the parsed response, whose fields are null if not present
+   * @throws IllegalArgumentException if the body is not a JSON object, or its expires_in is negative
+   */
+  public static OAuth2TokenResponse parse(final Buffer body) {
+    final byte[] bytes = body.getBytes();
+    return new Parser(bytes, bytes.length).parse();
+  }
+
+  /**
+   * Parse a token endpoint response body held in an array
+   * @param bytes - the array holding the body
+   * @param length - the length of the body
+   * @return the parsed response, whose fields are null if not present
+   * @throws IllegalArgumentException if the body is not a JSON object, or its expires_in is negative
+   */
+  public static OAuth2TokenResponse parse(final byte[] bytes, final int length) {
+    return new Parser(bytes, length).parse();
+  }
+
+  /**
+   * @return the access token, or null if the response did not carry one
+   */
+  public String accessToken() {
+    return accessToken;
+  }
+
+  /**
+   * @return the token type, usually Bearer, or null if not present
+   */
+  public String tokenType() {
+    return tokenType;
+  }
+
+  /**
+   * @return the lifetime of the access token in seconds, at most MAX_EXPIRES_IN, or UNKNOWN_EXPIRY if not present
+   */
+  public long expiresIn() {
+    return expiresIn;
+  }
+
+  /**
+   * @return the refresh token, or null if not present
+   */
+  public String refreshToken() {
+    return refreshToken;
+  }
+
+  /**
+   * @return the OpenID Connect id token, or null if not present
+   */
+  public String idToken() {
+    return idToken;
+  }
+
+  /**
+   * @return the space separated scopes granted, or null if the response did not say - in which case they are the
+   * scopes requested
+   */
+  public String scope() {
+    return scope;
+  }
+
+  private static byte[] bytes(final String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Single pass parser over the top level object of a response. Values of fields we do not want are validated only
+   * as far as is needed to find where they end
+   */
+  private static final class Parser {
+    private final byte[] bytes;
+    private final int length;
+    private int pos;
+
+    private String accessToken;
+    private String tokenType;
+    private long expiresIn = UNKNOWN_EXPIRY;
+    private String refreshToken;
+    private String idToken;
+    private String scope;
+
+    private Parser(final byte[] bytes, final int length) {
+      this.bytes = bytes;
+      this.length = length;
+    }
+
+    private OAuth2TokenResponse parse() {
+      expect('{');
+      if (peek() == '}') {
+        pos++;
+      } else {
+        do {
+          field();
+        } while (next() == ',');
+        if (bytes[pos - 1] != '}') {
+          throw malformed();
+        }
+      }
+      if (skipWhitespace() != length) {
+        throw malformed();
+      }
+      return new OAuth2TokenResponse(accessToken, tokenType, expiresIn, refreshToken, idToken, scope);
+    }
+
+    private void field() {
+      expect('"');
+      final int keyStart = pos;
+      final boolean escaped = skipString();
+      final int keyEnd = pos - 1;
+      expect(':');
+      final byte first = peek();
+      if (escaped) {
+        skipValue();
+      } else if (matches(keyStart, keyEnd, ACCESS_TOKEN)) {
+        accessToken = stringValue(first);
+      } else if (matches(keyStart, keyEnd, TOKEN_TYPE)) {
+        tokenType = stringValue(first);
+      } else if (matches(keyStart, keyEnd, REFRESH_TOKEN)) {
+        refreshToken = stringValue(first);
+      } else if (matches(keyStart, keyEnd, ID_TOKEN)) {
+        idToken = stringValue(first);
+      } else if (matches(keyStart, keyEnd, SCOPE)) {
+        scope = stringValue(first);
+      } else if (matches(keyStart, keyEnd, EXPIRES_IN)) {
+        expiresIn = longValue(first);
+      } else {
+        skipValue();
+      }
+    }
+
+    private boolean matches(final int start, final int end, final byte[] name) {
+      if (end - start != name.length) {
+        return false;
+      }
+      for (int i = 0; i < name.length; i++) {
+        if (bytes[start + i] != name[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Read a string value, or skip over a null
+     */
+    private String stringValue(final byte first) {
+      if (first == 'n') {
+        skipValue();
+        return null;
+      }
+      if (first != '"') {
+        throw malformed();
+      }
+      pos++;
+      return readString();
+    }
+
+    /**
+     * Read a lifetime in seconds - some providers send expires_in as a string, so that is accepted too. Any fraction
+     * is dropped, lifetimes beyond MAX_EXPIRES_IN are clamped to it, and negative lifetimes are rejected
+     */
+    private long longValue(final byte first) {
+      if (first == 'n') {
+        skipValue();
+        return UNKNOWN_EXPIRY;
+      }
+      final int start;
+      final int end;
+      if (first == '"') {
+        start = ++pos;
+        if (skipString()) {
+          throw malformed();
+        }
+        end = pos - 1;
+      } else {
+        start = pos;
+        skipValue();
+        end = pos;
+      }
+      if (start == end) {
+        throw malformed();
+      }
+      if (bytes[start] == '-') {
+        throw new IllegalArgumentException("Token response expires_in is negative");
+      }
+      long value = 0;
+      for (int i = start; i < end; i++) {
+        final byte b = bytes[i];
+        if (b == '.' || b == 'e' || b == 'E') {
+          return decimalValue(start, end);
+        }
+        if (b < '0' || b > '9') {
+          throw malformed();
+        }
+        // Clamped as it goes, so it can never overflow
+        value = Math.min(value * 10 + (b - '0'), MAX_EXPIRES_IN);
+      }
+      return value;
+    }
+
+    /**
+     * Read a lifetime written with a fraction or an exponent - rare enough to be left to BigDecimal
+     */
+    private long decimalValue(final int start, final int end) {
+      final BigDecimal value;
+      try {
+        value = new BigDecimal(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+      } catch (NumberFormatException e) {
+        throw malformed();
+      }
+      return value.compareTo(BigDecimal.valueOf(MAX_EXPIRES_IN)) >= 0 ? MAX_EXPIRES_IN : value.longValue();
+    }
+
+    /**
+     * Read the rest of a string whose opening quote has been consumed
+     */
+    private String readString() {
+      final int start = pos;
+      if (!skipString()) {
+        return new String(bytes, start, pos - 1 - start, StandardCharsets.UTF_8);
+      }
+      final StringBuilder sb = new StringBuilder(pos - start);
+      int segmentStart = start;
+      for (int i = start; i < pos - 1; i++) {
+        if (bytes[i] == '\\') {
+          sb.append(new String(bytes, segmentStart, i - segmentStart, StandardCharsets.UTF_8));
+          final byte escape = bytes[++i];
+          switch (escape) {
+            case 'b': sb.append('\b'); break;
+            case 'f': sb.append('\f'); break;
+            case 'n': sb.append('\n'); break;
+            case 'r': sb.append('\r'); break;
+            case 't': sb.append('\t'); break;
+            case 'u':
+              if (i + 4 >= pos) {
+                throw malformed();
+              }
+              sb.append((char) Integer.parseInt(new String(bytes, i + 1, 4, StandardCharsets.US_ASCII), 16));
+              i += 4;
+              break;
+            default: sb.append((char) escape);
+          }
+          segmentStart = i + 1;
+        }
+      }
+      sb.append(new String(bytes, segmentStart, pos - 1 - segmentStart, StandardCharsets.UTF_8));
+      return sb.toString();
+    }
+
+    /**
+     * Move past the closing quote of a string whose opening quote has been consumed
+     * @return true if the string contains escapes
+     */
+    private boolean skipString() {
+      boolean escaped = false;
+      while (pos < length) {
+        final byte b = bytes[pos++];
+        if (b == '"') {
+          return escaped;
+        }
+        if (b == '\\') {
+          escaped = true;
+          pos++;
+        }
+      }
+      throw malformed();
+    }
+
+    private void skipValue() {
+      final byte first = peek();
+      if (first == '"') {
+        pos++;
+        skipString();
+        return;
+      }
+      if (first == '{' || first == '[') {
+        int depth = 0;
+        while (pos < length) {
+          final byte b = bytes[pos++];
+          if (b == '"') {
+            skipString();
+          } else if (b == '{' || b == '[') {
+            depth++;
+          } else if (b == '}' || b == ']') {
+            if (--depth == 0) {
+              return;
+            }
+          }
+        }
+        throw malformed();
+      }
+      // number, true, false or null
+      final int start = pos;
+      while (pos < length) {
+        final byte b = bytes[pos];
+        if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+          break;
+        }
+        pos++;
+      }
+      if (pos == start) {
+        throw malformed();
+      }
+    }
+
+    private void expect(final char c) {
+      if (next() != c) {
+        throw malformed();
+      }
+    }
+
+    private byte next() {
+      skipWhitespace();
+      if (pos >= length) {
+        throw malformed();
+      }
+      return bytes[pos++];
+    }
+
+    private byte peek() {
+      skipWhitespace();
+      if (pos >= length) {
+        throw malformed();
+      }
+      return bytes[pos];
+    }
+
+    private int skipWhitespace() {
+      while (pos < length) {
+        final byte b = bytes[pos];
+        if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+          break;
+        }
+        pos++;
+      }
+      return pos;
+    }
+
+    private static IllegalArgumentException malformed() {
+      return new IllegalArgumentException("Token response is not a valid JSON object");
+    }
+  }
+}
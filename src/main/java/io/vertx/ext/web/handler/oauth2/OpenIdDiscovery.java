@@ -0,0 +1,49 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.handler.impl.OpenIdDiscoveryImpl;
+
+/**
+ * OpenID Connect discovery of an OAuth2 provider's endpoints. The discovery document is loaded in the background as
+ * soon as discovery is created, so creating it never waits on the network, and is reloaded at a fixed interval so a
+ * provider can move its endpoints or key set without us being redeployed. A failed load leaves the last good
+ * document in use and is retried sooner.
+ *
+ * One instance can be shared by the OAuth2 handler and the auth provider, so the document is loaded once for both.
+ */
+public interface OpenIdDiscovery {
+
+  /**
+   * Create discovery for an issuer, and start loading its discovery document
+   * @param vertx - the vertx instance to load the document with
+   * @param options - the discovery options
+   * @return the discovery
+   */
+  static OpenIdDiscovery create(final Vertx vertx, final OpenIdDiscoveryOptions options) {
+    return new OpenIdDiscoveryImpl(vertx, options);
+  }
+
+  /**
+   * @return the issuer being discovered
+   */
+  String issuer();
+
+  /**
+   * Retrieve the metadata in use, without waiting
+   * @return the metadata, or null if the discovery document has not been loaded yet
+   */
+  OpenIdProviderMetadata metadata();
+
+  /**
+   * Retrieve the metadata in use, waiting for the first load to complete if it has not already
+   * @param resultHandler - called, on the caller's context, with the metadata, or failed if the first load failed
+   */
+  void metadata(Handler<AsyncResult<OpenIdProviderMetadata>> resultHandler);
+
+  /**
+   * Stop reloading the discovery document in the background
+   */
+  void close();
+}
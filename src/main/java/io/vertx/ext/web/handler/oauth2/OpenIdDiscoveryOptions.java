@@ -0,0 +1,143 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.http.HttpClientOptions;
+
+import java.util.Objects;
+
+/**
+ * Options class to hold the configuration for OpenID Connect discovery - the issuer, where to load its discovery
+ * document from, and how often to reload it
+ */
+public class OpenIdDiscoveryOptions {
+
+  /**
+   * The path, relative to the issuer, at which providers publish their discovery document
+   */
+  static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+
+  /**
+   * Default time a loaded discovery document is used before it is reloaded - one hour
+   */
+  static final long DEFAULT_REFRESH_MILLIS = 60 * 60 * 1000;
+
+  /**
+   * Default time after a failed load before trying again - thirty seconds
+   */
+  static final long DEFAULT_RETRY_MILLIS = 30 * 1000;
+
+  private final String issuer;
+  private String discoveryUrl;
+  private String discoveryPath;
+  private long refreshMillis = DEFAULT_REFRESH_MILLIS;
+  private long retryMillis = DEFAULT_RETRY_MILLIS;
+  private HttpClientOptions httpClientOptions = new HttpClientOptions();
+
+  /**
+   * Constructor. The discovery document is loaded from the issuer's well known url unless another url or a local
+   * file is set
+   * @param issuer - the issuer identifier, which the discovery document must match exactly
+   */
+  public OpenIdDiscoveryOptions(final String issuer) {
+    this.issuer = Objects.requireNonNull(issuer, "Issuer must not be null");
+    this.discoveryUrl = (issuer.endsWith("/") ? issuer.substring(0, issuer.length() - 1) : issuer) + WELL_KNOWN_PATH;
+  }
+
+  /**
+   * Load the discovery document from a url other than the issuer's well known url
+   * @param discoveryUrl - the discovery document url
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OpenIdDiscoveryOptions setDiscoveryUrl(final String discoveryUrl) {
+    this.discoveryUrl = Objects.requireNonNull(discoveryUrl, "Discovery url must not be null");
+    return this;
+  }
+
+  /**
+   * Load the discovery document from a local file rather than a url - for deployments which cannot reach the
+   * provider's well known url, or which pin its configuration
+   * @param discoveryPath - the discovery document path
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OpenIdDiscoveryOptions setDiscoveryPath(final String discoveryPath) {
+    this.discoveryPath = discoveryPath;
+    return this;
+  }
+
+  /**
+   * Set how long a loaded discovery document is used before it is reloaded in the background
+   * @param refreshMillis - the refresh interval in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OpenIdDiscoveryOptions setRefreshMillis(final long refreshMillis) {
+    if (refreshMillis <= 0) {
+      throw new IllegalArgumentException("Refresh interval must be positive");
+    }
+    this.refreshMillis = refreshMillis;
+    return this;
+  }
+
+  /**
+   * Set how long after a failed load to try again. The last good document, if there is one, stays in use meanwhile
+   * @param retryMillis - the retry interval in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OpenIdDiscoveryOptions setRetryMillis(final long retryMillis) {
+    if (retryMillis <= 0) {
+      throw new IllegalArgumentException("Retry interval must be positive");
+    }
+    this.retryMillis = retryMillis;
+    return this;
+  }
+
+  /**
+   * Set the options for the http client used to load the discovery document
+   * @param httpClientOptions - the client options, which should not be changed after discovery starts
+   * @return a reference to this, so the API can be used fluently
+   */
+  public OpenIdDiscoveryOptions setHttpClientOptions(final HttpClientOptions httpClientOptions) {
+    this.httpClientOptions = Objects.requireNonNull(httpClientOptions, "Http client options must not be null");
+    return this;
+  }
+
+  /**
+   * @return the issuer identifier
+   */
+  public String issuer() {
+    return issuer;
+  }
+
+  /**
+   * @return the url the discovery document is loaded from, when not loaded from a file
+   */
+  public String discoveryUrl() {
+    return discoveryUrl;
+  }
+
+  /**
+   * @return the path of the file the discovery document is loaded from, or null to load it from the url
+   */
+  public String discoveryPath() {
+    return discoveryPath;
+  }
+
+  /**
+   * @return the interval between reloads of the discovery document
+   */
+  public long refreshMillis() {
+    return refreshMillis;
+  }
+
+  /**
+   * @return the interval between attempts to load the discovery document after a failure
+   */
+  public long retryMillis() {
+    return retryMillis;
+  }
+
+  /**
+   * @return the options for the http client used to load the discovery document
+   */
+  public HttpClientOptions httpClientOptions() {
+    return httpClientOptions;
+  }
+}
@@ -0,0 +1,113 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The fields of an OpenID Connect provider's discovery document (OpenID Connect Discovery 1.0 section 3) which we use
+ * - the issuer, the authorization, token, introspection and userinfo endpoints, and the JSON web key set url.
+ *
+ * Instances are immutable, so a loaded document can be handed to any thread and replaced wholesale when reloaded.
+ */
+public class OpenIdProviderMetadata {
+
+  private final String issuer;
+  private final String authorizationEndpoint;
+  private final String tokenEndpoint;
+  private final String jwksUri;
+  private final String introspectionEndpoint;
+  private final String userinfoEndpoint;
+  private final long loadedAt;
+
+  public OpenIdProviderMetadata(final String issuer, final String authorizationEndpoint, final String tokenEndpoint,
+                                final String jwksUri, final String introspectionEndpoint,
+                                final String userinfoEndpoint, final long loadedAt) {
+    this.issuer = issuer;
+    this.authorizationEndpoint = authorizationEndpoint;
+    this.tokenEndpoint = tokenEndpoint;
+    this.jwksUri = jwksUri;
+    this.introspectionEndpoint = introspectionEndpoint;
+    this.userinfoEndpoint = userinfoEndpoint;
+    this.loadedAt = loadedAt;
+  }
+
+  /**
+   * Read a discovery document
+   * @param document - the discovery document
+   * @param expectedIssuer - the issuer the document must be for
+   * @param loadedAt - when the document was loaded, in epoch milliseconds
+   * @return the metadata
+   * @throws IllegalArgumentException if the document is for another issuer, or lacks the authorization or token
+   * endpoint
+   */
+  public static OpenIdProviderMetadata parse(final JsonObject document, final String expectedIssuer,
+                                             final long loadedAt) {
+    final String issuer = string(document, "issuer");
+    if (!expectedIssuer.equals(issuer)) {
+      throw new IllegalArgumentException("Discovery document is for issuer " + issuer + ", not " + expectedIssuer);
+    }
+    final String authorizationEndpoint = string(document, "authorization_endpoint");
+    final String tokenEndpoint = string(document, "token_endpoint");
+    if (authorizationEndpoint == null || tokenEndpoint == null) {
+      throw new IllegalArgumentException("Discovery document must give the authorization and token endpoints");
+    }
+    return new OpenIdProviderMetadata(issuer, authorizationEndpoint, tokenEndpoint, string(document, "jwks_uri"),
+      string(document, "introspection_endpoint"), string(document, "userinfo_endpoint"), loadedAt);
+  }
+
+  private static String string(final JsonObject document, final String field) {
+    final Object value = document.getValue(field);
+    if (value != null && !(value instanceof String)) {
+      throw new IllegalArgumentException("Discovery document field " + field + " must be a string");
+    }
+    return (String) value;
+  }
+
+  /**
+   * @return the issuer identifier
+   */
+  public String issuer() {
+    return issuer;
+  }
+
+  /**
+   * @return the url users are redirected to to authenticate
+   */
+  public String authorizationEndpoint() {
+    return authorizationEndpoint;
+  }
+
+  /**
+   * @return the url authorization codes are exchanged for tokens at
+   */
+  public String tokenEndpoint() {
+    return tokenEndpoint;
+  }
+
+  /**
+   * @return the url of the provider's JSON web key set, or null if not given
+   */
+  public String jwksUri() {
+    return jwksUri;
+  }
+
+  /**
+   * @return the token introspection url, or null if not given
+   */
+  public String introspectionEndpoint() {
+    return introspectionEndpoint;
+  }
+
+  /**
+   * @return the userinfo url, or null if not given
+   */
+  public String userinfoEndpoint() {
+    return userinfoEndpoint;
+  }
+
+  /**
+   * @return when the document was loaded, in epoch milliseconds
+   */
+  public long loadedAt() {
+    return loadedAt;
+  }
+}
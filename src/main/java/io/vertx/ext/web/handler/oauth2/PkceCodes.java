@@ -0,0 +1,57 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Generates PKCE (RFC 7636) code verifiers, and the S256 code challenges sent for them in authorization requests.
+ *
+ * Verifiers are 32 random bytes from a per thread buffered generator, as 43 unpadded base64url chars - the shortest
+ * verifier the RFC allows. Challenges are hashed with a SHA-256 digest reused per thread, so neither allocates
+ * anything but the resulting String.
+ */
+public final class PkceCodes {
+
+  static final int VERIFIER_BYTES = 32;
+
+  private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(PkceCodes::newDigest);
+
+  private PkceCodes() {
+  }
+
+  /**
+   * @return a new, random code verifier
+   */
+  public static String newVerifier() {
+    return SecureRandomBuffers.nextBase64Url(VERIFIER_BYTES);
+  }
+
+  /**
+   * Compute the S256 code challenge for a code verifier - the unpadded base64url SHA-256 of its ASCII form
+   * @param verifier - the code verifier
+   * @return the code challenge
+   */
+  public static String challenge(final String verifier) {
+    final StateCodecBuffers buffers = StateCodecBuffers.get();
+    buffers.ensureCapacity(3 * verifier.length());
+    final int length = StateCodecBuffers.writeUtf8(verifier, buffers.input, 0);
+    final MessageDigest digest = DIGESTS.get();
+    try {
+      digest.update(buffers.input, 0, length);
+      digest.digest(buffers.hash, 0, buffers.hash.length);
+      return buffers.hashToBase64Url();
+    } catch (DigestException e) {
+      digest.reset();
+      throw new RuntimeException("Could not generate PKCE code challenge", e);
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("Could not generate PKCE code challenge", e);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Per thread source of random bytes for values generated on the event loop, such as nonces and PKCE code verifiers.
+ * Each thread has its own generator, seeded once from the platform SecureRandom, so generating a value never waits on
+ * a lock shared with other event loops or on the entropy pool. The generator fills a buffer in bulk, and values are
+ * taken from it, with the bytes handed out cleared so they do not linger in the buffer.
+ */
+final class SecureRandomBuffers {
+
+  private static final String ALGORITHM = "SHA1PRNG";
+  private static final int SEED_BYTES = 32;
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final ThreadLocal<SecureRandomBuffers> BUFFERS = ThreadLocal.withInitial(SecureRandomBuffers::new);
+
+  private final SecureRandom random;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position = BUFFER_SIZE;
+
+  private SecureRandomBuffers() {
+    this.random = newRandom();
+  }
+
+  /**
+   * @return the buffers for the current thread
+   */
+  static SecureRandomBuffers get() {
+    return BUFFERS.get();
+  }
+
+  /**
+   * Fill part of an array with random bytes
+   * @param dst - the array to fill
+   * @param offset - the offset of the first byte to fill
+   * @param length - the number of bytes to fill
+   */
+  void nextBytes(final byte[] dst, final int offset, final int length) {
+    if (length > BUFFER_SIZE) {
+      final byte[] bytes = new byte[length];
+      random.nextBytes(bytes);
+      System.arraycopy(bytes, 0, dst, offset, length);
+      return;
+    }
+    if (position + length > BUFFER_SIZE) {
+      random.nextBytes(buffer);
+      position = 0;
+    }
+    System.arraycopy(buffer, position, dst, offset, length);
+    Arrays.fill(buffer, position, position + length, (byte) 0);
+    position += length;
+  }
+
+  /**
+   * Generate a random value as unpadded base64url, using the per thread state codec buffers
+   * @param bytes - the number of random bytes, at most 32
+   * @return the encoded value
+   */
+  static String nextBase64Url(final int bytes) {
+    final StateCodecBuffers buffers = StateCodecBuffers.get();
+    get().nextBytes(buffers.hash, 0, bytes);
+    return buffers.base64Url(buffers.hash, 0, bytes);
+  }
+
+  /**
+   * Create a generator seeded explicitly, so it never seeds itself from a blocking source
+   * @return the generator
+   */
+  private static SecureRandom newRandom() {
+    final byte[] seed = new byte[SEED_BYTES];
+    new SecureRandom().nextBytes(seed);
+    try {
+      final SecureRandom random = SecureRandom.getInstance(ALGORITHM);
+      random.setSeed(seed);
+      return random;
+    } catch (NoSuchAlgorithmException e) {
+      return new SecureRandom(seed);
+    }
+  }
+}
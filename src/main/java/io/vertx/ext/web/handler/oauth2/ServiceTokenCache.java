@@ -0,0 +1,70 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.handler.impl.ServiceTokenCacheImpl;
+
+/**
+ * Cache of access tokens obtained with the client credentials grant, for services calling downstream APIs as
+ * themselves. Tokens are cached by token url, client id and scope, and renewed in the background shortly before they
+ * expire - callers carry on receiving the cached token meanwhile. However many callers race for a token, only one
+ * request per key is made to the OAuth2 provider.
+ *
+ * A cache created with createShared is shared, through a Vert.x local map, by every verticle instance in the Vert.x
+ * instance which uses the same name - so a service with many verticle instances still fetches each token once.
+ */
+public interface ServiceTokenCache {
+
+  /**
+   * The name of the cache shared when no name is given
+   */
+  String DEFAULT_CACHE_NAME = "DEFAULT_SERVICE_TOKEN_CACHE";
+
+  /**
+   * Create a cache for use by the caller alone
+   * @param vertx - the vertx instance
+   * @param options - the cache options
+   * @return the cache
+   */
+  static ServiceTokenCache create(final Vertx vertx, final ServiceTokenCacheOptions options) {
+    return new ServiceTokenCacheImpl(vertx, options);
+  }
+
+  /**
+   * Retrieve the default shared cache, creating it with the given options if this is the first request for it
+   * @param vertx - the vertx instance
+   * @param options - the cache options, ignored if the cache already exists
+   * @return the shared cache
+   */
+  static ServiceTokenCache createShared(final Vertx vertx, final ServiceTokenCacheOptions options) {
+    return createShared(vertx, options, DEFAULT_CACHE_NAME);
+  }
+
+  /**
+   * Retrieve a named shared cache, creating it with the given options if this is the first request for it
+   * @param vertx - the vertx instance
+   * @param options - the cache options, ignored if the cache already exists
+   * @param name - the name of the cache
+   * @return the shared cache
+   */
+  static ServiceTokenCache createShared(final Vertx vertx, final ServiceTokenCacheOptions options, final String name) {
+    return ServiceTokenCacheImpl.shared(vertx, options, name);
+  }
+
+  /**
+   * Get an access token, from the cache if it holds a live one, otherwise from the OAuth2 provider
+   * @param params - the token url and client credentials - the redirect uri is not used
+   * @param scope - the space separated scope to request, or null for the client's default scope
+   * @param resultHandler - called, on the caller's context, with the access token
+   */
+  void getToken(AuthTokenRequestParameters params, String scope, Handler<AsyncResult<String>> resultHandler);
+
+  /**
+   * Drop a cached token - for example after a downstream API rejected it - so the next request fetches a new one
+   * @param params - the token url and client credentials
+   * @param scope - the scope the token was requested with
+   */
+  void invalidate(AuthTokenRequestParameters params, String scope);
+
+}
@@ -0,0 +1,128 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.http.HttpClientOptions;
+
+import java.util.Objects;
+
+/**
+ * Options class to hold the configuration for a ServiceTokenCache
+ */
+public class ServiceTokenCacheOptions {
+
+  /**
+   * Default time before expiry at which a cached token is renewed - one minute
+   */
+  static final long DEFAULT_RENEW_BEFORE_EXPIRY_MILLIS = 60 * 1000;
+
+  /**
+   * Default lifetime assumed for tokens whose response does not say when they expire - five minutes
+   */
+  static final long DEFAULT_UNKNOWN_EXPIRY_LIFETIME_MILLIS = 5 * 60 * 1000;
+
+  /**
+   * Default maximum size of a token endpoint response - 64KiB
+   */
+  static final int DEFAULT_MAX_TOKEN_RESPONSE_BYTES = 64 * 1024;
+
+  /**
+   * Default time a token request may take, from sending it to reading the whole response - ten seconds
+   */
+  static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 10 * 1000;
+
+  private long renewBeforeExpiryMillis = DEFAULT_RENEW_BEFORE_EXPIRY_MILLIS;
+  private long unknownExpiryLifetimeMillis = DEFAULT_UNKNOWN_EXPIRY_LIFETIME_MILLIS;
+  private int maxTokenResponseBytes = DEFAULT_MAX_TOKEN_RESPONSE_BYTES;
+  private long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+  private HttpClientOptions httpClientOptions = new HttpClientOptions();
+
+  /**
+   * Set how long before a cached token expires it is renewed. Callers keep receiving the cached token while it is
+   * renewed, so this should comfortably exceed the time the token endpoint takes to respond. For tokens with short
+   * lifetimes, renewal starts half way through the lifetime at the latest
+   * @param renewBeforeExpiryMillis - the renewal lead time in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public ServiceTokenCacheOptions setRenewBeforeExpiryMillis(final long renewBeforeExpiryMillis) {
+    this.renewBeforeExpiryMillis = renewBeforeExpiryMillis;
+    return this;
+  }
+
+  /**
+   * Set the lifetime assumed for tokens whose response carries no expires_in
+   * @param unknownExpiryLifetimeMillis - the assumed lifetime in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public ServiceTokenCacheOptions setUnknownExpiryLifetimeMillis(final long unknownExpiryLifetimeMillis) {
+    this.unknownExpiryLifetimeMillis = unknownExpiryLifetimeMillis;
+    return this;
+  }
+
+  /**
+   * Set the largest token endpoint response accepted
+   * @param maxTokenResponseBytes - the maximum response size in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  public ServiceTokenCacheOptions setMaxTokenResponseBytes(final int maxTokenResponseBytes) {
+    this.maxTokenResponseBytes = maxTokenResponseBytes;
+    return this;
+  }
+
+  /**
+   * Set how long a token request may take, from sending it to reading the whole response, before the callers waiting
+   * for it are failed
+   * @param requestTimeoutMillis - the timeout in milliseconds
+   * @return a reference to this, so the API can be used fluently
+   */
+  public ServiceTokenCacheOptions setRequestTimeoutMillis(final long requestTimeoutMillis) {
+    if (requestTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Request timeout must be positive");
+    }
+    this.requestTimeoutMillis = requestTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * Set the options for the http client used to fetch tokens
+   * @param httpClientOptions - the client options
+   * @return a reference to this, so the API can be used fluently
+   */
+  public ServiceTokenCacheOptions setHttpClientOptions(final HttpClientOptions httpClientOptions) {
+    this.httpClientOptions = Objects.requireNonNull(httpClientOptions, "Http client options must not be null");
+    return this;
+  }
+
+  /**
+   * @return how long before expiry a cached token is renewed, in milliseconds
+   */
+  public long renewBeforeExpiryMillis() {
+    return renewBeforeExpiryMillis;
+  }
+
+  /**
+   * @return the lifetime assumed for tokens without expires_in, in milliseconds
+   */
+  public long unknownExpiryLifetimeMillis() {
+    return unknownExpiryLifetimeMillis;
+  }
+
+  /**
+   * @return the largest token endpoint response accepted, in bytes
+   */
+  public int maxTokenResponseBytes() {
+    return maxTokenResponseBytes;
+  }
+
+  /**
+   * @return how long a token request may take, in milliseconds
+   */
+  public long requestTimeoutMillis() {
+    return requestTimeoutMillis;
+  }
+
+  /**
+   * @return the options for the http client used to fetch tokens
+   */
+  public HttpClientOptions httpClientOptions() {
+    return httpClientOptions;
+  }
+}
@@ -0,0 +1,201 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Stateless alternative to OAuth2State. Rather than hashing values which are held in the session, the state parameter
+ * itself carries the url to return to after authentication and a nonce, together with an expiry time, signed with a
+ * server side HMAC-SHA256 key. The signature also covers the session id, so a state value is only valid for the
+ * session it was issued to.
+ *
+ * This means the redirect to the OAuth2 provider needs no session writes, and the authentication result can be
+ * validated without reading anything from the session - useful when the session store is clustered or remote.
+ *
+ * The state value is two unpadded base64url strings separated by a '.': the payload, and the first 16 bytes of the
+ * HMAC. The payload is a version byte, the expiry time in epoch milliseconds as 8 big-endian bytes, the length of the
+ * UTF-8 nonce as one byte, the nonce, and finally the UTF-8 return url. Instances are thread safe.
+ *
+ * For PKCE, the code verifier for a state value is derived from it with the same key, so it needs no session either,
+ * while staying secret from anyone who sees the state in the redirect.
+ */
+public class SignedOAuth2State {
+
+  private static final byte VERSION = 1;
+  private static final int HEADER_LENGTH = 1 + 8 + 1;
+  private static final int TAG_LENGTH = 16;
+  private static final int MAX_NONCE_BYTES = 255;
+  private static final char SEPARATOR = '.';
+  private static final String CODE_VERIFIER_LABEL = "pkce:";
+
+  /**
+   * How long a state value remains valid after it is issued, in milliseconds
+   */
+  private final long ttlMillis;
+
+  private final ThreadLocal<Mac> macs;
+
+  /**
+   * Constructor
+   * @param key - the HMAC-SHA256 key, which should be at least 32 random bytes, kept secret, and shared by every
+   *            server which may receive the authentication result
+   * @param ttlMillis - how long a state value remains valid after it is issued - this bounds how long the user may
+   *                  take to authenticate with the OAuth2 provider
+   */
+  public SignedOAuth2State(final byte[] key, final long ttlMillis) {
+    Objects.requireNonNull(key, "Signing key must not be null");
+    if (key.length == 0) {
+      throw new IllegalArgumentException("Signing key must not be empty");
+    }
+    if (ttlMillis <= 0) {
+      throw new IllegalArgumentException("State time to live must be positive");
+    }
+    this.ttlMillis = ttlMillis;
+    final SecretKeySpec keySpec = new SecretKeySpec(key, HmacStateCodec.ALGORITHM);
+    this.macs = ThreadLocal.withInitial(() -> HmacStateCodec.newMac(keySpec));
+    macs.get();
+  }
+
+  /**
+   * Create a signed state value
+   * @param returnUrl - the url to return the user to once authenticated
+   * @param nonce - a value unique to this authentication attempt
+   * @param sessionId - the id of the session the state is issued to
+   * @param nowMillis - the current time, in epoch milliseconds
+   * @return the state parameter value
+   */
+  public String sign(final String returnUrl, final String nonce, final String sessionId, final long nowMillis) {
+    Objects.requireNonNull(returnUrl, "Return url must not be null");
+    Objects.requireNonNull(nonce, "Nonce must not be null");
+    Objects.requireNonNull(sessionId, "Session id must not be null");
+
+    final StateCodecBuffers buffers = StateCodecBuffers.get();
+    buffers.ensureCapacity(HEADER_LENGTH + 3 * (nonce.length() + returnUrl.length() + sessionId.length()));
+    final byte[] input = buffers.input;
+
+    input[0] = VERSION;
+    writeLong(input, 1, nowMillis + ttlMillis);
+    final int nonceEnd = StateCodecBuffers.writeUtf8(nonce, input, HEADER_LENGTH);
+    if (nonceEnd - HEADER_LENGTH > MAX_NONCE_BYTES) {
+      throw new IllegalArgumentException("Nonce must encode to at most " + MAX_NONCE_BYTES + " bytes");
+    }
+    input[HEADER_LENGTH - 1] = (byte) (nonceEnd - HEADER_LENGTH);
+    final int payloadLength = StateCodecBuffers.writeUtf8(returnUrl, input, nonceEnd);
+    final int sessionIdEnd = StateCodecBuffers.writeUtf8(sessionId, input, payloadLength);
+
+    sign(input, payloadLength, input, payloadLength, sessionIdEnd - payloadLength, buffers.hash);
+
+    int pos = buffers.appendBase64Url(input, 0, payloadLength, 0);
+    pos = buffers.appendChar(SEPARATOR, pos);
+    pos = buffers.appendBase64Url(buffers.hash, 0, TAG_LENGTH, pos);
+    return buffers.charsToString(pos);
+  }
+
+  /**
+   * Verify a state value echoed back by the OAuth2 provider
+   * @param state - the state parameter value, may be null
+   * @param sessionId - the id of the session the authentication result was received in
+   * @param nowMillis - the current time, in epoch milliseconds
+   * @return the return url carried by the state if the signature is valid for this session and the state has not
+   * expired, otherwise empty
+   */
+  public Optional<String> verify(final String state, final String sessionId, final long nowMillis) {
+    if (state == null || sessionId == null) {
+      return Optional.empty();
+    }
+    final int separator = state.indexOf(SEPARATOR);
+    if (separator < 0) {
+      return Optional.empty();
+    }
+
+    final byte[] payload;
+    final byte[] tag;
+    try {
+      payload = Base64.getUrlDecoder().decode(state.substring(0, separator));
+      tag = Base64.getUrlDecoder().decode(state.substring(separator + 1));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    if (payload.length < HEADER_LENGTH || tag.length != TAG_LENGTH) {
+      return Optional.empty();
+    }
+
+    final byte[] sessionIdBytes = sessionId.getBytes(StandardCharsets.UTF_8);
+    final byte[] expected = StateCodecBuffers.get().hash;
+    sign(payload, payload.length, sessionIdBytes, 0, sessionIdBytes.length, expected);
+    int diff = 0;
+    for (int i = 0; i < TAG_LENGTH; i++) {
+      diff |= tag[i] ^ expected[i];
+    }
+    if (diff != 0) {
+      return Optional.empty();
+    }
+
+    final int urlStart = HEADER_LENGTH + (payload[HEADER_LENGTH - 1] & 0xff);
+    if (payload[0] != VERSION || readLong(payload, 1) < nowMillis || urlStart > payload.length) {
+      return Optional.empty();
+    }
+    return Optional.of(new String(payload, urlStart, payload.length - urlStart, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Derive the PKCE code verifier for a state value - an HMAC of the value under the signing key, labelled so it can
+   * never equal a state's signature, as 43 unpadded base64url chars. Each state value carries a fresh nonce, so each
+   * has its own verifier, which the authentication result handler derives again from the state echoed back once it
+   * has been verified
+   * @param state - the state parameter value
+   * @return the code verifier
+   */
+  public String codeVerifier(final String state) {
+    Objects.requireNonNull(state, "State must not be null");
+    final StateCodecBuffers buffers = StateCodecBuffers.get();
+    buffers.ensureCapacity(CODE_VERIFIER_LABEL.length() + 3 * state.length());
+    final int length = StateCodecBuffers.writeUtf8(state, buffers.input,
+      StateCodecBuffers.writeUtf8(CODE_VERIFIER_LABEL, buffers.input, 0));
+    final Mac mac = macs.get();
+    try {
+      mac.update(buffers.input, 0, length);
+      mac.doFinal(buffers.hash, 0);
+    } catch (ShortBufferException e) {
+      mac.reset();
+      throw new RuntimeException("Could not derive PKCE code verifier", e);
+    }
+    return buffers.hashToBase64Url();
+  }
+
+  /**
+   * HMAC the payload followed by the session id into the output array
+   */
+  private void sign(final byte[] payload, final int payloadLength, final byte[] sessionId, final int sessionIdOffset,
+                    final int sessionIdLength, final byte[] output) {
+    final Mac mac = macs.get();
+    try {
+      mac.update(payload, 0, payloadLength);
+      mac.update((byte) SEPARATOR);
+      mac.update(sessionId, sessionIdOffset, sessionIdLength);
+      mac.doFinal(output, 0);
+    } catch (ShortBufferException e) {
+      mac.reset();
+      throw new RuntimeException("Could not sign oAuth2 state", e);
+    }
+  }
+
+  private static void writeLong(final byte[] dst, final int offset, final long value) {
+    for (int i = 0; i < 8; i++) {
+      dst[offset + i] = (byte) (value >>> (56 - 8 * i));
+    }
+  }
+
+  private static long readLong(final byte[] src, final int offset) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = (value << 8) | (src[offset + i] & 0xff);
+    }
+    return value;
+  }
+}
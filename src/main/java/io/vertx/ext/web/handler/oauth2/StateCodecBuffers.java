@@ -0,0 +1,185 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.util.Arrays;
+
+/**
+ * Per thread working buffers and encoding helpers shared by the state codecs. Everything here works on reused arrays
+ * so that the only allocation for a state value is the resulting String.
+ */
+final class StateCodecBuffers {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static final char[] BASE64_URL =
+    "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+  private static final String NULL = "null";
+  private static final char DELIMITER = '|';
+  private static final int INITIAL_CAPACITY = 256;
+
+  private static final ThreadLocal<StateCodecBuffers> BUFFERS = ThreadLocal.withInitial(StateCodecBuffers::new);
+
+  /**
+   * The UTF-8 encoded input to the digest or MAC
+   */
+  byte[] input = new byte[INITIAL_CAPACITY];
+
+  /**
+   * The digest or MAC output, sized for the largest hash in use (SHA-256)
+   */
+  final byte[] hash = new byte[32];
+
+  /**
+   * The text form of hashes and signed state values
+   */
+  private char[] chars = new char[INITIAL_CAPACITY];
+
+  private StateCodecBuffers() {
+  }
+
+  /**
+   * @return the buffers for the current thread
+   */
+  static StateCodecBuffers get() {
+    return BUFFERS.get();
+  }
+
+  /**
+   * Write salt|sessionId|requestedUrl as UTF-8 into the input buffer, growing it if required
+   * @return the number of bytes written
+   */
+  int writeStateInput(final String salt, final String sessionId, final String requestedUrl) {
+    final String s = salt == null ? NULL : salt;
+    final String id = sessionId == null ? NULL : sessionId;
+    final String url = requestedUrl == null ? NULL : requestedUrl;
+    ensureCapacity(3 * (s.length() + id.length() + url.length() + 2));
+    int pos = writeUtf8(s, input, 0);
+    input[pos++] = DELIMITER;
+    pos = writeUtf8(id, input, pos);
+    input[pos++] = DELIMITER;
+    return writeUtf8(url, input, pos);
+  }
+
+  /**
+   * Ensure the input buffer can hold at least the given number of bytes, discarding its contents if it is grown
+   * @param capacity - the required capacity
+   */
+  void ensureCapacity(final int capacity) {
+    if (input.length < capacity) {
+      input = new byte[Math.max(capacity, input.length * 2)];
+    }
+  }
+
+  /**
+   * Lower case hex encode the first length bytes of the hash buffer
+   */
+  String hashToHex(final int length) {
+    for (int i = 0; i < length; i++) {
+      final int b = hash[i] & 0xff;
+      chars[i << 1] = HEX[b >>> 4];
+      chars[(i << 1) + 1] = HEX[b & 0x0f];
+    }
+    return new String(chars, 0, length << 1);
+  }
+
+  /**
+   * Unpadded base64url encode the full 32 byte hash buffer
+   */
+  String hashToBase64Url() {
+    return base64Url(hash, 0, hash.length);
+  }
+
+  /**
+   * Unpadded base64url encode part of an array, using the per thread char buffer
+   * @param src - the bytes to encode
+   * @param offset - the offset of the first byte to encode
+   * @param length - the number of bytes to encode
+   * @return the encoded string
+   */
+  String base64Url(final byte[] src, final int offset, final int length) {
+    return charsToString(appendBase64Url(src, offset, length, 0));
+  }
+
+  /**
+   * Unpadded base64url encode part of an array into the per thread char buffer
+   * @param src - the bytes to encode
+   * @param offset - the offset of the first byte to encode
+   * @param length - the number of bytes to encode
+   * @param pos - the position in the char buffer at which to start writing
+   * @return the position in the char buffer following the last char written
+   */
+  int appendBase64Url(final byte[] src, final int offset, final int length, int pos) {
+    ensureCharCapacity(pos + (length * 4 + 2) / 3);
+    final int end = offset + length;
+    int i = offset;
+    while (i + 2 < end) {
+      final int bits = (src[i++] & 0xff) << 16 | (src[i++] & 0xff) << 8 | (src[i++] & 0xff);
+      chars[pos++] = BASE64_URL[bits >>> 18];
+      chars[pos++] = BASE64_URL[(bits >>> 12) & 0x3f];
+      chars[pos++] = BASE64_URL[(bits >>> 6) & 0x3f];
+      chars[pos++] = BASE64_URL[bits & 0x3f];
+    }
+    final int remaining = end - i;
+    if (remaining > 0) {
+      final int bits = (src[i] & 0xff) << 16 | (remaining == 2 ? (src[i + 1] & 0xff) << 8 : 0);
+      chars[pos++] = BASE64_URL[bits >>> 18];
+      chars[pos++] = BASE64_URL[(bits >>> 12) & 0x3f];
+      if (remaining == 2) {
+        chars[pos++] = BASE64_URL[(bits >>> 6) & 0x3f];
+      }
+    }
+    return pos;
+  }
+
+  /**
+   * Write a single char into the per thread char buffer
+   * @return the position following the char written
+   */
+  int appendChar(final char c, final int pos) {
+    ensureCharCapacity(pos + 1);
+    chars[pos] = c;
+    return pos + 1;
+  }
+
+  /**
+   * @return a String of the first length chars of the per thread char buffer
+   */
+  String charsToString(final int length) {
+    return new String(chars, 0, length);
+  }
+
+  private void ensureCharCapacity(final int capacity) {
+    if (chars.length < capacity) {
+      chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+    }
+  }
+
+  /**
+   * UTF-8 encode a string into the given array, which the caller guarantees has room for three bytes per char
+   * @return the position following the last byte written
+   */
+  static int writeUtf8(final String value, final byte[] dst, int pos) {
+    final int length = value.length();
+    for (int i = 0; i < length; i++) {
+      final char c = value.charAt(i);
+      if (c < 0x80) {
+        dst[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        dst[pos++] = (byte) (0xc0 | (c >> 6));
+        dst[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, value.charAt(++i));
+        dst[pos++] = (byte) (0xf0 | (cp >> 18));
+        dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+        dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+        dst[pos++] = (byte) (0x80 | (cp & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogate, encoded as '?' to match String.getBytes
+        dst[pos++] = (byte) '?';
+      } else {
+        dst[pos++] = (byte) (0xe0 | (c >> 12));
+        dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        dst[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    return pos;
+  }
+}
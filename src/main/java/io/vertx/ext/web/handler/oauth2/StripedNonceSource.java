@@ -0,0 +1,20 @@
+package io.vertx.ext.web.handler.oauth2;
+
+/**
+ * Nonce source which draws 16 bytes from the current thread's buffered generator and base64url encodes them into the
+ * current thread's state codec buffers, so the only allocation for a nonce is the resulting String.
+ */
+final class StripedNonceSource implements NonceSource {
+
+  static final StripedNonceSource INSTANCE = new StripedNonceSource();
+
+  static final int NONCE_BYTES = 16;
+
+  private StripedNonceSource() {
+  }
+
+  @Override
+  public String nextNonce() {
+    return SecureRandomBuffers.nextBase64Url(NONCE_BYTES);
+  }
+}
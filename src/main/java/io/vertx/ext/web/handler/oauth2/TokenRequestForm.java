@@ -0,0 +1,170 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static io.vertx.ext.web.handler.oauth2.OAuth2Param.*;
+
+/**
+ * Encodes the static parts of a code-for-token exchange request - the form body up to the code, and the HTTP Basic
+ * client credentials - once, for AuthTokenRequestProvider to reuse on every exchange. Also encodes refresh token
+ * and token introspection requests.
+ */
+public final class TokenRequestForm {
+
+  static final String GRANT_TYPE_AUTHORIZATION_CODE = "authorization_code";
+  static final String GRANT_TYPE_REFRESH_TOKEN = "refresh_token";
+  static final String GRANT_TYPE_CLIENT_CREDENTIALS = "client_credentials";
+  static final String SCOPE_PARAM = "scope";
+  static final String REFRESH_TOKEN_PARAM = "refresh_token";
+  static final String TOKEN_PARAM = "token";
+  static final String TOKEN_TYPE_HINT_PARAM = "token_type_hint";
+  static final String ACCESS_TOKEN_TYPE_HINT = "access_token";
+
+  private TokenRequestForm() {
+  }
+
+  /**
+   * Encode the form body of an exchange, up to and including the name of the code parameter
+   * @param params - the static exchange parameters
+   * @param includeClientSecret - true to authenticate with the client id and secret in the body, false when the
+   *                            client authenticates with HTTP Basic instead
+   * @return the encoded body prefix, to which the encoded code is appended
+   */
+  static String bodyPrefix(final AuthTokenRequestParameters params, final boolean includeClientSecret) {
+    final StringBuilder builder = new StringBuilder();
+    if (includeClientSecret) {
+      appendParam(builder, CLIENT_ID, params.clientId());
+      appendParam(builder, CLIENT_SECRET, params.clientSecret());
+    }
+    appendParam(builder, GRANT_TYPE, GRANT_TYPE_AUTHORIZATION_CODE);
+    appendParam(builder, REDIRECT_URI, params.redirectUri());
+    return builder.append(CODE.paramName()).append('=').toString();
+  }
+
+  /**
+   * Encode the form body of a refresh token request (RFC 6749 section 6)
+   * @param params - the static exchange parameters
+   * @param includeClientSecret - true to authenticate with the client id and secret in the body, false when the
+   *                            client authenticates with HTTP Basic instead
+   * @param refreshToken - the refresh token
+   * @return the encoded body
+   */
+  public static String refreshBody(final AuthTokenRequestParameters params, final boolean includeClientSecret,
+                                   final String refreshToken) {
+    final StringBuilder builder = new StringBuilder();
+    if (includeClientSecret) {
+      appendParam(builder, CLIENT_ID.paramName(), params.clientId());
+      appendParam(builder, CLIENT_SECRET.paramName(), params.clientSecret());
+    }
+    appendParam(builder, GRANT_TYPE.paramName(), GRANT_TYPE_REFRESH_TOKEN);
+    builder.append(REFRESH_TOKEN_PARAM).append('=');
+    GetUrlBuilder.appendEncoded(builder, refreshToken);
+    return builder.toString();
+  }
+
+  /**
+   * Encode the form body of a client credentials request (RFC 6749 section 4.4), up to the scope
+   * @param params - the static request parameters
+   * @return the encoded body prefix, to which the scope parameter is appended when a scope is requested
+   */
+  static String clientCredentialsPrefix(final AuthTokenRequestParameters params) {
+    final StringBuilder builder = new StringBuilder();
+    appendParam(builder, CLIENT_ID, params.clientId());
+    appendParam(builder, CLIENT_SECRET, params.clientSecret());
+    return builder.append(GRANT_TYPE.paramName()).append('=').append(GRANT_TYPE_CLIENT_CREDENTIALS).toString();
+  }
+
+  /**
+   * Encode the scope parameter of a client credentials request
+   * @param scope - the space separated scopes requested, or null or empty to request the client's default scope
+   * @return the encoded scope parameter, including its leading delimiter, or an empty string if there is no scope
+   */
+  static String scopeParam(final String scope) {
+    if (scope == null || scope.isEmpty()) {
+      return "";
+    }
+    final StringBuilder builder = new StringBuilder(scope.length() + 7).append('&').append(SCOPE_PARAM).append('=');
+    GetUrlBuilder.appendEncoded(builder, scope);
+    return builder.toString();
+  }
+
+  /**
+   * Encode the form body of an access token introspection request (RFC 7662 section 2.1), up to the token
+   * @param clientId - the client id to authenticate with in the body, or null if the client does not authenticate
+   * @param clientSecret - the client secret
+   * @return the encoded body prefix, which introspectionBody completes with the token
+   */
+  public static String introspectionPrefix(final String clientId, final String clientSecret) {
+    final StringBuilder builder = new StringBuilder();
+    if (clientId != null) {
+      appendParam(builder, CLIENT_ID, clientId);
+      appendParam(builder, CLIENT_SECRET, clientSecret);
+    }
+    appendParam(builder, TOKEN_TYPE_HINT_PARAM, ACCESS_TOKEN_TYPE_HINT);
+    return builder.append(TOKEN_PARAM).append('=').toString();
+  }
+
+  /**
+   * Encode the form body of an access token introspection request
+   * @param prefix - the body prefix, from introspectionPrefix
+   * @param token - the access token to introspect
+   * @return the encoded body
+   */
+  public static String introspectionBody(final String prefix, final String token) {
+    final StringBuilder builder = new StringBuilder(prefix.length() + token.length()).append(prefix);
+    GetUrlBuilder.appendEncoded(builder, token);
+    return builder.toString();
+  }
+
+  /**
+   * Encode a code for appending to the body prefix
+   * @param code - the authorization code
+   * @return the encoded code
+   */
+  static String encodeCode(final String code) {
+    final StringBuilder builder = new StringBuilder(code.length());
+    GetUrlBuilder.appendEncoded(builder, code);
+    return builder.toString();
+  }
+
+  /**
+   * Encode the code verifier parameter of a code exchange with PKCE (RFC 7636 section 4.5)
+   * @param codeVerifier - the code verifier, or null if the code is exchanged without one
+   * @return the encoded code verifier parameter, including its leading delimiter, or an empty string if there is no
+   * code verifier
+   */
+  static String codeVerifierParam(final String codeVerifier) {
+    if (codeVerifier == null) {
+      return "";
+    }
+    final StringBuilder builder = new StringBuilder(codeVerifier.length() + 15).append('&')
+      .append(CODE_VERIFIER.paramName()).append('=');
+    GetUrlBuilder.appendEncoded(builder, codeVerifier);
+    return builder.toString();
+  }
+
+  /**
+   * Build the Authorization header value for HTTP Basic client authentication (RFC 6749 section 2.3.1) - the client
+   * id and secret are form encoded before being joined and base64 encoded
+   * @param params - the static exchange parameters
+   * @return the header value
+   */
+  public static String basicAuthorization(final AuthTokenRequestParameters params) {
+    final StringBuilder credentials = new StringBuilder();
+    GetUrlBuilder.appendEncoded(credentials, params.clientId());
+    credentials.append(':');
+    GetUrlBuilder.appendEncoded(credentials, params.clientSecret());
+    return "Basic " + Base64.getEncoder().encodeToString(credentials.toString().getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static void appendParam(final StringBuilder builder, final OAuth2Param param, final String value) {
+    appendParam(builder, param.paramName(), value);
+  }
+
+  private static void appendParam(final StringBuilder builder, final String name, final String value) {
+    builder.append(name).append('=');
+    GetUrlBuilder.appendEncoded(builder, value);
+    builder.append('&');
+  }
+}
@@ -0,0 +1,126 @@
+package io.vertx.ext.apex.handler.oauth2;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.ext.auth.impl.oauth2.SimpleOAuth2Provider;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.AuthHandler;
+import io.vertx.ext.web.handler.CookieHandler;
+import io.vertx.ext.web.handler.MultiTenantOAuth2AuthHandler;
+import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.handler.oauth2.MultiTenantOAuth2HandlerOptions;
+import io.vertx.ext.web.handler.oauth2.OAuth2HandlerOptions;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test for the multi-tenant handler against the OAuth2 provider mimic - a session which logged in through one tenant
+ * must not be let into another tenant's pages without logging in with that tenant's provider.
+ */
+public class MultiTenantOAuth2HandlerIntegrationTest extends VertxTestBase {
+
+  private static final String TEST_OAUTH2_SUCCESS_URL = "http://localhost:9292/authSuccess";
+  private static final String TEST_OAUTH2_TOKEN_URL = "http://localhost:9292/authToken";
+  private static final String APPLICATION_SERVER = "http://localhost:8080";
+  private static final String AUTH_RESULT_HANDLER_URL = APPLICATION_SERVER + "/authResult";
+  // Both tenants keep their tokens under the same session key, the worst case for telling them apart
+  private static final String SESSION_PARAM_TOKEN = "testOAuth2Token";
+
+  private final AtomicReference<String> sessionCookie = new AtomicReference<>();
+  private HttpClient client;
+
+  @Before
+  public void startServers() throws Exception {
+    CountDownLatch latch = new CountDownLatch(2);
+    vertx.deployVerticle(OAuth2ProviderMimic.class.getName(), result -> latch.countDown());
+
+    LocalSessionStore sessionStore = LocalSessionStore.create(vertx);
+    Router router = Router.router(vertx);
+    router.route().handler(CookieHandler.create());
+    router.route().handler(SessionHandler.create(sessionStore).setSessionCookieName("oAuth2Consumer.session"));
+    AuthHandler handler = MultiTenantOAuth2AuthHandler.create(new MultiTenantOAuth2HandlerOptions()
+      .addTenant("a", SimpleOAuth2Provider.create(SESSION_PARAM_TOKEN, sessionStore), tenantOptions("clientA"))
+      .addTenant("b", SimpleOAuth2Provider.create(SESSION_PARAM_TOKEN, sessionStore), tenantOptions("clientB"))
+      .mapPathPrefix("/a", "a")
+      .mapPathPrefix("/b", "b"), router, vertx);
+    router.route("/a/*").handler(handler);
+    router.route("/b/*").handler(handler);
+    router.route().handler(rc -> rc.response().end("page " + rc.request().path()));
+    vertx.createHttpServer().requestHandler(router::accept).listen(8080, result -> latch.countDown());
+
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+    client = vertx.createHttpClient();
+  }
+
+  private static OAuth2HandlerOptions tenantOptions(final String clientId) {
+    return new OAuth2HandlerOptions(clientId, "secret", TEST_OAUTH2_SUCCESS_URL, AUTH_RESULT_HANDLER_URL,
+      TEST_OAUTH2_TOKEN_URL);
+  }
+
+  @Test
+  public void loginThroughOneTenantDoesNotAuthenticateAnother() throws Exception {
+    login("/a/page", () -> get(APPLICATION_SERVER + "/b/page", resp -> {
+      // Sent to log in with tenant b's client, not let in on tenant a's login
+      assertEquals(302, resp.statusCode());
+      assertTrue(resp.getHeader("location").startsWith(TEST_OAUTH2_SUCCESS_URL));
+      assertTrue(resp.getHeader("location").contains("client_id=clientB"));
+      get(APPLICATION_SERVER + "/a/page", aResp -> {
+        // Still logged in through tenant a
+        assertEquals(200, aResp.statusCode());
+        testComplete();
+      });
+    }));
+    await(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void loginThroughEachTenantReachesItsPages() throws Exception {
+    login("/a/page", () -> login("/b/page", this::testComplete));
+    await(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Request a page, follow the login redirects through the provider mimic, and check the page is then served
+   */
+  private void login(final String path, final Runnable then) {
+    get(APPLICATION_SERVER + path, resp -> {
+      assertEquals(302, resp.statusCode());
+      get(resp.getHeader("location"), providerResp -> {
+        assertEquals(302, providerResp.statusCode());
+        get(providerResp.getHeader("location"), resultResp -> {
+          assertEquals(302, resultResp.statusCode());
+          get(resultResp.getHeader("location"), pageResp -> {
+            assertEquals(200, pageResp.statusCode());
+            pageResp.bodyHandler(body -> {
+              assertEquals("page " + path, body.toString());
+              then.run();
+            });
+          });
+        });
+      });
+    });
+  }
+
+  private void get(final String url, final Handler<HttpClientResponse> handler) {
+    final HttpClientRequest request = client.getAbs(url);
+    if (sessionCookie.get() != null) {
+      request.putHeader("cookie", sessionCookie.get());
+    }
+    request.handler(resp -> {
+      final String setCookie = resp.headers().get("set-cookie");
+      if (setCookie != null && sessionCookie.get() == null) {
+        sessionCookie.set(setCookie);
+      }
+      handler.handle(resp);
+    });
+    request.end();
+  }
+}
@@ -9,15 +9,25 @@ import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * Http server implementation to mimic an OAuth2 provider's possible authentication outcomes. By default this will
  * be based on the endpoint used for authentication, and we will construct different handlers in the tests to
  * redirect to different endpoints to mimic the possible outcomes.
+ *
+ * Codes issued with a PKCE challenge are only exchanged with the matching verifier, every token response carries a
+ * single use refresh token, and the tokens issued can be checked at the introspection endpoint.
  */
 public class OAuth2ProviderMimic extends AbstractVerticle {
 
@@ -27,11 +37,28 @@ public class OAuth2ProviderMimic extends AbstractVerticle {
   public static final String OAUTH2PROVIDER_UNKNOWN_CLIENT_ENDPOINT = "/unknownClient";
   public static final String OAUTH2PROVIDER_NOT_AUTHENTICATED_ENDPOINT = "/authFailure";
   public static final String OAUTH2PROVIDER_SERVER_ERROR_ENDPOINT = "/serverError";
+  public static final String OAUTH2_PROVIDER_INTROSPECTION_ENDPOINT = "/introspect";
+
+  /**
+   * A token the mimic treats as issued to an API client, for tests which present a bearer token without logging in
+   */
+  public static final String API_CLIENT_TOKEN = "apiClientToken";
 
   private static final String LOCATION_HEADER = "location";
 
   private Map<String, String> pendingCodes = new HashMap<>();
 
+  /**
+   * The PKCE code challenge sent with the authorization request each code was issued for, if there was one
+   */
+  private Map<String, String> codeChallenges = new HashMap<>();
+
+  /**
+   * Refresh tokens issued, and the tokens issued, so they can be introspected
+   */
+  private Set<String> refreshTokens = new HashSet<>();
+  private Set<String> issuedTokens = new HashSet<>(Collections.singleton(API_CLIENT_TOKEN));
+
   @Override
   public void start() throws Exception {
     vertx.createHttpServer().requestHandler(router()::accept).listen(OAUTH2PROVIDER_PORT);
@@ -42,6 +69,8 @@ public class OAuth2ProviderMimic extends AbstractVerticle {
     router.route(HttpMethod.GET, OAUTH2_PROVIDER_SUCCESS_ENDPOINT).handler(authSuccessHandler());
     router.route(HttpMethod.POST, OAUTH2_PROVIDER_TOKEN_ENDPOINT).handler(bodyHandlerForTokenRequest());
     router.route(HttpMethod.POST, OAUTH2_PROVIDER_TOKEN_ENDPOINT).handler(tokenRequestHandler());
+    router.route(HttpMethod.POST, OAUTH2_PROVIDER_INTROSPECTION_ENDPOINT).handler(BodyHandler.create());
+    router.route(HttpMethod.POST, OAUTH2_PROVIDER_INTROSPECTION_ENDPOINT).handler(introspectionHandler());
     return router;
   }
 
@@ -58,7 +87,16 @@ public class OAuth2ProviderMimic extends AbstractVerticle {
       final StringBuilder sb = new StringBuilder(redirectUrl);
       sb.append("?");
       sb.append("state").append("=").append(state);
-      sb.append("&").append("code").append("=").append(newCode(clientId, redirectUrl));
+      final String codeChallenge = requestParams.get("code_challenge");
+      if (codeChallenge != null && !"S256".equals(requestParams.get("code_challenge_method"))) {
+        rc.fail(400);
+        return;
+      }
+      final String code = newCode(clientId, redirectUrl);
+      sb.append("&").append("code").append("=").append(code);
+      if (codeChallenge != null) {
+        codeChallenges.put(code, codeChallenge);
+      }
       rc.response().putHeader("location", sb.toString()).setStatusCode(302).end();
     };
   }
@@ -75,6 +113,17 @@ public class OAuth2ProviderMimic extends AbstractVerticle {
       final String redirectUri = rc.request().getParam("redirect_uri");
       final String clientId = rc.request().getParam("client_id");
 
+      if (grantType.filter("refresh_token"::equals).isPresent()) {
+        refreshTokenHandler(rc);
+        return;
+      }
+      // With PKCE, the code is only good with the verifier matching the challenge it was issued for
+      final String codeChallenge = code == null ? null : codeChallenges.remove(code);
+      if (codeChallenge != null && !codeChallenge.equals(s256(rc.request().getParam("code_verifier")))) {
+        rc.fail(400);
+        return;
+      }
+
       Optional<String> token = grantType.flatMap(s -> {
         if (code == null || redirectUri == null || clientId == null) {
           return Optional.empty();
@@ -85,10 +134,7 @@ public class OAuth2ProviderMimic extends AbstractVerticle {
       });
 
       if (token.isPresent()) {
-        JsonObject responseBody = new JsonObject().put("access_token", token.get())
-          .put("token_type", "Bearer")
-          .put("expires_in", 5000);
-        rc.response().setStatusCode(200).end(responseBody.toString());
+        rc.response().setStatusCode(200).end(tokenResponse(token.get()));
       } else {
         rc.fail(401); // We couldn't resolve to a token
       }
@@ -99,6 +145,42 @@ public class OAuth2ProviderMimic extends AbstractVerticle {
 
 
 
+  private void refreshTokenHandler(final RoutingContext rc) {
+    // A refresh token may only be used once - the new one is issued with the new access token
+    if (refreshTokens.remove(rc.request().getParam("refresh_token"))) {
+      rc.response().setStatusCode(200).end(tokenResponse(UUID.randomUUID().toString()));
+    } else {
+      rc.response().setStatusCode(400).end(new JsonObject().put("error", "invalid_grant").toString());
+    }
+  }
+
+  private Handler<RoutingContext> introspectionHandler() {
+    return rc -> rc.response().end(new JsonObject()
+      .put("active", issuedTokens.contains(rc.request().getParam("token"))).toString());
+  }
+
+  private String tokenResponse(final String accessToken) {
+    final String refreshToken = UUID.randomUUID().toString();
+    issuedTokens.add(accessToken);
+    refreshTokens.add(refreshToken);
+    return new JsonObject().put("access_token", accessToken)
+      .put("token_type", "Bearer")
+      .put("expires_in", 5000)
+      .put("refresh_token", refreshToken).toString();
+  }
+
+  private static String s256(final String codeVerifier) {
+    if (codeVerifier == null) {
+      return null;
+    }
+    try {
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(MessageDigest.getInstance("SHA-256")
+        .digest(codeVerifier.getBytes(StandardCharsets.US_ASCII)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   private Optional<String> accessToken(final String clientId, final String redirectUri, final String accessCode) {
     Optional<String> token = Optional.ofNullable(pendingCodes.get(getKey(clientId, redirectUri))).flatMap(code ->
         Optional.of(UUID.randomUUID().toString())
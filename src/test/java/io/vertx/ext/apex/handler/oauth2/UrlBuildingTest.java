@@ -1,6 +1,8 @@
 package io.vertx.ext.apex.handler.oauth2;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URL;
+import java.net.URLDecoder;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -14,6 +16,14 @@ public class UrlBuildingTest {
             String[] queryPairs = query.split("&");
             return Arrays.stream(queryPairs)
                     .map(s -> s.split("="))
-                    .collect(Collectors.toMap(sa -> sa[0], sa -> sa[1]));
+                    .collect(Collectors.toMap(sa -> sa[0], sa -> decode(sa[1])));
+        }
+
+        private static String decode(String value) {
+            try {
+                return URLDecoder.decode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
         }
 }
@@ -0,0 +1,75 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the binary session form of a token set - every field must survive a round trip, whatever else the buffer
+ * holds, and a form this version does not know must be rejected.
+ */
+public class OAuth2TokenSetTest {
+
+  private static OAuth2TokenSet roundTrip(final OAuth2TokenSet tokens, final String prefix) {
+    final Buffer buffer = Buffer.buffer(prefix);
+    tokens.writeToBuffer(buffer);
+    buffer.appendByte((byte) 'x');
+    final OAuth2TokenSet read = new OAuth2TokenSet();
+    assertEquals(buffer.length() - 1, read.readFromBuffer(prefix.length(), buffer));
+    return read;
+  }
+
+  @Test
+  public void allFieldsSurviveARoundTrip() {
+    OAuth2TokenSet read = roundTrip(new OAuth2TokenSet("at", "rt", 1234567890123L, "openid profile",
+      "user-\u00e9"), "prefix");
+    assertEquals("at", read.accessToken());
+    assertEquals("rt", read.refreshToken());
+    assertEquals(1234567890123L, read.expiresAt());
+    assertEquals("openid profile", read.scope());
+    assertEquals("user-\u00e9", read.subject());
+  }
+
+  @Test
+  public void absentFieldsStayAbsent() {
+    OAuth2TokenSet read = roundTrip(new OAuth2TokenSet("at", null, OAuth2TokenSet.UNKNOWN_EXPIRY, null, null), "");
+    assertEquals("at", read.accessToken());
+    assertNull(read.refreshToken());
+    assertEquals(OAuth2TokenSet.UNKNOWN_EXPIRY, read.expiresAt());
+    assertNull(read.scope());
+    assertNull(read.subject());
+  }
+
+  @Test
+  public void readSetIsWrittenBackUnchanged() {
+    OAuth2TokenSet read = roundTrip(new OAuth2TokenSet("at", "rt", 42, "a b", null), "");
+    Buffer first = Buffer.buffer();
+    read.writeToBuffer(first);
+    read.refreshToken();
+    Buffer second = Buffer.buffer();
+    read.writeToBuffer(second);
+    assertEquals(first.toString(), second.toString());
+    assertEquals("rt", roundTrip(read, "").refreshToken());
+  }
+
+  @Test
+  public void expiryIsReckonedFromNow() {
+    OAuth2TokenSet tokens = OAuth2TokenSet.of(new OAuth2TokenResponse("at", "Bearer", 60, "rt", null, "openid"),
+      1000, "subject");
+    assertEquals(61000, tokens.expiresAt());
+    assertEquals("openid", tokens.scope());
+    assertEquals("subject", tokens.subject());
+    assertEquals(OAuth2TokenSet.UNKNOWN_EXPIRY, OAuth2TokenSet.of(new OAuth2TokenResponse("at", null,
+      OAuth2TokenResponse.UNKNOWN_EXPIRY, null, null), 1000, null).expiresAt());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void unknownVersionIsRejected() {
+    Buffer buffer = Buffer.buffer();
+    new OAuth2TokenSet("at", null, 0, null, null).writeToBuffer(buffer);
+    buffer.setByte(0, (byte) (OAuth2TokenSet.VERSION + 1));
+    new OAuth2TokenSet().readFromBuffer(0, buffer);
+  }
+}
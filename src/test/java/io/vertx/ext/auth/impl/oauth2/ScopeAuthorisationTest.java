@@ -0,0 +1,69 @@
+package io.vertx.ext.auth.impl.oauth2;
+
+import io.vertx.core.json.JsonArray;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for authorisation from token scopes - a permission must be granted by the scope of the same name, by the scopes
+ * its rules map it to, and by the rules of any wildcard it falls under, and by nothing else.
+ */
+public class ScopeAuthorisationTest {
+
+  @Test
+  public void scopeGrantsPermissionOfTheSameName() {
+    ScopeAuthorisation authorisation = new ScopeAuthorisation();
+    long[] scopes = authorisation.scopes("openid  profile orders:read");
+    assertTrue(authorisation.isAuthorised(scopes, "orders:read"));
+    assertTrue(authorisation.isAuthorised(scopes, "profile"));
+    assertFalse(authorisation.isAuthorised(scopes, "orders:write"));
+    assertFalse(authorisation.isAuthorised(authorisation.scopes((String) null), "profile"));
+  }
+
+  @Test
+  public void rolesAreMappedToScopes() {
+    ScopeAuthorisation authorisation = new ScopeAuthorisation().grant("role:admin", "admin", "superuser");
+    assertTrue(authorisation.isAuthorised(authorisation.scopes("superuser"), "role:admin"));
+    assertTrue(authorisation.isAuthorised(authorisation.scopes("admin"), "role:admin"));
+    assertFalse(authorisation.isAuthorised(authorisation.scopes("openid"), "role:admin"));
+  }
+
+  @Test
+  public void wildcardsCoverEveryPermissionWithTheirPrefix() {
+    ScopeAuthorisation authorisation = new ScopeAuthorisation().grant("orders:*", "orders").grant("*", "root");
+    long[] orders = authorisation.scopes("orders");
+    assertTrue(authorisation.isAuthorised(orders, "orders:read"));
+    assertTrue(authorisation.isAuthorised(orders, "orders:write"));
+    assertFalse(authorisation.isAuthorised(orders, "invoices:read"));
+    assertTrue(authorisation.isAuthorised(authorisation.scopes("root"), "invoices:read"));
+  }
+
+  @Test
+  public void scopesBeyondTheFirstWordAreTested() {
+    ScopeAuthorisation authorisation = new ScopeAuthorisation();
+    StringBuilder many = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      many.append("scope").append(i).append(' ');
+    }
+    long[] scopes = authorisation.scopes(many.toString());
+    assertEquals(200, authorisation.scopeCount());
+    assertTrue(authorisation.isAuthorised(scopes, "scope199"));
+    assertFalse(authorisation.isAuthorised(authorisation.scopes("scope1"), "scope199"));
+  }
+
+  @Test
+  public void scopesMayBeAJsonArray() {
+    ScopeAuthorisation authorisation = new ScopeAuthorisation();
+    long[] scopes = authorisation.scopes(new JsonArray().add("orders:read").add(42));
+    assertTrue(authorisation.isAuthorised(scopes, "orders:read"));
+  }
+
+  @Test
+  public void scopesBeyondTheLimitGrantNothing() {
+    ScopeAuthorisation authorisation = new ScopeAuthorisation(2);
+    long[] scopes = authorisation.scopes("a b c");
+    assertTrue(authorisation.isAuthorised(scopes, "b"));
+    assertFalse(authorisation.isAuthorised(scopes, "c"));
+  }
+}
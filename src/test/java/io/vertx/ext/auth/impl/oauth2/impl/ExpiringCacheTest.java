@@ -0,0 +1,72 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the bounded, expiring cache used by the OAuth2 auth providers.
+ */
+public class ExpiringCacheTest {
+
+  private static final long TTL = 1000;
+  private static final long NOW = 50000;
+
+  @Test
+  public void liveEntryIsHit() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TTL);
+    cache.put("key", "value", NOW);
+    assertEquals("value", cache.get("key", NOW + TTL - 1));
+    assertEquals(1, cache.hits());
+    assertEquals(0, cache.misses());
+  }
+
+  @Test
+  public void expiredEntryIsMissed() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TTL);
+    cache.put("key", "value", NOW);
+    assertNull(cache.get("key", NOW + TTL));
+    assertNull(cache.get("unknown", NOW));
+    assertEquals(0, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void explicitExpiryIsCappedByTtl() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TTL);
+    cache.putUntil("short", "value", NOW + 10, NOW);
+    cache.putUntil("long", "value", NOW + TTL * 10, NOW);
+    cache.putUntil("past", "value", NOW - 1, NOW);
+    assertNull(cache.get("short", NOW + 10));
+    assertNotNull(cache.get("long", NOW + TTL - 1));
+    assertNull(cache.get("long", NOW + TTL));
+    assertNull(cache.get("past", NOW));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(2, TTL);
+    cache.put("a", "1", NOW);
+    cache.put("b", "2", NOW);
+    cache.get("a", NOW);
+    cache.put("c", "3", NOW);
+    assertEquals(2, cache.size());
+    assertEquals("1", cache.get("a", NOW));
+    assertNull(cache.get("b", NOW));
+    assertEquals("3", cache.get("c", NOW));
+  }
+
+  @Test
+  public void removedEntryIsMissed() {
+    ExpiringCache<String, String> cache = new ExpiringCache<>(10, TTL);
+    cache.put("key", "value", NOW);
+    assertEquals("value", cache.remove("key"));
+    assertNull(cache.get("key", NOW));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonPositiveSizeIsRejected() {
+    new ExpiringCache<String, String>(0, TTL);
+  }
+}
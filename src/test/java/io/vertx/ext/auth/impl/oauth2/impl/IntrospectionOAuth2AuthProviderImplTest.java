@@ -0,0 +1,182 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.impl.oauth2.IntrospectionOAuth2Provider;
+import io.vertx.ext.auth.impl.oauth2.IntrospectionOAuth2ProviderOptions;
+import io.vertx.ext.auth.impl.oauth2.OAuth2AuthProvider;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for the introspection provider - one call per token however many authentications race for it, results served
+ * from the cache, a cap on the calls outstanding at once and on the response size, and calls which fail rather than
+ * hang when the introspection endpoint stalls.
+ */
+public class IntrospectionOAuth2AuthProviderImplTest extends VertxTestBase {
+
+  private static final int PORT = 9393;
+  private static final String INTROSPECTION_URL = "http://localhost:" + PORT + "/introspect";
+  private static final String ACTIVE = "{\"active\":true,\"scope\":\"read\"}";
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  /**
+   * Start an introspection endpoint which counts each request, then passes it to the given handler
+   */
+  private void startServer(final Handler<HttpServerRequest> handler) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.createHttpServer().requestHandler(req -> {
+      requests.incrementAndGet();
+      handler.handle(req);
+    }).listen(PORT, result -> latch.countDown());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  private IntrospectionOAuth2Provider provider(final IntrospectionOAuth2ProviderOptions options) {
+    return IntrospectionOAuth2Provider.create(vertx, options.setIntrospectionUrl(INTROSPECTION_URL));
+  }
+
+  private static JsonObject authInfo(final String token) {
+    return new JsonObject().put(OAuth2AuthProvider.ACCESS_TOKEN, token);
+  }
+
+  @Test
+  public void racingAuthenticationsShareOneCall() throws Exception {
+    startServer(req -> vertx.setTimer(100, id -> req.response().end(ACTIVE)));
+    IntrospectionOAuth2Provider provider = provider(new IntrospectionOAuth2ProviderOptions());
+    AtomicInteger results = new AtomicInteger();
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < 5; i++) {
+        provider.authenticate(authInfo("token"), result -> {
+          assertTrue(result.succeeded());
+          if (results.incrementAndGet() == 5) {
+            assertEquals(1, requests.get());
+            assertEquals(1, provider.introspectionRequests());
+            testComplete();
+          }
+        });
+      }
+    });
+    await();
+  }
+
+  @Test
+  public void resultsAreCached() throws Exception {
+    startServer(req -> req.bodyHandler(body -> req.response().end(body.toString().contains("token=active") ?
+      ACTIVE : "{\"active\":false}")));
+    IntrospectionOAuth2Provider provider = provider(new IntrospectionOAuth2ProviderOptions());
+    vertx.runOnContext(v -> provider.authenticate(authInfo("active"), first -> {
+      assertTrue(first.succeeded());
+      provider.authenticate(authInfo("inactive"), second -> {
+        assertTrue(second.failed());
+        // Active and inactive results alike are answered from the cache
+        provider.authenticate(authInfo("active"), third -> {
+          assertTrue(third.succeeded());
+          provider.authenticate(authInfo("inactive"), fourth -> {
+            assertTrue(fourth.failed());
+            assertEquals(2, requests.get());
+            assertEquals(2, provider.cacheHits());
+            testComplete();
+          });
+        });
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void failedCallsAreNotCached() throws Exception {
+    startServer(req -> req.response().setStatusCode(requests.get() == 1 ? 500 : 200).end(ACTIVE));
+    IntrospectionOAuth2Provider provider = provider(new IntrospectionOAuth2ProviderOptions());
+    vertx.runOnContext(v -> provider.authenticate(authInfo("token"), first -> {
+      assertTrue(first.failed());
+      provider.authenticate(authInfo("token"), second -> {
+        assertTrue(second.succeeded());
+        assertEquals(2, requests.get());
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void oversizedResponseFails() throws Exception {
+    startServer(req -> req.response().end(requests.get() == 1 ? "{\"active\":true,\"scope\":\"" +
+      new String(new char[100]).replace('\0', 'a') + "\"}" : ACTIVE));
+    IntrospectionOAuth2Provider provider = provider(new IntrospectionOAuth2ProviderOptions().setMaxResponseBytes(64));
+    vertx.runOnContext(v -> provider.authenticate(authInfo("large"), first -> {
+      assertTrue(first.failed());
+      provider.authenticate(authInfo("small"), second -> {
+        assertTrue(second.succeeded());
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void outstandingCallsAreCapped() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    startServer(req -> {
+      assertEquals(1, inFlight.incrementAndGet());
+      vertx.setTimer(50, id -> {
+        inFlight.decrementAndGet();
+        req.response().end(ACTIVE);
+      });
+    });
+    IntrospectionOAuth2Provider provider = provider(new IntrospectionOAuth2ProviderOptions()
+      .setMaxOutstandingRequests(1).setMaxQueuedRequests(1));
+    AtomicInteger rejected = new AtomicInteger();
+    vertx.runOnContext(v -> {
+      provider.authenticate(authInfo("first"), result -> assertTrue(result.succeeded()));
+      provider.authenticate(authInfo("second"), result -> {
+        // Queued behind the first, then sent once it completed
+        assertTrue(result.succeeded());
+        assertEquals(2, requests.get());
+        assertEquals(1, rejected.get());
+        testComplete();
+      });
+      provider.authenticate(authInfo("third"), result -> {
+        // Nowhere to wait, so rejected straight away
+        assertTrue(result.failed());
+        rejected.incrementAndGet();
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void stalledCallFailsItsWaitersAndFreesItsPlace() throws Exception {
+    startServer(req -> {
+      if (requests.get() == 1) {
+        req.response().putHeader("Content-Length", "100").write("{\"active\":");
+      } else {
+        req.response().end(ACTIVE);
+      }
+    });
+    IntrospectionOAuth2Provider provider = provider(new IntrospectionOAuth2ProviderOptions()
+      .setRequestTimeoutMillis(100).setMaxOutstandingRequests(1));
+    AtomicInteger timedOut = new AtomicInteger();
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < 2; i++) {
+        provider.authenticate(authInfo("stalled"), result -> {
+          assertTrue(result.cause() instanceof TimeoutException);
+          timedOut.incrementAndGet();
+        });
+      }
+      provider.authenticate(authInfo("next"), result -> {
+        assertTrue(result.succeeded());
+        assertEquals(2, timedOut.get());
+        testComplete();
+      });
+    });
+    await();
+  }
+}
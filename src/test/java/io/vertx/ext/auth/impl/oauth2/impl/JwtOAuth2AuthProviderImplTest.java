@@ -0,0 +1,194 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.impl.oauth2.JwtOAuth2Provider;
+import io.vertx.ext.auth.impl.oauth2.JwtOAuth2ProviderOptions;
+import io.vertx.ext.auth.impl.oauth2.OAuth2AuthProvider;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for the JWT provider's key set loading - the first load must not hold up whoever creates the provider, the
+ * key set must be reloaded once its refresh interval is up, and a failed or stalled reload must leave the last good
+ * key set in use without stopping later reloads.
+ */
+public class JwtOAuth2AuthProviderImplTest extends VertxTestBase {
+
+  private static final int PORT = 9393;
+  private static final String KEY_SET_URL = "http://localhost:" + PORT + "/jwks";
+  private static final String ISSUER = "https://idp.test.com";
+  private static final String AUDIENCE = "testApi";
+  private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+  private static final KeyPair KEYS = keyPair();
+  private static final KeyPair ROTATED_KEYS = keyPair();
+
+  /**
+   * The key sets served - encoded up front, as the first JSON encoding in a fresh JVM can take longer than the short
+   * load timeouts used here
+   */
+  private static final String KEY_SET = keySet("key1", KEYS);
+  private static final String ROTATED_KEY_SET = keySet("key2", ROTATED_KEYS);
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  /**
+   * Start a key set endpoint which counts each request, then passes it to the given handler
+   */
+  private void startServer(final Handler<HttpServerRequest> handler) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.createHttpServer().requestHandler(req -> {
+      requests.incrementAndGet();
+      handler.handle(req);
+    }).listen(PORT, result -> latch.countDown());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  private static JwtOAuth2ProviderOptions options() {
+    return new JwtOAuth2ProviderOptions().setKeySetUrl(KEY_SET_URL).setIssuer(ISSUER).setAudience(AUDIENCE);
+  }
+
+  private static JsonObject authInfo(final String kid, final KeyPair keys) {
+    return new JsonObject().put(OAuth2AuthProvider.ACCESS_TOKEN, token(kid, keys.getPrivate()));
+  }
+
+  @Test
+  public void firstLoadDoesNotBlock() throws Exception {
+    startServer(req -> vertx.setTimer(200, id -> req.response().end(KEY_SET)));
+    long start = System.currentTimeMillis();
+    JwtOAuth2Provider provider = JwtOAuth2Provider.create(vertx, options());
+    assertTrue(System.currentTimeMillis() - start < 200);
+    assertEquals(0, provider.keySetLoadedAt());
+    vertx.setTimer(1000, id -> provider.authenticate(authInfo("key1", KEYS), result -> {
+      assertTrue(result.succeeded());
+      assertEquals(1, requests.get());
+      provider.close();
+      testComplete();
+    }));
+    await();
+  }
+
+  @Test
+  public void keySetIsReloadedAfterRefreshInterval() throws Exception {
+    startServer(req -> req.response().end(requests.get() == 1 ? KEY_SET : ROTATED_KEY_SET));
+    JwtOAuth2Provider provider = JwtOAuth2Provider.create(vertx, options().setKeySetRefreshMillis(300));
+    vertx.setTimer(1000, id -> provider.authenticate(authInfo("key2", ROTATED_KEYS), rotated -> {
+      assertTrue(rotated.succeeded());
+      assertTrue(requests.get() >= 2);
+      // Replaced wholesale, so the old key has gone
+      provider.authenticate(authInfo("key1", KEYS), old -> {
+        assertTrue(old.failed());
+        provider.close();
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void lastGoodKeySetIsKeptWhenReloadsFail() throws Exception {
+    startServer(req -> {
+      if (requests.get() == 1) {
+        req.response().end(KEY_SET);
+      } else if (requests.get() == 2) {
+        req.response().setStatusCode(500).end();
+      } else {
+        // Stall part way through the body
+        req.response().putHeader("Content-Length", "1000").write("{\"keys\":");
+      }
+    });
+    JwtOAuth2Provider provider = JwtOAuth2Provider.create(vertx, options().setKeySetRefreshMillis(300)
+      .setKeySetTimeoutMillis(200));
+    vertx.setTimer(500, id -> {
+      final long loadedAt = provider.keySetLoadedAt();
+      assertTrue(loadedAt > 0);
+      vertx.setTimer(1000, id2 -> provider.authenticate(authInfo("key1", KEYS), result -> {
+        // The failed reload and the stalled ones after it each completed in turn, so the refresh carried on
+        assertTrue(requests.get() >= 4);
+        assertTrue(result.succeeded());
+        assertEquals(loadedAt, provider.keySetLoadedAt());
+        provider.close();
+        testComplete();
+      }));
+    });
+    await();
+  }
+
+  @Test
+  public void stalledLoadTimesOutAndIsRetried() throws Exception {
+    startServer(req -> {
+      if (requests.get() == 1) {
+        req.response().putHeader("Content-Length", "1000").write("{\"keys\":");
+      } else {
+        req.response().end(KEY_SET);
+      }
+    });
+    JwtOAuth2Provider provider = JwtOAuth2Provider.create(vertx, options().setKeySetRefreshMillis(500)
+      .setKeySetTimeoutMillis(200));
+    vertx.setTimer(1500, id -> provider.authenticate(authInfo("key1", KEYS), result -> {
+      assertTrue(result.succeeded());
+      assertTrue(requests.get() >= 2);
+      provider.close();
+      testComplete();
+    }));
+    await();
+  }
+
+  private static String token(final String kid, final PrivateKey key) {
+    final long now = System.currentTimeMillis() / 1000;
+    final JsonObject claims = new JsonObject().put("iss", ISSUER).put("sub", "testUser").put("aud", AUDIENCE)
+      .put("exp", now + 60).put("nbf", now - 60);
+    String signingInput = encode(new JsonObject().put("alg", "RS256").put("kid", kid).encode()
+      .getBytes(StandardCharsets.UTF_8)) + "." + encode(claims.encode().getBytes(StandardCharsets.UTF_8));
+    try {
+      Signature signature = Signature.getInstance("SHA256withRSA");
+      signature.initSign(key);
+      signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+      return signingInput + "." + encode(signature.sign());
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String keySet(final String kid, final KeyPair keys) {
+    final RSAPublicKey key = (RSAPublicKey) keys.getPublic();
+    return new JsonObject().put("keys", new JsonArray().add(new JsonObject().put("kty", "RSA").put("kid", kid)
+      .put("use", "sig").put("n", encode(unsigned(key.getModulus())))
+      .put("e", encode(unsigned(key.getPublicExponent()))))).encode();
+  }
+
+  private static byte[] unsigned(final BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+  }
+
+  private static String encode(final byte[] bytes) {
+    return BASE64_URL.encodeToString(bytes);
+  }
+
+  private static KeyPair keyPair() {
+    try {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+      generator.initialize(2048);
+      return generator.generateKeyPair();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for local JWT verification against a JSON web key set - signatures made with known RSA and EC keys must
+ * verify, and tampered, expired, not yet valid, wrongly addressed or unknown-key tokens must be rejected.
+ */
+public class JwtVerifierTest {
+
+  private static final String ISSUER = "https://idp.test.com";
+  private static final String AUDIENCE = "testApi";
+  private static final long NOW = 1430000000000L;
+  private static final long SKEW = 30000;
+  private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+  private static final KeyPair RSA_KEYS = keyPair("RSA", null);
+  private static final KeyPair EC_KEYS = keyPair("EC", "secp256r1");
+  private static final KeyPair OTHER_RSA_KEYS = keyPair("RSA", null);
+
+  private final JwtVerifier verifier = new JwtVerifier(ISSUER, AUDIENCE, SKEW);
+  private final JsonWebKeySet keySet = JsonWebKeySet.parse(new JsonObject().put("keys", new JsonArray()
+    .add(rsaJwk("rsa1", (RSAPublicKey) RSA_KEYS.getPublic()))
+    .add(ecJwk("ec1", (ECPublicKey) EC_KEYS.getPublic()))
+    .add(new JsonObject().put("kty", "RSA").put("use", "enc").put("kid", "encryption"))), NOW);
+
+  @Test
+  public void rsaSignedTokenVerifies() {
+    JsonObject claims = verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), validClaims()), keySet, NOW);
+    assertEquals("testUser", claims.getString("sub"));
+  }
+
+  @Test
+  public void ecSignedTokenVerifies() {
+    JsonObject claims = verifier.verify(token("ES256", "ec1", EC_KEYS.getPrivate(), validClaims()), keySet, NOW);
+    assertEquals("testUser", claims.getString("sub"));
+  }
+
+  @Test
+  public void audienceArrayIsAccepted() {
+    JsonObject claims = validClaims().put("aud", new JsonArray().add("otherApi").add(AUDIENCE));
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test
+  public void nonSigningKeysAreSkipped() {
+    assertEquals(2, keySet.size());
+  }
+
+  @Test
+  public void unusableKeysAreSkipped() {
+    JsonWebKeySet keySet = JsonWebKeySet.parse(new JsonObject().put("keys", new JsonArray()
+      .add(new JsonObject().put("kty", "EC").put("crv", "P-192").put("kid", "otherCurve").put("x", "AA").put("y", "AA"))
+      .add(new JsonObject().put("kty", "RSA").put("kid", "noModulus").put("e", "AQAB"))
+      .add(rsaJwk("rsa1", (RSAPublicKey) RSA_KEYS.getPublic()))), NOW);
+    assertEquals(1, keySet.size());
+    verifier.verify(token("RS256", null, RSA_KEYS.getPrivate(), validClaims()), keySet, NOW);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void keySetWithNoUsableKeyIsRejected() {
+    JsonWebKeySet.parse(new JsonObject().put("keys", new JsonArray()
+      .add(new JsonObject().put("kty", "EC").put("crv", "P-192").put("kid", "otherCurve").put("x", "AA").put("y", "AA"))),
+      NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void tokenSignedWithOtherKeyIsRejected() {
+    verifier.verify(token("RS256", "rsa1", OTHER_RSA_KEYS.getPrivate(), validClaims()), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void tamperedPayloadIsRejected() {
+    String token = token("RS256", "rsa1", RSA_KEYS.getPrivate(), validClaims());
+    String[] parts = token.split("\\.");
+    String forged = encode(validClaims().put("sub", "admin").encode().getBytes(StandardCharsets.UTF_8));
+    verifier.verify(parts[0] + "." + forged + "." + parts[2], keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void algorithmNoneIsRejected() {
+    String header = encode(new JsonObject().put("alg", "none").encode().getBytes(StandardCharsets.UTF_8));
+    String payload = encode(validClaims().encode().getBytes(StandardCharsets.UTF_8));
+    verifier.verify(header + "." + payload + ".", keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void algorithmNotMatchingKeyTypeIsRejected() {
+    verifier.verify(token("ES256", "rsa1", EC_KEYS.getPrivate(), validClaims()), keySet, NOW);
+  }
+
+  @Test
+  public void unknownKeyIsReportedAsSuch() {
+    try {
+      verifier.verify(token("RS256", "rsa2", RSA_KEYS.getPrivate(), validClaims()), keySet, NOW);
+      fail("Token signed with an unknown key should not verify");
+    } catch (JwtVerifier.JwtVerificationException e) {
+      assertTrue(e.unknownKey());
+    }
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void expiredTokenIsRejected() {
+    JsonObject claims = validClaims().put("exp", (NOW - SKEW) / 1000);
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test
+  public void expiryWithinClockSkewIsAccepted() {
+    JsonObject claims = validClaims().put("exp", (NOW - SKEW / 2) / 1000);
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void missingExpiryIsRejected() {
+    JsonObject claims = validClaims();
+    claims.remove("exp");
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void notYetValidTokenIsRejected() {
+    JsonObject claims = validClaims().put("nbf", (NOW + 2 * SKEW) / 1000);
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void wrongIssuerIsRejected() {
+    JsonObject claims = validClaims().put("iss", "https://evil.com");
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void wrongAudienceIsRejected() {
+    JsonObject claims = validClaims().put("aud", "otherApi");
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void nonStringAlgorithmIsRejected() {
+    String header = encode(new JsonObject().put("alg", 256).put("kid", "rsa1").encode()
+      .getBytes(StandardCharsets.UTF_8));
+    String payload = encode(validClaims().encode().getBytes(StandardCharsets.UTF_8));
+    verifier.verify(header + "." + payload + ".c2ln", keySet, NOW);
+  }
+
+  @Test
+  public void nonStringKeyIdIsRejected() {
+    String header = encode(new JsonObject().put("alg", "RS256").put("kid", new JsonArray().add("rsa1")).encode()
+      .getBytes(StandardCharsets.UTF_8));
+    String payload = encode(validClaims().encode().getBytes(StandardCharsets.UTF_8));
+    try {
+      verifier.verify(header + "." + payload + ".c2ln", keySet, NOW);
+      fail("Token with a non-string key id should not verify");
+    } catch (JwtVerifier.JwtVerificationException e) {
+      // Not a key we might find by reloading
+      assertFalse(e.unknownKey());
+    }
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void nonNumericExpiryIsRejected() {
+    JsonObject claims = validClaims().put("exp", String.valueOf((NOW + 60000) / 1000));
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void nonNumericNotBeforeIsRejected() {
+    JsonObject claims = validClaims().put("nbf", new JsonObject());
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void nonNumericIssuedAtIsRejected() {
+    JsonObject claims = validClaims().put("iat", "yesterday");
+    verifier.verify(token("RS256", "rsa1", RSA_KEYS.getPrivate(), claims), keySet, NOW);
+  }
+
+  @Test(expected = JwtVerifier.JwtVerificationException.class)
+  public void malformedTokenIsRejected() {
+    verifier.verify("not.a.jwt.at.all", keySet, NOW);
+  }
+
+  private static JsonObject validClaims() {
+    return new JsonObject()
+      .put("iss", ISSUER)
+      .put("sub", "testUser")
+      .put("aud", AUDIENCE)
+      .put("exp", (NOW + 60000) / 1000)
+      .put("nbf", (NOW - 60000) / 1000);
+  }
+
+  private static String token(final String alg, final String kid, final PrivateKey key, final JsonObject claims) {
+    String signingInput = encode(new JsonObject().put("alg", alg).put("kid", kid).encode().getBytes(StandardCharsets.UTF_8))
+      + "." + encode(claims.encode().getBytes(StandardCharsets.UTF_8));
+    try {
+      Signature signature = Signature.getInstance(alg.startsWith("RS") ? "SHA256withRSA" : "SHA256withECDSA");
+      signature.initSign(key);
+      signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+      byte[] sig = signature.sign();
+      return signingInput + "." + encode(alg.startsWith("ES") ? derToJws(sig, 32) : sig);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Convert a DER encoded ECDSA signature to the fixed length r and s form used by JWS
+   */
+  private static byte[] derToJws(final byte[] der, final int valueLength) {
+    int pos = (der[1] & 0x80) != 0 ? 3 : 2;
+    byte[] jws = new byte[2 * valueLength];
+    for (int i = 0; i < 2; i++) {
+      int length = der[pos + 1];
+      byte[] value = Arrays.copyOfRange(der, pos + 2, pos + 2 + length);
+      byte[] unsigned = new BigInteger(1, value).toByteArray();
+      int start = unsigned.length > valueLength ? unsigned.length - valueLength : 0;
+      int copied = unsigned.length - start;
+      System.arraycopy(unsigned, start, jws, (i + 1) * valueLength - copied, copied);
+      pos += 2 + length;
+    }
+    return jws;
+  }
+
+  private static JsonObject rsaJwk(final String kid, final RSAPublicKey key) {
+    return new JsonObject().put("kty", "RSA").put("kid", kid).put("use", "sig")
+      .put("n", encode(unsigned(key.getModulus()))).put("e", encode(unsigned(key.getPublicExponent())));
+  }
+
+  private static JsonObject ecJwk(final String kid, final ECPublicKey key) {
+    return new JsonObject().put("kty", "EC").put("kid", kid).put("crv", "P-256").put("alg", "ES256")
+      .put("x", encode(unsigned(key.getW().getAffineX()))).put("y", encode(unsigned(key.getW().getAffineY())));
+  }
+
+  private static byte[] unsigned(final BigInteger value) {
+    byte[] bytes = value.toByteArray();
+    return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+  }
+
+  private static String encode(final byte[] bytes) {
+    return BASE64_URL.encodeToString(bytes);
+  }
+
+  private static KeyPair keyPair(final String algorithm, final String curve) {
+    try {
+      KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+      if (curve != null) {
+        generator.initialize(new ECGenParameterSpec(curve));
+      } else {
+        generator.initialize(2048);
+      }
+      return generator.generateKeyPair();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
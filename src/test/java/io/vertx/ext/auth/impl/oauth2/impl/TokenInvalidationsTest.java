@@ -0,0 +1,52 @@
+package io.vertx.ext.auth.impl.oauth2.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the token versions which stop a node caching a session read from a clustered store which has not caught
+ * up with a change made on another node.
+ */
+public class TokenInvalidationsTest {
+
+  private static final long TTL = 1000;
+  private static final long NOW = 50000;
+
+  @Test
+  public void olderSessionIsSuperseded() {
+    TokenInvalidations invalidations = new TokenInvalidations(10, TTL);
+    invalidations.invalidate("session", 3, false, NOW);
+    TokenInvalidations.Invalidation latest = invalidations.latest("session", NOW);
+    assertTrue(latest.supersedes(2));
+    assertFalse(latest.supersedes(3));
+    assertFalse(latest.removed);
+    assertNull(invalidations.latest("other", NOW));
+  }
+
+  @Test
+  public void lateOlderChangeIsIgnored() {
+    TokenInvalidations invalidations = new TokenInvalidations(10, TTL);
+    invalidations.invalidate("session", 3, true, NOW);
+    TokenInvalidations.Invalidation latest = invalidations.latest("session", NOW);
+    invalidations.invalidate("session", 2, false, NOW);
+    assertSame(latest, invalidations.latest("session", NOW));
+    assertTrue(latest.removed);
+  }
+
+  @Test
+  public void newerChangeIsANewObject() {
+    TokenInvalidations invalidations = new TokenInvalidations(10, TTL);
+    invalidations.invalidate("session", 1, false, NOW);
+    TokenInvalidations.Invalidation before = invalidations.latest("session", NOW);
+    invalidations.invalidate("session", 2, false, NOW);
+    assertNotSame(before, invalidations.latest("session", NOW));
+  }
+
+  @Test
+  public void versionsAreForgottenAfterTheirTimeToLive() {
+    TokenInvalidations invalidations = new TokenInvalidations(10, TTL);
+    invalidations.invalidate("session", 1, true, NOW);
+    assertNull(invalidations.latest("session", NOW + TTL));
+  }
+}
@@ -0,0 +1,221 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.handler.oauth2.AuthTokenGrant;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestParameters;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestProvider;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for sending code exchanges - only failures which mean the provider cannot have seen the code are retried,
+ * after a growing backoff, and every attempt is bounded by its timeout from sending the request to the end of the
+ * response body.
+ */
+public class AuthTokenRequestorTest extends VertxTestBase {
+
+  private static final int PORT = 9393;
+  private static final String TOKEN_URL = "http://localhost:" + PORT + "/token";
+  private static final String BODY = "{\"access_token\":\"at\",\"token_type\":\"Bearer\"}";
+  private static final AuthTokenGrant GRANT = AuthTokenGrant.authorizationCode("code");
+
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger retries = new AtomicInteger();
+
+  private final OAuth2Metrics metrics = new OAuth2Metrics() {
+    @Override
+    public void tokenRequestRetried() {
+      retries.incrementAndGet();
+    }
+  };
+
+  /**
+   * Start a token endpoint which counts each request, then passes it to the given handler
+   */
+  private void startServer(final Handler<HttpServerRequest> handler) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.createHttpServer().requestHandler(req -> {
+      requests.incrementAndGet();
+      handler.handle(req);
+    }).listen(PORT, result -> latch.countDown());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  private AuthTokenRequestor requestor(final String tokenUrl, final long timeoutMillis, final int maxRetries,
+                                       final long retryBackoffMillis) {
+    return new AuthTokenRequestor(vertx, AuthTokenRequestProvider.POST,
+      new AuthTokenRequestParameters(tokenUrl, "client", "secret", "http://localhost:8080/authResult"),
+      timeoutMillis, 1024, maxRetries, retryBackoffMillis, null, metrics);
+  }
+
+  @Test
+  public void serviceUnavailableIsRetried() throws Exception {
+    startServer(req -> {
+      if (requests.get() < 3) {
+        req.response().setStatusCode(503).end("busy");
+      } else {
+        req.response().end(BODY);
+      }
+    });
+    requestor(TOKEN_URL, 1000, 2, 0).invoke(vertx.createHttpClient(), GRANT, result -> {
+      assertTrue(result.succeeded());
+      assertEquals("at", result.result().accessToken());
+      assertEquals(3, requests.get());
+      assertEquals(2, retries.get());
+      testComplete();
+    }, e -> fail("Exchange should succeed on its third attempt"));
+    await();
+  }
+
+  @Test
+  public void codeVerifierIsSentWithCode() throws Exception {
+    startServer(req -> req.bodyHandler(body -> {
+      assertTrue(body.toString().endsWith("&code=a%20code&code_verifier=verifier"));
+      req.response().end(BODY);
+    }));
+    requestor(TOKEN_URL, 1000, 0, 0).invoke(vertx.createHttpClient(),
+      AuthTokenGrant.authorizationCode("a code", "verifier"), result -> {
+        assertTrue(result.succeeded());
+        testComplete();
+      }, e -> fail("Exchange should succeed"));
+    await();
+  }
+
+  @Test
+  public void retriesBackOffExponentially() throws Exception {
+    startServer(req -> {
+      if (requests.get() < 3) {
+        req.response().setStatusCode(503).end();
+      } else {
+        req.response().end(BODY);
+      }
+    });
+    long start = System.currentTimeMillis();
+    requestor(TOKEN_URL, 1000, 2, 100).invoke(vertx.createHttpClient(), GRANT, result -> {
+      assertTrue(result.succeeded());
+      // At least half of 100ms, then half of 200ms
+      assertTrue(System.currentTimeMillis() - start >= 150);
+      testComplete();
+    }, e -> fail("Exchange should succeed on its third attempt"));
+    await();
+  }
+
+  @Test
+  public void serviceUnavailableAfterLastRetryIsReported() throws Exception {
+    startServer(req -> req.response().setStatusCode(503).end());
+    requestor(TOKEN_URL, 1000, 1, 0).invoke(vertx.createHttpClient(), GRANT, result -> {
+      assertTrue(result.failed());
+      assertEquals(2, requests.get());
+      testComplete();
+    }, e -> fail("The last response should be reported"));
+    await();
+  }
+
+  @Test
+  public void otherServerErrorsAreNotRetried() throws Exception {
+    startServer(req -> req.response().setStatusCode(500).end());
+    requestor(TOKEN_URL, 1000, 2, 0).invoke(vertx.createHttpClient(), GRANT, result -> {
+      assertTrue(result.failed());
+      assertEquals(1, requests.get());
+      assertEquals(0, retries.get());
+      testComplete();
+    }, e -> fail("The response should be reported"));
+    await();
+  }
+
+  @Test
+  public void refusedConnectionIsRetried() {
+    // Nothing listens on the port
+    requestor(TOKEN_URL, 1000, 2, 0).invoke(vertx.createHttpClient(), GRANT,
+      result -> fail("There is no token endpoint"), e -> {
+        assertEquals(2, retries.get());
+        testComplete();
+      });
+    await();
+  }
+
+  @Test
+  public void stalledHeadTimesOut() throws Exception {
+    startServer(req -> {
+    });
+    requestor(TOKEN_URL, 100, 2, 0).invoke(vertx.createHttpClient(), GRANT,
+      result -> fail("The response never arrives"), e -> {
+        assertTrue(e instanceof TimeoutException);
+        // The provider may have seen the code
+        assertEquals(0, retries.get());
+        testComplete();
+      });
+    await();
+  }
+
+  @Test
+  public void stalledBodyTimesOut() throws Exception {
+    startServer(req -> req.response().putHeader("Content-Length", String.valueOf(BODY.length()))
+      .write(BODY.substring(0, 10)));
+    requestor(TOKEN_URL, 100, 2, 0).invoke(vertx.createHttpClient(), GRANT,
+      result -> fail("The body never completes"), e -> {
+        assertTrue(e instanceof TimeoutException);
+        testComplete();
+      });
+    await();
+  }
+
+  @Test
+  public void bodyStalledAfterHeadersClosesTheConnection() throws Exception {
+    CountDownLatch closed = new CountDownLatch(1);
+    startServer(req -> {
+      if (requests.get() == 1) {
+        // Send the head, then nothing more
+        req.response().closeHandler(v -> closed.countDown());
+        req.response().putHeader("Content-Length", String.valueOf(BODY.length())).write("");
+      } else {
+        req.response().end(BODY);
+      }
+    });
+    // With a single pooled connection, the next request only goes through if the stalled one was dropped
+    HttpClient client = vertx.createHttpClient(new HttpClientOptions().setMaxPoolSize(1));
+    AuthTokenRequestor requestor = requestor(TOKEN_URL, 100, 2, 0);
+    requestor.invoke(client, GRANT, result -> fail("The body never arrives"), e -> {
+      assertTrue(e instanceof TimeoutException);
+      requestor.invoke(client, GRANT, result -> {
+        assertTrue(result.succeeded());
+        assertEquals(0, closed.getCount());
+        testComplete();
+      }, e2 -> fail(e2.getMessage()));
+    });
+    await();
+  }
+
+  @Test
+  public void connectionLostMidBodyIsReported() throws Exception {
+    startServer(req -> req.response().putHeader("Content-Length", String.valueOf(BODY.length()))
+      .write(BODY.substring(0, 10)).close());
+    requestor(TOKEN_URL, 1000, 2, 0).invoke(vertx.createHttpClient(), GRANT,
+      result -> fail("The body never completes"), e -> {
+        assertFalse(e instanceof TimeoutException);
+        testComplete();
+      });
+    await();
+  }
+
+  @Test
+  public void connectionLostWhileDrainingServiceUnavailableIsReported() throws Exception {
+    startServer(req -> req.response().setStatusCode(503).putHeader("Content-Length", "100").write("busy").close());
+    requestor(TOKEN_URL, 1000, 2, 0).invoke(vertx.createHttpClient(), GRANT,
+      result -> fail("The body never completes"), e -> {
+        assertFalse(e instanceof TimeoutException);
+        assertEquals(0, retries.get());
+        testComplete();
+      });
+    await();
+  }
+}
@@ -0,0 +1,84 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics.CircuitState;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the token endpoint circuit breaker - it must open after consecutive failures only, refuse requests while
+ * open, let a single trial through after the reset time, and report every state change.
+ */
+public class CircuitBreakerTest {
+
+  private static final long RESET = 1000;
+
+  private final List<CircuitState> changes = new ArrayList<>();
+  private final CircuitBreaker breaker = new CircuitBreaker(3, RESET, new OAuth2Metrics() {
+    @Override
+    public void circuitStateChanged(final CircuitState state) {
+      changes.add(state);
+    }
+  });
+
+  @Test
+  public void opensAfterConsecutiveFailures() {
+    breaker.failure(0);
+    breaker.failure(0);
+    assertTrue(breaker.allowRequest(0));
+    breaker.failure(0);
+    assertEquals(CircuitState.OPEN, breaker.state());
+    assertFalse(breaker.allowRequest(RESET - 1));
+  }
+
+  @Test
+  public void successResetsFailureCount() {
+    breaker.failure(0);
+    breaker.failure(0);
+    breaker.success();
+    breaker.failure(0);
+    breaker.failure(0);
+    assertEquals(CircuitState.CLOSED, breaker.state());
+    assertTrue(changes.isEmpty());
+  }
+
+  @Test
+  public void singleTrialAfterReset() {
+    open();
+    assertTrue(breaker.allowRequest(RESET));
+    assertEquals(CircuitState.HALF_OPEN, breaker.state());
+    assertFalse(breaker.allowRequest(RESET));
+    breaker.success();
+    assertEquals(CircuitState.CLOSED, breaker.state());
+    assertEquals(3, changes.size());
+    assertEquals(CircuitState.CLOSED, changes.get(2));
+  }
+
+  @Test
+  public void failedTrialReopens() {
+    open();
+    assertTrue(breaker.allowRequest(RESET));
+    breaker.failure(RESET);
+    assertEquals(CircuitState.OPEN, breaker.state());
+    assertFalse(breaker.allowRequest(2 * RESET - 1));
+    assertTrue(breaker.allowRequest(2 * RESET));
+  }
+
+  @Test
+  public void lateFailuresWhileOpenDoNotExtendIt() {
+    open();
+    breaker.failure(RESET / 2);
+    assertTrue(breaker.allowRequest(RESET));
+  }
+
+  private void open() {
+    breaker.failure(0);
+    breaker.failure(0);
+    breaker.failure(0);
+    assertEquals(CircuitState.OPEN, breaker.state());
+  }
+}
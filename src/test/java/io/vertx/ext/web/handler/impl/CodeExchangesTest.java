@@ -0,0 +1,188 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.ext.auth.impl.oauth2.impl.ExpiringCache;
+import io.vertx.ext.web.handler.oauth2.OAuth2TokenResponse;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for code exchange deduplication - a replayed callback must share the exchange in flight or be rejected once
+ * it has completed, only within the session the code was issued to, and a code the provider never saw must stay good
+ * for a retry.
+ */
+public class CodeExchangesTest extends VertxTestBase {
+
+  private static final OAuth2TokenResponse TOKEN = new OAuth2TokenResponse("token", "Bearer", 3600, null, null);
+
+  private final AtomicInteger exchanges = new AtomicInteger();
+  private final List<Handler<AsyncResult<OAuth2TokenResponse>>> pending = new ArrayList<>();
+
+  /**
+   * An exchange which counts each time it is started, leaving it in flight until completed through pending
+   */
+  private void exchange(final Handler<AsyncResult<OAuth2TokenResponse>> handler) {
+    exchanges.incrementAndGet();
+    pending.add(handler);
+  }
+
+  @Test
+  public void waitersShareTheExchangeInFlight() {
+    CodeExchanges codeExchanges = new CodeExchanges(vertx);
+    AtomicInteger results = new AtomicInteger();
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < 3; i++) {
+        codeExchanges.exchange("session", "code", this::exchange, result -> {
+          assertSame(TOKEN, result.result());
+          if (results.incrementAndGet() == 3) {
+            assertEquals(1, exchanges.get());
+            testComplete();
+          }
+        });
+      }
+      assertEquals(1, pending.size());
+      pending.get(0).handle(Future.succeededFuture(TOKEN));
+    });
+    await();
+  }
+
+  @Test
+  public void replayedCallbackIsRejected() {
+    CodeExchanges codeExchanges = new CodeExchanges(vertx);
+    vertx.runOnContext(v -> {
+      codeExchanges.exchange("session", "code", this::exchange, first -> {
+        assertTrue(first.succeeded());
+        codeExchanges.exchange("session", "code", this::exchange, replay -> {
+          assertTrue(replay.failed());
+          assertEquals(1, exchanges.get());
+          testComplete();
+        });
+      });
+      pending.get(0).handle(Future.succeededFuture(TOKEN));
+    });
+    await();
+  }
+
+  @Test
+  public void failedExchangeIsRemembered() {
+    CodeExchanges codeExchanges = new CodeExchanges(vertx);
+    vertx.runOnContext(v -> {
+      codeExchanges.exchange("session", "code", this::exchange, first -> {
+        assertTrue(first.failed());
+        // The provider saw the code, so it is spent even though the exchange failed
+        codeExchanges.exchange("session", "code", this::exchange, replay -> {
+          assertTrue(replay.failed());
+          assertEquals(1, exchanges.get());
+          testComplete();
+        });
+      });
+      pending.get(0).handle(Future.failedFuture("invalid_grant"));
+    });
+    await();
+  }
+
+  @Test
+  public void sameCodeInAnotherSessionIsExchangedSeparately() {
+    CodeExchanges codeExchanges = new CodeExchanges(vertx);
+    vertx.runOnContext(v -> {
+      codeExchanges.exchange("session", "code", this::exchange, result -> {
+      });
+      codeExchanges.exchange("other", "code", this::exchange, result -> {
+      });
+      assertEquals(2, exchanges.get());
+      testComplete();
+    });
+    await();
+  }
+
+  @Test
+  public void completedCodeIsForgottenAfterItsWindow() {
+    CodeExchanges codeExchanges = new CodeExchanges(vertx, 100);
+    vertx.runOnContext(v -> {
+      codeExchanges.exchange("session", "code", this::exchange, first -> {
+        // Still remembered within the window
+        codeExchanges.exchange("session", "code", this::exchange, replay -> assertTrue(replay.failed()));
+        vertx.setTimer(200, id -> codeExchanges.exchange("session", "code", handler -> {
+          // Forgotten, so exchanged again - the provider is left to reject it
+          assertEquals(1, exchanges.get());
+          testComplete();
+        }, result -> {
+        }));
+      });
+      pending.get(0).handle(Future.succeededFuture(TOKEN));
+    });
+    await();
+  }
+
+  @Test
+  public void callbackRacingCompletionDoesNotExchangeAgain() {
+    AtomicBoolean racing = new AtomicBoolean();
+    // Completes the exchange in flight from another thread just as the racing callback has found the code unused
+    ExpiringCache<String, Boolean> completed = new ExpiringCache<String, Boolean>(10, 60 * 1000) {
+      @Override
+      public Boolean get(final String key, final long nowMillis) {
+        final Boolean used = super.get(key, nowMillis);
+        if (racing.compareAndSet(true, false)) {
+          Thread completion = new Thread(() -> pending.get(0).handle(Future.succeededFuture(TOKEN)));
+          completion.start();
+          try {
+            completion.join(200);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+        return used;
+      }
+    };
+    CodeExchanges codeExchanges = new CodeExchanges(vertx, completed);
+    AtomicInteger results = new AtomicInteger();
+    Handler<AsyncResult<OAuth2TokenResponse>> resultHandler = result -> {
+      // The racing callback either shares the exchange or finds the code used
+      assertTrue(result.failed() || result.result() == TOKEN);
+      if (results.incrementAndGet() == 2) {
+        assertEquals(1, exchanges.get());
+        testComplete();
+      }
+    };
+    vertx.runOnContext(v -> {
+      codeExchanges.exchange("session", "code", this::exchange, resultHandler);
+      racing.set(true);
+      codeExchanges.exchange("session", "code", this::exchange, resultHandler);
+    });
+    await();
+  }
+
+  @Test
+  public void codeRejectedByBulkheadCanBeRetried() {
+    notSentCodeCanBeRetried(new ExchangeBulkhead.ExchangeRejectedException("Too many code exchanges"));
+  }
+
+  @Test
+  public void codeRejectedByOpenCircuitCanBeRetried() {
+    notSentCodeCanBeRetried(new CircuitBreaker.CircuitOpenException());
+  }
+
+  private void notSentCodeCanBeRetried(final Throwable notSent) {
+    CodeExchanges codeExchanges = new CodeExchanges(vertx);
+    vertx.runOnContext(v -> {
+      codeExchanges.exchange("session", "code", this::exchange, first -> {
+        assertSame(notSent, first.cause());
+        codeExchanges.exchange("session", "code", this::exchange, retry -> {
+          assertSame(TOKEN, retry.result());
+          assertEquals(2, exchanges.get());
+          testComplete();
+        });
+        pending.get(1).handle(Future.succeededFuture(TOKEN));
+      });
+      pending.get(0).handle(Future.failedFuture(notSent));
+    });
+    await();
+  }
+}
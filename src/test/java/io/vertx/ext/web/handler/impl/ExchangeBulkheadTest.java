@@ -0,0 +1,62 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.ext.web.handler.oauth2.OAuth2Metrics;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test for admission control of code exchanges - exchanges beyond the limit must wait their turn in arrival order,
+ * and be rejected once the queue is full or their wait runs out.
+ */
+public class ExchangeBulkheadTest extends VertxTestBase {
+
+  @Test
+  public void queuedExchangeStartsOnRelease() {
+    ExchangeBulkhead bulkhead = new ExchangeBulkhead(vertx, 1, 1, 10000, OAuth2Metrics.NOOP);
+    List<String> events = new ArrayList<>();
+    vertx.runOnContext(v -> {
+      bulkhead.submit(() -> events.add("first"), e -> fail("First exchange should be admitted"));
+      bulkhead.submit(() -> {
+        events.add("second");
+        assertEquals(3, events.size());
+        assertEquals("rejected", events.get(1));
+        testComplete();
+      }, e -> fail("Second exchange should be queued"));
+      bulkhead.submit(() -> fail("Third exchange should be rejected"), e -> events.add("rejected"));
+      assertEquals(2, events.size());
+      bulkhead.release();
+    });
+    await();
+  }
+
+  @Test
+  public void queuedExchangeTimesOut() {
+    ExchangeBulkhead bulkhead = new ExchangeBulkhead(vertx, 1, 1, 50, OAuth2Metrics.NOOP);
+    vertx.runOnContext(v -> {
+      bulkhead.submit(() -> {
+      }, e -> fail("First exchange should be admitted"));
+      bulkhead.submit(() -> fail("Second exchange should time out"), e -> {
+        assertTrue(e.getMessage().startsWith("Timed out"));
+        // The timed out exchange has left the queue, so there is room for another - which times out in its turn
+        bulkhead.submit(() -> fail("Third exchange should time out"), e2 -> {
+          assertTrue(e2.getMessage().startsWith("Timed out"));
+          testComplete();
+        });
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void releaseWithEmptyQueueFreesSlot() {
+    ExchangeBulkhead bulkhead = new ExchangeBulkhead(vertx, 1, 0, 10000, OAuth2Metrics.NOOP);
+    vertx.runOnContext(v -> {
+      bulkhead.submit(bulkhead::release, e -> fail("First exchange should be admitted"));
+      bulkhead.submit(this::testComplete, e -> fail("Slot should have been released"));
+    });
+    await();
+  }
+}
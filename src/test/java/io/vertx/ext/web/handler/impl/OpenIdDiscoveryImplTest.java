@@ -0,0 +1,127 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.handler.oauth2.OpenIdDiscovery;
+import io.vertx.ext.web.handler.oauth2.OpenIdDiscoveryOptions;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for OpenID Connect discovery - the first load must not hold up whoever creates the discovery, the document
+ * must be reloaded once its refresh interval is up, a failed or stalled reload must leave the last good document in
+ * use, and a stalled load must not stop the reload chain.
+ */
+public class OpenIdDiscoveryImplTest extends VertxTestBase {
+
+  private static final int PORT = 9393;
+  private static final String ISSUER = "http://localhost:" + PORT;
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  /**
+   * Start a discovery endpoint which counts each request, then passes it to the given handler
+   */
+  private void startServer(final Handler<HttpServerRequest> handler) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.createHttpServer().requestHandler(req -> {
+      requests.incrementAndGet();
+      handler.handle(req);
+    }).listen(PORT, result -> latch.countDown());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  /**
+   * @return a discovery document whose token endpoint carries the number of the request it answers. Written out by
+   * hand, as the first JSON encoding in a fresh JVM can take longer than the short load timeouts used here
+   */
+  private String document() {
+    return "{\"issuer\":\"" + ISSUER + "\",\"authorization_endpoint\":\"" + ISSUER + "/authorize\"," +
+      "\"token_endpoint\":\"" + ISSUER + "/token" + requests.get() + "\"}";
+  }
+
+  @Test
+  public void firstLoadDoesNotBlock() throws Exception {
+    startServer(req -> vertx.setTimer(200, id -> req.response().end(document())));
+    long start = System.currentTimeMillis();
+    OpenIdDiscovery discovery = OpenIdDiscovery.create(vertx, new OpenIdDiscoveryOptions(ISSUER));
+    assertTrue(System.currentTimeMillis() - start < 200);
+    assertNull(discovery.metadata());
+    discovery.metadata(result -> {
+      // Waited for the load already in progress rather than starting another
+      assertEquals(ISSUER + "/token1", result.result().tokenEndpoint());
+      assertEquals(1, requests.get());
+      discovery.close();
+      testComplete();
+    });
+    await();
+  }
+
+  @Test
+  public void documentIsReloadedAfterRefreshInterval() throws Exception {
+    startServer(req -> req.response().end(document()));
+    OpenIdDiscovery discovery = OpenIdDiscovery.create(vertx, new OpenIdDiscoveryOptions(ISSUER)
+      .setRefreshMillis(100));
+    discovery.metadata(first -> {
+      assertEquals(ISSUER + "/token1", first.result().tokenEndpoint());
+      vertx.setTimer(250, id -> {
+        assertTrue(requests.get() >= 2);
+        assertEquals(ISSUER + "/token" + requests.get(), discovery.metadata().tokenEndpoint());
+        discovery.close();
+        testComplete();
+      });
+    });
+    await();
+  }
+
+  @Test
+  public void lastGoodDocumentIsKeptWhenReloadsFail() throws Exception {
+    startServer(req -> {
+      if (requests.get() == 1) {
+        req.response().end(document());
+      } else if (requests.get() == 2) {
+        req.response().setStatusCode(500).end();
+      } else {
+        // Stall part way through the body
+        req.response().putHeader("Content-Length", "1000").write("{\"issuer\":");
+      }
+    });
+    OpenIdDiscovery discovery = OpenIdDiscovery.create(vertx, new OpenIdDiscoveryOptions(ISSUER)
+      .setRefreshMillis(50).setRetryMillis(100));
+    discovery.metadata(first -> vertx.setTimer(400, id -> {
+      // The failed reload was retried, and the stalled one timed out and was retried in its turn
+      assertTrue(requests.get() >= 4);
+      assertEquals(ISSUER + "/token1", discovery.metadata().tokenEndpoint());
+      discovery.close();
+      testComplete();
+    }));
+    await();
+  }
+
+  @Test
+  public void stalledFirstLoadFailsWaitersAndIsRetried() throws Exception {
+    startServer(req -> {
+      if (requests.get() == 1) {
+        req.response().putHeader("Content-Length", "1000").write("{\"issuer\":");
+      } else {
+        req.response().end(document());
+      }
+    });
+    OpenIdDiscovery discovery = OpenIdDiscovery.create(vertx, new OpenIdDiscoveryOptions(ISSUER)
+      .setRetryMillis(500));
+    discovery.metadata(first -> {
+      assertTrue(first.cause() instanceof TimeoutException);
+      vertx.setTimer(1000, id -> {
+        assertEquals(ISSUER + "/token2", discovery.metadata().tokenEndpoint());
+        discovery.close();
+        testComplete();
+      });
+    });
+    await();
+  }
+}
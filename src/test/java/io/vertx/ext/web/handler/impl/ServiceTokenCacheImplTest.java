@@ -0,0 +1,171 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.handler.oauth2.AuthTokenRequestParameters;
+import io.vertx.ext.web.handler.oauth2.ServiceTokenCache;
+import io.vertx.ext.web.handler.oauth2.ServiceTokenCacheOptions;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for the service token cache - one request per key however many callers race for a token, renewal before
+ * expiry while the cached token is still handed out, one cache per name across a Vert.x instance, and fetches which
+ * fail rather than hang when the token endpoint stalls.
+ */
+public class ServiceTokenCacheImplTest extends VertxTestBase {
+
+  private static final int PORT = 9393;
+  private static final AuthTokenRequestParameters PARAMS = new AuthTokenRequestParameters(
+    "http://localhost:" + PORT + "/token", "client", "secret", null);
+
+  private final AtomicInteger requests = new AtomicInteger();
+
+  /**
+   * Start a token endpoint which counts each request, then passes it to the given handler
+   */
+  private void startServer(final Handler<HttpServerRequest> handler) throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    vertx.createHttpServer().requestHandler(req -> {
+      requests.incrementAndGet();
+      handler.handle(req);
+    }).listen(PORT, result -> latch.countDown());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Start a token endpoint which answers each request, after the given delay, with the token "t" followed by the
+   * number of the request, expiring after the given number of seconds
+   */
+  private void startTokenServer(final long delayMillis, final int expiresIn) throws Exception {
+    startServer(req -> {
+      final String body = "{\"access_token\":\"t" + requests.get() + "\",\"token_type\":\"Bearer\",\"expires_in\":" +
+        expiresIn + "}";
+      if (delayMillis > 0) {
+        vertx.setTimer(delayMillis, id -> req.response().end(body));
+      } else {
+        req.response().end(body);
+      }
+    });
+  }
+
+  @Test
+  public void racingCallersShareOneRequestPerKey() throws Exception {
+    startTokenServer(100, 3600);
+    ServiceTokenCache cache = ServiceTokenCache.create(vertx, new ServiceTokenCacheOptions());
+    AtomicInteger results = new AtomicInteger();
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < 5; i++) {
+        cache.getToken(PARAMS, "read", result -> {
+          assertEquals("t1", result.result());
+          if (results.incrementAndGet() == 5) {
+            assertEquals(1, requests.get());
+            // Another scope is another key, so has its own request
+            cache.getToken(PARAMS, "write", other -> {
+              assertEquals("t2", other.result());
+              assertEquals(2, requests.get());
+              testComplete();
+            });
+          }
+        });
+      }
+    });
+    await();
+  }
+
+  @Test
+  public void tokenIsRenewedBeforeExpiryWhileStillHandedOut() throws Exception {
+    startTokenServer(0, 1);
+    // A one second lifetime is renewed half way through
+    ServiceTokenCache cache = ServiceTokenCache.create(vertx, new ServiceTokenCacheOptions());
+    vertx.runOnContext(v -> cache.getToken(PARAMS, null, first -> {
+      assertEquals("t1", first.result());
+      cache.getToken(PARAMS, null, cached -> {
+        assertEquals("t1", cached.result());
+        assertEquals(1, requests.get());
+      });
+      vertx.setTimer(600, id -> cache.getToken(PARAMS, null, due -> {
+        // Due for renewal but still live, so handed out while the renewal runs
+        assertEquals("t1", due.result());
+        vertx.setTimer(100, id2 -> cache.getToken(PARAMS, null, renewed -> {
+          assertEquals("t2", renewed.result());
+          assertEquals(2, requests.get());
+          testComplete();
+        }));
+      }));
+    }));
+    await();
+  }
+
+  @Test
+  public void sharedCachesAreSharedByName() throws Exception {
+    startTokenServer(0, 3600);
+    ServiceTokenCacheOptions options = new ServiceTokenCacheOptions();
+    ServiceTokenCache shared = ServiceTokenCache.createShared(vertx, options);
+    assertSame(shared, ServiceTokenCache.createShared(vertx, options));
+    assertNotSame(shared, ServiceTokenCache.createShared(vertx, options, "other"));
+    vertx.runOnContext(v -> shared.getToken(PARAMS, null, first -> {
+      // As another verticle instance would, retrieve the cache again and find the token already fetched
+      ServiceTokenCache.createShared(vertx, options).getToken(PARAMS, null, second -> {
+        assertEquals("t1", second.result());
+        assertEquals(1, requests.get());
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void invalidatedTokenIsFetchedAgain() throws Exception {
+    startTokenServer(0, 3600);
+    ServiceTokenCache cache = ServiceTokenCache.create(vertx, new ServiceTokenCacheOptions());
+    vertx.runOnContext(v -> cache.getToken(PARAMS, null, first -> {
+      cache.invalidate(PARAMS, null);
+      cache.getToken(PARAMS, null, second -> {
+        assertEquals("t2", second.result());
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void stalledBodyFailsWaitersAndNextCallerRetries() throws Exception {
+    startServer(req -> {
+      if (requests.get() == 1) {
+        req.response().putHeader("Content-Length", "100").write("{\"access_token\":");
+      } else {
+        req.response().end("{\"access_token\":\"t2\",\"token_type\":\"Bearer\"}");
+      }
+    });
+    ServiceTokenCache cache = ServiceTokenCache.create(vertx, new ServiceTokenCacheOptions()
+      .setRequestTimeoutMillis(100));
+    vertx.runOnContext(v -> cache.getToken(PARAMS, null, first -> {
+      assertTrue(first.failed());
+      assertTrue(first.cause() instanceof TimeoutException);
+      cache.getToken(PARAMS, null, second -> {
+        assertEquals("t2", second.result());
+        testComplete();
+      });
+    }));
+    await();
+  }
+
+  @Test
+  public void stalledHeadFailsWaiters() throws Exception {
+    startServer(req -> {
+    });
+    ServiceTokenCache cache = ServiceTokenCache.create(vertx, new ServiceTokenCacheOptions()
+      .setRequestTimeoutMillis(100));
+    vertx.runOnContext(v -> cache.getToken(PARAMS, null, result -> {
+      assertTrue(result.cause() instanceof TimeoutException);
+      testComplete();
+    }));
+    await();
+  }
+}
@@ -0,0 +1,83 @@
+package io.vertx.ext.web.handler.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the tenant lookup index - header, then host, then longest whole-segment path prefix, then the root
+ * prefix, and mappings to unconfigured tenants must be refused.
+ */
+public class TenantIndexTest {
+
+  private static final HashSet<String> TENANTS = new HashSet<>(Arrays.asList("acme", "globex", "initech", "default"));
+
+  private final TenantIndex index = new TenantIndex(TENANTS, hosts(), prefixes());
+
+  @Test
+  public void headerWins() {
+    assertEquals("initech", index.resolve("initech", "acme.example.com", "/globex"));
+  }
+
+  @Test
+  public void unknownHeaderValueMatchesNothing() {
+    assertNull(index.resolve("umbrella", "acme.example.com", "/globex"));
+  }
+
+  @Test
+  public void hostIsMatchedIgnoringCaseAndPort() {
+    assertEquals("acme", index.resolve(null, "ACME.example.com:8443", "/globex"));
+    assertEquals("globex", index.resolve(null, "[::1]:8080", "/"));
+  }
+
+  @Test
+  public void longestPrefixWins() {
+    assertEquals("globex", index.resolve(null, "other.example.com", "/globex/home"));
+    assertEquals("initech", index.resolve(null, "other.example.com", "/globex/initech/home"));
+    assertEquals("initech", index.resolve(null, "other.example.com", "/globex/initech"));
+  }
+
+  @Test
+  public void prefixMatchesWholeSegmentsOnly() {
+    assertEquals("default", index.resolve(null, null, "/globexish"));
+  }
+
+  @Test
+  public void rootPrefixIsFallback() {
+    assertEquals("default", index.resolve(null, null, "/elsewhere"));
+    assertEquals("default", index.resolve(null, null, "/"));
+  }
+
+  @Test
+  public void nothingMatchesWithoutRootPrefix() {
+    TenantIndex noRoot = new TenantIndex(TENANTS, hosts(), new HashMap<>());
+    assertNull(noRoot.resolve(null, "other.example.com", "/globex"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unconfiguredTenantIsRefused() {
+    Map<String, String> hosts = hosts();
+    hosts.put("umbrella.example.com", "umbrella");
+    new TenantIndex(TENANTS, hosts, prefixes());
+  }
+
+  private static Map<String, String> hosts() {
+    Map<String, String> hosts = new HashMap<>();
+    hosts.put("acme.example.com", "acme");
+    hosts.put("[::1]", "globex");
+    return hosts;
+  }
+
+  private static Map<String, String> prefixes() {
+    Map<String, String> prefixes = new HashMap<>();
+    prefixes.put("/globex", "globex");
+    prefixes.put("/globex/initech/", "initech");
+    prefixes.put("/", "default");
+    return prefixes;
+  }
+}
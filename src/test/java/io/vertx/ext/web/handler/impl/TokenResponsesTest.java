@@ -0,0 +1,73 @@
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.net.NetServer;
+import io.vertx.test.core.VertxTestBase;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test for reading token endpoint responses - the result must be reported exactly once, whether the body is read in
+ * full, is too large, or is cut off by the connection closing.
+ */
+public class TokenResponsesTest extends VertxTestBase {
+
+  private static final int PORT = 9393;
+  private static final String BODY = "{\"access_token\":\"at\",\"token_type\":\"Bearer\"}";
+
+  /**
+   * Start a token endpoint which sends the given raw bytes in reply to any request, then closes the connection if
+   * asked to
+   */
+  private void startServer(final String reply, final boolean close) throws Exception {
+    NetServer server = vertx.createNetServer();
+    server.connectHandler(socket -> socket.handler(request -> {
+      socket.write(reply);
+      if (close) {
+        socket.close();
+      }
+    }));
+    CountDownLatch latch = new CountDownLatch(1);
+    server.listen(PORT, result -> latch.countDown());
+    assertTrue(latch.await(2, TimeUnit.SECONDS));
+  }
+
+  private static String head(final int contentLength) {
+    return "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + contentLength + "\r\n\r\n";
+  }
+
+  private void read(final int maxBytes, final boolean succeed) {
+    HttpClient client = vertx.createHttpClient();
+    int[] results = {0};
+    client.post(PORT, "localhost", "/token", resp -> TokenResponses.read(resp, maxBytes, result -> {
+      assertEquals(1, ++results[0]);
+      assertEquals(succeed, result.succeeded());
+      if (succeed) {
+        assertEquals("at", result.result().accessToken());
+      }
+      // Give any second report time to arrive before finishing
+      vertx.setTimer(100, id -> testComplete());
+    })).end();
+    await();
+  }
+
+  @Test
+  public void completeBodyIsParsed() throws Exception {
+    startServer(head(BODY.length()) + BODY, false);
+    read(1024, true);
+  }
+
+  @Test
+  public void tooLargeBodyFailsOnce() throws Exception {
+    startServer(head(BODY.length()) + BODY, false);
+    read(10, false);
+  }
+
+  @Test
+  public void connectionClosedMidBodyFails() throws Exception {
+    startServer(head(BODY.length()) + BODY.substring(0, 10), true);
+    read(1024, false);
+  }
+}
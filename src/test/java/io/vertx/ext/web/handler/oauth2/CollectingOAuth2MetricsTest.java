@@ -0,0 +1,74 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the in memory OAuth2 metrics - events must be counted, exchanges in flight tracked, and latencies
+ * summarised to within the resolution of the histogram buckets.
+ */
+public class CollectingOAuth2MetricsTest {
+
+  @Test
+  public void eventsAreCounted() {
+    CollectingOAuth2Metrics metrics = OAuth2Metrics.create();
+    metrics.redirectIssued();
+    metrics.redirectIssued();
+    metrics.callbackReceived();
+    metrics.stateMismatch();
+    metrics.authenticateHit();
+    metrics.authenticateMiss();
+    metrics.authenticateMiss();
+
+    JsonObject snapshot = metrics.snapshot();
+    assertEquals(2L, (long) snapshot.getLong("redirects"));
+    assertEquals(1L, (long) snapshot.getLong("callbacks"));
+    assertEquals(1L, (long) snapshot.getLong("stateMismatches"));
+    assertEquals(1L, (long) snapshot.getLong("authenticateHits"));
+    assertEquals(2L, (long) snapshot.getLong("authenticateMisses"));
+  }
+
+  @Test
+  public void exchangesAreCountedByOutcome() {
+    CollectingOAuth2Metrics metrics = OAuth2Metrics.create();
+    metrics.exchangeStarted();
+    metrics.exchangeStarted();
+    metrics.exchangeStarted();
+    metrics.exchangeCompleted(OAuth2Metrics.ExchangeOutcome.SUCCESS, 0);
+    metrics.exchangeCompleted(OAuth2Metrics.ExchangeOutcome.ERROR, 0);
+
+    JsonObject snapshot = metrics.snapshot();
+    assertEquals(1L, (long) snapshot.getLong("exchangesInFlight"));
+    assertEquals(1L, (long) snapshot.getJsonObject("exchanges").getLong("success"));
+    assertEquals(0L, (long) snapshot.getJsonObject("exchanges").getLong("rejected"));
+    assertEquals(1L, (long) snapshot.getJsonObject("exchanges").getLong("error"));
+  }
+
+  @Test
+  public void latencyIsSummarised() {
+    CollectingOAuth2Metrics metrics = OAuth2Metrics.create();
+    for (int i = 0; i < 99; i++) {
+      metrics.sessionLookup(TimeUnit.MILLISECONDS.toNanos(3));
+    }
+    metrics.sessionLookup(TimeUnit.MILLISECONDS.toNanos(500));
+
+    JsonObject latency = metrics.snapshot().getJsonObject("sessionLookupLatency");
+    assertEquals(100L, (long) latency.getLong("count"));
+    assertEquals(500.0, ((Number) latency.getValue("maxMillis")).doubleValue(), 0.001);
+    assertEquals(7.97, ((Number) latency.getValue("meanMillis")).doubleValue(), 0.001);
+    // 3ms falls in the bucket below 4.096ms
+    assertEquals(4.096, ((Number) latency.getValue("p50Millis")).doubleValue(), 0.001);
+    assertEquals(4.096, ((Number) latency.getValue("p99Millis")).doubleValue(), 0.001);
+  }
+
+  @Test
+  public void emptyHistogramIsZero() {
+    JsonObject latency = OAuth2Metrics.create().snapshot().getJsonObject("exchangeLatency");
+    assertEquals(0L, (long) latency.getLong("count"));
+    assertEquals(0.0, ((Number) latency.getValue("p99Millis")).doubleValue(), 0);
+  }
+}
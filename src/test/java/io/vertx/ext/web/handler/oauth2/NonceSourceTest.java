@@ -0,0 +1,49 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for nonce sources - nonces must be url safe and never repeat, within a thread or across threads.
+ */
+public class NonceSourceTest {
+
+  @Test
+  public void stripedNoncesAreCompactAndUnique() {
+    Set<String> nonces = new HashSet<>();
+    // Enough to take several fills of the random buffer
+    for (int i = 0; i < 1000; i++) {
+      String nonce = NonceSource.striped().nextNonce();
+      assertTrue(nonce.matches("[A-Za-z0-9_-]{22}"));
+      assertTrue(nonces.add(nonce));
+    }
+  }
+
+  @Test
+  public void stripedNoncesAreUniqueAcrossThreads() throws Exception {
+    Set<String> nonces = Collections.synchronizedSet(new HashSet<>());
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 500; i++) {
+          nonces.add(NonceSource.striped().nextNonce());
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(2000, nonces.size());
+  }
+
+  @Test
+  public void uuidNoncesAreUuids() {
+    assertTrue(NonceSource.uuid().nextNonce().matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"));
+  }
+}
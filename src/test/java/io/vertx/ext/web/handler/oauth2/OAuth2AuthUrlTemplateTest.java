@@ -0,0 +1,60 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.ext.apex.handler.oauth2.UrlBuildingTest;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the precompiled authentication redirect url
+ */
+public class OAuth2AuthUrlTemplateTest extends UrlBuildingTest {
+
+  private static final String TEST_AUTH_URL = "https://1.1.1.1:9090/auth_test";
+  private static final String TEST_CLIENT_ID = "test client/id";
+  private static final String TEST_REDIRECT_URI = "https://1.1.1.1:9090/test_redirect_uri?x=1&y=2";
+  private static final String TEST_STATE = "abc+def/ghi=";
+
+  private final OAuth2AuthUrlTemplate template = new OAuth2AuthUrlTemplate(TEST_AUTH_URL, TEST_CLIENT_ID,
+    TEST_REDIRECT_URI);
+
+  @Test
+  public void staticAndStateParamsArePresent() throws Exception {
+    URL url = new URL(template.build(TEST_STATE));
+    assertEquals("/auth_test", url.getPath());
+    Map<String, String> queryParams = extractQueryParams(url);
+    assertEquals(4, queryParams.size());
+    assertEquals(TEST_CLIENT_ID, queryParams.get("client_id"));
+    assertEquals(TEST_REDIRECT_URI, queryParams.get("redirect_uri"));
+    assertEquals("code", queryParams.get("response_type"));
+    assertEquals(TEST_STATE, queryParams.get("state"));
+  }
+
+  @Test
+  public void nonceAndCodeChallengeAreAdded() throws Exception {
+    Map<String, String> queryParams = extractQueryParams(new URL(template.build(TEST_STATE, "n-1", "challenge_2")));
+    assertEquals("n-1", queryParams.get("nonce"));
+    assertEquals("challenge_2", queryParams.get("code_challenge"));
+    assertEquals("S256", queryParams.get("code_challenge_method"));
+  }
+
+  @Test
+  public void valuesArePercentEncoded() {
+    String url = template.build("a b&c\u00e9\uD83D\uDE00");
+    assertTrue(url, url.endsWith("&state=a%20b%26c%C3%A9%F0%9F%98%80"));
+    assertTrue(url, url.contains("client_id=test%20client%2Fid&"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullStateThrowsException() {
+    template.build(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullClientIdThrowsException() {
+    new OAuth2AuthUrlTemplate(TEST_AUTH_URL, null, TEST_REDIRECT_URI);
+  }
+}
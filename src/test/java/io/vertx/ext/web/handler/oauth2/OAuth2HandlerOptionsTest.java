@@ -1,5 +1,7 @@
 package io.vertx.ext.web.handler.oauth2;
 
+import io.vertx.core.http.HttpClientOptions;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -28,6 +30,104 @@ public class OAuth2HandlerOptionsTest {
     assertEquals(TEST_TOKEN_URL, options.authTokenUrl());
     assertEquals(AuthTokenRequestProvider.POST, options.authTokenRequestFactoryProvider());
     assertEquals(OAuth2HandlerOptions.DEFAULT_RETURN_URL_PARAM, options.returnUrlParam());
+    assertSame(OAuth2StateCodec.md5(), options.stateCodec());
+    assertSame(NonceSource.striped(), options.nonceSource());
+    assertNull(options.signedState());
+    assertNotNull(options.httpClientOptions());
+    assertFalse(options.bearerOnly());
+    assertNull(options.bearerTokenParam());
+    assertEquals(OAuth2HandlerOptions.DEFAULT_MAX_TOKEN_RESPONSE_BYTES, options.maxTokenResponseBytes());
+    assertFalse(options.tokenRefresh());
+    assertFalse(options.noStoreRedirects());
+    assertFalse(options.pkce());
+  }
+
+  @Test
+  public void testTokenRefresh() throws Exception {
+    OAuth2HandlerOptions options = baseOAuth2HandlerOptions()
+            .setTokenRefresh(true)
+            .setTokenRefreshLeadMillis(5000)
+            .setTokenRefreshJitterMillis(1000)
+            .setMaxConcurrentTokenRefreshes(4);
+    assertTrue(options.tokenRefresh());
+    assertEquals(5000, options.tokenRefreshLeadMillis());
+    assertEquals(1000, options.tokenRefreshJitterMillis());
+    assertEquals(4, options.maxConcurrentTokenRefreshes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonPositiveMaxTokenResponseBytesTriggersException() {
+    baseOAuth2HandlerOptions().setMaxTokenResponseBytes(0);
+  }
+
+  @Test
+  public void testNoStoreRedirects() throws Exception {
+    assertTrue(baseOAuth2HandlerOptions().setNoStoreRedirects(true).noStoreRedirects());
+  }
+
+  @Test
+  public void testNonceSource() throws Exception {
+    NonceSource nonceSource = NonceSource.uuid();
+    assertSame(nonceSource, baseOAuth2HandlerOptions().setNonceSource(nonceSource).nonceSource());
+  }
+
+  @Test
+  public void testPkce() throws Exception {
+    assertTrue(baseOAuth2HandlerOptions().setPkce(true).pkce());
+  }
+
+  @Test
+  public void testBearerOnly() throws Exception {
+    OAuth2HandlerOptions options = baseOAuth2HandlerOptions()
+            .setBearerOnly(true)
+            .setBearerTokenParam("access_token");
+    assertTrue(options.bearerOnly());
+    assertEquals("access_token", options.bearerTokenParam());
+  }
+
+  @Test
+  public void testHttpClientOptions() throws Exception {
+    HttpClientOptions clientOptions = new HttpClientOptions().setMaxPoolSize(50).setKeepAlive(true).setPipelining(true)
+            .setConnectTimeout(2000).setIdleTimeout(30);
+    OAuth2HandlerOptions options = baseOAuth2HandlerOptions().setHttpClientOptions(clientOptions);
+    assertSame(clientOptions, options.httpClientOptions());
+    assertEquals(50, options.httpClientOptions().getMaxPoolSize());
+  }
+
+  @Test
+  public void testStatelessState() throws Exception {
+    OAuth2HandlerOptions options = baseOAuth2HandlerOptions()
+            .setStatelessState(new byte[32], 60000);
+    assertNotNull(options.signedState());
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    assertSame(OAuth2Metrics.NOOP, baseOAuth2HandlerOptions().metrics());
+    OAuth2Metrics metrics = OAuth2Metrics.create();
+    assertSame(metrics, baseOAuth2HandlerOptions().setMetrics(metrics).metrics());
+  }
+
+  @Test
+  public void testTokenRequestResilience() throws Exception {
+    OAuth2HandlerOptions defaults = baseOAuth2HandlerOptions();
+    assertEquals(OAuth2HandlerOptions.DEFAULT_TOKEN_REQUEST_TIMEOUT_MILLIS, defaults.tokenRequestTimeoutMillis());
+    assertEquals(OAuth2HandlerOptions.DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD, defaults.circuitBreakerFailureThreshold());
+    OAuth2HandlerOptions options = baseOAuth2HandlerOptions()
+            .setTokenRequestTimeoutMillis(2000)
+            .setTokenRequestMaxRetries(0)
+            .setTokenRequestRetryBackoffMillis(50)
+            .setCircuitBreaker(0, 5000);
+    assertEquals(2000, options.tokenRequestTimeoutMillis());
+    assertEquals(0, options.tokenRequestMaxRetries());
+    assertEquals(50, options.tokenRequestRetryBackoffMillis());
+    assertEquals(0, options.circuitBreakerFailureThreshold());
+    assertEquals(5000, options.circuitBreakerResetMillis());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTokenRequestTimeoutMustBePositive() throws Exception {
+    baseOAuth2HandlerOptions().setTokenRequestTimeoutMillis(0);
   }
 
   @Test
@@ -0,0 +1,76 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the state codecs - the MD5 codec must keep producing the same values as the original string based
+ * implementation, and the HMAC codec must depend on its key.
+ */
+public class OAuth2StateCodecTest {
+
+  private static final String TEST_URL = "http://testUrl1/private/page?q=caf\u00e9&emoji=\uD83D\uDE00";
+  private static final String TEST_SALT = "testSalt1";
+  private static final String SESSION_ID = "sessionId1";
+  private static final byte[] KEY1 = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] KEY2 = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+
+  @Test
+  public void md5CodecMatchesOriginalImplementation() throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("MD5");
+    byte[] hashed = digest.digest((TEST_SALT + "|" + SESSION_ID + "|" + TEST_URL).getBytes("UTF-8"));
+    StringBuilder expected = new StringBuilder();
+    for (byte b : hashed) {
+      expected.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+    }
+    assertEquals(expected.toString(), OAuth2StateCodec.md5().encode(TEST_SALT, SESSION_ID, TEST_URL));
+    assertEquals(expected.toString(), new OAuth2State(TEST_URL, TEST_SALT, SESSION_ID).toString());
+  }
+
+  @Test
+  public void md5CodecHandlesLongValues() throws Exception {
+    StringBuilder url = new StringBuilder("http://testUrl1/");
+    while (url.length() < 4096) {
+      url.append("segment/");
+    }
+    OAuth2StateCodec codec = OAuth2StateCodec.md5();
+    String first = codec.encode(TEST_SALT, SESSION_ID, url.toString());
+    assertEquals(32, first.length());
+    assertEquals(first, codec.encode(TEST_SALT, SESSION_ID, url.toString()));
+    assertNotEquals(first, codec.encode(TEST_SALT, SESSION_ID, TEST_URL));
+  }
+
+  @Test
+  public void hmacCodecIsRepeatableAndUrlSafe() {
+    OAuth2StateCodec codec = OAuth2StateCodec.hmacSha256(KEY1);
+    String state = codec.encode(TEST_SALT, SESSION_ID, TEST_URL);
+    assertEquals(state, codec.encode(TEST_SALT, SESSION_ID, TEST_URL));
+    assertEquals(43, state.length());
+    assertTrue(state.matches("[A-Za-z0-9_-]+"));
+  }
+
+  @Test
+  public void hmacCodecDependsOnKey() {
+    assertNotEquals(OAuth2StateCodec.hmacSha256(KEY1).encode(TEST_SALT, SESSION_ID, TEST_URL),
+      OAuth2StateCodec.hmacSha256(KEY2).encode(TEST_SALT, SESSION_ID, TEST_URL));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void hmacCodecRejectsEmptyKey() {
+    OAuth2StateCodec.hmacSha256(new byte[0]);
+  }
+
+  @Test
+  public void matchesComparesWholeValue() {
+    OAuth2StateCodec codec = OAuth2StateCodec.md5();
+    String state = codec.encode(TEST_SALT, SESSION_ID, TEST_URL);
+    assertTrue(codec.matches(state, state));
+    assertFalse(codec.matches(state, null));
+    assertFalse(codec.matches(state, state.substring(1)));
+    assertFalse(codec.matches(state, state.substring(0, state.length() - 1) + "x"));
+  }
+}
@@ -0,0 +1,122 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the targeted token response parser - the fields we use must be read correctly whatever else the
+ * response contains, and anything which is not a JSON object must be rejected.
+ */
+public class OAuth2TokenResponseTest {
+
+  @Test
+  public void allFieldsAreRead() {
+    OAuth2TokenResponse response = OAuth2TokenResponse.parse(Buffer.buffer(
+      "{\"access_token\":\"at\",\"token_type\":\"Bearer\",\"expires_in\":3600," +
+        "\"refresh_token\":\"rt\",\"id_token\":\"it\",\"scope\":\"openid profile\"}"));
+    assertEquals("at", response.accessToken());
+    assertEquals("Bearer", response.tokenType());
+    assertEquals(3600, response.expiresIn());
+    assertEquals("rt", response.refreshToken());
+    assertEquals("it", response.idToken());
+    assertEquals("openid profile", response.scope());
+  }
+
+  @Test
+  public void missingFieldsAreNull() {
+    OAuth2TokenResponse response = OAuth2TokenResponse.parse(Buffer.buffer("{\"access_token\":\"at\"}"));
+    assertEquals("at", response.accessToken());
+    assertNull(response.tokenType());
+    assertEquals(OAuth2TokenResponse.UNKNOWN_EXPIRY, response.expiresIn());
+    assertNull(response.refreshToken());
+    assertNull(response.idToken());
+  }
+
+  @Test
+  public void otherFieldsAreSkipped() {
+    OAuth2TokenResponse response = OAuth2TokenResponse.parse(Buffer.buffer(
+      " { \"tenant\" : \"openid profile\", \"claims\": {\"groups\": [\"a\", \"b\", {\"c\": \"}\"}]}, " +
+        "\"active\": true, \"ratio\": -1.5e3, \"nothing\": null, \"quoted\": \"a \\\"token\\\"\"," +
+        " \"access_token\" : \"at\" } "));
+    assertEquals("at", response.accessToken());
+  }
+
+  @Test
+  public void escapesAreDecoded() {
+    OAuth2TokenResponse response = OAuth2TokenResponse.parse(Buffer.buffer(
+      "{\"access_token\":\"a\\/b\\\\c\\\"d\\u00e9\u00e9\"}"));
+    assertEquals("a/b\\c\"d\u00e9\u00e9", response.accessToken());
+  }
+
+  @Test
+  public void stringExpiryIsAccepted() {
+    OAuth2TokenResponse response = OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":\"120\"}"));
+    assertEquals(120, response.expiresIn());
+  }
+
+  @Test
+  public void overlongExpiryIsClamped() {
+    assertEquals(OAuth2TokenResponse.MAX_EXPIRES_IN,
+      OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":99999999999999999999999}")).expiresIn());
+    assertEquals(OAuth2TokenResponse.MAX_EXPIRES_IN,
+      OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":\"99999999999999999999999\"}")).expiresIn());
+    assertEquals(OAuth2TokenResponse.MAX_EXPIRES_IN,
+      OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":1e30}")).expiresIn());
+  }
+
+  @Test
+  public void fractionalExpiryIsTruncated() {
+    assertEquals(3600, OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":3.6e3}")).expiresIn());
+    assertEquals(120, OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":120.5}")).expiresIn());
+  }
+
+  @Test
+  public void negativeExpiryIsRejected() {
+    try {
+      OAuth2TokenResponse.parse(Buffer.buffer("{\"access_token\":\"at\",\"expires_in\":-1}"));
+      fail("A negative lifetime is not a valid token response");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Token response expires_in is negative", e.getMessage());
+    }
+  }
+
+  @Test
+  public void nullValuesAreAccepted() {
+    OAuth2TokenResponse response = OAuth2TokenResponse.parse(Buffer.buffer(
+      "{\"access_token\":null,\"expires_in\":null}"));
+    assertNull(response.accessToken());
+    assertEquals(OAuth2TokenResponse.UNKNOWN_EXPIRY, response.expiresIn());
+  }
+
+  @Test
+  public void emptyObjectIsAccepted() {
+    assertNull(OAuth2TokenResponse.parse(Buffer.buffer("{}")).accessToken());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonObjectIsRejected() {
+    OAuth2TokenResponse.parse(Buffer.buffer("access_token=at&token_type=bearer"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void truncatedObjectIsRejected() {
+    OAuth2TokenResponse.parse(Buffer.buffer("{\"access_token\":\"at\""));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unterminatedStringIsRejected() {
+    OAuth2TokenResponse.parse(Buffer.buffer("{\"access_token\":\"at}"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void trailingContentIsRejected() {
+    OAuth2TokenResponse.parse(Buffer.buffer("{\"access_token\":\"at\"} x"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonNumericExpiryIsRejected() {
+    OAuth2TokenResponse.parse(Buffer.buffer("{\"expires_in\":true}"));
+  }
+}
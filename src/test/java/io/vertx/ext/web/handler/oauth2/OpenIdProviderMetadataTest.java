@@ -0,0 +1,66 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for reading OpenID Connect discovery documents - a document must be for the expected issuer and give the
+ * endpoints we cannot work without, and its well known url must be derived from the issuer.
+ */
+public class OpenIdProviderMetadataTest {
+
+  private static final String ISSUER = "https://login.example.com/tenant";
+
+  private static JsonObject document() {
+    return new JsonObject()
+      .put("issuer", ISSUER)
+      .put("authorization_endpoint", ISSUER + "/authorize")
+      .put("token_endpoint", ISSUER + "/token")
+      .put("jwks_uri", ISSUER + "/keys")
+      .put("response_types_supported", "code");
+  }
+
+  @Test
+  public void endpointsAreRead() {
+    OpenIdProviderMetadata metadata = OpenIdProviderMetadata.parse(
+      document().put("userinfo_endpoint", ISSUER + "/userinfo"), ISSUER, 1234);
+    assertEquals(ISSUER, metadata.issuer());
+    assertEquals(ISSUER + "/authorize", metadata.authorizationEndpoint());
+    assertEquals(ISSUER + "/token", metadata.tokenEndpoint());
+    assertEquals(ISSUER + "/keys", metadata.jwksUri());
+    assertEquals(ISSUER + "/userinfo", metadata.userinfoEndpoint());
+    assertNull(metadata.introspectionEndpoint());
+    assertEquals(1234, metadata.loadedAt());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void documentForAnotherIssuerIsRejected() {
+    OpenIdProviderMetadata.parse(document(), "https://login.example.com/other", 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void documentWithoutTokenEndpointIsRejected() {
+    JsonObject document = document();
+    document.remove("token_endpoint");
+    OpenIdProviderMetadata.parse(document, ISSUER, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonStringEndpointIsRejected() {
+    OpenIdProviderMetadata.parse(document().put("jwks_uri", 42), ISSUER, 0);
+  }
+
+  @Test
+  public void discoveryUrlIsDerivedFromIssuer() {
+    assertEquals(ISSUER + "/.well-known/openid-configuration", new OpenIdDiscoveryOptions(ISSUER).discoveryUrl());
+    assertEquals(ISSUER + "/.well-known/openid-configuration",
+      new OpenIdDiscoveryOptions(ISSUER + "/").discoveryUrl());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void refreshIntervalMustBePositive() {
+    new OpenIdDiscoveryOptions(ISSUER).setRefreshMillis(0);
+  }
+}
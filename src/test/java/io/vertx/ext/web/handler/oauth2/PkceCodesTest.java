@@ -0,0 +1,43 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for PKCE code verifiers and challenges - challenges must match RFC 7636, and verifiers must be well formed
+ * and never repeat.
+ */
+public class PkceCodesTest {
+
+  @Test
+  public void challengeMatchesRfcExample() {
+    // RFC 7636 appendix B
+    assertEquals("E9Melhoa2OwvFrEMTJguCHaoeK1t8URWbuGJSstw-cM",
+      PkceCodes.challenge("dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk"));
+  }
+
+  @Test
+  public void verifiersAreWellFormedAndUnique() {
+    Set<String> verifiers = new HashSet<>();
+    // Enough to take several fills of the random buffer
+    for (int i = 0; i < 1000; i++) {
+      String verifier = PkceCodes.newVerifier();
+      assertTrue(verifier.matches("[A-Za-z0-9_-]{43}"));
+      assertTrue(verifiers.add(verifier));
+    }
+  }
+
+  @Test
+  public void verifiersDifferAcrossThreads() throws Exception {
+    String[] other = new String[1];
+    Thread thread = new Thread(() -> other[0] = PkceCodes.newVerifier());
+    thread.start();
+    thread.join();
+    assertNotNull(other[0]);
+    assertNotEquals(other[0], PkceCodes.newVerifier());
+  }
+}
@@ -0,0 +1,82 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for stateless signed state values - they must round trip the return url, and be rejected when tampered with,
+ * expired, presented in another session or checked with another key.
+ */
+public class SignedOAuth2StateTest {
+
+  private static final byte[] KEY1 = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] KEY2 = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+  private static final long TTL = 60000;
+  private static final long NOW = 1430000000000L;
+  private static final String RETURN_URL = "http://localhost:8080/private/page?q=caf\u00e9";
+  private static final String NONCE = "testNonce";
+  private static final String SESSION_ID = "sessionId1";
+
+  private final SignedOAuth2State signedState = new SignedOAuth2State(KEY1, TTL);
+
+  @Test
+  public void validStateReturnsUrl() {
+    String state = signedState.sign(RETURN_URL, NONCE, SESSION_ID, NOW);
+    assertTrue(state.matches("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+"));
+    assertEquals(Optional.of(RETURN_URL), signedState.verify(state, SESSION_ID, NOW + TTL - 1));
+  }
+
+  @Test
+  public void expiredStateIsRejected() {
+    String state = signedState.sign(RETURN_URL, NONCE, SESSION_ID, NOW);
+    assertFalse(signedState.verify(state, SESSION_ID, NOW + TTL + 1).isPresent());
+  }
+
+  @Test
+  public void stateFromAnotherSessionIsRejected() {
+    String state = signedState.sign(RETURN_URL, NONCE, SESSION_ID, NOW);
+    assertFalse(signedState.verify(state, "sessionId2", NOW).isPresent());
+  }
+
+  @Test
+  public void stateSignedWithAnotherKeyIsRejected() {
+    String state = new SignedOAuth2State(KEY2, TTL).sign(RETURN_URL, NONCE, SESSION_ID, NOW);
+    assertFalse(signedState.verify(state, SESSION_ID, NOW).isPresent());
+  }
+
+  @Test
+  public void tamperedStateIsRejected() {
+    String state = signedState.sign(RETURN_URL, NONCE, SESSION_ID, NOW);
+    String forged = new SignedOAuth2State(KEY1, TTL).sign("http://evil.com/", NONCE, SESSION_ID, NOW);
+    String spliced = forged.substring(0, forged.indexOf('.')) + state.substring(state.indexOf('.'));
+    assertFalse(signedState.verify(spliced, SESSION_ID, NOW).isPresent());
+    assertFalse(signedState.verify(state.substring(1), SESSION_ID, NOW).isPresent());
+  }
+
+  @Test
+  public void malformedStateIsRejected() {
+    assertFalse(signedState.verify(null, SESSION_ID, NOW).isPresent());
+    assertFalse(signedState.verify("", SESSION_ID, NOW).isPresent());
+    assertFalse(signedState.verify("no-separator", SESSION_ID, NOW).isPresent());
+    assertFalse(signedState.verify("!!!.!!!", SESSION_ID, NOW).isPresent());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonPositiveTtlIsRejected() {
+    new SignedOAuth2State(KEY1, 0);
+  }
+
+  @Test
+  public void codeVerifierIsDerivedFromStateAndKey() {
+    String state = signedState.sign(RETURN_URL, NONCE, SESSION_ID, NOW);
+    String verifier = signedState.codeVerifier(state);
+    assertTrue(verifier.matches("[A-Za-z0-9_-]{43}"));
+    assertEquals(verifier, new SignedOAuth2State(KEY1, TTL).codeVerifier(state));
+    assertNotEquals(verifier, new SignedOAuth2State(KEY2, TTL).codeVerifier(state));
+    assertNotEquals(verifier, signedState.codeVerifier(signedState.sign(RETURN_URL, "otherNonce", SESSION_ID, NOW)));
+  }
+}
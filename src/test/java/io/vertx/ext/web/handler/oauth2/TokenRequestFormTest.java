@@ -0,0 +1,73 @@
+package io.vertx.ext.web.handler.oauth2;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for the pre-encoded parts of the code-for-token exchange request
+ */
+public class TokenRequestFormTest {
+
+  private static final AuthTokenRequestParameters PARAMS = new AuthTokenRequestParameters(
+    "https://test.com/authToken", "test client", "s3cr&t:", "http://test.com:9191/test_auth");
+
+  @Test
+  public void bodyPrefixIncludesClientCredentials() {
+    assertEquals("client_id=test%20client&client_secret=s3cr%26t%3A&grant_type=authorization_code" +
+      "&redirect_uri=http%3A%2F%2Ftest.com%3A9191%2Ftest_auth&code=", TokenRequestForm.bodyPrefix(PARAMS, true));
+  }
+
+  @Test
+  public void bodyPrefixForBasicAuthenticationOmitsClientCredentials() {
+    assertEquals("grant_type=authorization_code&redirect_uri=http%3A%2F%2Ftest.com%3A9191%2Ftest_auth&code=",
+      TokenRequestForm.bodyPrefix(PARAMS, false));
+  }
+
+  @Test
+  public void codeIsEncoded() {
+    assertEquals("a%2Bb%2Fc%3D", TokenRequestForm.encodeCode("a+b/c="));
+  }
+
+  @Test
+  public void codeVerifierParamIsSentOnlyWithPkce() {
+    assertEquals("&code_verifier=dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk",
+      TokenRequestForm.codeVerifierParam("dBjftJeZ4CVP-mB92K27uhbUJU1p1r_wW1gFWFOEjXk"));
+    assertEquals("", TokenRequestForm.codeVerifierParam(null));
+  }
+
+  @Test
+  public void basicAuthorizationEncodesCredentialsBeforeJoining() {
+    String header = TokenRequestForm.basicAuthorization(PARAMS);
+    assertTrue(header.startsWith("Basic "));
+    String credentials = new String(Base64.getDecoder().decode(header.substring(6)), StandardCharsets.US_ASCII);
+    assertEquals("test%20client:s3cr%26t%3A", credentials);
+  }
+
+  @Test
+  public void refreshBodyCarriesRefreshToken() {
+    assertEquals("client_id=test%20client&client_secret=s3cr%26t%3A&grant_type=refresh_token&refresh_token=r%2F1",
+      TokenRequestForm.refreshBody(PARAMS, true, "r/1"));
+    assertEquals("grant_type=refresh_token&refresh_token=r%2F1", TokenRequestForm.refreshBody(PARAMS, false, "r/1"));
+  }
+
+  @Test
+  public void introspectionBodyCarriesToken() {
+    assertEquals("client_id=test%20client&client_secret=s3cr%26t%3A&token_type_hint=access_token&token=a%2Bb",
+      TokenRequestForm.introspectionBody(TokenRequestForm.introspectionPrefix("test client", "s3cr&t:"), "a+b"));
+    assertEquals("token_type_hint=access_token&token=a%2Bb",
+      TokenRequestForm.introspectionBody(TokenRequestForm.introspectionPrefix(null, null), "a+b"));
+  }
+
+  @Test
+  public void clientCredentialsBodyCarriesScopeWhenRequested() {
+    String prefix = TokenRequestForm.clientCredentialsPrefix(PARAMS);
+    assertEquals("client_id=test%20client&client_secret=s3cr%26t%3A&grant_type=client_credentials", prefix);
+    assertEquals("&scope=read%20write", TokenRequestForm.scopeParam("read write"));
+    assertEquals("", TokenRequestForm.scopeParam(null));
+    assertEquals("", TokenRequestForm.scopeParam(""));
+  }
+}